@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.transform.Result;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.apache.commons.io.IOUtils;
+
+import org.apache.fop.apps.FOPException;
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.Fop;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.events.Event;
+import org.apache.fop.events.EventListener;
+
+/**
+ * Helpers shared by the benchmarks.
+ */
+final class BenchmarkSupport {
+
+    private static final TransformerFactory TRANSFORMER_FACTORY = TransformerFactory.newInstance();
+
+    /** Swallows FOP events, so that missing glyphs and the like are not logged. */
+    private static final EventListener QUIET = new EventListener() {
+        public void processEvent(Event event) {
+        }
+    };
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * Creates a FOP factory resolving against the working directory.
+     * @return a new FOP factory
+     */
+    static FopFactory newFopFactory() {
+        return FopFactory.newInstance(new File(".").toURI());
+    }
+
+    /**
+     * Creates a user agent that does not log events.
+     * @param fopFactory the FOP factory
+     * @return a new user agent
+     */
+    static FOUserAgent newUserAgent(FopFactory fopFactory) {
+        return quiet(fopFactory.newFOUserAgent());
+    }
+
+    /**
+     * Stops a user agent from logging events.
+     * @param userAgent the user agent
+     * @return the user agent
+     */
+    static FOUserAgent quiet(FOUserAgent userAgent) {
+        userAgent.getEventBroadcaster().addEventListener(QUIET);
+        return userAgent;
+    }
+
+    /**
+     * Feeds an FO document to FOP.
+     * @param document the encoded FO document
+     * @param fop the FOP instance
+     * @throws FOPException if FOP cannot be set up
+     * @throws TransformerException if processing fails
+     */
+    static void process(byte[] document, Fop fop) throws FOPException, TransformerException {
+        Transformer transformer = TRANSFORMER_FACTORY.newTransformer();
+        Result result = new SAXResult(fop.getDefaultHandler());
+        transformer.transform(new StreamSource(new ByteArrayInputStream(document)), result);
+    }
+
+    /**
+     * Reads one of the fonts bundled with the benchmarks.
+     * @param name the path of the font, relative to the fonts directory
+     * @return the font file content
+     * @throws IOException if the font cannot be read
+     */
+    static byte[] readFont(String name) throws IOException {
+        InputStream in = BenchmarkSupport.class.getResourceAsStream("fonts/" + name);
+        if (in == null) {
+            throw new IOException("Font not bundled with the benchmarks: " + name);
+        }
+        try {
+            return IOUtils.toByteArray(in);
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+}
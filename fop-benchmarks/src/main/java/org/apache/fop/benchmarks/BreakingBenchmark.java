@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.fop.fo.Constants;
+import org.apache.fop.layoutmgr.BreakingAlgorithm;
+import org.apache.fop.layoutmgr.InlineKnuthSequence;
+import org.apache.fop.layoutmgr.KnuthBox;
+import org.apache.fop.layoutmgr.KnuthElement;
+import org.apache.fop.layoutmgr.KnuthGlue;
+import org.apache.fop.layoutmgr.KnuthPenalty;
+import org.apache.fop.layoutmgr.KnuthSequence;
+
+/**
+ * Measures the Knuth line breaking of a single paragraph, the way LineLayoutManager breaks
+ * it: a first try without hyphenation, a second one with all breaks allowed and a forced
+ * last one, all on the same element list.
+ * <p>
+ * Run with {@code -prof gc}: {@code gc.alloc.rate.norm} is the allocation per paragraph.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class BreakingBenchmark {
+
+    private static final int SPACE = 3000;
+
+    private static final int HYPHEN = 4000;
+
+    /** The number of words in the paragraph. */
+    @Param({"100", "1000"})
+    public int words;
+
+    /** The line width, in millipoints. */
+    @Param({"200000", "450000"})
+    public int lineWidth;
+
+    private List<KnuthElement> elements;
+
+    /** Builds the paragraph's element list. */
+    @Setup
+    public void setUp() {
+        KnuthSequence sequence = new InlineKnuthSequence();
+        for (int i = 0; i < words; i++) {
+            // words of two to four syllables, hyphenation points between the syllables
+            int syllables = 2 + (i * 7) % 3;
+            for (int j = 0; j < syllables; j++) {
+                if (j > 0) {
+                    sequence.add(new KnuthPenalty(HYPHEN, KnuthPenalty.FLAGGED_PENALTY, true,
+                            null, false));
+                }
+                sequence.add(new KnuthBox(6000 + ((i + j) * 1327) % 9000, null, false));
+            }
+            sequence.add(new KnuthGlue(SPACE, 1500, 1000, null, false));
+        }
+        sequence.add(new KnuthPenalty(0, KnuthElement.INFINITE, false, null, false));
+        sequence.add(new KnuthGlue(0, 10000000, 0, null, false));
+        sequence.add(new KnuthPenalty(0, -KnuthElement.INFINITE, false, null, false));
+        elements = sequence;
+    }
+
+    /**
+     * Breaks a copy of the paragraph into lines.
+     * @return the number of lines
+     */
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public int breakParagraph() {
+        KnuthSequence par = new InlineKnuthSequence(elements);
+        LineBreaker breaker = new LineBreaker(lineWidth);
+        int lines = breaker.findBreakingPoints(par, 1.0, false,
+                BreakingAlgorithm.NO_FLAGGED_PENALTIES);
+        if (lines == 0) {
+            lines = breaker.findBreakingPoints(par, 5.0, false, BreakingAlgorithm.ALL_BREAKS);
+        }
+        if (lines == 0) {
+            lines = breaker.findBreakingPoints(par, 20.0, true, BreakingAlgorithm.ALL_BREAKS);
+        }
+        return lines;
+    }
+
+    private static final class LineBreaker extends BreakingAlgorithm {
+
+        LineBreaker(int lineWidth) {
+            super(Constants.EN_JUSTIFY, Constants.EN_START, true, false, 2);
+            this.lineWidth = lineWidth;
+        }
+
+        @Override
+        public void updateData1(int total, double demerits) {
+        }
+
+        @Override
+        public void updateData2(KnuthNode bestActiveNode, KnuthSequence sequence, int total) {
+        }
+
+        @Override
+        protected int filterActiveNodes() {
+            // leave only the active node with fewest total demerits
+            KnuthNode bestActiveNode = null;
+            for (int i = startLine; i < endLine; i++) {
+                for (KnuthNode node = getNode(i); node != null; node = node.next) {
+                    bestActiveNode = compareNodes(bestActiveNode, node);
+                    if (node != bestActiveNode) {
+                        removeNode(i, node);
+                    }
+                }
+            }
+            return bestActiveNode.line;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.benchmarks;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+
+import javax.imageio.ImageIO;
+
+import org.apache.xmlgraphics.util.io.Base64EncodeStream;
+
+/**
+ * The canned FO documents the benchmarks run on. Each document is generated from a fixed
+ * seed of text and images, so its content only depends on the requested size.
+ */
+public enum Corpus {
+
+    /** One page-sequence holding a long table with a repeated header and footer. */
+    LONG_TABLE {
+        String generate(int size) {
+            StringBuilder sb = startDocument();
+            sb.append("<fo:table table-layout='fixed' width='100%' border-collapse='separate'>");
+            sb.append("<fo:table-column column-width='15%'/><fo:table-column column-width='55%'/>");
+            sb.append("<fo:table-column column-width='15%'/><fo:table-column column-width='15%'/>");
+            sb.append("<fo:table-header><fo:table-row font-weight='bold'>");
+            cell(sb, "Item");
+            cell(sb, "Description");
+            cell(sb, "Quantity");
+            cell(sb, "Amount");
+            sb.append("</fo:table-row></fo:table-header>");
+            sb.append("<fo:table-footer><fo:table-row>");
+            sb.append("<fo:table-cell number-columns-spanned='4'><fo:block text-align='end'>");
+            sb.append("Continued</fo:block></fo:table-cell>");
+            sb.append("</fo:table-row></fo:table-footer>");
+            sb.append("<fo:table-body>");
+            for (int row = 0; row < size * 50; row++) {
+                sb.append("<fo:table-row>");
+                cell(sb, String.valueOf(row + 1));
+                cell(sb, LATIN_WORDS[row % LATIN_WORDS.length] + ' ' + sentence(row, 12));
+                cell(sb, String.valueOf(row % 17 + 1));
+                cell(sb, (row % 997) + "." + (row % 89 + 10));
+                sb.append("</fo:table-row>");
+            }
+            sb.append("</fo:table-body></fo:table>");
+            return endDocument(sb);
+        }
+    },
+
+    /** Justified paragraphs of Chinese and Japanese text, broken between ideographs. */
+    CJK_TEXT {
+        String generate(int size) {
+            StringBuilder sb = startDocument();
+            for (int i = 0; i < size * 20; i++) {
+                sb.append("<fo:block text-align='justify' space-after='6pt' language='zh'>");
+                for (int j = 0; j < 120; j++) {
+                    sb.append(CJK_TEXT_SEED.charAt((i * 31 + j * 7) % CJK_TEXT_SEED.length()));
+                }
+                sb.append("</fo:block>");
+            }
+            return endDocument(sb);
+        }
+    },
+
+    /** Paragraphs interleaved with raster images and SVG graphics. */
+    IMAGES {
+        String generate(int size) {
+            StringBuilder sb = startDocument();
+            for (int i = 0; i < size * 20; i++) {
+                sb.append("<fo:block space-after='6pt'>").append(sentence(i, 30)).append("</fo:block>");
+                sb.append("<fo:block>");
+                sb.append("<fo:external-graphic content-width='60pt' src=\"url('");
+                sb.append(IMAGE_URIS[i % IMAGE_URIS.length]).append("')\"/>");
+                sb.append("<fo:instream-foreign-object content-width='60pt'>");
+                sb.append("<svg xmlns='http://www.w3.org/2000/svg' width='100' height='60'>");
+                sb.append("<rect x='5' y='5' width='90' height='50' fill='#").append(Integer.toHexString(
+                        0x100000 + (i * 0x3f1f7) % 0xefffff)).append("'/>");
+                sb.append("<circle cx='50' cy='30' r='").append(10 + i % 15).append("' fill='white'/>");
+                sb.append("</svg></fo:instream-foreign-object>");
+                sb.append("</fo:block>");
+            }
+            return endDocument(sb);
+        }
+    },
+
+    /** A short letter, the kind of document servers render in large batches. */
+    LETTER {
+        String generate(int size) {
+            StringBuilder sb = startDocument();
+            sb.append("<fo:block space-after='12pt'>Dear customer,</fo:block>");
+            for (int i = 0; i < size * 8; i++) {
+                sb.append("<fo:block text-align='justify' space-after='6pt'>");
+                sb.append(sentence(i, 60)).append("</fo:block>");
+            }
+            sb.append("<fo:block space-before='12pt'>Yours sincerely</fo:block>");
+            return endDocument(sb);
+        }
+    },
+
+    /** Tables nested four deep, with borders, padding and fonts set through shorthands. */
+    NESTED_TABLES {
+        String generate(int size) {
+            StringBuilder sb = startDocument();
+            for (int i = 0; i < size * 5; i++) {
+                nestedTable(sb, i, 4);
+            }
+            return endDocument(sb);
+        }
+    };
+
+    private static final String[] LATIN_WORDS = ("lorem ipsum dolor sit amet consectetur adipiscing elit"
+            + " sed do eiusmod tempor incididunt ut labore et dolore magna aliqua enim ad minim veniam"
+            + " quis nostrud exercitation ullamco laboris nisi aliquip ex ea commodo consequat duis aute"
+            + " irure in reprehenderit voluptate velit esse cillum fugiat nulla pariatur excepteur sint"
+            + " occaecat cupidatat non proident sunt culpa qui officia deserunt mollit anim id est laborum")
+            .split(" ");
+
+    private static final String CJK_TEXT_SEED = "文字を組むことは"
+            + "紙面に言葉を配置する技術である"
+            + "。排版是指将文字、图片等元素在"
+            + "版面上调整位置的过程。印刷と出"
+            + "版の歴史は長い。字体、行距、字"
+            + "距都会影响阅读。";
+
+    private static final String[] IMAGE_URIS = createImageURIs(8);
+
+    /**
+     * Generates the FO document.
+     * @param size the size factor; the document grows linearly with it
+     * @return the document
+     */
+    abstract String generate(int size);
+
+    /**
+     * Generates the FO document as UTF-8 encoded bytes.
+     * @param size the size factor; the document grows linearly with it
+     * @return the encoded document
+     */
+    public byte[] getBytes(int size) {
+        try {
+            return generate(size).getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static StringBuilder startDocument() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version='1.0' encoding='UTF-8'?>");
+        sb.append("<fo:root xmlns:fo='http://www.w3.org/1999/XSL/Format'>");
+        sb.append("<fo:layout-master-set>");
+        sb.append("<fo:simple-page-master master-name='A4' page-height='29.7cm' page-width='21cm'");
+        sb.append(" margin='1.5cm'>");
+        sb.append("<fo:region-body margin-top='1.5cm' margin-bottom='1.5cm'/>");
+        sb.append("<fo:region-before extent='1cm'/><fo:region-after extent='1cm'/>");
+        sb.append("</fo:simple-page-master></fo:layout-master-set>");
+        sb.append("<fo:page-sequence master-reference='A4' font-family='serif' font-size='10pt'>");
+        sb.append("<fo:static-content flow-name='xsl-region-before'>");
+        sb.append("<fo:block text-align='end'>Apache FOP benchmark</fo:block></fo:static-content>");
+        sb.append("<fo:static-content flow-name='xsl-region-after'>");
+        sb.append("<fo:block text-align='center'>Page <fo:page-number/></fo:block></fo:static-content>");
+        sb.append("<fo:flow flow-name='xsl-region-body'>");
+        return sb;
+    }
+
+    private static String endDocument(StringBuilder sb) {
+        sb.append("</fo:flow></fo:page-sequence></fo:root>");
+        return sb.toString();
+    }
+
+    private static void cell(StringBuilder sb, String text) {
+        sb.append("<fo:table-cell padding='2pt' border='0.5pt solid black'><fo:block>");
+        sb.append(text).append("</fo:block></fo:table-cell>");
+    }
+
+    private static void nestedTable(StringBuilder sb, int seed, int depth) {
+        sb.append("<fo:table table-layout='fixed' width='100%' border='0.5pt solid gray'");
+        sb.append(" margin='1pt 2pt' font='italic 9pt serif'>");
+        sb.append("<fo:table-column column-width='proportional-column-width(1)'");
+        sb.append(" number-columns-repeated='2'/>");
+        sb.append("<fo:table-body>");
+        for (int row = 0; row < 2; row++) {
+            sb.append("<fo:table-row keep-together.within-page='always'>");
+            for (int column = 0; column < 2; column++) {
+                sb.append("<fo:table-cell padding='1pt 2pt' border-bottom='0.5pt dotted black'");
+                sb.append(" background-color='#")
+                        .append(Integer.toHexString(0xe0e0e0 + (seed + column) % 16));
+                sb.append("'><fo:block text-align='justify' line-height='1.2'>");
+                if (depth > 1 && row == column) {
+                    nestedTable(sb, seed + row, depth - 1);
+                } else {
+                    sb.append(sentence(seed * 4 + row * 2 + column, 8));
+                }
+                sb.append("</fo:block></fo:table-cell>");
+            }
+            sb.append("</fo:table-row>");
+        }
+        sb.append("</fo:table-body></fo:table>");
+    }
+
+    private static String sentence(int seed, int words) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append(LATIN_WORDS[(seed * 13 + i * 7) % LATIN_WORDS.length]);
+        }
+        return sb.append('.').toString();
+    }
+
+    private static String[] createImageURIs(int count) {
+        String[] uris = new String[count];
+        for (int i = 0; i < count; i++) {
+            BufferedImage image = new BufferedImage(120, 80, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g2d = image.createGraphics();
+            g2d.setColor(Color.getHSBColor(i / (float) count, 0.6f, 0.9f));
+            g2d.fillRect(0, 0, 120, 80);
+            g2d.setColor(Color.DARK_GRAY);
+            g2d.drawString("Image " + (i + 1), 30, 45);
+            g2d.dispose();
+            try {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                Base64EncodeStream base64 = new Base64EncodeStream(out, false);
+                ImageIO.write(image, "png", base64);
+                base64.close();
+                uris[i] = "data:image/png;base64," + out.toString("US-ASCII");
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return uris;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.Fop;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.fo.FOEventHandler;
+
+/**
+ * Measures building the FO tree: XML parsing, property resolution and validation, with
+ * no layout behind it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class FOTreeBuilderBenchmark {
+
+    /** The document to parse. */
+    @Param({"LONG_TABLE", "CJK_TEXT", "IMAGES", "NESTED_TABLES"})
+    public Corpus corpus;
+
+    /** The size factor of the document. */
+    @Param({"4"})
+    public int size;
+
+    private FopFactory fopFactory;
+
+    private byte[] document;
+
+    /** Generates the document. */
+    @Setup
+    public void setUp() {
+        fopFactory = BenchmarkSupport.newFopFactory();
+        document = corpus.getBytes(size);
+    }
+
+    /**
+     * Parses the document into an FO tree.
+     * @return the FOP instance, to keep its FO tree from being optimized away
+     * @throws Exception if parsing fails
+     */
+    @Benchmark
+    public Fop buildFOTree() throws Exception {
+        FOUserAgent userAgent = BenchmarkSupport.newUserAgent(fopFactory);
+        userAgent.setFOEventHandlerOverride(new FOEventHandler(userAgent) { });
+        Fop fop = fopFactory.newFop(userAgent);
+        BenchmarkSupport.process(document, fop);
+        return fop;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.commons.io.IOUtils;
+
+import org.apache.fop.apps.io.ResourceResolverFactory;
+import org.apache.fop.fonts.MultiByteFont;
+import org.apache.fop.fonts.truetype.FontFileReader;
+import org.apache.fop.fonts.truetype.OFFontLoader;
+import org.apache.fop.fonts.truetype.OTFSubSetFile;
+import org.apache.fop.fonts.truetype.TTFSubSetFile;
+
+/**
+ * Measures the creation of embedded font subsets, for a TrueType font (glyf outlines) and
+ * an OpenType font (CFF outlines).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class FontSubsettingBenchmark {
+
+    private static final String TRUETYPE_FONT = "ttf/DejaVuLGCSerif.ttf";
+
+    private static final String OPENTYPE_FONT = "otf/SourceSansProBold.otf";
+
+    private static final String SAMPLE_TEXT = "The quick brown fox jumps over the lazy dog 0123456789"
+            + " ÀÉÎÕÜàéîõü ‘’“”–—…";
+
+    private byte[] trueTypeFont;
+
+    private Map<Integer, Integer> trueTypeGlyphs;
+
+    private byte[] openTypeFont;
+
+    private File openTypeFile;
+
+    private MultiByteFont openTypeMetrics;
+
+    /**
+     * Reads the fonts and selects the glyphs to subset.
+     * @throws IOException if a font cannot be read
+     */
+    @Setup
+    public void setUp() throws IOException {
+        trueTypeFont = BenchmarkSupport.readFont(TRUETYPE_FONT);
+        trueTypeGlyphs = new HashMap<Integer, Integer>();
+        for (int i = 0; i < 256; i++) {
+            trueTypeGlyphs.put(i, i);
+        }
+        openTypeFont = BenchmarkSupport.readFont(OPENTYPE_FONT);
+        openTypeFile = File.createTempFile("fop-benchmark", ".otf");
+        OutputStream out = new FileOutputStream(openTypeFile);
+        try {
+            out.write(openTypeFont);
+        } finally {
+            IOUtils.closeQuietly(out);
+        }
+        OFFontLoader loader = new OFFontLoader(openTypeFile.toURI(),
+                ResourceResolverFactory.createDefaultInternalResourceResolver(
+                        openTypeFile.getParentFile().toURI()));
+        openTypeMetrics = (MultiByteFont) loader.getFont();
+        for (int i = 0; i < SAMPLE_TEXT.length(); i++) {
+            openTypeMetrics.mapChar(SAMPLE_TEXT.charAt(i));
+        }
+    }
+
+    /** Deletes the temporary copy of the OpenType font. */
+    @TearDown
+    public void tearDown() {
+        openTypeFile.delete();
+    }
+
+    /**
+     * Subsets the TrueType font.
+     * @return the subset font
+     * @throws IOException if the font cannot be subset
+     */
+    @Benchmark
+    public byte[] subsetTrueType() throws IOException {
+        FontFileReader reader = new FontFileReader(ByteBuffer.wrap(trueTypeFont));
+        String header = OFFontLoader.readHeader(reader);
+        TTFSubSetFile subset = new TTFSubSetFile();
+        subset.readFont(reader, null, header, trueTypeGlyphs);
+        return subset.getFontSubset();
+    }
+
+    /**
+     * Subsets the OpenType font.
+     * @return the subset font
+     * @throws IOException if the font cannot be subset
+     */
+    @Benchmark
+    public byte[] subsetOpenType() throws IOException {
+        FontFileReader reader = new FontFileReader(ByteBuffer.wrap(openTypeFont));
+        OTFSubSetFile subset = new OTFSubSetFile();
+        subset.readFont(reader, openTypeMetrics.getEmbedFontName(), openTypeMetrics);
+        return subset.getFontSubset();
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.xml.sax.InputSource;
+
+import org.apache.fop.apps.io.InternalResourceResolver;
+import org.apache.fop.apps.io.ResourceResolverFactory;
+import org.apache.fop.hyphenation.HyphenationException;
+import org.apache.fop.hyphenation.HyphenationTree;
+import org.apache.fop.hyphenation.HyphenationWordCache;
+import org.apache.fop.hyphenation.Hyphenator;
+import org.apache.fop.hyphenation.SerializeHyphPattern;
+
+/**
+ * Measures pattern loading, from XML and from a precompiled pattern file, and word hyphenation
+ * with a {@link HyphenationTree}.
+ * <p>
+ * FOP does not ship hyphenation patterns, so the patterns are generated: a break is
+ * allowed before every consonant-vowel pair and between two consonants, and forbidden
+ * inside common digraphs. That is enough to exercise the trie the way real patterns do.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class HyphenationBenchmark {
+
+    private static final String VOWELS = "aeiouy";
+
+    private static final String CONSONANTS = "bcdfghjklmnpqrstvwxz";
+
+    private static final String[] DIGRAPHS = {"ch", "ck", "ph", "qu", "sh", "th", "wh"};
+
+    private static final String[] WORDS = ("hyphenation typesetting justification internationalization"
+            + " consectetur adipiscing exercitation reprehenderit voluptate incididunt pariatur"
+            + " occaecat cupidatat proident deserunt laborum formatting objects pagination"
+            + " transformation characteristics representation accessibility implementation"
+            + " subsequently particularly nevertheless straightforward documentation").split(" ");
+
+    private String patterns;
+
+    private HyphenationTree tree;
+
+    private HyphenationWordCache wordCache;
+
+    private File directory;
+
+    private InternalResourceResolver resourceResolver;
+
+    /**
+     * Generates and loads the patterns, and compiles them into a pattern file.
+     * @throws HyphenationException if the patterns cannot be loaded
+     * @throws IOException if the pattern file cannot be written
+     */
+    @Setup
+    public void setUp() throws HyphenationException, IOException {
+        patterns = createPatterns();
+        tree = loadPatterns();
+        wordCache = new HyphenationWordCache();
+        directory = File.createTempFile("hyph", "bench");
+        directory.delete();
+        directory.mkdir();
+        OutputStream out = new FileOutputStream(new File(directory, "bench.xml"));
+        try {
+            out.write(patterns.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+        new SerializeHyphPattern().serializeDir(directory, directory);
+        resourceResolver = ResourceResolverFactory.createDefaultInternalResourceResolver(directory.toURI());
+    }
+
+    /** Deletes the pattern files. */
+    @TearDown
+    public void tearDown() {
+        new File(directory, "bench.xml").delete();
+        new File(directory, "bench.hyp").delete();
+        directory.delete();
+    }
+
+    private static String createPatterns() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version='1.0' encoding='UTF-8'?><hyphenation-info>");
+        sb.append("<hyphen-min before='2' after='2'/><classes>");
+        String letters = VOWELS + CONSONANTS;
+        for (int i = 0; i < letters.length(); i++) {
+            char c = letters.charAt(i);
+            sb.append(c).append(Character.toUpperCase(c)).append('\n');
+        }
+        sb.append("</classes><patterns>");
+        for (int i = 0; i < CONSONANTS.length(); i++) {
+            char c = CONSONANTS.charAt(i);
+            for (int j = 0; j < VOWELS.length(); j++) {
+                sb.append('1').append(c).append(VOWELS.charAt(j)).append('\n');
+            }
+            for (int j = 0; j < CONSONANTS.length(); j++) {
+                sb.append(c).append('1').append(CONSONANTS.charAt(j)).append('\n');
+            }
+        }
+        for (String digraph : DIGRAPHS) {
+            sb.append(digraph.charAt(0)).append('2').append(digraph.charAt(1)).append('\n');
+        }
+        sb.append("</patterns></hyphenation-info>");
+        return sb.toString();
+    }
+
+    /**
+     * Loads the patterns into a new hyphenation tree.
+     * @return the hyphenation tree
+     * @throws HyphenationException if the patterns cannot be loaded
+     */
+    @Benchmark
+    public HyphenationTree loadPatterns() throws HyphenationException {
+        HyphenationTree hyphenationTree = new HyphenationTree();
+        hyphenationTree.loadPatterns(new InputSource(new StringReader(patterns)));
+        return hyphenationTree;
+    }
+
+    /**
+     * Loads the precompiled pattern file into a new hyphenation tree.
+     * @return the hyphenation tree
+     */
+    @Benchmark
+    public HyphenationTree loadPatternFile() {
+        return Hyphenator.getUserHyphenationTree("bench.hyp" + Hyphenator.HYPTYPE, resourceResolver);
+    }
+
+    /**
+     * Hyphenates a list of words.
+     * @param blackhole consumes the hyphenation results
+     */
+    @Benchmark
+    public void hyphenate(Blackhole blackhole) {
+        for (String word : WORDS) {
+            blackhole.consume(tree.hyphenate(word, 2, 2));
+        }
+    }
+
+    /**
+     * Hyphenates a list of words through a word cache, as the layout does.
+     * @param blackhole consumes the hyphenation results
+     */
+    @Benchmark
+    public void hyphenateCached(Blackhole blackhole) {
+        for (String word : WORDS) {
+            blackhole.consume(wordCache.hyphenate("en", null, word, 2, 2, tree));
+        }
+    }
+}
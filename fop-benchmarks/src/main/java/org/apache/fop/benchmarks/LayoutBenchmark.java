@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.benchmarks;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.fop.apps.FOPException;
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.Fop;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.apps.FormattingResults;
+import org.apache.fop.apps.MimeConstants;
+import org.apache.fop.area.AreaTreeHandler;
+import org.apache.fop.area.AreaTreeModel;
+import org.apache.fop.fonts.FontSetup;
+
+/**
+ * Measures FO tree building plus layout (line breaking in LineLayoutManager and page
+ * breaking in PageBreaker) into an in-memory area tree, without rendering.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class LayoutBenchmark {
+
+    /** The document to lay out. */
+    @Param({"LONG_TABLE", "CJK_TEXT", "IMAGES"})
+    public Corpus corpus;
+
+    /** The size factor of the document. */
+    @Param({"4"})
+    public int size;
+
+    private FopFactory fopFactory;
+
+    private byte[] document;
+
+    /** Generates the document. */
+    @Setup
+    public void setUp() {
+        fopFactory = BenchmarkSupport.newFopFactory();
+        document = corpus.getBytes(size);
+    }
+
+    /**
+     * Lays out the document.
+     * @return the formatting results
+     * @throws Exception if layout fails
+     */
+    @Benchmark
+    public FormattingResults layOut() throws Exception {
+        FOUserAgent userAgent = BenchmarkSupport.newUserAgent(fopFactory);
+        AreaTreeHandler areaTreeHandler = new AreaTreeHandler(userAgent,
+                MimeConstants.MIME_FOP_AREA_TREE, null) {
+            protected void setupModel(FOUserAgent ua, String outputFormat, OutputStream stream)
+                    throws FOPException {
+                this.model = new AreaTreeModel();
+                FontSetup.setup(fontInfo, false);
+            }
+        };
+        userAgent.setFOEventHandlerOverride(areaTreeHandler);
+        Fop fop = fopFactory.newFop(userAgent);
+        BenchmarkSupport.process(document, fop);
+        return fop.getResults();
+    }
+}
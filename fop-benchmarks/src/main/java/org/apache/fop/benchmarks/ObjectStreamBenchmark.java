@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
+
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.Fop;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.apps.MimeConstants;
+
+/**
+ * Measures the rendering of accessible PDF documents, whose structure trees are packed
+ * into object streams, under different object stream strategies. The size of the output
+ * is reported next to the time, so that the two can be weighed against each other.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class ObjectStreamBenchmark {
+
+    /** The document to render. */
+    @Param({"LONG_TABLE"})
+    public Corpus corpus;
+
+    /** The size factor of the document. */
+    @Param({"8"})
+    public int size;
+
+    /** The maximum number of objects per object stream. */
+    @Param({"100", "1000"})
+    public int capacity;
+
+    /** The maximum size of an object stream before compression, 0 for no limit. */
+    @Param({"0", "65536"})
+    public int maxBytes;
+
+    /** Whether structure elements are grouped by structure type. */
+    @Param({"false", "true"})
+    public boolean grouping;
+
+    private FopFactory fopFactory;
+
+    private byte[] document;
+
+    /** The size of the last document rendered, reported as a secondary result. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class OutputSize {
+
+        /** The number of bytes written. */
+        public long outputBytes;
+
+        /** Resets the counter. */
+        @Setup(Level.Iteration)
+        public void reset() {
+            outputBytes = 0;
+        }
+    }
+
+    /** Generates the document. */
+    @Setup
+    public void setUp() {
+        fopFactory = BenchmarkSupport.newFopFactory();
+        document = corpus.getBytes(size);
+    }
+
+    /**
+     * Renders the document to PDF 1.5 with accessibility enabled.
+     * @param outputSize receives the size of the output
+     * @throws Exception if rendering fails
+     */
+    @Benchmark
+    public void render(OutputSize outputSize) throws Exception {
+        FOUserAgent userAgent = BenchmarkSupport.newUserAgent(fopFactory);
+        userAgent.setAccessibility(true);
+        userAgent.getRendererOptions().put("version", "1.5");
+        userAgent.getRendererOptions().put("object-stream-capacity", capacity);
+        userAgent.getRendererOptions().put("object-stream-max-bytes", maxBytes);
+        userAgent.getRendererOptions().put("object-stream-grouping", grouping);
+        CountingOutputStream out = new CountingOutputStream(new NullOutputStream());
+        Fop fop = fopFactory.newFop(MimeConstants.MIME_PDF, userAgent, out);
+        BenchmarkSupport.process(document, fop);
+        outputSize.outputBytes = out.getByteCount();
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
+
+import org.apache.fop.apps.Fop;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.apps.MimeConstants;
+
+/**
+ * Measures the complete pipeline, from FO to the output format: layout, the IFRenderer
+ * and the output format's document handler (PDF, PostScript or AFP).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class RenderingBenchmark {
+
+    /** The document to render. */
+    @Param({"LONG_TABLE", "CJK_TEXT", "IMAGES"})
+    public Corpus corpus;
+
+    /** The size factor of the document. */
+    @Param({"4"})
+    public int size;
+
+    /** The output format. */
+    @Param({MimeConstants.MIME_PDF, MimeConstants.MIME_POSTSCRIPT, MimeConstants.MIME_AFP})
+    public String outputFormat;
+
+    private FopFactory fopFactory;
+
+    private byte[] document;
+
+    /** Generates the document. */
+    @Setup
+    public void setUp() {
+        fopFactory = BenchmarkSupport.newFopFactory();
+        document = corpus.getBytes(size);
+    }
+
+    /**
+     * Renders the document.
+     * @return the number of bytes written
+     * @throws Exception if rendering fails
+     */
+    @Benchmark
+    public int render() throws Exception {
+        CountingOutputStream out = new CountingOutputStream(new NullOutputStream());
+        Fop fop = fopFactory.newFop(outputFormat, BenchmarkSupport.newUserAgent(fopFactory), out);
+        BenchmarkSupport.process(document, fop);
+        return out.getCount();
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.transform.stream.StreamSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
+
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.Fop;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.apps.FopSession;
+import org.apache.fop.apps.MimeConstants;
+
+/**
+ * Compares rendering a batch of short documents through a {@link FopSession} with
+ * rendering each of them through a new {@link Fop} instance. Run it with several threads
+ * (-t) to also measure the contention on the shared session.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class SessionBenchmark {
+
+    /** The size factor of the letter; 1 gives a single page. */
+    @Param({"1"})
+    public int size;
+
+    private FopFactory fopFactory;
+
+    private FopSession session;
+
+    private byte[] document;
+
+    /**
+     * Generates the document and sets up the session.
+     * @throws Exception if the session cannot be created
+     */
+    @Setup
+    public void setUp() throws Exception {
+        fopFactory = BenchmarkSupport.newFopFactory();
+        session = fopFactory.newSession(MimeConstants.MIME_PDF);
+        document = Corpus.LETTER.getBytes(size);
+    }
+
+    /**
+     * Renders the document through a new Fop instance.
+     * @return the number of bytes written
+     * @throws Exception if rendering fails
+     */
+    @Benchmark
+    public int newFop() throws Exception {
+        CountingOutputStream out = new CountingOutputStream(new NullOutputStream());
+        Fop fop = fopFactory.newFop(MimeConstants.MIME_PDF, BenchmarkSupport.newUserAgent(fopFactory), out);
+        BenchmarkSupport.process(document, fop);
+        return out.getCount();
+    }
+
+    /**
+     * Renders the document through the session.
+     * @return the number of bytes written
+     * @throws Exception if rendering fails
+     */
+    @Benchmark
+    public int session() throws Exception {
+        CountingOutputStream out = new CountingOutputStream(new NullOutputStream());
+        FOUserAgent userAgent = session.newFOUserAgent();
+        BenchmarkSupport.quiet(userAgent);
+        session.render(userAgent, new StreamSource(new ByteArrayInputStream(document)), out);
+        return out.getCount();
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.apache.commons.io.IOUtils;
+
+import org.apache.fop.apps.io.ResourceResolverFactory;
+import org.apache.fop.fonts.MultiByteFont;
+import org.apache.fop.fonts.truetype.OFFontLoader;
+
+/**
+ * Measures glyph substitution and positioning of words with the GSUB and GPOS tables of a
+ * TrueType font, once with a font that shaped the words before and once with a fresh
+ * instance of the font that has to run the lookups for every word.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class ShapingBenchmark {
+
+    private static final String FONT = "ttf/DejaVuLGCSerif.ttf";
+
+    private static final String[] WORDS = ("office affluent waffle fjord Typography AVATAR WAVE"
+            + " Yvonne LTA Tokyo Vienna efficient suffix offline shuffle traffic").split(" ");
+
+    private static final String SCRIPT = "latn";
+
+    private static final String LANGUAGE = "dflt";
+
+    private static final int FONT_SIZE = 10000;
+
+    private File fontFile;
+
+    private MultiByteFont font;
+
+    /**
+     * Loads the font with its advanced typographic tables.
+     * @throws IOException if the font cannot be read
+     */
+    @Setup
+    public void setUp() throws IOException {
+        fontFile = File.createTempFile("fop-benchmark", ".ttf");
+        OutputStream out = new FileOutputStream(fontFile);
+        try {
+            out.write(BenchmarkSupport.readFont(FONT));
+        } finally {
+            IOUtils.closeQuietly(out);
+        }
+        OFFontLoader loader = new OFFontLoader(fontFile.toURI(),
+                ResourceResolverFactory.createDefaultInternalResourceResolver(
+                        fontFile.getParentFile().toURI()));
+        font = (MultiByteFont) loader.getFont();
+    }
+
+    /** Deletes the temporary copy of the font. */
+    @TearDown
+    public void tearDown() {
+        fontFile.delete();
+    }
+
+    /**
+     * Shapes the words with the same font instance every time.
+     * @param blackhole consumes the shaping results
+     */
+    @Benchmark
+    public void shape(Blackhole blackhole) {
+        shape(font, blackhole);
+    }
+
+    /**
+     * Shapes the words with a new instance of the font.
+     * @param blackhole consumes the shaping results
+     */
+    @Benchmark
+    public void shapeWithNewFont(Blackhole blackhole) {
+        shape(new MultiByteFont(font), blackhole);
+    }
+
+    private static void shape(MultiByteFont font, Blackhole blackhole) {
+        for (String word : WORDS) {
+            CharSequence substituted = font.performSubstitution(word, SCRIPT, LANGUAGE,
+                    new ArrayList(), false);
+            blackhole.consume(substituted);
+            blackhole.consume(font.performPositioning(substituted, SCRIPT, LANGUAGE, FONT_SIZE));
+        }
+    }
+}
@@ -21,10 +21,12 @@ package org.apache.fop.apps;
 
 // Java
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.URISyntaxException;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 
 import javax.xml.transform.Source;
@@ -53,11 +55,18 @@ import org.apache.fop.events.EventBroadcaster;
 import org.apache.fop.events.EventListener;
 import org.apache.fop.events.FOPEventListenerProxy;
 import org.apache.fop.events.LoggingEventListener;
+import org.apache.fop.events.ThreadEventListener;
 import org.apache.fop.fo.ElementMappingRegistry;
 import org.apache.fop.fo.FOEventHandler;
+import org.apache.fop.fo.properties.PropertyCacheScope;
+import org.apache.fop.fonts.EmbedFontInfo;
+import org.apache.fop.fonts.FontConfig;
+import org.apache.fop.fonts.FontConfigurator;
 import org.apache.fop.fonts.FontManager;
 import org.apache.fop.hyphenation.HyphenationTreeCache;
 import org.apache.fop.layoutmgr.LayoutManagerMaker;
+import org.apache.fop.metrics.Counter;
+import org.apache.fop.metrics.ProcessingMetrics;
 import org.apache.fop.render.ImageHandlerRegistry;
 import org.apache.fop.render.Renderer;
 import org.apache.fop.render.RendererConfig;
@@ -105,6 +114,8 @@ public class FOUserAgent {
     private FOEventHandler foEventHandlerOverride;
     private boolean locatorEnabled = true; // true by default (for error messages).
     private boolean conserveMemoryPolicy;
+    private int layoutThreads;
+    private FopSession session;
     private EventBroadcaster eventBroadcaster = new FOPEventBroadcaster();
     private StructureTreeEventHandler structureTreeEventHandler
             = DummyStructureTreeEventHandler.INSTANCE;
@@ -136,6 +147,7 @@ public class FOUserAgent {
 
     private final ImageSessionContext imageSessionContext;
     private final SoftMapCache pdfObjectCache = new SoftMapCache(true);
+    private final ProcessingMetrics metrics = new ProcessingMetrics();
 
     /**
      * Main constructor. <b>This constructor should not be called directly. Please use the
@@ -162,6 +174,12 @@ public class FOUserAgent {
             public Source resolveURI(String uri) {
                 return FOUserAgent.this.resolveURI(uri);
             }
+
+            public Source needSource(String uri) throws FileNotFoundException {
+                //The image manager only asks for a source when it cannot serve a lookup from its cache
+                metrics.increment(Counter.IMAGE_CACHE_MISSES);
+                return super.needSource(uri);
+            }
         };
     }
 
@@ -617,7 +635,13 @@ public class FOUserAgent {
 
         /** {@inheritDoc} */
         public void broadcastEvent(Event event) {
-            rootListener.processEvent(event);
+            EventListener threadListener = ThreadEventListener.getCurrent();
+            if (threadListener != null) {
+                FOPEventListenerProxy.reduceSeverity(event, FOUserAgent.this);
+                threadListener.processEvent(event);
+            } else {
+                rootListener.processEvent(event);
+            }
         }
 
     }
@@ -640,6 +664,55 @@ public class FOUserAgent {
         this.conserveMemoryPolicy = conserveMemoryPolicy;
     }
 
+    /**
+     * Returns the number of threads page-sequences are laid out on.
+     *
+     * @return the number of layout threads, 0 if page-sequences are laid out one after the other
+     * @see #setLayoutThreads(int)
+     */
+    public int getLayoutThreads() {
+        return this.layoutThreads;
+    }
+
+    /**
+     * Sets the number of threads page-sequences are laid out on. When set, every page-sequence
+     * with an explicit initial-page-number is laid out on a worker thread while the document
+     * is still being parsed; its pages are handed to the renderer in document order. The
+     * default, 0, lays out all page-sequences on the parsing thread.
+     *
+     * @param layoutThreads the number of layout threads, 0 to disable parallel layout
+     */
+    public void setLayoutThreads(int layoutThreads) {
+        if (layoutThreads < 0) {
+            throw new IllegalArgumentException("layoutThreads must not be negative");
+        }
+        this.layoutThreads = layoutThreads;
+    }
+
+    /**
+     * Returns the session this user agent was created by.
+     *
+     * @return the session, or null if the user agent was created by the {@link FopFactory}
+     * @see FopSession#newFOUserAgent()
+     */
+    public FopSession getSession() {
+        return this.session;
+    }
+
+    void setSession(FopSession session) {
+        this.session = session;
+    }
+
+    /**
+     * Returns the metrics of this processing run. They are disabled by default; enable them
+     * with {@link ProcessingMetrics#setEnabled(boolean)} before processing starts.
+     *
+     * @return the processing metrics
+     */
+    public ProcessingMetrics getMetrics() {
+        return metrics;
+    }
+
     /**
      * Check whether complex script features are enabled.
      *
@@ -662,6 +735,24 @@ public class FOUserAgent {
         return factory.getRendererConfig(this, getRendererConfiguration(mimeType), configCreator);
     }
 
+    /**
+     * Returns the custom fonts configured for a particular MIME type. If this user agent belongs
+     * to a {@link FopSession}, the list is only built for the first rendering run of the session.
+     *
+     * @param mimeType the config MIME type
+     * @param fontConfigurator the configurator building the font list
+     * @param fontConfig the font configuration
+     * @return the configured fonts
+     * @throws FOPException if an error occurs while configuring the fonts
+     */
+    public List<EmbedFontInfo> getConfiguredFonts(String mimeType,
+            FontConfigurator<EmbedFontInfo> fontConfigurator, FontConfig fontConfig) throws FOPException {
+        if (session != null) {
+            return session.getConfiguredFonts(mimeType, fontConfigurator, fontConfig);
+        }
+        return fontConfigurator.configure(fontConfig);
+    }
+
     /**
      * Returns a {@link Configuration} object for which contains renderer configuration for a given
      * MIME type.
@@ -807,6 +898,11 @@ public class FOUserAgent {
         return factory.getHyphenationPatternNames();
     }
 
+    /** @see FopFactory#getPropertyCacheScope() */
+    public PropertyCacheScope getPropertyCacheScope() {
+        return factory.getPropertyCacheScope();
+    }
+
     public InternalResourceResolver getHyphenationResourceResolver() {
         return factory.getHyphenationResourceResolver();
     }
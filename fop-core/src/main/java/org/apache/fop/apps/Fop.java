@@ -25,6 +25,8 @@ import java.io.OutputStream;
 import org.xml.sax.helpers.DefaultHandler;
 
 import org.apache.fop.fo.FOTreeBuilder;
+import org.apache.fop.metrics.Phase;
+import org.apache.fop.metrics.ProcessingMetrics;
 
 /**
  * Primary class that activates the FOP process for embedded usage.
@@ -75,7 +77,24 @@ public class Fop {
 
         this.stream = stream;
 
-        createDefaultHandler();
+        createDefaultHandler(null);
+    }
+
+    /**
+     * Constructor reusing the {@link FOTreeBuilder} of an earlier, finished rendering run.
+     * @param outputFormat the MIME type of the output format to use (ex. "application/pdf").
+     * @param ua FOUserAgent object
+     * @param stream the output stream
+     * @param foTreeBuilder the FO tree builder to reset and reuse, or null to create one
+     * @throws FOPException if setting up the DefaultHandler fails
+     * @see FopSession
+     */
+    Fop(String outputFormat, FOUserAgent ua, OutputStream stream, FOTreeBuilder foTreeBuilder)
+            throws FOPException {
+        this.outputFormat = outputFormat;
+        foUserAgent = ua;
+        this.stream = stream;
+        createDefaultHandler(foTreeBuilder);
     }
 
     /**
@@ -98,10 +117,22 @@ public class Fop {
      * Alternatively, for processing with a SAXParser, this object can be
      * used as the DefaultHandler argument to its parse() methods.
      *
+     * @param reused the FO tree builder to reuse, or null to create one
      * @throws FOPException if setting up the DefaultHandler fails
      */
-    private void createDefaultHandler() throws FOPException {
-        this.foTreeBuilder = new FOTreeBuilder(outputFormat, foUserAgent, stream);
+    private void createDefaultHandler(FOTreeBuilder reused) throws FOPException {
+        ProcessingMetrics metrics = foUserAgent.getMetrics();
+        metrics.start(Phase.SETUP);
+        try {
+            if (reused != null) {
+                reused.reset(outputFormat, foUserAgent, stream);
+                this.foTreeBuilder = reused;
+            } else {
+                this.foTreeBuilder = new FOTreeBuilder(outputFormat, foUserAgent, stream);
+            }
+        } finally {
+            metrics.stop(Phase.SETUP);
+        }
     }
 
     /**
@@ -112,11 +143,16 @@ public class Fop {
      */
     public DefaultHandler getDefaultHandler() throws FOPException {
         if (foTreeBuilder == null) {
-            createDefaultHandler();
+            createDefaultHandler(null);
         }
         return this.foTreeBuilder;
     }
 
+    /** @return the FO tree builder of this rendering run */
+    FOTreeBuilder getFOTreeBuilder() {
+        return this.foTreeBuilder;
+    }
+
     /**
      * Returns the results of the rendering process. Information includes
      * the total number of pages generated and the number of pages per
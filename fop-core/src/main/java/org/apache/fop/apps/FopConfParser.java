@@ -43,6 +43,7 @@ import org.apache.fop.apps.io.ResourceResolverFactory;
 import org.apache.fop.configuration.Configuration;
 import org.apache.fop.configuration.ConfigurationException;
 import org.apache.fop.configuration.DefaultConfigurationBuilder;
+import org.apache.fop.fo.properties.PropertyCacheScope;
 import org.apache.fop.fonts.FontManagerConfigurator;
 import org.apache.fop.hyphenation.HyphenationTreeCache;
 import org.apache.fop.hyphenation.Hyphenator;
@@ -249,6 +250,11 @@ public class FopConfParser {
                     false));
         }
 
+        Configuration cacheConfig = cfg.getChild("property-cache", false);
+        if (cacheConfig != null) {
+            setPropertyCacheScope(cacheConfig, fopFactoryBuilder, strict);
+        }
+
         setHyphenationBase(cfg, resourceResolver, baseURI, fopFactoryBuilder);
         setHyphPatNames(cfg, fopFactoryBuilder, strict);
 
@@ -271,6 +277,27 @@ public class FopConfParser {
     }
 
 
+    private void setPropertyCacheScope(Configuration cacheConfig, FopFactoryBuilder fopFactoryBuilder,
+            boolean strict) throws FOPException {
+        try {
+            int maxSize = cacheConfig.getAttributeAsInteger("max-size", Integer.MAX_VALUE);
+            String eviction = cacheConfig.getAttribute("eviction", "trim");
+            PropertyCacheScope.EvictionPolicy policy;
+            if ("trim".equalsIgnoreCase(eviction)) {
+                policy = PropertyCacheScope.EvictionPolicy.TRIM;
+            } else if ("clear".equalsIgnoreCase(eviction)) {
+                policy = PropertyCacheScope.EvictionPolicy.CLEAR;
+            } else {
+                throw new ConfigurationException("Unknown property-cache eviction policy: " + eviction);
+            }
+            fopFactoryBuilder.setPropertyCacheScope(new PropertyCacheScope(maxSize, policy));
+        } catch (ConfigurationException e) {
+            LogUtil.handleException(log, e, strict);
+        } catch (IllegalArgumentException e) {
+            LogUtil.handleException(log, e, strict);
+        }
+    }
+
     private void setHyphenationBase(Configuration cfg, ResourceResolver resourceResolver, URI baseURI,
                                     FopFactoryBuilder fopFactoryBuilder) throws FOPException {
         if (cfg.getChild("hyphenation-base", false) != null) {
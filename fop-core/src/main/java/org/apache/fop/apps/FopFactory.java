@@ -43,6 +43,7 @@ import org.apache.fop.apps.io.ResourceResolverFactory;
 import org.apache.fop.configuration.Configuration;
 import org.apache.fop.fo.ElementMapping;
 import org.apache.fop.fo.ElementMappingRegistry;
+import org.apache.fop.fo.properties.PropertyCacheScope;
 import org.apache.fop.fonts.FontManager;
 import org.apache.fop.hyphenation.HyphenationTreeCache;
 import org.apache.fop.layoutmgr.LayoutManagerMaker;
@@ -89,7 +90,7 @@ public final class FopFactory implements ImageContext {
 
     private final Map<String, RendererConfig> rendererConfig;
 
-    private HyphenationTreeCache hyphenationTreeCache;
+    private final HyphenationTreeCache hyphenationTreeCache = new HyphenationTreeCache();
 
     private FopFactory(FopFactoryConfig config) {
         this.config = config;
@@ -262,6 +263,20 @@ public final class FopFactory implements ImageContext {
         return newFop(null, userAgent);
     }
 
+    /**
+     * Returns a new {@link FopSession} for rendering many documents to the same output format.
+     * The session shares the setup work of its rendering runs.
+     * <p>
+     * MIME types are used to select the output format (ex. "application/pdf" for PDF). You can
+     * use the constants defined in {@link MimeConstants}.
+     * @param outputFormat the MIME type of the output format to use (ex. "application/pdf").
+     * @return the new session
+     * @throws FOPException if the output format is not supported
+     */
+    public FopSession newSession(String outputFormat) throws FOPException {
+        return new FopSession(this, outputFormat);
+    }
+
     /** @return the RendererFactory */
     public RendererFactory getRendererFactory() {
         return this.rendererFactory;
@@ -343,6 +358,11 @@ public final class FopFactory implements ImageContext {
         return config.getHyphenationPatternNames();
     }
 
+    /** @see FopFactoryConfig#getPropertyCacheScope() */
+    public PropertyCacheScope getPropertyCacheScope() {
+        return config.getPropertyCacheScope();
+    }
+
     /** @see FopFactoryConfig#validateStrictly() */
     public boolean validateStrictly() {
         return config.validateStrictly();
@@ -441,9 +461,6 @@ public final class FopFactory implements ImageContext {
     }
 
     public HyphenationTreeCache getHyphenationTreeCache() {
-        if (hyphenationTreeCache == null) {
-            hyphenationTreeCache = new HyphenationTreeCache();
-        }
         return hyphenationTreeCache;
     }
 }
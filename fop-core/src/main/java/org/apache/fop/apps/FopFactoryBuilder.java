@@ -34,6 +34,7 @@ import org.apache.xmlgraphics.io.ResourceResolver;
 import org.apache.fop.apps.io.InternalResourceResolver;
 import org.apache.fop.apps.io.ResourceResolverFactory;
 import org.apache.fop.configuration.Configuration;
+import org.apache.fop.fo.properties.PropertyCacheScope;
 import org.apache.fop.fonts.FontManager;
 import org.apache.fop.layoutmgr.LayoutManagerMaker;
 
@@ -322,6 +323,18 @@ public final class FopFactoryBuilder {
         return this;
     }
 
+    /**
+     * Sets the scope in which the property caches intern the values of the documents processed
+     * by the factory. By default, the JVM-wide scope is used.
+     *
+     * @param scope the property cache scope, null for the JVM-wide scope
+     * @return <code>this</code>
+     */
+    public FopFactoryBuilder setPropertyCacheScope(PropertyCacheScope scope) {
+        fopFactoryConfigBuilder.setPropertyCacheScope(scope);
+        return this;
+    }
+
     public static class FopFactoryConfigImpl implements FopFactoryConfig {
 
         private final EnvironmentProfile enviro;
@@ -361,6 +374,8 @@ public final class FopFactoryBuilder {
 
         private Map<String, String> hyphPatNames;
 
+        private PropertyCacheScope propertyCacheScope;
+
         private static final class ImageContextImpl implements ImageContext {
 
             private final FopFactoryConfig config;
@@ -477,6 +492,10 @@ public final class FopFactoryBuilder {
             return hyphPatNames;
         }
 
+        public PropertyCacheScope getPropertyCacheScope() {
+            return propertyCacheScope;
+        }
+
         public FallbackResolver getFallbackResolver() {
             return enviro.getFallbackResolver();
         }
@@ -517,6 +536,8 @@ public final class FopFactoryBuilder {
         void setComplexScriptFeaturesEnabled(boolean csf);
 
         void setHyphPatNames(Map<String, String> hyphPatNames);
+
+        void setPropertyCacheScope(PropertyCacheScope scope);
     }
 
     private static final class CompletedFopFactoryConfigBuilder implements FopFactoryConfigBuilder {
@@ -598,6 +619,10 @@ public final class FopFactoryBuilder {
             throwIllegalStateException();
         }
 
+        public void setPropertyCacheScope(PropertyCacheScope scope) {
+            throwIllegalStateException();
+        }
+
     }
 
     private static final class ActiveFopFactoryConfigBuilder implements FopFactoryConfigBuilder {
@@ -678,6 +703,10 @@ public final class FopFactoryBuilder {
         public void setHyphPatNames(Map<String, String> hyphPatNames) {
             config.hyphPatNames = hyphPatNames;
         }
+
+        public void setPropertyCacheScope(PropertyCacheScope scope) {
+            config.propertyCacheScope = scope;
+        }
     }
 
 }
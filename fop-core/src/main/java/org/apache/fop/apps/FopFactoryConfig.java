@@ -29,6 +29,7 @@ import org.apache.xmlgraphics.io.ResourceResolver;
 
 import org.apache.fop.apps.io.InternalResourceResolver;
 import org.apache.fop.configuration.Configuration;
+import org.apache.fop.fo.properties.PropertyCacheScope;
 import org.apache.fop.fonts.FontManager;
 import org.apache.fop.layoutmgr.LayoutManagerMaker;
 
@@ -167,6 +168,13 @@ public interface FopFactoryConfig {
 
     InternalResourceResolver getHyphenationResourceResolver();
 
+    /**
+     * Returns the scope in which the property caches intern the values of the documents
+     * processed with this configuration.
+     * @return the property cache scope, null for the JVM-wide scope
+     */
+    PropertyCacheScope getPropertyCacheScope();
+
     /**
      * Controls the mechanisms that are used in the event that {@link javax.xml.transform.Source}
      * used for resources couldn't be read.
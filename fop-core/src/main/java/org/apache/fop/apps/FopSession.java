@@ -0,0 +1,347 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.apps;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.sax.SAXSource;
+import javax.xml.transform.stream.StreamSource;
+
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import org.apache.fop.fo.FOTreeBuilder;
+import org.apache.fop.fonts.EmbedFontInfo;
+import org.apache.fop.fonts.FontConfig;
+import org.apache.fop.fonts.FontConfigurator;
+
+/**
+ * Renders many documents to the same output format, sharing the setup work between them.
+ * Use a session when a server renders a large number of small documents: the session
+ * looks up the output format once, reuses a single JAXP transformer factory instead of
+ * creating one per document, and builds the list of custom fonts configured for the
+ * output format (including the auto-detection of fonts) only for the first document.
+ * <p>
+ * The XML parsers and {@link FOTreeBuilder FO tree builders} of finished runs are pooled
+ * and reset for the next run, and XSLT stylesheets are compiled once, so that short
+ * documents do not pay for setting up the parsing pipeline. FO documents given as a
+ * {@link StreamSource} or {@link SAXSource} are parsed directly into the FO tree builder,
+ * without an identity transformation.
+ * <p>
+ * A session is thread-safe; documents may be rendered concurrently. Sessions are
+ * obtained through {@link FopFactory#newSession(String)}:
+ * <pre>
+ * FopSession session = fopFactory.newSession(MimeConstants.MIME_PDF);
+ * for (...) {
+ *     session.render(new StreamSource(foFile), out);
+ * }
+ * </pre>
+ * The session keeps count of the documents it rendered and of the time spent setting up
+ * their rendering runs, so that the per-document overhead can be monitored. Each run
+ * still gets its own {@link FOUserAgent}; the metrics of a single run are available
+ * through {@link FOUserAgent#getMetrics()}.
+ * <p>
+ * Fonts added to the configured font directories after the first document has been
+ * rendered are not picked up by the session, and font configuration events are only
+ * reported for the first document.
+ */
+public final class FopSession {
+
+    private final FopFactory fopFactory;
+
+    private final String outputFormat;
+
+    private final TransformerFactory transformerFactory = TransformerFactory.newInstance();
+
+    private final SAXParserFactory parserFactory;
+
+    /** The XML parsers and FO tree builders of finished runs, ready to be reused. */
+    private final Queue<Pipeline> pipelines = new ConcurrentLinkedQueue<Pipeline>();
+
+    private final ConcurrentMap<String, Templates> templates = new ConcurrentHashMap<String, Templates>();
+
+    private final ConcurrentMap<String, List<EmbedFontInfo>> configuredFonts
+            = new ConcurrentHashMap<String, List<EmbedFontInfo>>();
+
+    private final AtomicLong documentCount = new AtomicLong();
+
+    private final AtomicLong setupTime = new AtomicLong();
+
+    private final AtomicLong renderingTime = new AtomicLong();
+
+    /**
+     * Creates a new session.
+     * @param fopFactory the FOP factory
+     * @param outputFormat the MIME type of the output format
+     * @throws FOPException if the output format is not supported
+     */
+    FopSession(FopFactory fopFactory, String outputFormat) throws FOPException {
+        if (!Arrays.asList(fopFactory.getRendererFactory().listSupportedMimeTypes()).contains(outputFormat)) {
+            throw new FOPException("Don't know how to handle \"" + outputFormat + "\" as an output format.");
+        }
+        this.fopFactory = fopFactory;
+        this.outputFormat = outputFormat;
+        parserFactory = SAXParserFactory.newInstance();
+        parserFactory.setNamespaceAware(true);
+    }
+
+    /** @return the FOP factory the session was created by */
+    public FopFactory getFopFactory() {
+        return fopFactory;
+    }
+
+    /** @return the MIME type of the output format */
+    public String getOutputFormat() {
+        return outputFormat;
+    }
+
+    /**
+     * Returns a new user agent for a rendering run of this session. Use it to set options,
+     * like the title and author of the document, for one run in particular.
+     * @return the new user agent
+     */
+    public FOUserAgent newFOUserAgent() {
+        FOUserAgent userAgent = fopFactory.newFOUserAgent();
+        userAgent.setSession(this);
+        return userAgent;
+    }
+
+    /**
+     * Renders an FO document with default settings.
+     * @param src the FO document
+     * @param out the stream the output document is written to
+     * @return the results of the rendering run
+     * @throws FOPException if the document cannot be rendered
+     */
+    public FormattingResults render(Source src, OutputStream out) throws FOPException {
+        long start = System.nanoTime();
+        return render(newFOUserAgent(), src, null, out, start);
+    }
+
+    /**
+     * Renders an FO document.
+     * @param userAgent the user agent controlling the run, obtained through
+     * {@link #newFOUserAgent()}; it must not be used for more than one run
+     * @param src the FO document
+     * @param out the stream the output document is written to
+     * @return the results of the rendering run
+     * @throws FOPException if the document cannot be rendered
+     */
+    public FormattingResults render(FOUserAgent userAgent, Source src, OutputStream out)
+            throws FOPException {
+        return render(userAgent, src, null, out);
+    }
+
+    /**
+     * Transforms an XML document into an FO document and renders it with default settings.
+     * @param src the XML document
+     * @param stylesheet the XSLT stylesheet turning the document into XSL-FO; it is only
+     * compiled once if it has a system ID
+     * @param out the stream the output document is written to
+     * @return the results of the rendering run
+     * @throws FOPException if the document cannot be transformed or rendered
+     */
+    public FormattingResults render(Source src, Source stylesheet, OutputStream out) throws FOPException {
+        long start = System.nanoTime();
+        return render(newFOUserAgent(), src, stylesheet, out, start);
+    }
+
+    /**
+     * Transforms an XML document into an FO document and renders it.
+     * @param userAgent the user agent controlling the run, obtained through
+     * {@link #newFOUserAgent()}; it must not be used for more than one run
+     * @param src the XML document
+     * @param stylesheet the XSLT stylesheet turning the document into XSL-FO, or null if the
+     * document is an FO document; it is only compiled once if it has a system ID
+     * @param out the stream the output document is written to
+     * @return the results of the rendering run
+     * @throws FOPException if the document cannot be transformed or rendered
+     */
+    public FormattingResults render(FOUserAgent userAgent, Source src, Source stylesheet,
+            OutputStream out) throws FOPException {
+        if (userAgent.getSession() != this) {
+            throw new IllegalArgumentException("The user agent does not belong to this session");
+        }
+        return render(userAgent, src, stylesheet, out, System.nanoTime());
+    }
+
+    private FormattingResults render(FOUserAgent userAgent, Source src, Source stylesheet,
+            OutputStream out, long start) throws FOPException {
+        Pipeline pipeline = pipelines.poll();
+        if (pipeline == null) {
+            pipeline = new Pipeline();
+        }
+        Fop fop = new Fop(outputFormat, userAgent, out, pipeline.foTreeBuilder);
+        pipeline.foTreeBuilder = fop.getFOTreeBuilder();
+        InputSource inputSource = null;
+        Transformer transformer = null;
+        try {
+            if (stylesheet != null) {
+                transformer = getTemplates(stylesheet).newTransformer();
+            } else if (src instanceof StreamSource
+                    || (src instanceof SAXSource && ((SAXSource) src).getXMLReader() == null)) {
+                inputSource = SAXSource.sourceToInputSource(src);
+                if (pipeline.xmlReader == null) {
+                    pipeline.xmlReader = newXMLReader();
+                }
+            } else {
+                synchronized (transformerFactory) {
+                    transformer = transformerFactory.newTransformer();
+                }
+            }
+        } catch (TransformerException te) {
+            throw new FOPException(te);
+        }
+        long setupEnd = System.nanoTime();
+        try {
+            if (inputSource != null) {
+                pipeline.xmlReader.setContentHandler(pipeline.foTreeBuilder);
+                pipeline.xmlReader.setErrorHandler(pipeline.foTreeBuilder);
+                try {
+                    pipeline.xmlReader.parse(inputSource);
+                } finally {
+                    pipeline.xmlReader.setContentHandler(null);
+                    pipeline.xmlReader.setErrorHandler(null);
+                }
+            } else {
+                transformer.transform(src, new SAXResult(pipeline.foTreeBuilder));
+            }
+        } catch (TransformerException te) {
+            throw new FOPException(te);
+        } catch (SAXException se) {
+            throw new FOPException(se);
+        } catch (IOException ioe) {
+            throw new FOPException(ioe);
+        }
+        FormattingResults results = fop.getResults();
+        pipeline.foTreeBuilder.release();
+        pipelines.offer(pipeline);
+        documentCount.incrementAndGet();
+        setupTime.addAndGet(setupEnd - start);
+        renderingTime.addAndGet(System.nanoTime() - start);
+        return results;
+    }
+
+    private XMLReader newXMLReader() throws FOPException {
+        try {
+            synchronized (parserFactory) {
+                return parserFactory.newSAXParser().getXMLReader();
+            }
+        } catch (ParserConfigurationException pce) {
+            throw new FOPException(pce);
+        } catch (SAXException se) {
+            throw new FOPException(se);
+        }
+    }
+
+    /**
+     * Returns the compiled form of a stylesheet. Stylesheets with a system ID are only
+     * compiled once.
+     * @param stylesheet the stylesheet
+     * @return the compiled stylesheet
+     * @throws TransformerException if the stylesheet cannot be compiled
+     */
+    private Templates getTemplates(Source stylesheet) throws TransformerException {
+        String systemId = stylesheet.getSystemId();
+        Templates compiled = (systemId != null ? templates.get(systemId) : null);
+        if (compiled == null) {
+            synchronized (transformerFactory) {
+                compiled = transformerFactory.newTemplates(stylesheet);
+            }
+            if (systemId != null) {
+                Templates existing = templates.putIfAbsent(systemId, compiled);
+                if (existing != null) {
+                    compiled = existing;
+                }
+            }
+        }
+        return compiled;
+    }
+
+    /**
+     * Returns the custom fonts configured for an output format, building the list for the
+     * first rendering run only.
+     * @param mimeType the MIME type of the output format
+     * @param fontConfigurator the configurator building the list
+     * @param fontConfig the font configuration
+     * @return the configured fonts
+     * @throws FOPException if an error occurs while configuring the fonts
+     */
+    List<EmbedFontInfo> getConfiguredFonts(String mimeType,
+            FontConfigurator<EmbedFontInfo> fontConfigurator, FontConfig fontConfig) throws FOPException {
+        List<EmbedFontInfo> fonts = configuredFonts.get(mimeType);
+        if (fonts == null) {
+            fonts = fontConfigurator.configure(fontConfig);
+            List<EmbedFontInfo> existing = configuredFonts.putIfAbsent(mimeType, fonts);
+            if (existing != null) {
+                fonts = existing;
+            }
+        }
+        return fonts;
+    }
+
+    /** @return the number of documents successfully rendered by this session */
+    public long getDocumentCount() {
+        return documentCount.get();
+    }
+
+    /**
+     * Returns the time spent setting up the rendering runs of this session, that is, creating
+     * the user agent, the {@link Fop} instance with its renderer and fonts, and the
+     * transformer feeding the document to it.
+     * @return the total setup time of the documents rendered, in nanoseconds
+     */
+    public long getSetupTime() {
+        return setupTime.get();
+    }
+
+    /**
+     * Returns the time spent rendering documents, setup included.
+     * @return the total rendering time of the documents rendered, in nanoseconds
+     */
+    public long getRenderingTime() {
+        return renderingTime.get();
+    }
+
+    /** The XML parser and FO tree builder used by a rendering run. */
+    private static final class Pipeline {
+
+        private XMLReader xmlReader;
+
+        private FOTreeBuilder foTreeBuilder;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.area;
+
+/**
+ * Constants for the binary encoding of pages, written by {@link AreaTreeBinaryWriter} and read
+ * back by {@link AreaTreeBinaryReader}. The encoding is used to save pages to a {@link PageStore}
+ * while they wait for their references to be resolved.
+ * <p>
+ * A page record starts with a one-byte encoding. {@link #JAVA_SERIALIZATION} records hold the
+ * page as written by an {@link java.io.ObjectOutputStream}; they are used for pages holding
+ * area classes the binary encoding does not know. {@link #BINARY} records hold the length of
+ * the object graph, the object graph itself, and the Java serialization stream of the values
+ * the binary encoding does not know, like DOM documents and extension attachments.
+ * <p>
+ * Each object of the graph is introduced by a one-byte tag. Objects are assigned a handle, in
+ * the order in which they are written, and are referred to by handle when they are met again,
+ * so that shared and circular references survive. Strings, integers and booleans are values
+ * without a handle. Integers are written as variable-length values, signed ones zigzag-encoded.
+ * Strings are written in full on first use only and referred to by index afterwards.
+ */
+final class AreaTreeBinaryFormat {
+
+    /** Encoding of a page record written with Java serialization. */
+    static final int JAVA_SERIALIZATION = 1;
+    /** Encoding of a page record written with the binary encoding. */
+    static final int BINARY = 2;
+
+    static final int NULL = 0;
+    static final int REFERENCE = 1;
+    static final int STRING = 2;
+    static final int INTEGER = 3;
+    static final int TRUE = 4;
+    static final int FALSE = 5;
+    static final int SERIALIZED = 6;
+    static final int LIST = 7;
+    static final int MAP = 8;
+    static final int COLOR = 9;
+    static final int FONT_TRIPLET = 10;
+    static final int BORDER_PROPS = 11;
+    static final int INTERNAL_LINK = 12;
+    static final int EXTERNAL_LINK = 13;
+    static final int WRITING_MODE = 14;
+    static final int DIRECTION = 15;
+    static final int VISIBILITY = 16;
+    static final int CTM = 17;
+    static final int RECTANGLE = 18;
+    static final int RECTANGLE_2D_DOUBLE = 19;
+    static final int RECTANGLE_2D_FLOAT = 20;
+    static final int LOCALE = 21;
+    static final int QNAME = 22;
+    static final int LINK_RESOLVER = 23;
+
+    static final int PAGE = 32;
+    static final int REGION_VIEWPORT = 33;
+    static final int REGION_REFERENCE = 34;
+    static final int BODY_REGION = 35;
+    static final int SPAN = 37;
+    static final int NORMAL_FLOW = 38;
+    static final int BEFORE_FLOAT = 39;
+    static final int FOOTNOTE = 40;
+    static final int BLOCK = 41;
+    static final int BLOCK_VIEWPORT = 42;
+    static final int SIDE_FLOAT = 43;
+    static final int LINE_AREA = 44;
+    static final int INLINE_AREA = 45;
+    static final int ANCHOR = 46;
+    static final int SPACE = 47;
+    static final int INLINE_PARENT = 48;
+    static final int BASIC_LINK_AREA = 49;
+    static final int FILLED_AREA = 50;
+    static final int INLINE_BLOCK = 51;
+    static final int INLINE_BLOCK_PARENT = 52;
+    static final int INLINE_VIEWPORT = 53;
+    static final int TEXT_AREA = 54;
+    static final int RESOLVED_PAGE_NUMBER = 55;
+    static final int UNRESOLVED_PAGE_NUMBER = 56;
+    static final int WORD_AREA = 57;
+    static final int SPACE_AREA = 58;
+    static final int LEADER = 59;
+    static final int IMAGE = 60;
+    static final int FOREIGN_OBJECT = 61;
+    static final int CONTAINER = 62;
+
+    /** String reference for null. */
+    static final int NULL_STRING = 0;
+    /** String reference announcing a string that has not been written yet. */
+    static final int NEW_STRING = 1;
+    /** Offset of the indices of the strings that have already been written. */
+    static final int STRING_INDEX_OFFSET = 2;
+
+    private AreaTreeBinaryFormat() {
+    }
+}
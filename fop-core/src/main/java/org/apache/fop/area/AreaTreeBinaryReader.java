@@ -0,0 +1,717 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.area;
+
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.w3c.dom.Document;
+
+import org.apache.xmlgraphics.util.QName;
+
+import org.apache.fop.area.inline.AbstractTextArea;
+import org.apache.fop.area.inline.Anchor;
+import org.apache.fop.area.inline.BasicLinkArea;
+import org.apache.fop.area.inline.Container;
+import org.apache.fop.area.inline.FilledArea;
+import org.apache.fop.area.inline.ForeignObject;
+import org.apache.fop.area.inline.Image;
+import org.apache.fop.area.inline.InlineArea;
+import org.apache.fop.area.inline.InlineBlock;
+import org.apache.fop.area.inline.InlineBlockParent;
+import org.apache.fop.area.inline.InlineParent;
+import org.apache.fop.area.inline.InlineViewport;
+import org.apache.fop.area.inline.Leader;
+import org.apache.fop.area.inline.ResolvedPageNumber;
+import org.apache.fop.area.inline.Space;
+import org.apache.fop.area.inline.SpaceArea;
+import org.apache.fop.area.inline.TextArea;
+import org.apache.fop.area.inline.UnresolvedPageNumber;
+import org.apache.fop.area.inline.WordArea;
+import org.apache.fop.fo.Constants;
+import org.apache.fop.fo.extensions.ExtensionAttachment;
+import org.apache.fop.fonts.FontTriplet;
+import org.apache.fop.traits.BorderProps;
+import org.apache.fop.traits.Direction;
+import org.apache.fop.traits.Visibility;
+import org.apache.fop.traits.WritingMode;
+
+import static org.apache.fop.area.AreaTreeBinaryFormat.ANCHOR;
+import static org.apache.fop.area.AreaTreeBinaryFormat.BASIC_LINK_AREA;
+import static org.apache.fop.area.AreaTreeBinaryFormat.BEFORE_FLOAT;
+import static org.apache.fop.area.AreaTreeBinaryFormat.BINARY;
+import static org.apache.fop.area.AreaTreeBinaryFormat.BLOCK;
+import static org.apache.fop.area.AreaTreeBinaryFormat.BLOCK_VIEWPORT;
+import static org.apache.fop.area.AreaTreeBinaryFormat.BODY_REGION;
+import static org.apache.fop.area.AreaTreeBinaryFormat.BORDER_PROPS;
+import static org.apache.fop.area.AreaTreeBinaryFormat.COLOR;
+import static org.apache.fop.area.AreaTreeBinaryFormat.CONTAINER;
+import static org.apache.fop.area.AreaTreeBinaryFormat.CTM;
+import static org.apache.fop.area.AreaTreeBinaryFormat.DIRECTION;
+import static org.apache.fop.area.AreaTreeBinaryFormat.EXTERNAL_LINK;
+import static org.apache.fop.area.AreaTreeBinaryFormat.FALSE;
+import static org.apache.fop.area.AreaTreeBinaryFormat.FILLED_AREA;
+import static org.apache.fop.area.AreaTreeBinaryFormat.FONT_TRIPLET;
+import static org.apache.fop.area.AreaTreeBinaryFormat.FOOTNOTE;
+import static org.apache.fop.area.AreaTreeBinaryFormat.FOREIGN_OBJECT;
+import static org.apache.fop.area.AreaTreeBinaryFormat.IMAGE;
+import static org.apache.fop.area.AreaTreeBinaryFormat.INLINE_AREA;
+import static org.apache.fop.area.AreaTreeBinaryFormat.INLINE_BLOCK;
+import static org.apache.fop.area.AreaTreeBinaryFormat.INLINE_BLOCK_PARENT;
+import static org.apache.fop.area.AreaTreeBinaryFormat.INLINE_PARENT;
+import static org.apache.fop.area.AreaTreeBinaryFormat.INLINE_VIEWPORT;
+import static org.apache.fop.area.AreaTreeBinaryFormat.INTEGER;
+import static org.apache.fop.area.AreaTreeBinaryFormat.INTERNAL_LINK;
+import static org.apache.fop.area.AreaTreeBinaryFormat.JAVA_SERIALIZATION;
+import static org.apache.fop.area.AreaTreeBinaryFormat.LEADER;
+import static org.apache.fop.area.AreaTreeBinaryFormat.LINE_AREA;
+import static org.apache.fop.area.AreaTreeBinaryFormat.LINK_RESOLVER;
+import static org.apache.fop.area.AreaTreeBinaryFormat.LIST;
+import static org.apache.fop.area.AreaTreeBinaryFormat.LOCALE;
+import static org.apache.fop.area.AreaTreeBinaryFormat.MAP;
+import static org.apache.fop.area.AreaTreeBinaryFormat.NEW_STRING;
+import static org.apache.fop.area.AreaTreeBinaryFormat.NORMAL_FLOW;
+import static org.apache.fop.area.AreaTreeBinaryFormat.NULL;
+import static org.apache.fop.area.AreaTreeBinaryFormat.NULL_STRING;
+import static org.apache.fop.area.AreaTreeBinaryFormat.PAGE;
+import static org.apache.fop.area.AreaTreeBinaryFormat.QNAME;
+import static org.apache.fop.area.AreaTreeBinaryFormat.RECTANGLE;
+import static org.apache.fop.area.AreaTreeBinaryFormat.RECTANGLE_2D_DOUBLE;
+import static org.apache.fop.area.AreaTreeBinaryFormat.RECTANGLE_2D_FLOAT;
+import static org.apache.fop.area.AreaTreeBinaryFormat.REFERENCE;
+import static org.apache.fop.area.AreaTreeBinaryFormat.REGION_REFERENCE;
+import static org.apache.fop.area.AreaTreeBinaryFormat.REGION_VIEWPORT;
+import static org.apache.fop.area.AreaTreeBinaryFormat.RESOLVED_PAGE_NUMBER;
+import static org.apache.fop.area.AreaTreeBinaryFormat.SERIALIZED;
+import static org.apache.fop.area.AreaTreeBinaryFormat.SIDE_FLOAT;
+import static org.apache.fop.area.AreaTreeBinaryFormat.SPACE;
+import static org.apache.fop.area.AreaTreeBinaryFormat.SPACE_AREA;
+import static org.apache.fop.area.AreaTreeBinaryFormat.SPAN;
+import static org.apache.fop.area.AreaTreeBinaryFormat.STRING;
+import static org.apache.fop.area.AreaTreeBinaryFormat.STRING_INDEX_OFFSET;
+import static org.apache.fop.area.AreaTreeBinaryFormat.TEXT_AREA;
+import static org.apache.fop.area.AreaTreeBinaryFormat.TRUE;
+import static org.apache.fop.area.AreaTreeBinaryFormat.UNRESOLVED_PAGE_NUMBER;
+import static org.apache.fop.area.AreaTreeBinaryFormat.VISIBILITY;
+import static org.apache.fop.area.AreaTreeBinaryFormat.WORD_AREA;
+import static org.apache.fop.area.AreaTreeBinaryFormat.WRITING_MODE;
+
+/**
+ * Reads pages written by {@link AreaTreeBinaryWriter}. The reader can be reused for any number
+ * of pages.
+ */
+final class AreaTreeBinaryReader {
+
+    private static final int[] REGION_CLASSES = new int[] {Constants.FO_REGION_BEFORE,
+            Constants.FO_REGION_START, Constants.FO_REGION_BODY, Constants.FO_REGION_END,
+            Constants.FO_REGION_AFTER};
+
+    private final List<Object> objects = new ArrayList<Object>();
+    private final List<String> strings = new ArrayList<String>();
+
+    private ByteBuffer buffer;
+    private ByteBuffer serializedSection;
+    private ObjectInputStream serializedStream;
+
+    /**
+     * Decodes a page.
+     * @param record the page record, from its current position to its limit
+     * @return the page
+     * @throws IOException if the page record is corrupt or a serialized value cannot be read
+     */
+    Page readPage(ByteBuffer record) throws IOException {
+        try {
+            int encoding = record.get();
+            if (encoding == JAVA_SERIALIZATION) {
+                ObjectInputStream in = new ObjectInputStream(new ByteBufferInputStream(record));
+                return (Page) in.readObject();
+            } else if (encoding != BINARY) {
+                throw new IOException("Unknown page encoding: " + encoding);
+            }
+            int length = record.getInt();
+            serializedSection = record.duplicate();
+            serializedSection.position(record.position() + length);
+            buffer = record;
+            Object page = readObject();
+            if (!(page instanceof Page)) {
+                throw new IOException("Page record holds no page");
+            }
+            return (Page) page;
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        } finally {
+            objects.clear();
+            strings.clear();
+            buffer = null;
+            serializedSection = null;
+            serializedStream = null;
+        }
+    }
+
+    private Object readObject() throws IOException, ClassNotFoundException {
+        int tag = buffer.get();
+        switch (tag) {
+        case NULL:
+            return null;
+        case REFERENCE:
+            Object object = objects.get(readUnsignedInt());
+            if (object == null) {
+                throw new IOException("Reference to an object that is being restored");
+            }
+            return object;
+        case STRING:
+            return readString();
+        case INTEGER:
+            return readInt();
+        case TRUE:
+            return Boolean.TRUE;
+        case FALSE:
+            return Boolean.FALSE;
+        default:
+            int handle = objects.size();
+            objects.add(null);
+            return readContent(tag, handle);
+        }
+    }
+
+    private <T> T register(int handle, T object) {
+        objects.set(handle, object);
+        return object;
+    }
+
+    private Object readContent(int tag, int handle) throws IOException, ClassNotFoundException {
+        switch (tag) {
+        case SERIALIZED:
+            if (serializedStream == null) {
+                serializedStream = new ObjectInputStream(new ByteBufferInputStream(serializedSection));
+            }
+            return register(handle, serializedStream.readObject());
+        case LIST:
+            List<Object> list = register(handle, new ArrayList<Object>());
+            readList(list);
+            return list;
+        case MAP:
+            Map<Object, Object> map = register(handle, new HashMap<Object, Object>());
+            for (int i = readUnsignedInt(); i > 0; i--) {
+                Object key = readObject();
+                map.put(key, readObject());
+            }
+            return map;
+        case COLOR:
+            return register(handle, new Color(readFixedInt(), true));
+        case FONT_TRIPLET:
+            String name = readString();
+            String style = readString();
+            int weight = readInt();
+            return register(handle, new FontTriplet(name, style, weight, readInt()));
+        case BORDER_PROPS:
+            return register(handle, readBorderProps());
+        case INTERNAL_LINK:
+            String pvKey = readString();
+            return register(handle, new Trait.InternalLink(pvKey, readString()));
+        case EXTERNAL_LINK:
+            String destination = readString();
+            return register(handle, new Trait.ExternalLink(destination, readBoolean()));
+        case WRITING_MODE:
+            return register(handle, WritingMode.valueOf(readString()));
+        case DIRECTION:
+            return register(handle, Direction.valueOf(readString()));
+        case VISIBILITY:
+            return register(handle, Visibility.valueOf(readString()));
+        case CTM:
+            return register(handle, new CTM(readDouble(), readDouble(), readDouble(),
+                    readDouble(), readDouble(), readDouble()));
+        case RECTANGLE:
+            return register(handle, new Rectangle(readInt(), readInt(), readInt(), readInt()));
+        case RECTANGLE_2D_DOUBLE:
+            return register(handle, new Rectangle2D.Double(readDouble(), readDouble(),
+                    readDouble(), readDouble()));
+        case RECTANGLE_2D_FLOAT:
+            return register(handle, new Rectangle2D.Float(readFloat(), readFloat(),
+                    readFloat(), readFloat()));
+        case LOCALE:
+            String language = readString();
+            String country = readString();
+            return register(handle, new Locale(language, country, readString()));
+        case QNAME:
+            String namespaceURI = readString();
+            String prefix = readString();
+            return register(handle, new QName(namespaceURI, prefix, readString()));
+        case LINK_RESOLVER:
+            LinkResolver resolver = register(handle, new LinkResolver(readString(), null));
+            if (readBoolean()) {
+                resolver.setResolved();
+            }
+            resolver.setArea((Area) readObject());
+            return resolver;
+        case PAGE:
+            return readPageContent(handle);
+        default:
+            return readArea(tag, handle);
+        }
+    }
+
+    private BorderProps readBorderProps() throws IOException, ClassNotFoundException {
+        int style = readInt();
+        int width = readInt();
+        int radiusStart = readInt();
+        int radiusEnd = readInt();
+        Color color = (Color) readObject();
+        int mode = readUnsignedInt();
+        return new BorderProps(style, width, radiusStart, radiusEnd, color,
+                mode == 0 ? null : BorderProps.Mode.values()[mode - 1]);
+    }
+
+    private Page readPageContent(int handle) throws IOException, ClassNotFoundException {
+        Page page = register(handle, new Page());
+        for (int regionClass : REGION_CLASSES) {
+            page.setRegionViewport(regionClass, (RegionViewport) readObject());
+        }
+        page.setUnresolvedReferences((Map<String, List<Resolvable>>) readObject());
+        if (readBoolean()) {
+            page.fakeNonEmpty();
+        }
+        readAreaTreeObject(page);
+        return page;
+    }
+
+    private Area readArea(int tag, int handle) throws IOException, ClassNotFoundException {
+        Area area;
+        switch (tag) {
+        case REGION_VIEWPORT:
+            RegionViewport regionViewport = register(handle,
+                    new RegionViewport((Rectangle2D) readObject()));
+            regionViewport.setRegionReference((RegionReference) readObject());
+            regionViewport.setClip(readBoolean());
+            area = regionViewport;
+            break;
+        case REGION_REFERENCE:
+            RegionReference regionReference = register(handle,
+                    new RegionReference(readInt(), readString(), null));
+            readRegionReference(regionReference);
+            area = regionReference;
+            break;
+        case BODY_REGION:
+            int regionClass = readInt();
+            String regionName = readString();
+            int columnCount = readInt();
+            BodyRegion bodyRegion = register(handle,
+                    new BodyRegion(regionClass, regionName, null, columnCount, readInt()));
+            readRegionReference(bodyRegion);
+            bodyRegion.setBeforeFloat((BeforeFloat) readObject());
+            MainReference mainReference = new MainReference(bodyRegion);
+            objects.add(mainReference);
+            mainReference.setSpans(readList(new ArrayList<Span>()));
+            readAreaState(mainReference);
+            bodyRegion.setMainReference(mainReference);
+            bodyRegion.setFootnote((Footnote) readObject());
+            area = bodyRegion;
+            break;
+        case SPAN:
+            columnCount = readInt();
+            Span span = register(handle, new Span(columnCount, readInt(), 0));
+            List<NormalFlow> flows = new ArrayList<NormalFlow>(columnCount);
+            for (int i = 0; i < columnCount; i++) {
+                flows.add((NormalFlow) readObject());
+            }
+            int columnWidth = readInt();
+            span.setNormalFlows(flows, columnWidth, readInt());
+            area = span;
+            break;
+        case NORMAL_FLOW:
+            area = readBlockParent(register(handle, new NormalFlow(0)));
+            break;
+        case BEFORE_FLOAT:
+            BeforeFloat beforeFloat = readBlockParent(register(handle, new BeforeFloat()));
+            beforeFloat.setSeparator((Block) readObject());
+            area = beforeFloat;
+            break;
+        case FOOTNOTE:
+            Footnote footnote = readBlockParent(register(handle, new Footnote()));
+            footnote.setSeparator((Block) readObject());
+            footnote.setTop(readInt());
+            area = footnote;
+            break;
+        case BLOCK:
+            area = readBlock(register(handle, new Block()));
+            break;
+        case SIDE_FLOAT:
+            area = readBlock(register(handle, new SideFloat()));
+            break;
+        case BLOCK_VIEWPORT:
+            BlockViewport blockViewport = readBlock(register(handle, new BlockViewport()));
+            blockViewport.setClip(readBoolean());
+            blockViewport.setCTM((CTM) readObject());
+            area = blockViewport;
+            break;
+        case LINE_AREA:
+            area = readLineArea(register(handle, new LineArea()));
+            break;
+        case IMAGE:
+            area = register(handle, new Image(readString()));
+            break;
+        case FOREIGN_OBJECT:
+            ForeignObject foreignObject = register(handle, new ForeignObject(readString()));
+            foreignObject.setDocument((Document) readObject());
+            area = foreignObject;
+            break;
+        case CONTAINER:
+            Container container = register(handle, new Container());
+            readList(container.getBlocks());
+            area = container;
+            break;
+        default:
+            return readInlineArea(tag, handle);
+        }
+        readAreaState(area);
+        return area;
+    }
+
+    private void readRegionReference(RegionReference regionReference)
+            throws IOException, ClassNotFoundException {
+        regionReference.regionViewport = (RegionViewport) readObject();
+        regionReference.setCTM((CTM) readObject());
+        readList(regionReference.getBlocks());
+    }
+
+    private <T extends BlockParent> T readBlockParent(T blockParent)
+            throws IOException, ClassNotFoundException {
+        blockParent.xOffset = readInt();
+        blockParent.yOffset = readInt();
+        blockParent.children = readList(new ArrayList<Area>());
+        return blockParent;
+    }
+
+    private <T extends Block> T readBlock(T block) throws IOException, ClassNotFoundException {
+        readBlockParent(block);
+        block.setPositioning(readInt());
+        block.setLocale((Locale) readObject());
+        block.setLocation(readString());
+        return block;
+    }
+
+    private LineArea readLineArea(LineArea line) throws IOException, ClassNotFoundException {
+        readList((List<Object>) line.getInlineAreas());
+        if (readBoolean()) {
+            int alignment = readInt();
+            int difference = readInt();
+            int stretch = readInt();
+            LineArea.LineAdjustingInfo info = line.new LineAdjustingInfo(
+                    alignment, difference, stretch, readInt());
+            info.variationFactor = readDouble();
+            info.bAddedToAreaTree = readBoolean();
+            line.setAdjustingInfo(info);
+        }
+        return line;
+    }
+
+    private InlineArea readInlineArea(int tag, int handle) throws IOException, ClassNotFoundException {
+        InlineArea area;
+        switch (tag) {
+        case INLINE_AREA:
+            area = new InlineArea();
+            break;
+        case ANCHOR:
+            area = new Anchor();
+            break;
+        case SPACE:
+            area = new Space();
+            break;
+        case INLINE_PARENT:
+            area = new InlineParent();
+            break;
+        case BASIC_LINK_AREA:
+            area = new BasicLinkArea();
+            break;
+        case FILLED_AREA:
+            area = new FilledArea();
+            break;
+        case INLINE_BLOCK:
+            area = new InlineBlock((Block) readObject());
+            break;
+        case INLINE_BLOCK_PARENT:
+            area = new InlineBlockParent();
+            break;
+        case INLINE_VIEWPORT:
+            area = new InlineViewport(null);
+            break;
+        case TEXT_AREA:
+            area = new TextArea();
+            break;
+        case RESOLVED_PAGE_NUMBER:
+            area = new ResolvedPageNumber();
+            break;
+        case UNRESOLVED_PAGE_NUMBER:
+            String id = readString();
+            area = new UnresolvedPageNumber(id, null, readBoolean());
+            break;
+        case WORD_AREA:
+            area = readWordArea();
+            break;
+        case SPACE_AREA:
+            char space = (char) readUnsignedInt();
+            area = new SpaceArea(0, -1, space, readBoolean());
+            break;
+        case LEADER:
+            area = new Leader();
+            break;
+        default:
+            throw new IOException("Unknown object type: " + tag);
+        }
+        register(handle, area);
+        Area parentArea = (Area) readObject();
+        if (parentArea != null) {
+            area.setParentArea(parentArea);
+        }
+        switch (tag) {
+        case INLINE_PARENT:
+        case INLINE_BLOCK:
+            readList(((InlineParent) area).getChildAreas());
+            break;
+        case BASIC_LINK_AREA:
+            readList(((InlineParent) area).getChildAreas());
+            ((BasicLinkArea) area).setResolver((LinkResolver) readObject());
+            break;
+        case FILLED_AREA:
+            FilledArea filledArea = (FilledArea) area;
+            filledArea.setUnitWidth(readInt());
+            readList(filledArea.getUnitAreas());
+            break;
+        case TEXT_AREA:
+        case RESOLVED_PAGE_NUMBER:
+        case UNRESOLVED_PAGE_NUMBER:
+            TextArea text = (TextArea) area;
+            readList(text.getChildAreas());
+            readTextAreaState(text);
+            if (readBoolean()) {
+                text.setHyphenated();
+            }
+            if (tag == UNRESOLVED_PAGE_NUMBER) {
+                boolean resolved = readBoolean();
+                String resolvedText = readString();
+                if (resolved) {
+                    ((UnresolvedPageNumber) area).setResolvedText(resolvedText);
+                }
+            }
+            break;
+        case INLINE_BLOCK_PARENT:
+            Block child = (Block) readObject();
+            if (child != null) {
+                area.addChildArea(child);
+            }
+            break;
+        case INLINE_VIEWPORT:
+            InlineViewport viewport = (InlineViewport) area;
+            viewport.setContent((Area) readObject());
+            viewport.setClip(readBoolean());
+            viewport.setContentPosition((Rectangle2D) readObject());
+            break;
+        case LEADER:
+            Leader leader = (Leader) area;
+            leader.setRuleStyle(readInt());
+            leader.setRuleThickness(readInt());
+            break;
+        default:
+            break;
+        }
+        readAreaState(area);
+        area.setBlockProgressionOffset(readInt());
+        if (readBoolean()) {
+            int stretch = readInt();
+            int shrink = readInt();
+            area.setAdjustingInfo(stretch, shrink, readInt());
+        }
+        return area;
+    }
+
+    private WordArea readWordArea() throws IOException {
+        String word = readString();
+        int[] letterAdjust = readIntArray();
+        int[] levels = readIntArray();
+        int[][] adjustments = null;
+        int length = readUnsignedInt();
+        if (length > 0) {
+            adjustments = new int[length - 1][];
+            for (int i = 0; i < adjustments.length; i++) {
+                adjustments[i] = readIntArray();
+            }
+        }
+        boolean reversed = readBoolean();
+        return new WordArea(0, -1, word, letterAdjust, levels, adjustments, reversed, readBoolean());
+    }
+
+    private void readTextAreaState(AbstractTextArea text) throws IOException {
+        text.setTextWordSpaceAdjust(readInt());
+        text.setTextLetterSpaceAdjust(readInt());
+        text.setBaselineOffset(readInt());
+        if (readBoolean()) {
+            int stretch = readInt();
+            int shrink = readInt();
+            text.setTextAdjustingInfo(stretch, shrink, readInt());
+            text.setSpaceDifference(readInt());
+        }
+    }
+
+    private void readAreaState(Area area) throws IOException, ClassNotFoundException {
+        area.setAreaClass(readInt());
+        area.ipd = readInt();
+        area.bpd = readInt();
+        area.effectiveIPD = readInt();
+        area.bidiLevel = readInt();
+        int traitCount = readUnsignedInt();
+        if (traitCount == 0) {
+            area.traits = null;
+        } else {
+            area.traits = new TreeMap<Integer, Object>();
+            for (int i = 1; i < traitCount; i++) {
+                Integer key = readInt();
+                area.traits.put(key, readObject());
+            }
+        }
+        area.setChangeBarList((List) readObject());
+        readAreaTreeObject(area);
+    }
+
+    private void readAreaTreeObject(AreaTreeObject object) throws IOException, ClassNotFoundException {
+        object.foreignAttributes = (Map<QName, String>) readObject();
+        object.extensionAttachments = (List<ExtensionAttachment>) readObject();
+    }
+
+    private <T> List<T> readList(List<T> list) throws IOException, ClassNotFoundException {
+        int size = readUnsignedInt();
+        if (size == 0) {
+            return null;
+        }
+        for (int i = 1; i < size; i++) {
+            list.add((T) readObject());
+        }
+        return list;
+    }
+
+    private int[] readIntArray() throws IOException {
+        int length = readUnsignedInt();
+        if (length == 0) {
+            return null;
+        }
+        int[] values = new int[length - 1];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readInt();
+        }
+        return values;
+    }
+
+    private String readString() throws IOException {
+        int ref = readUnsignedInt();
+        if (ref == NULL_STRING) {
+            return null;
+        } else if (ref == NEW_STRING) {
+            int length = readUnsignedInt();
+            char[] chars = new char[length];
+            for (int i = 0; i < length; i++) {
+                chars[i] = (char) readUnsignedInt();
+            }
+            String s = new String(chars);
+            strings.add(s);
+            return s;
+        } else {
+            int index = ref - STRING_INDEX_OFFSET;
+            if (index >= strings.size()) {
+                throw new IOException("Invalid string reference: " + ref);
+            }
+            return strings.get(index);
+        }
+    }
+
+    private boolean readBoolean() {
+        return buffer.get() != 0;
+    }
+
+    private int readInt() throws IOException {
+        int value = readUnsignedInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private int readUnsignedInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length integer");
+    }
+
+    private int readFixedInt() {
+        return buffer.getInt();
+    }
+
+    private float readFloat() {
+        return Float.intBitsToFloat(buffer.getInt());
+    }
+
+    private double readDouble() {
+        return Double.longBitsToDouble(buffer.getLong());
+    }
+
+    /** Reads the remaining content of a byte buffer. */
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            } else if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,795 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.area;
+
+import java.awt.Color;
+import java.awt.Rectangle;
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.xmlgraphics.util.QName;
+
+import org.apache.fop.area.inline.AbstractTextArea;
+import org.apache.fop.area.inline.Anchor;
+import org.apache.fop.area.inline.BasicLinkArea;
+import org.apache.fop.area.inline.Container;
+import org.apache.fop.area.inline.FilledArea;
+import org.apache.fop.area.inline.ForeignObject;
+import org.apache.fop.area.inline.Image;
+import org.apache.fop.area.inline.InlineArea;
+import org.apache.fop.area.inline.InlineBlock;
+import org.apache.fop.area.inline.InlineBlockParent;
+import org.apache.fop.area.inline.InlineParent;
+import org.apache.fop.area.inline.InlineViewport;
+import org.apache.fop.area.inline.Leader;
+import org.apache.fop.area.inline.ResolvedPageNumber;
+import org.apache.fop.area.inline.Space;
+import org.apache.fop.area.inline.SpaceArea;
+import org.apache.fop.area.inline.TextArea;
+import org.apache.fop.area.inline.UnresolvedPageNumber;
+import org.apache.fop.area.inline.WordArea;
+import org.apache.fop.fo.Constants;
+import org.apache.fop.fonts.FontTriplet;
+import org.apache.fop.traits.BorderProps;
+import org.apache.fop.traits.Direction;
+import org.apache.fop.traits.TraitEnum;
+import org.apache.fop.traits.Visibility;
+import org.apache.fop.traits.WritingMode;
+
+import static org.apache.fop.area.AreaTreeBinaryFormat.ANCHOR;
+import static org.apache.fop.area.AreaTreeBinaryFormat.BASIC_LINK_AREA;
+import static org.apache.fop.area.AreaTreeBinaryFormat.BEFORE_FLOAT;
+import static org.apache.fop.area.AreaTreeBinaryFormat.BINARY;
+import static org.apache.fop.area.AreaTreeBinaryFormat.BLOCK;
+import static org.apache.fop.area.AreaTreeBinaryFormat.BLOCK_VIEWPORT;
+import static org.apache.fop.area.AreaTreeBinaryFormat.BODY_REGION;
+import static org.apache.fop.area.AreaTreeBinaryFormat.BORDER_PROPS;
+import static org.apache.fop.area.AreaTreeBinaryFormat.COLOR;
+import static org.apache.fop.area.AreaTreeBinaryFormat.CONTAINER;
+import static org.apache.fop.area.AreaTreeBinaryFormat.CTM;
+import static org.apache.fop.area.AreaTreeBinaryFormat.DIRECTION;
+import static org.apache.fop.area.AreaTreeBinaryFormat.EXTERNAL_LINK;
+import static org.apache.fop.area.AreaTreeBinaryFormat.FALSE;
+import static org.apache.fop.area.AreaTreeBinaryFormat.FILLED_AREA;
+import static org.apache.fop.area.AreaTreeBinaryFormat.FONT_TRIPLET;
+import static org.apache.fop.area.AreaTreeBinaryFormat.FOOTNOTE;
+import static org.apache.fop.area.AreaTreeBinaryFormat.FOREIGN_OBJECT;
+import static org.apache.fop.area.AreaTreeBinaryFormat.IMAGE;
+import static org.apache.fop.area.AreaTreeBinaryFormat.INLINE_AREA;
+import static org.apache.fop.area.AreaTreeBinaryFormat.INLINE_BLOCK;
+import static org.apache.fop.area.AreaTreeBinaryFormat.INLINE_BLOCK_PARENT;
+import static org.apache.fop.area.AreaTreeBinaryFormat.INLINE_PARENT;
+import static org.apache.fop.area.AreaTreeBinaryFormat.INLINE_VIEWPORT;
+import static org.apache.fop.area.AreaTreeBinaryFormat.INTEGER;
+import static org.apache.fop.area.AreaTreeBinaryFormat.INTERNAL_LINK;
+import static org.apache.fop.area.AreaTreeBinaryFormat.JAVA_SERIALIZATION;
+import static org.apache.fop.area.AreaTreeBinaryFormat.LEADER;
+import static org.apache.fop.area.AreaTreeBinaryFormat.LINE_AREA;
+import static org.apache.fop.area.AreaTreeBinaryFormat.LINK_RESOLVER;
+import static org.apache.fop.area.AreaTreeBinaryFormat.LIST;
+import static org.apache.fop.area.AreaTreeBinaryFormat.LOCALE;
+import static org.apache.fop.area.AreaTreeBinaryFormat.MAP;
+import static org.apache.fop.area.AreaTreeBinaryFormat.NEW_STRING;
+import static org.apache.fop.area.AreaTreeBinaryFormat.NORMAL_FLOW;
+import static org.apache.fop.area.AreaTreeBinaryFormat.NULL;
+import static org.apache.fop.area.AreaTreeBinaryFormat.NULL_STRING;
+import static org.apache.fop.area.AreaTreeBinaryFormat.PAGE;
+import static org.apache.fop.area.AreaTreeBinaryFormat.QNAME;
+import static org.apache.fop.area.AreaTreeBinaryFormat.RECTANGLE;
+import static org.apache.fop.area.AreaTreeBinaryFormat.RECTANGLE_2D_DOUBLE;
+import static org.apache.fop.area.AreaTreeBinaryFormat.RECTANGLE_2D_FLOAT;
+import static org.apache.fop.area.AreaTreeBinaryFormat.REFERENCE;
+import static org.apache.fop.area.AreaTreeBinaryFormat.REGION_REFERENCE;
+import static org.apache.fop.area.AreaTreeBinaryFormat.REGION_VIEWPORT;
+import static org.apache.fop.area.AreaTreeBinaryFormat.RESOLVED_PAGE_NUMBER;
+import static org.apache.fop.area.AreaTreeBinaryFormat.SERIALIZED;
+import static org.apache.fop.area.AreaTreeBinaryFormat.SIDE_FLOAT;
+import static org.apache.fop.area.AreaTreeBinaryFormat.SPACE;
+import static org.apache.fop.area.AreaTreeBinaryFormat.SPACE_AREA;
+import static org.apache.fop.area.AreaTreeBinaryFormat.SPAN;
+import static org.apache.fop.area.AreaTreeBinaryFormat.STRING;
+import static org.apache.fop.area.AreaTreeBinaryFormat.STRING_INDEX_OFFSET;
+import static org.apache.fop.area.AreaTreeBinaryFormat.TEXT_AREA;
+import static org.apache.fop.area.AreaTreeBinaryFormat.TRUE;
+import static org.apache.fop.area.AreaTreeBinaryFormat.UNRESOLVED_PAGE_NUMBER;
+import static org.apache.fop.area.AreaTreeBinaryFormat.VISIBILITY;
+import static org.apache.fop.area.AreaTreeBinaryFormat.WORD_AREA;
+import static org.apache.fop.area.AreaTreeBinaryFormat.WRITING_MODE;
+
+/**
+ * Writes pages in the binary encoding described by {@link AreaTreeBinaryFormat}. Only the exact
+ * area classes of FOP are encoded; a page holding an instance of any other area class is written
+ * with Java serialization instead. The transient fields of the area classes are not written.
+ * Neither are the extents of the children of inline parents, as they are only used while the
+ * children are added during layout. The writer can be reused for any number of pages.
+ */
+final class AreaTreeBinaryWriter {
+
+    private static final Map<Class<?>, Integer> TYPES = new HashMap<Class<?>, Integer>();
+
+    static {
+        TYPES.put(ArrayList.class, LIST);
+        TYPES.put(HashMap.class, MAP);
+        TYPES.put(Color.class, COLOR);
+        TYPES.put(FontTriplet.class, FONT_TRIPLET);
+        TYPES.put(BorderProps.class, BORDER_PROPS);
+        TYPES.put(Trait.InternalLink.class, INTERNAL_LINK);
+        TYPES.put(Trait.ExternalLink.class, EXTERNAL_LINK);
+        TYPES.put(WritingMode.class, WRITING_MODE);
+        TYPES.put(Direction.class, DIRECTION);
+        TYPES.put(Visibility.class, VISIBILITY);
+        TYPES.put(CTM.class, CTM);
+        TYPES.put(Rectangle.class, RECTANGLE);
+        TYPES.put(Rectangle2D.Double.class, RECTANGLE_2D_DOUBLE);
+        TYPES.put(Rectangle2D.Float.class, RECTANGLE_2D_FLOAT);
+        TYPES.put(Locale.class, LOCALE);
+        TYPES.put(QName.class, QNAME);
+        TYPES.put(LinkResolver.class, LINK_RESOLVER);
+        TYPES.put(Page.class, PAGE);
+        TYPES.put(RegionViewport.class, REGION_VIEWPORT);
+        TYPES.put(RegionReference.class, REGION_REFERENCE);
+        TYPES.put(BodyRegion.class, BODY_REGION);
+        TYPES.put(Span.class, SPAN);
+        TYPES.put(NormalFlow.class, NORMAL_FLOW);
+        TYPES.put(BeforeFloat.class, BEFORE_FLOAT);
+        TYPES.put(Footnote.class, FOOTNOTE);
+        TYPES.put(Block.class, BLOCK);
+        TYPES.put(BlockViewport.class, BLOCK_VIEWPORT);
+        TYPES.put(SideFloat.class, SIDE_FLOAT);
+        TYPES.put(LineArea.class, LINE_AREA);
+        TYPES.put(InlineArea.class, INLINE_AREA);
+        TYPES.put(Anchor.class, ANCHOR);
+        TYPES.put(Space.class, SPACE);
+        TYPES.put(InlineParent.class, INLINE_PARENT);
+        TYPES.put(BasicLinkArea.class, BASIC_LINK_AREA);
+        TYPES.put(FilledArea.class, FILLED_AREA);
+        TYPES.put(InlineBlock.class, INLINE_BLOCK);
+        TYPES.put(InlineBlockParent.class, INLINE_BLOCK_PARENT);
+        TYPES.put(InlineViewport.class, INLINE_VIEWPORT);
+        TYPES.put(TextArea.class, TEXT_AREA);
+        TYPES.put(ResolvedPageNumber.class, RESOLVED_PAGE_NUMBER);
+        TYPES.put(UnresolvedPageNumber.class, UNRESOLVED_PAGE_NUMBER);
+        TYPES.put(WordArea.class, WORD_AREA);
+        TYPES.put(SpaceArea.class, SPACE_AREA);
+        TYPES.put(Leader.class, LEADER);
+        TYPES.put(Image.class, IMAGE);
+        TYPES.put(ForeignObject.class, FOREIGN_OBJECT);
+        TYPES.put(Container.class, CONTAINER);
+    }
+
+    private static final int[] REGION_CLASSES = new int[] {Constants.FO_REGION_BEFORE,
+            Constants.FO_REGION_START, Constants.FO_REGION_BODY, Constants.FO_REGION_END,
+            Constants.FO_REGION_AFTER};
+
+    private final Buffer buffer = new Buffer();
+    private final Map<Object, Integer> handles = new IdentityHashMap<Object, Integer>();
+    private final Map<String, Integer> strings = new HashMap<String, Integer>();
+
+    private Buffer serializedBuffer;
+    private ObjectOutputStream serializedStream;
+
+    /**
+     * Encodes a page. The encoded page record is available from {@link #getBuffer()} until the
+     * next page is written.
+     * @param page the page
+     * @throws IOException if a value of the page cannot be serialized
+     */
+    void writePage(Page page) throws IOException {
+        try {
+            buffer.count = 0;
+            buffer.write(BINARY);
+            buffer.ensureCapacity(4);
+            buffer.count += 4;
+            writeObject(page);
+            int length = buffer.count - 5;
+            buffer.data[1] = (byte) (length >>> 24);
+            buffer.data[2] = (byte) (length >>> 16);
+            buffer.data[3] = (byte) (length >>> 8);
+            buffer.data[4] = (byte) length;
+            if (serializedStream != null) {
+                serializedStream.flush();
+                buffer.write(serializedBuffer.data, 0, serializedBuffer.count);
+            }
+        } catch (UnsupportedObjectException e) {
+            buffer.count = 0;
+            buffer.write(JAVA_SERIALIZATION);
+            ObjectOutputStream out = new ObjectOutputStream(buffer);
+            out.writeObject(page);
+            out.flush();
+        } finally {
+            handles.clear();
+            strings.clear();
+            serializedStream = null;
+            serializedBuffer = null;
+        }
+    }
+
+    /** @return the buffer holding the last page record, see {@link #getLength()} */
+    byte[] getBuffer() {
+        return buffer.data;
+    }
+
+    /** @return the length of the last page record */
+    int getLength() {
+        return buffer.count;
+    }
+
+    private void writeObject(Object object) throws IOException {
+        if (object == null) {
+            buffer.write(NULL);
+            return;
+        }
+        Class<?> type = object.getClass();
+        if (type == String.class) {
+            buffer.write(STRING);
+            writeString((String) object);
+        } else if (type == Integer.class) {
+            buffer.write(INTEGER);
+            writeInt((Integer) object);
+        } else if (type == Boolean.class) {
+            buffer.write((Boolean) object ? TRUE : FALSE);
+        } else {
+            Integer handle = handles.get(object);
+            if (handle != null) {
+                buffer.write(REFERENCE);
+                writeUnsignedInt(handle);
+                return;
+            }
+            Integer tag = TYPES.get(type);
+            if (tag == null || !isEncodable(tag, object)) {
+                if (object instanceof AreaTreeObject || object instanceof Resolvable) {
+                    throw new UnsupportedObjectException(type);
+                }
+                handles.put(object, handles.size());
+                buffer.write(SERIALIZED);
+                serialize(object);
+            } else {
+                handles.put(object, handles.size());
+                buffer.write(tag);
+                writeContent(tag, object);
+            }
+        }
+    }
+
+    private static boolean isEncodable(int tag, Object object) {
+        if (tag == COLOR) {
+            // only plain sRGB colors whose components are fully described by their RGB value
+            Color color = (Color) object;
+            if (!color.getColorSpace().isCS_sRGB()) {
+                return false;
+            }
+            float[] components = color.getRGBComponents(null);
+            Color plain = new Color(color.getRGB(), true);
+            float[] plainComponents = plain.getRGBComponents(null);
+            for (int i = 0; i < components.length; i++) {
+                if (components[i] != plainComponents[i]) {
+                    return false;
+                }
+            }
+        } else if (tag == LOCALE) {
+            Locale locale = (Locale) object;
+            return locale.getScript().length() == 0 && locale.getExtensionKeys().isEmpty();
+        }
+        return true;
+    }
+
+    private void writeContent(int tag, Object object) throws IOException {
+        switch (tag) {
+        case LIST:
+            writeList((List<?>) object);
+            break;
+        case MAP:
+            Map<?, ?> map = (Map<?, ?>) object;
+            writeUnsignedInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeObject(entry.getKey());
+                writeObject(entry.getValue());
+            }
+            break;
+        case COLOR:
+            writeFixedInt(((Color) object).getRGB());
+            break;
+        case FONT_TRIPLET:
+            FontTriplet triplet = (FontTriplet) object;
+            writeString(triplet.getName());
+            writeString(triplet.getStyle());
+            writeInt(triplet.getWeight());
+            writeInt(triplet.getPriority());
+            break;
+        case BORDER_PROPS:
+            BorderProps border = (BorderProps) object;
+            writeInt(border.style);
+            writeInt(border.width);
+            writeInt(border.getRadiusStart());
+            writeInt(border.getRadiusEnd());
+            writeObject(border.color);
+            writeUnsignedInt(border.getMode() == null ? 0 : border.getMode().ordinal() + 1);
+            break;
+        case INTERNAL_LINK:
+            Trait.InternalLink internalLink = (Trait.InternalLink) object;
+            writeString(internalLink.getPVKey());
+            writeString(internalLink.getIDRef());
+            break;
+        case EXTERNAL_LINK:
+            Trait.ExternalLink externalLink = (Trait.ExternalLink) object;
+            writeString(externalLink.getDestination());
+            writeBoolean(externalLink.newWindow());
+            break;
+        case WRITING_MODE:
+        case DIRECTION:
+        case VISIBILITY:
+            writeString(((TraitEnum) object).getName());
+            break;
+        case CTM:
+            for (double value : ((CTM) object).toArray()) {
+                writeDouble(value);
+            }
+            break;
+        case RECTANGLE:
+            Rectangle rect = (Rectangle) object;
+            writeInt(rect.x);
+            writeInt(rect.y);
+            writeInt(rect.width);
+            writeInt(rect.height);
+            break;
+        case RECTANGLE_2D_DOUBLE:
+            Rectangle2D.Double doubleRect = (Rectangle2D.Double) object;
+            writeDouble(doubleRect.x);
+            writeDouble(doubleRect.y);
+            writeDouble(doubleRect.width);
+            writeDouble(doubleRect.height);
+            break;
+        case RECTANGLE_2D_FLOAT:
+            Rectangle2D.Float floatRect = (Rectangle2D.Float) object;
+            writeFixedInt(Float.floatToRawIntBits(floatRect.x));
+            writeFixedInt(Float.floatToRawIntBits(floatRect.y));
+            writeFixedInt(Float.floatToRawIntBits(floatRect.width));
+            writeFixedInt(Float.floatToRawIntBits(floatRect.height));
+            break;
+        case LOCALE:
+            Locale locale = (Locale) object;
+            writeString(locale.getLanguage());
+            writeString(locale.getCountry());
+            writeString(locale.getVariant());
+            break;
+        case QNAME:
+            QName name = (QName) object;
+            writeString(name.getNamespaceURI());
+            writeString(name.getPrefix());
+            writeString(name.getLocalName());
+            break;
+        case LINK_RESOLVER:
+            LinkResolver resolver = (LinkResolver) object;
+            writeString(resolver.getIDRefs()[0]);
+            writeBoolean(resolver.isResolved());
+            writeObject(resolver.getArea());
+            break;
+        case PAGE:
+            writePageContent((Page) object);
+            break;
+        default:
+            if (object instanceof InlineArea) {
+                writeInlineArea(tag, (InlineArea) object);
+            } else {
+                writeArea(tag, (Area) object);
+            }
+        }
+    }
+
+    private void writePageContent(Page page) throws IOException {
+        for (int regionClass : REGION_CLASSES) {
+            writeObject(page.getRegionViewport(regionClass));
+        }
+        writeObject(page.getUnresolvedReferences());
+        writeBoolean(page.isFakeNonEmpty());
+        writeAreaTreeObject(page);
+    }
+
+    private void writeArea(int tag, Area area) throws IOException {
+        switch (tag) {
+        case REGION_VIEWPORT:
+            RegionViewport regionViewport = (RegionViewport) area;
+            writeObject(regionViewport.getViewArea());
+            writeObject(regionViewport.getRegionReference());
+            writeBoolean(regionViewport.hasClip());
+            break;
+        case REGION_REFERENCE:
+        case BODY_REGION:
+            RegionReference regionReference = (RegionReference) area;
+            writeInt(regionReference.getRegionClass());
+            writeString(regionReference.getRegionName());
+            if (tag == BODY_REGION) {
+                BodyRegion bodyRegion = (BodyRegion) regionReference;
+                writeInt(bodyRegion.getColumnCount());
+                writeInt(bodyRegion.getColumnGap());
+            }
+            writeObject(regionReference.regionViewport);
+            writeObject(regionReference.getCTM());
+            writeList(regionReference.getBlocks());
+            if (tag == BODY_REGION) {
+                // the getters create empty areas on demand, like the renderers do
+                BodyRegion bodyRegion = (BodyRegion) regionReference;
+                writeObject(bodyRegion.getBeforeFloat());
+                writeMainReference(bodyRegion.getMainReference());
+                writeObject(bodyRegion.getFootnote());
+            }
+            break;
+        case SPAN:
+            Span span = (Span) area;
+            writeInt(span.getColumnCount());
+            writeInt(span.getColumnGap());
+            for (int i = 0; i < span.getColumnCount(); i++) {
+                writeObject(span.getNormalFlow(i));
+            }
+            writeInt(span.getColumnWidth());
+            writeInt(span.getCurrentFlowIndex());
+            break;
+        case NORMAL_FLOW:
+            writeBlockParent((BlockParent) area);
+            break;
+        case BEFORE_FLOAT:
+            writeBlockParent((BlockParent) area);
+            writeObject(((BeforeFloat) area).getSeparator());
+            break;
+        case FOOTNOTE:
+            Footnote footnote = (Footnote) area;
+            writeBlockParent(footnote);
+            writeObject(footnote.getSeparator());
+            writeInt(footnote.getTop());
+            break;
+        case BLOCK:
+        case SIDE_FLOAT:
+        case BLOCK_VIEWPORT:
+            Block block = (Block) area;
+            writeBlockParent(block);
+            writeInt(block.getPositioning());
+            writeObject(block.getLocale());
+            writeString(block.getLocation());
+            if (tag == BLOCK_VIEWPORT) {
+                BlockViewport blockViewport = (BlockViewport) block;
+                writeBoolean(blockViewport.hasClip());
+                writeObject(blockViewport.getCTM());
+            }
+            break;
+        case LINE_AREA:
+            LineArea line = (LineArea) area;
+            writeList(line.getInlineAreas());
+            LineArea.LineAdjustingInfo info = line.getAdjustingInfo();
+            writeBoolean(info != null);
+            if (info != null) {
+                writeInt(info.lineAlignment);
+                writeInt(info.difference);
+                writeInt(info.availableStretch);
+                writeInt(info.availableShrink);
+                writeDouble(info.variationFactor);
+                writeBoolean(info.bAddedToAreaTree);
+            }
+            break;
+        case IMAGE:
+            writeString(((Image) area).getURL());
+            break;
+        case FOREIGN_OBJECT:
+            ForeignObject foreignObject = (ForeignObject) area;
+            writeString(foreignObject.getNameSpace());
+            writeObject(foreignObject.getDocument());
+            break;
+        case CONTAINER:
+            writeList(((Container) area).getBlocks());
+            break;
+        default:
+            throw new IllegalStateException("Unexpected area type: " + tag);
+        }
+        writeAreaState(area);
+    }
+
+    private void writeMainReference(MainReference mainReference) throws IOException {
+        if (mainReference.getClass() != MainReference.class || handles.containsKey(mainReference)) {
+            throw new UnsupportedObjectException(mainReference.getClass());
+        }
+        handles.put(mainReference, handles.size());
+        writeList(mainReference.getSpans());
+        writeAreaState(mainReference);
+    }
+
+    private void writeBlockParent(BlockParent blockParent) throws IOException {
+        writeInt(blockParent.xOffset);
+        writeInt(blockParent.yOffset);
+        writeList(blockParent.children);
+    }
+
+    private void writeInlineArea(int tag, InlineArea area) throws IOException {
+        // written ahead of the content, so that the parent area is restored first
+        switch (tag) {
+        case INLINE_BLOCK:
+            writeObject(((InlineBlock) area).getBlock());
+            break;
+        case UNRESOLVED_PAGE_NUMBER:
+            UnresolvedPageNumber pageNumber = (UnresolvedPageNumber) area;
+            writeString(pageNumber.getIDRefs()[0]);
+            writeBoolean(pageNumber.getPageType());
+            break;
+        case WORD_AREA:
+            WordArea word = (WordArea) area;
+            writeString(word.getWord());
+            writeIntArray(word.getLetterAdjustArray());
+            writeIntArray(word.getBidiLevels());
+            int[][] adjustments = word.getGlyphPositionAdjustments();
+            if (adjustments == null) {
+                writeUnsignedInt(0);
+            } else {
+                writeUnsignedInt(adjustments.length + 1);
+                for (int[] adjustment : adjustments) {
+                    writeIntArray(adjustment);
+                }
+            }
+            writeBoolean(word.isReversed());
+            writeBoolean(word.isNextIsSpace());
+            break;
+        case SPACE_AREA:
+            SpaceArea space = (SpaceArea) area;
+            writeUnsignedInt(space.getSpace().charAt(0));
+            writeBoolean(space.isAdjustable());
+            break;
+        default:
+            break;
+        }
+        writeObject(area.getParentArea());
+        switch (tag) {
+        case INLINE_PARENT:
+        case INLINE_BLOCK:
+            writeList(((InlineParent) area).getChildAreas());
+            break;
+        case BASIC_LINK_AREA:
+            writeList(((InlineParent) area).getChildAreas());
+            writeObject(((BasicLinkArea) area).getResolver());
+            break;
+        case FILLED_AREA:
+            FilledArea filledArea = (FilledArea) area;
+            writeInt(filledArea.getUnitWidth());
+            writeList(filledArea.getUnitAreas());
+            break;
+        case TEXT_AREA:
+        case RESOLVED_PAGE_NUMBER:
+        case UNRESOLVED_PAGE_NUMBER:
+            TextArea text = (TextArea) area;
+            writeList(text.getChildAreas());
+            writeTextAreaState(text);
+            writeBoolean(text.isHyphenated());
+            if (tag == UNRESOLVED_PAGE_NUMBER) {
+                UnresolvedPageNumber pageNumber = (UnresolvedPageNumber) area;
+                writeBoolean(pageNumber.isResolved());
+                writeString(pageNumber.getText());
+            }
+            break;
+        case INLINE_BLOCK_PARENT:
+            writeObject(((InlineBlockParent) area).getChildArea());
+            break;
+        case INLINE_VIEWPORT:
+            InlineViewport viewport = (InlineViewport) area;
+            writeObject(viewport.getContent());
+            writeBoolean(viewport.hasClip());
+            writeObject(viewport.getContentPosition());
+            break;
+        case LEADER:
+            Leader leader = (Leader) area;
+            writeInt(leader.getRuleStyle());
+            writeInt(leader.getRuleThickness());
+            break;
+        default:
+            break;
+        }
+        writeAreaState(area);
+        writeInt(area.getBlockProgressionOffset());
+        writeAdjustingValues(area.getAdjustingValues());
+    }
+
+    private void writeTextAreaState(AbstractTextArea text) throws IOException {
+        writeInt(text.getTextWordSpaceAdjust());
+        writeInt(text.getTextLetterSpaceAdjust());
+        writeInt(text.getBaselineOffset());
+        writeAdjustingValues(text.getTextAdjustingValues());
+    }
+
+    private void writeAdjustingValues(int[] values) throws IOException {
+        writeBoolean(values != null);
+        if (values != null) {
+            for (int value : values) {
+                writeInt(value);
+            }
+        }
+    }
+
+    private void writeAreaState(Area area) throws IOException {
+        writeInt(area.getAreaClass());
+        writeInt(area.ipd);
+        writeInt(area.bpd);
+        writeInt(area.effectiveIPD);
+        writeInt(area.bidiLevel);
+        Map<Integer, Object> traits = area.traits;
+        if (traits == null) {
+            writeUnsignedInt(0);
+        } else {
+            writeUnsignedInt(traits.size() + 1);
+            for (Map.Entry<Integer, Object> trait : traits.entrySet()) {
+                writeInt(trait.getKey());
+                writeObject(trait.getValue());
+            }
+        }
+        writeObject(area.getChangeBarList());
+        writeAreaTreeObject(area);
+    }
+
+    private void writeAreaTreeObject(AreaTreeObject object) throws IOException {
+        writeObject(object.foreignAttributes);
+        writeObject(object.extensionAttachments);
+    }
+
+    private void writeList(List<?> list) throws IOException {
+        if (list == null) {
+            writeUnsignedInt(0);
+        } else {
+            writeUnsignedInt(list.size() + 1);
+            for (Object element : list) {
+                writeObject(element);
+            }
+        }
+    }
+
+    private void writeIntArray(int[] values) throws IOException {
+        if (values == null) {
+            writeUnsignedInt(0);
+        } else {
+            writeUnsignedInt(values.length + 1);
+            for (int value : values) {
+                writeInt(value);
+            }
+        }
+    }
+
+    private void serialize(Object object) throws IOException {
+        if (serializedStream == null) {
+            serializedBuffer = new Buffer();
+            serializedStream = new GuardedObjectOutputStream(serializedBuffer);
+        }
+        serializedStream.writeObject(object);
+    }
+
+    private void writeString(String s) throws IOException {
+        if (s == null) {
+            writeUnsignedInt(NULL_STRING);
+            return;
+        }
+        Integer index = strings.get(s);
+        if (index != null) {
+            writeUnsignedInt(index + STRING_INDEX_OFFSET);
+        } else {
+            strings.put(s, strings.size());
+            writeUnsignedInt(NEW_STRING);
+            int length = s.length();
+            writeUnsignedInt(length);
+            for (int i = 0; i < length; i++) {
+                writeUnsignedInt(s.charAt(i));
+            }
+        }
+    }
+
+    private void writeBoolean(boolean value) {
+        buffer.write(value ? 1 : 0);
+    }
+
+    private void writeInt(int value) {
+        writeUnsignedInt((value << 1) ^ (value >> 31));
+    }
+
+    private void writeUnsignedInt(int value) {
+        buffer.ensureCapacity(5);
+        byte[] data = buffer.data;
+        int count = buffer.count;
+        while ((value & ~0x7F) != 0) {
+            data[count++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[count++] = (byte) value;
+        buffer.count = count;
+    }
+
+    private void writeFixedInt(int value) {
+        buffer.ensureCapacity(4);
+        byte[] data = buffer.data;
+        int count = buffer.count;
+        data[count] = (byte) (value >>> 24);
+        data[count + 1] = (byte) (value >>> 16);
+        data[count + 2] = (byte) (value >>> 8);
+        data[count + 3] = (byte) value;
+        buffer.count = count + 4;
+    }
+
+    private void writeDouble(double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        writeFixedInt((int) (bits >>> 32));
+        writeFixedInt((int) bits);
+    }
+
+    /** A growable byte buffer whose content can be accessed directly. */
+    private static final class Buffer extends OutputStream {
+
+        private byte[] data = new byte[8192];
+        private int count;
+
+        void ensureCapacity(int extra) {
+            if (count + extra > data.length) {
+                byte[] grown = new byte[Math.max(data.length * 2, count + extra)];
+                System.arraycopy(data, 0, grown, 0, count);
+                data = grown;
+            }
+        }
+
+        @Override
+        public void write(int b) {
+            ensureCapacity(1);
+            data[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            ensureCapacity(len);
+            System.arraycopy(b, off, data, count, len);
+            count += len;
+        }
+    }
+
+    /**
+     * Serializes the values the binary encoding does not know. Areas must not be reached from
+     * such values, since they would be restored as copies.
+     */
+    private static final class GuardedObjectOutputStream extends ObjectOutputStream {
+
+        GuardedObjectOutputStream(OutputStream out) throws IOException {
+            super(out);
+            enableReplaceObject(true);
+        }
+
+        @Override
+        protected Object replaceObject(Object obj) throws IOException {
+            if (obj instanceof AreaTreeObject || obj instanceof Resolvable) {
+                throw new UnsupportedObjectException(obj.getClass());
+            }
+            return obj;
+        }
+    }
+
+    /** Signals a page holding an object that cannot be written in the binary encoding. */
+    private static final class UnsupportedObjectException extends IOException {
+
+        private static final long serialVersionUID = 8815327209471342307L;
+
+        UnsupportedObjectException(Class<?> type) {
+            super("Cannot encode " + type.getName());
+        }
+    }
+}
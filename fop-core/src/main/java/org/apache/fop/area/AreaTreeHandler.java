@@ -21,8 +21,10 @@ package org.apache.fop.area;
 
 // Java
 import java.io.OutputStream;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import org.xml.sax.SAXException;
 
@@ -40,12 +42,15 @@ import org.apache.fop.fo.extensions.destination.Destination;
 import org.apache.fop.fo.pagination.AbstractPageSequence;
 import org.apache.fop.fo.pagination.PageSequence;
 import org.apache.fop.fo.pagination.Root;
+import org.apache.fop.fo.pagination.SimplePageMaster;
 import org.apache.fop.fo.pagination.bookmarks.BookmarkTree;
 import org.apache.fop.layoutmgr.ExternalDocumentLayoutManager;
 import org.apache.fop.layoutmgr.LayoutManagerMaker;
 import org.apache.fop.layoutmgr.LayoutManagerMapping;
 import org.apache.fop.layoutmgr.PageSequenceLayoutManager;
 import org.apache.fop.layoutmgr.TopLevelLayoutManager;
+import org.apache.fop.metrics.Counter;
+import org.apache.fop.metrics.Phase;
 
 /**
  * Area tree handler for formatting objects.
@@ -89,6 +94,12 @@ public class AreaTreeHandler extends FOEventHandler {
 
     private int idGen;
 
+    // Pages built from each simple-page-master, used as templates for new pages
+    private Map<SimplePageMaster, Page> pageTemplates = new HashMap<SimplePageMaster, Page>();
+
+    // Lays out page-sequences on worker threads, null if they are laid out one after the other
+    private ParallelPageSequenceLayout parallelLayout;
+
     /**
      * Constructor.
      *
@@ -113,11 +124,34 @@ public class AreaTreeHandler extends FOEventHandler {
 
         this.useComplexScriptFeatures = userAgent.isComplexScriptFeaturesEnabled();
 
+        if (userAgent.getLayoutThreads() > 0 && !userAgent.isAccessibilityEnabled()) {
+            parallelLayout = new ParallelPageSequenceLayout(this, userAgent.getLayoutThreads());
+        }
+
         if (log.isDebugEnabled()) {
             statistics = new Statistics();
         }
     }
 
+    /**
+     * Creates a handler that lays out a single page-sequence on behalf of another handler. It
+     * shares the fonts, layout manager maker and page templates of the other handler, but
+     * adds its pages to the given model and tracks ids with the given tracker.
+     *
+     * @param parent the handler processing the document
+     * @param model the model the pages of the page-sequence are added to
+     * @param idTracker the tracker for the ids of the page-sequence
+     */
+    AreaTreeHandler(AreaTreeHandler parent, AreaTreeModel model, IDTracker idTracker) {
+        this.foUserAgent = parent.foUserAgent;
+        this.fontInfo = parent.fontInfo;
+        this.model = model;
+        this.lmMaker = parent.lmMaker;
+        this.idTracker = idTracker;
+        this.useComplexScriptFeatures = parent.useComplexScriptFeatures;
+        this.pageTemplates = parent.pageTemplates;
+    }
+
     /**
      * Sets up the AreaTreeModel instance for use by the AreaTreeHandler.
      *
@@ -210,8 +244,12 @@ public class AreaTreeHandler extends FOEventHandler {
      */
     private void finishPrevPageSequence(Numeric initialPageNumber) {
         if (prevPageSeqLM != null) {
-            prevPageSeqLM.doForcePageCount(initialPageNumber);
-            prevPageSeqLM.finishPageSequence();
+            if (parallelLayout != null && parallelLayout.isPending(prevPageSeqLM)) {
+                parallelLayout.finishLater(initialPageNumber);
+            } else {
+                prevPageSeqLM.doForcePageCount(initialPageNumber);
+                prevPageSeqLM.finishPageSequence();
+            }
             prevPageSeqLM = null;
         }
     }
@@ -237,6 +275,10 @@ public class AreaTreeHandler extends FOEventHandler {
         }
 
         finishPrevPageSequence(pageSequence.getInitialPageNumber());
+        if (parallelLayout != null && pageSequence.getInitialPageNumber().getEnum() != 0) {
+            // the page numbers continue from those of the previous page-sequence
+            parallelLayout.finishAll();
+        }
         pageSequence.initPageNumber();
     }
 
@@ -261,10 +303,20 @@ public class AreaTreeHandler extends FOEventHandler {
 
         // If no main flow, nothing to layout!
         if (pageSequence.getMainFlow() != null) {
-            PageSequenceLayoutManager pageSLM;
-            pageSLM = getLayoutManagerMaker().makePageSequenceLayoutManager(
-                    this, pageSequence);
-            pageSLM.activateLayout();
+            PageSequenceLayoutManager pageSLM = null;
+            if (parallelLayout != null) {
+                pageSLM = parallelLayout.submit(pageSequence);
+            }
+            if (pageSLM == null) {
+                pageSLM = getLayoutManagerMaker().makePageSequenceLayoutManager(
+                        this, pageSequence);
+                getUserAgent().getMetrics().start(Phase.LAYOUT);
+                try {
+                    pageSLM.activateLayout();
+                } finally {
+                    getUserAgent().getMetrics().stop(Phase.LAYOUT);
+                }
+            }
             // preserve the current PageSequenceLayoutManger for the
             // force-page-count check at the beginning of the next PageSequence
             prevPageSeqLM = pageSLM;
@@ -284,15 +336,35 @@ public class AreaTreeHandler extends FOEventHandler {
             statistics.end();
         }
 
+        if (parallelLayout != null) {
+            parallelLayout.finishAll();
+        }
         ExternalDocumentLayoutManager edLM;
         edLM = getLayoutManagerMaker().makeExternalDocumentLayoutManager(this, document);
-        edLM.activateLayout();
+        getUserAgent().getMetrics().start(Phase.LAYOUT);
+        try {
+            edLM.activateLayout();
+        } finally {
+            getUserAgent().getMetrics().stop(Phase.LAYOUT);
+        }
         // preserve the current PageSequenceLayoutManger for the
         // force-page-count check at the beginning of the next PageSequence
         prevPageSeqLM = edLM;
 
     }
 
+    /**
+     * Called by the page provider when it creates a page, to tell the root of the FO tree
+     * which page-sequence the last page belongs to.
+     *
+     * @param root the root of the FO tree
+     * @param pageSequence the page-sequence whose last page has been created, null if the
+     * page is neither the first nor the last one of its page-sequence
+     */
+    public void setLastSeq(Root root, PageSequence pageSequence) {
+        root.setLastSeq(pageSequence);
+    }
+
     /**
      * Called by the PageSequenceLayoutManager when it is finished with a
      * page-sequence.
@@ -303,6 +375,8 @@ public class AreaTreeHandler extends FOEventHandler {
     public void notifyPageSequenceFinished(AbstractPageSequence pageSequence,
             int pageCount) {
         this.results.haveFormattedPageSequence(pageSequence, pageCount);
+        getUserAgent().getMetrics().increment(Counter.PAGE_SEQUENCES);
+        getUserAgent().getMetrics().add(Counter.PAGES, pageCount);
         if (log.isDebugEnabled()) {
             log.debug("Last page-sequence produced " + pageCount + " pages.");
         }
@@ -317,6 +391,10 @@ public class AreaTreeHandler extends FOEventHandler {
     public void endDocument() throws SAXException {
 
         finishPrevPageSequence(null);
+        if (parallelLayout != null) {
+            parallelLayout.finishAll();
+            parallelLayout.shutdown();
+        }
         // process fox:destination elements
         if (rootFObj != null) {
             List<Destination> destinationList = rootFObj.getDestinationList();
@@ -387,6 +465,29 @@ public class AreaTreeHandler extends FOEventHandler {
         return "P" + this.idGen;
     }
 
+    /**
+     * Creates the page reference area for a new page. The region viewports and reference
+     * areas are only computed once per simple-page-master; every further page gets a copy
+     * of that template.
+     *
+     * @param spm the simple-page-master the page is created from
+     * @return a new, empty page
+     */
+    public Page createPage(SimplePageMaster spm) {
+        synchronized (pageTemplates) {
+            Page template = pageTemplates.get(spm);
+            if (template == null) {
+                template = new Page(spm);
+                pageTemplates.put(spm, template);
+            }
+            try {
+                return (Page) template.clone();
+            } catch (CloneNotSupportedException e) {
+                throw new AssertionError(); // Can't happen
+            }
+        }
+    }
+
     /**
      * Tie a PageViewport with an ID found on a child area of the PV. Note that
      * an area with a given ID may be on more than one PV, hence an ID may have
@@ -144,4 +144,19 @@ public class BlockParent extends Area {
             }
         }
     }
+
+    /**
+     * {@inheritDoc}
+     * The child areas are copied as well.
+     */
+    public Object clone() throws CloneNotSupportedException {
+        BlockParent bp = (BlockParent) super.clone();
+        if (children != null) {
+            bp.children = new ArrayList<Area>(children.size());
+            for (Area child : children) {
+                bp.children.add((Area) child.clone());
+            }
+        }
+        return bp;
+    }
 }
@@ -99,6 +99,11 @@ public class BodyRegion extends RegionReference {
         return mainReference;
     }
 
+    /** @param mainReference the main reference area */
+    void setMainReference(MainReference mainReference) {
+        this.mainReference = mainReference;
+    }
+
     /**
      * indicates whether the main reference area has any child areas added to it
      *
@@ -123,6 +128,11 @@ public class BodyRegion extends RegionReference {
         return beforeFloat;
     }
 
+    /** @param beforeFloat the before float area */
+    void setBeforeFloat(BeforeFloat beforeFloat) {
+        this.beforeFloat = beforeFloat;
+    }
+
     /**
      * Get the footnote area.
      *
@@ -135,6 +145,11 @@ public class BodyRegion extends RegionReference {
         return footnote;
     }
 
+    /** @param footnote the footnote area */
+    void setFootnote(Footnote footnote) {
+        this.footnote = footnote;
+    }
+
     /**
      * @return the available BPD in the main reference area after the previous span reference
      * areas are subtracted.
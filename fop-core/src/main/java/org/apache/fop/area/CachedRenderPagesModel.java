@@ -19,24 +19,12 @@
 
 package org.apache.fop.area;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.OutputStream;
-import java.net.URI;
-import java.util.HashMap;
 import java.util.Iterator;
-import java.util.Map;
 
 import org.xml.sax.SAXException;
 
-import org.apache.commons.io.IOUtils;
-
-import org.apache.xmlgraphics.io.TempResourceURIGenerator;
-
 import org.apache.fop.apps.FOPException;
 import org.apache.fop.apps.FOUserAgent;
 import org.apache.fop.fonts.FontInfo;
@@ -45,16 +33,12 @@ import org.apache.fop.fonts.FontInfo;
  * A simple cached render pages model.
  * If the page is prepared for later rendering then this saves
  * the page contents to a file and once the page is resolved
- * the contents are reloaded.
+ * the contents are reloaded. Pages are kept in a {@link PageStore}
+ * in the compact encoding of {@link AreaTreeBinaryWriter}.
  */
 public class CachedRenderPagesModel extends RenderPagesModel {
 
-    private Map<PageViewport, URI> pageMap = new HashMap<PageViewport, URI>();
-
-    /** Base directory to save temporary file in, typically points to the user's temp dir. */
-    private final URI tempBaseURI;
-    private static final TempResourceURIGenerator TEMP_URI_GENERATOR
-            = new TempResourceURIGenerator("cached-pages");
+    private final PageStore pageStore;
 
     /**
      * Main Constructor
@@ -67,7 +51,7 @@ public class CachedRenderPagesModel extends RenderPagesModel {
     public CachedRenderPagesModel(FOUserAgent userAgent, String outputFormat,
             FontInfo fontInfo, OutputStream stream) throws FOPException {
         super(userAgent, outputFormat, fontInfo, stream);
-        tempBaseURI = TEMP_URI_GENERATOR.generate();
+        pageStore = new PageStore(userAgent.getResourceResolver());
     }
 
     /** {@inheritDoc} */
@@ -79,17 +63,8 @@ public class CachedRenderPagesModel extends RenderPagesModel {
                 if (pageViewport != newpage) {
                     try {
                         // load page from cache
-                        URI tempURI = pageMap.get(pageViewport);
-                        log.debug("Loading page from: " + tempURI);
-                        InputStream inStream = renderer.getUserAgent().getResourceResolver().getResource(tempURI);
-                        ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(inStream));
-                        try {
-                            pageViewport.loadPage(in);
-                        } finally {
-                            IOUtils.closeQuietly(inStream);
-                            IOUtils.closeQuietly(in);
-                        }
-                        pageMap.remove(pageViewport);
+                        log.debug("Loading page from cache: " + pageViewport.getPageNumberString());
+                        pageStore.load(pageViewport);
                     } catch (Exception e) {
                         AreaEventProducer eventProducer = AreaEventProducer.Provider.get(
                                 renderer.getUserAgent().getEventBroadcaster());
@@ -122,19 +97,9 @@ public class CachedRenderPagesModel extends RenderPagesModel {
     protected void savePage(PageViewport page) {
         try {
             // save page to cache
-            ObjectOutputStream tempstream;
-            String fname = "/fop-page-" + page.getPageIndex() + ".ser";
-            URI tempURI = URI.create(tempBaseURI + fname);
-            OutputStream outStream = renderer.getUserAgent().getResourceResolver().getOutputStream(tempURI);
-            tempstream = new ObjectOutputStream(new BufferedOutputStream(outStream));
-            try {
-                page.savePage(tempstream);
-            } finally {
-                IOUtils.closeQuietly(tempstream);
-            }
-            pageMap.put(page, tempURI);
+            pageStore.save(page);
             if (log.isDebugEnabled()) {
-                log.debug("Page saved to temporary file: " + tempURI);
+                log.debug("Page saved to cache: " + page.getPageNumberString());
             }
         } catch (IOException ioe) {
             AreaEventProducer eventProducer
@@ -147,7 +112,10 @@ public class CachedRenderPagesModel extends RenderPagesModel {
     /** {@inheritDoc} */
     @Override
     public void endDocument() throws SAXException {
-        super.endDocument();
+        try {
+            super.endDocument();
+        } finally {
+            pageStore.close();
+        }
     }
 }
-
@@ -44,18 +44,18 @@ public class LineArea extends Area {
      * page-number or a page-number-citation is resolved
      */
     // @SuppressFBWarnings("SE_INNER_CLASS")
-    private final class LineAdjustingInfo implements Serializable {
+    final class LineAdjustingInfo implements Serializable {
 
         private static final long serialVersionUID = -6103629976229458273L;
 
-        private int lineAlignment;
-        private int difference;
-        private int availableStretch;
-        private int availableShrink;
-        private double variationFactor;
-        private boolean bAddedToAreaTree;
+        int lineAlignment;
+        int difference;
+        int availableStretch;
+        int availableShrink;
+        double variationFactor;
+        boolean bAddedToAreaTree;
 
-        private LineAdjustingInfo(int alignment, int diff,
+        LineAdjustingInfo(int alignment, int diff,
                                   int stretch, int shrink) {
             lineAlignment = alignment;
             difference = diff;
@@ -282,6 +282,16 @@ public class LineArea extends Area {
         }
     }
 
+    /** @return the adjusting information of this line, null if there is none */
+    LineAdjustingInfo getAdjustingInfo() {
+        return adjustingInfo;
+    }
+
+    /** @param adjustingInfo the adjusting information of this line */
+    void setAdjustingInfo(LineAdjustingInfo adjustingInfo) {
+        this.adjustingInfo = adjustingInfo;
+    }
+
     public int getEffectiveIPD() {
         int maxIPD = 0;
         if (inlineAreas != null) {
@@ -295,5 +305,27 @@ public class LineArea extends Area {
         return maxIPD;
     }
 
+    /**
+     * {@inheritDoc}
+     * The inline child areas and the adjusting information are copied as well.
+     */
+    public Object clone() throws CloneNotSupportedException {
+        LineArea la = (LineArea) super.clone();
+        if (adjustingInfo != null) {
+            la.adjustingInfo = la.new LineAdjustingInfo(adjustingInfo.lineAlignment,
+                    adjustingInfo.difference, adjustingInfo.availableStretch,
+                    adjustingInfo.availableShrink);
+            la.adjustingInfo.variationFactor = adjustingInfo.variationFactor;
+            la.adjustingInfo.bAddedToAreaTree = adjustingInfo.bAddedToAreaTree;
+        }
+        la.inlineAreas = new ArrayList<InlineArea>(inlineAreas.size());
+        for (InlineArea inline : inlineAreas) {
+            InlineArea copy = (InlineArea) inline.clone();
+            copy.setParentArea(la);
+            la.inlineAreas.add(copy);
+        }
+        return la;
+    }
+
 }
 
@@ -63,6 +63,21 @@ public class LinkResolver implements Resolvable, Serializable {
         return resolved;
     }
 
+    /** Marks this link as resolved. */
+    void setResolved() {
+        resolved = true;
+    }
+
+    /** @return the area that will have the link attribute, null once the link is resolved */
+    Area getArea() {
+        return area;
+    }
+
+    /** @param area the area that will have the link attribute */
+    void setArea(Area area) {
+        this.area = area;
+    }
+
     /**
      * Get the references for this link.
      *
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.area;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+
+import org.apache.xmlgraphics.io.TempResourceURIGenerator;
+
+import org.apache.fop.apps.io.InternalResourceResolver;
+
+/**
+ * Holds the pages of {@link PageViewport}s while they wait to be rendered. Pages are
+ * encoded with an {@link AreaTreeBinaryWriter} and written to temporary resources obtained
+ * through the resource resolver, one per page, from which they are restored when they are
+ * rendered.
+ */
+final class PageStore {
+
+    private static final TempResourceURIGenerator TEMP_URI_GENERATOR
+            = new TempResourceURIGenerator("cached-pages");
+
+    private final InternalResourceResolver resourceResolver;
+
+    /** Base URI of the temporary resources of this store. */
+    private final URI tempBaseURI;
+
+    private final AreaTreeBinaryWriter writer = new AreaTreeBinaryWriter();
+    private final AreaTreeBinaryReader reader = new AreaTreeBinaryReader();
+    private final Map<PageViewport, URI> records = new HashMap<PageViewport, URI>();
+    private int recordCount;
+
+    /**
+     * Creates a page store.
+     * @param resourceResolver the resource resolver providing the temporary resources
+     */
+    PageStore(InternalResourceResolver resourceResolver) {
+        this.resourceResolver = resourceResolver;
+        this.tempBaseURI = TEMP_URI_GENERATOR.generate();
+    }
+
+    /**
+     * Moves the page of a page viewport to the store. The page viewport no longer holds
+     * its page afterwards.
+     * @param pageViewport the page viewport
+     * @throws IOException if the page cannot be encoded or written
+     */
+    void save(PageViewport pageViewport) throws IOException {
+        URI tempURI = URI.create(tempBaseURI + "/fop-page-" + (recordCount++) + ".bin");
+        Page page = pageViewport.detachPage();
+        try {
+            writer.writePage(page);
+            OutputStream out = resourceResolver.getOutputStream(tempURI);
+            try {
+                out.write(writer.getBuffer(), 0, writer.getLength());
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            pageViewport.attachPage(page);
+            throw e;
+        }
+        records.put(pageViewport, tempURI);
+    }
+
+    /**
+     * Restores the page of a page viewport from the store.
+     * @param pageViewport the page viewport
+     * @throws IOException if the page is not in the store or cannot be read
+     */
+    void load(PageViewport pageViewport) throws IOException {
+        URI tempURI = records.remove(pageViewport);
+        if (tempURI == null) {
+            throw new IOException("Page " + pageViewport.getPageNumberString()
+                    + " is not in the store");
+        }
+        InputStream in = resourceResolver.getResource(tempURI);
+        byte[] record;
+        try {
+            record = IOUtils.toByteArray(in);
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+        pageViewport.attachPage(reader.readPage(ByteBuffer.wrap(record)));
+    }
+
+    /** @return the number of pages in the store */
+    int size() {
+        return records.size();
+    }
+
+    /**
+     * Forgets all pages. The temporary resources are disposed of by the resource resolver
+     * once they have been read.
+     */
+    void close() {
+        records.clear();
+    }
+}
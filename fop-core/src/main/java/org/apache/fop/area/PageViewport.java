@@ -96,6 +96,21 @@ public class PageViewport extends AreaTreeObject implements Resolvable {
      */
     public PageViewport(SimplePageMaster spm, int pageNumber, String pageStr,
             boolean blank, boolean spanAll) {
+        this(spm, new Page(spm), pageNumber, pageStr, blank, spanAll);
+    }
+
+    /**
+     * Create a page viewport around an existing page, usually a copy of a page template
+     * built from the same simple-page-master.
+     * @param spm SimplePageMaster indicating the page and region dimensions
+     * @param page the page reference area created for the simple-page-master
+     * @param pageNumber the page number
+     * @param pageStr String representation of the page number
+     * @param blank true if this is a blank page
+     * @param spanAll true if the first span area spans all columns
+     */
+    public PageViewport(SimplePageMaster spm, Page page, int pageNumber, String pageStr,
+            boolean blank, boolean spanAll) {
         this.simplePageMasterName = spm.getMasterName();
         setExtensionAttachments(spm.getExtensionAttachments());
         setForeignAttributes(spm.getForeignAttributes());
@@ -105,7 +120,7 @@ public class PageViewport extends AreaTreeObject implements Resolvable {
         this.pageNumber = pageNumber;
         this.pageNumberString = pageStr;
         this.viewArea = new Rectangle(0, 0, pageWidth, pageHeight);
-        this.page = new Page(spm);
+        this.page = page;
         createSpan(spanAll);
     }
 
@@ -402,10 +417,20 @@ public class PageViewport extends AreaTreeObject implements Resolvable {
      * @throws IOException in case of an I/O error while serializing the page
      */
     public void savePage(ObjectOutputStream out) throws IOException {
+        out.writeObject(detachPage());
+    }
+
+    /**
+     * Detaches the page contents from this viewport so that they can be saved.
+     * The map of unresolved references is set on the page.
+     * @return the page contents
+     */
+    Page detachPage() {
         // set the unresolved references so they are serialized
         page.setUnresolvedReferences(unresolvedIDRefs);
-        out.writeObject(page);
+        Page detached = page;
         page = null;
+        return detached;
     }
 
     /**
@@ -418,7 +443,16 @@ public class PageViewport extends AreaTreeObject implements Resolvable {
      * @throws IOException if an I/O error occurred while loading the page
      */
     public void loadPage(ObjectInputStream in) throws IOException, ClassNotFoundException {
-        page = (Page) in.readObject();
+        attachPage((Page) in.readObject());
+    }
+
+    /**
+     * Attaches previously saved page contents to this viewport. References that were
+     * resolved while the page was saved are resolved on the page contents.
+     * @param page the page contents
+     */
+    void attachPage(Page page) {
+        this.page = page;
         unresolvedIDRefs = page.getUnresolvedReferences();
         if (unresolvedIDRefs != null && pendingResolved != null) {
             for (Map.Entry<String, List<PageViewport>> e : pendingResolved.entrySet()) {
@@ -0,0 +1,668 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.area;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.fop.apps.FOPException;
+import org.apache.fop.datatypes.Numeric;
+import org.apache.fop.events.Event;
+import org.apache.fop.events.EventListener;
+import org.apache.fop.events.ThreadEventListener;
+import org.apache.fop.fo.FONode;
+import org.apache.fop.fo.FONode.FONodeIterator;
+import org.apache.fop.fo.flow.AbstractRetrieveMarker;
+import org.apache.fop.fo.pagination.AbstractPageSequence;
+import org.apache.fop.fo.pagination.PageSequence;
+import org.apache.fop.fo.pagination.Root;
+import org.apache.fop.fo.properties.PropertyCacheScope;
+import org.apache.fop.fonts.FontMappingRecorder;
+import org.apache.fop.fonts.Typeface;
+import org.apache.fop.layoutmgr.PageSequenceLayoutManager;
+import org.apache.fop.layoutmgr.TopLevelLayoutManager;
+import org.apache.fop.metrics.Phase;
+
+/**
+ * Lays out page-sequences on a pool of worker threads while the document is still being
+ * parsed.
+ * <p>
+ * Each page-sequence is laid out by its own {@link AreaTreeHandler}, whose id tracker and
+ * area tree model only know about the page-sequence itself. They record what the layout
+ * does to them, and the recording is replayed on the document's id tracker and area tree
+ * model, on the parsing thread and in document order, once the layout has finished. The
+ * pages therefore reach the renderer in the same order as with sequential layout. Ids
+ * defined in other page-sequences are resolved when the recording is replayed, in the
+ * same way as forward references.
+ * <p>
+ * A page-sequence can only be laid out once its first page number is known, that is when
+ * its initial-page-number is explicit or all preceding page-sequences have been finished.
+ * Page-sequences retrieving markers are laid out sequentially: markers are bound using the
+ * state of the FO tree builder, which keeps parsing while the page-sequences are laid out.
+ * So are page-sequences with a page master for the last page, which depend on the last
+ * page-sequence recorded by the root of the FO tree; the layout of other page-sequences
+ * records the changes it makes to it.
+ * <p>
+ * The page-sequences share the fonts of the document, including the glyph substitution and
+ * positioning tables used for complex scripts, whose lookup caches are thread-safe. The
+ * character mappings of the fonts, which decide the order of the glyphs in the embedded
+ * subsets, are recorded with the layout and replayed with it (see
+ * {@link FontMappingRecorder}), and so are the events broadcast by the layout. The output
+ * is therefore the same as with sequential layout.
+ */
+class ParallelPageSequenceLayout {
+
+    private final AreaTreeHandler areaTreeHandler;
+    private final ThreadPoolExecutor executor;
+    private final int maxPendingJobs;
+
+    /** The page-sequences being laid out or waiting to be replayed, in document order. */
+    private final LinkedList<Job> jobs = new LinkedList<Job>();
+
+    private int jobCount;
+
+    /** Guards the number of finished page-sequences, which worker threads wait on. */
+    private final Object turnLock = new Object();
+
+    private int finishedJobCount;
+
+    /** True once processing has failed. */
+    private boolean aborted;
+
+    /**
+     * Creates a new instance.
+     * @param areaTreeHandler the handler processing the document
+     * @param threads the number of layout threads
+     */
+    ParallelPageSequenceLayout(AreaTreeHandler areaTreeHandler, int threads) {
+        this.areaTreeHandler = areaTreeHandler;
+        this.executor = new ThreadPoolExecutor(threads, threads, 10, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new LayoutThreadFactory());
+        this.executor.allowCoreThreadTimeOut(true);
+        this.maxPendingJobs = threads * 2;
+    }
+
+    /**
+     * Starts laying out a page-sequence on a worker thread. Page-sequences that cannot be
+     * laid out in parallel are left to the caller, after all pending page-sequences have
+     * been finished.
+     * @param pageSequence the page-sequence, whose first page number must be known
+     * @return the layout manager of the page-sequence, or null if the caller has to lay out
+     * the page-sequence
+     */
+    PageSequenceLayoutManager submit(PageSequence pageSequence) {
+        if (retrievesMarkers(pageSequence) || pageSequence.usesPagePositionLast()) {
+            finishAll();
+            return null;
+        }
+        try {
+            pageSequence.usePrivatePageSequenceMaster();
+        } catch (FOPException e) {
+            finishAll();
+            return null;
+        }
+        Job job = new Job(++jobCount, pageSequence);
+        job.future = executor.submit(job);
+        jobs.add(job);
+        flush(false);
+        while (jobs.size() > maxPendingJobs && complete(jobs.getFirst(), true)) {
+            jobs.removeFirst();
+        }
+        return job.layoutManager;
+    }
+
+    /**
+     * Indicates whether the given layout manager belongs to a page-sequence that has been
+     * submitted and not finished yet.
+     * @param layoutManager the layout manager
+     * @return true if the page-sequence is pending
+     */
+    boolean isPending(TopLevelLayoutManager layoutManager) {
+        return !jobs.isEmpty() && jobs.getLast().layoutManager == layoutManager
+                && !jobs.getLast().finishRequested;
+    }
+
+    /**
+     * Requests the last submitted page-sequence to be finished once its layout has been
+     * replayed.
+     * @param nextInitialPageNumber the initial-page-number of the next page-sequence, null
+     * if there is none
+     */
+    void finishLater(Numeric nextInitialPageNumber) {
+        Job job = jobs.getLast();
+        job.nextInitialPageNumber = nextInitialPageNumber;
+        job.finishRequested = true;
+    }
+
+    /**
+     * Waits for all submitted page-sequences and finishes them.
+     */
+    void finishAll() {
+        flush(true);
+    }
+
+    /** Stops the worker threads. */
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Finishes page-sequences in document order.
+     * @param wait true to wait for page-sequences still being laid out, false to stop at
+     * the first one
+     */
+    private void flush(boolean wait) {
+        while (!jobs.isEmpty() && complete(jobs.getFirst(), wait)) {
+            jobs.removeFirst();
+        }
+    }
+
+    /**
+     * Replays the layout of a page-sequence and finishes it, if requested.
+     * @param job the page-sequence
+     * @param wait true to wait for the layout to finish
+     * @return true if the page-sequence has been finished
+     */
+    private boolean complete(Job job, boolean wait) {
+        try {
+            if (!job.replayed) {
+                if (!wait && !job.future.isDone()) {
+                    return false;
+                }
+                try {
+                    await(job.future);
+                } catch (RuntimeException e) {
+                    job.broadcastEvents();
+                    throw e;
+                }
+                job.replay();
+            }
+            if (!job.finishRequested) {
+                return false;
+            }
+            job.layoutManager.doForcePageCount(job.nextInitialPageNumber);
+            job.layoutManager.finishPageSequence();
+        } catch (RuntimeException e) {
+            abort();
+            throw e;
+        } catch (Error e) {
+            abort();
+            throw e;
+        }
+        synchronized (turnLock) {
+            finishedJobCount++;
+            turnLock.notifyAll();
+        }
+        return true;
+    }
+
+    /**
+     * Waits until all page-sequences before the given one have been finished.
+     * @param number the number of the page-sequence
+     */
+    private void awaitTurn(int number) {
+        synchronized (turnLock) {
+            while (finishedJobCount < number - 1) {
+                if (aborted) {
+                    throw new IllegalStateException("Page-sequence layout aborted");
+                }
+                try {
+                    turnLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for page-sequence layout");
+                }
+            }
+        }
+    }
+
+    /** Releases and stops the page-sequences still being laid out, after a failure. */
+    private void abort() {
+        synchronized (turnLock) {
+            aborted = true;
+            turnLock.notifyAll();
+        }
+        executor.shutdownNow();
+    }
+
+    private void await(Future<?> future) {
+        areaTreeHandler.getUserAgent().getMetrics().start(Phase.LAYOUT);
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for page-sequence layout");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            areaTreeHandler.getUserAgent().getMetrics().stop(Phase.LAYOUT);
+        }
+    }
+
+    private static boolean retrievesMarkers(PageSequence pageSequence) {
+        for (FONode staticContent : pageSequence.getFlowMap().values()) {
+            if (retrievesMarkers(staticContent)) {
+                return true;
+            }
+        }
+        return retrievesMarkers(pageSequence.getMainFlow());
+    }
+
+    private static boolean retrievesMarkers(FONode node) {
+        if (node instanceof AbstractRetrieveMarker) {
+            return true;
+        }
+        FONodeIterator children = node.getChildNodes();
+        while (children != null && children.hasNext()) {
+            if (retrievesMarkers(children.next())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** The kinds of recorded operations. */
+    private enum Kind {
+        ASSOCIATE_ID, SIGNAL_PENDING_ID, SIGNAL_ID_PROCESSED, ADD_UNRESOLVED_ID_REF,
+        TRY_ID_RESOLUTION, REPLACE_PAGE_VIEWPORT, START_PAGE_SEQUENCE, ADD_PAGE,
+        MAP_CHAR, MAP_CODE_POINT, BROADCAST_EVENT, SET_LAST_SEQ
+    }
+
+    /**
+     * An operation on the id tracker, area tree model, fonts, event broadcaster or FO tree
+     * root, recorded for replay.
+     */
+    private static final class Operation {
+
+        private final Kind kind;
+        private final Object first;
+        private final Object second;
+
+        Operation(Kind kind, Object first, Object second) {
+            this.kind = kind;
+            this.first = first;
+            this.second = second;
+        }
+    }
+
+    /** The layout of a single page-sequence. */
+    private final class Job extends FontMappingRecorder implements Callable<Void>, EventListener {
+
+        private final int number;
+        private final List<Operation> operations = new java.util.ArrayList<Operation>();
+        private final JobIDTracker idTracker;
+        private final JobAreaTreeModel model;
+        private final PageSequenceLayoutManager layoutManager;
+        private Future<Void> future;
+
+        /** True once the recorded operations have been replayed. */
+        private boolean replayed;
+
+        private boolean finishRequested;
+        private Numeric nextInitialPageNumber;
+
+        Job(int number, PageSequence pageSequence) {
+            this.number = number;
+            idTracker = new JobIDTracker(this, pageSequence.getRoot().getId());
+            model = new JobAreaTreeModel(this);
+            AreaTreeHandler handler = new JobAreaTreeHandler(this, areaTreeHandler, model, idTracker,
+                    "P" + number + "-");
+            layoutManager = areaTreeHandler.getLayoutManagerMaker().makePageSequenceLayoutManager(
+                    handler, pageSequence);
+        }
+
+        public Void call() {
+            PropertyCacheScope scope = areaTreeHandler.getUserAgent().getPropertyCacheScope();
+            PropertyCacheScope previous = (scope != null ? scope.bind() : null);
+            FontMappingRecorder previousRecorder = bind();
+            EventListener previousListener = ThreadEventListener.bind(this);
+            try {
+                layoutManager.activateLayout();
+            } finally {
+                ThreadEventListener.restore(previousListener);
+                FontMappingRecorder.restore(previousRecorder);
+                if (scope != null) {
+                    PropertyCacheScope.restore(previous);
+                }
+            }
+            return null;
+        }
+
+        void record(Kind kind, Object first, Object second) {
+            operations.add(new Operation(kind, first, second));
+        }
+
+        @Override
+        protected void mappingRecorded(Typeface font, int codePoint, boolean isChar) {
+            record(isChar ? Kind.MAP_CHAR : Kind.MAP_CODE_POINT, font, codePoint);
+        }
+
+        @Override
+        protected void awaitTurn() {
+            ParallelPageSequenceLayout.this.awaitTurn(number);
+        }
+
+        /** Records an event broadcast by the layout. */
+        public void processEvent(Event event) {
+            record(Kind.BROADCAST_EVENT, event, null);
+        }
+
+        /** Broadcasts the recorded events, when the layout has failed. */
+        void broadcastEvents() {
+            for (Operation operation : operations) {
+                if (operation.kind == Kind.BROADCAST_EVENT) {
+                    areaTreeHandler.getUserAgent().getEventBroadcaster().broadcastEvent(
+                            (Event) operation.first);
+                }
+            }
+            operations.clear();
+        }
+
+        /**
+         * Replays the recorded operations on the document's id tracker and area tree model.
+         * From then on, the page-sequence's tracker and model forward to them.
+         */
+        void replay() {
+            IDTracker target = areaTreeHandler.getIDTracker();
+            AreaTreeModel targetModel = areaTreeHandler.getAreaTreeModel();
+            for (Operation operation : operations) {
+                switch (operation.kind) {
+                case ASSOCIATE_ID:
+                    target.associateIDWithPageViewport((String) operation.first,
+                            (PageViewport) operation.second);
+                    break;
+                case SIGNAL_PENDING_ID:
+                    if (!target.alreadyResolvedID((String) operation.first)) {
+                        target.signalPendingID((String) operation.first);
+                    }
+                    break;
+                case SIGNAL_ID_PROCESSED:
+                    target.signalIDProcessed((String) operation.first);
+                    break;
+                case ADD_UNRESOLVED_ID_REF:
+                    target.addUnresolvedIDRef((String) operation.first, (Resolvable) operation.second);
+                    break;
+                case TRY_ID_RESOLUTION:
+                    target.tryIDResolution((PageViewport) operation.first);
+                    break;
+                case REPLACE_PAGE_VIEWPORT:
+                    target.replacePageViewPort((PageViewport) operation.first,
+                            (PageViewport) operation.second);
+                    break;
+                case START_PAGE_SEQUENCE:
+                    targetModel.startPageSequence((org.apache.fop.area.PageSequence) operation.first);
+                    break;
+                case ADD_PAGE:
+                    areaTreeHandler.getUserAgent().getMetrics().start(Phase.AREA_TREE);
+                    try {
+                        targetModel.addPage((PageViewport) operation.first);
+                    } finally {
+                        areaTreeHandler.getUserAgent().getMetrics().stop(Phase.AREA_TREE);
+                    }
+                    break;
+                case MAP_CHAR:
+                    FontMappingRecorder.replay((Typeface) operation.first,
+                            (Integer) operation.second, true);
+                    break;
+                case MAP_CODE_POINT:
+                    FontMappingRecorder.replay((Typeface) operation.first,
+                            (Integer) operation.second, false);
+                    break;
+                case BROADCAST_EVENT:
+                    areaTreeHandler.getUserAgent().getEventBroadcaster().broadcastEvent(
+                            (Event) operation.first);
+                    break;
+                case SET_LAST_SEQ:
+                    ((Root) operation.first).setLastSeq((PageSequence) operation.second);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown operation: " + operation.kind);
+                }
+            }
+            operations.clear();
+            idTracker.target = target;
+            model.target = targetModel;
+            replayed = true;
+        }
+    }
+
+    /**
+     * Tracks the ids of a single page-sequence and records what it is told, until the
+     * recording is replayed; after that it forwards to the document's id tracker.
+     */
+    private static final class JobIDTracker extends IDTracker {
+
+        private final Job job;
+        private final String rootID;
+        private IDTracker target;
+
+        JobIDTracker(Job job, String rootID) {
+            this.job = job;
+            this.rootID = rootID;
+        }
+
+        @Override
+        public void associateIDWithPageViewport(String id, PageViewport pv) {
+            if (target != null) {
+                target.associateIDWithPageViewport(id, pv);
+            } else {
+                job.record(Kind.ASSOCIATE_ID, id, pv);
+                // the root's id is on the pages of every page-sequence
+                if (!id.equals(rootID)) {
+                    super.associateIDWithPageViewport(id, pv);
+                }
+            }
+        }
+
+        @Override
+        public void signalPendingID(String id) {
+            if (target != null) {
+                target.signalPendingID(id);
+            } else {
+                job.record(Kind.SIGNAL_PENDING_ID, id, null);
+                super.signalPendingID(id);
+            }
+        }
+
+        @Override
+        public void signalIDProcessed(String id) {
+            if (target != null) {
+                target.signalIDProcessed(id);
+            } else {
+                job.record(Kind.SIGNAL_ID_PROCESSED, id, null);
+                super.signalIDProcessed(id);
+            }
+        }
+
+        @Override
+        public boolean alreadyResolvedID(String id) {
+            return target != null ? target.alreadyResolvedID(id) : super.alreadyResolvedID(id);
+        }
+
+        @Override
+        public void tryIDResolution(PageViewport pv) {
+            if (target != null) {
+                target.tryIDResolution(pv);
+            } else {
+                job.record(Kind.TRY_ID_RESOLUTION, pv, null);
+                super.tryIDResolution(pv);
+            }
+        }
+
+        @Override
+        public List<PageViewport> getPageViewportsContainingID(String id) {
+            return target != null ? target.getPageViewportsContainingID(id)
+                    : super.getPageViewportsContainingID(id);
+        }
+
+        @Override
+        public PageViewport getFirstPageViewportContaining(String id) {
+            return target != null ? target.getFirstPageViewportContaining(id)
+                    : super.getFirstPageViewportContaining(id);
+        }
+
+        @Override
+        public PageViewport getLastPageViewportContaining(String id) {
+            return target != null ? target.getLastPageViewportContaining(id)
+                    : super.getLastPageViewportContaining(id);
+        }
+
+        @Override
+        public void addUnresolvedIDRef(String idref, Resolvable res) {
+            if (target != null) {
+                target.addUnresolvedIDRef(idref, res);
+            } else {
+                job.record(Kind.ADD_UNRESOLVED_ID_REF, idref, res);
+                super.addUnresolvedIDRef(idref, res);
+            }
+        }
+
+        @Override
+        public void replacePageViewPort(PageViewport oldPageViewPort, PageViewport newPageViewPort) {
+            if (target != null) {
+                target.replacePageViewPort(oldPageViewPort, newPageViewPort);
+            } else {
+                job.record(Kind.REPLACE_PAGE_VIEWPORT, oldPageViewPort, newPageViewPort);
+                super.replacePageViewPort(oldPageViewPort, newPageViewPort);
+            }
+        }
+    }
+
+    /**
+     * Holds the pages of a single page-sequence and records them, until the recording is
+     * replayed; after that it forwards to the document's area tree model.
+     */
+    private static final class JobAreaTreeModel extends AreaTreeModel {
+
+        private final Job job;
+        private final List<PageViewport> pages = new java.util.ArrayList<PageViewport>();
+        private AreaTreeModel target;
+
+        JobAreaTreeModel(Job job) {
+            this.job = job;
+        }
+
+        @Override
+        public void startPageSequence(org.apache.fop.area.PageSequence pageSequence) {
+            if (target != null) {
+                target.startPageSequence(pageSequence);
+            } else {
+                job.record(Kind.START_PAGE_SEQUENCE, pageSequence, null);
+                currentPageSequence = pageSequence;
+            }
+        }
+
+        @Override
+        public void addPage(PageViewport page) {
+            if (target != null) {
+                target.addPage(page);
+            } else {
+                job.record(Kind.ADD_PAGE, page, null);
+                pages.add(page);
+            }
+        }
+
+        @Override
+        public org.apache.fop.area.PageSequence getCurrentPageSequence() {
+            return target != null ? target.getCurrentPageSequence() : currentPageSequence;
+        }
+
+        @Override
+        public int getPageSequenceCount() {
+            return target != null ? target.getPageSequenceCount() : 1;
+        }
+
+        @Override
+        public int getPageCount(int seq) {
+            return target != null ? target.getPageCount(seq) : pages.size();
+        }
+
+        @Override
+        public PageViewport getPage(int seq, int count) {
+            return target != null ? target.getPage(seq, count) : pages.get(count);
+        }
+    }
+
+    /**
+     * The handler laying out a single page-sequence. It records the last page-sequence it
+     * tells the root of the FO tree about until the recording is replayed.
+     */
+    private static final class JobAreaTreeHandler extends AreaTreeHandler {
+
+        private final Job job;
+        private final AreaTreeHandler parent;
+        private final String keyPrefix;
+        private int keyCount;
+
+        JobAreaTreeHandler(Job job, AreaTreeHandler parent, AreaTreeModel model,
+                IDTracker idTracker, String keyPrefix) {
+            super(parent, model, idTracker);
+            this.job = job;
+            this.parent = parent;
+            this.keyPrefix = keyPrefix;
+        }
+
+        @Override
+        public void setLastSeq(Root root, PageSequence pageSequence) {
+            if (job.replayed) {
+                super.setLastSeq(root, pageSequence);
+            } else {
+                job.record(Kind.SET_LAST_SEQ, root, pageSequence);
+            }
+        }
+
+        @Override
+        public String generatePageViewportKey() {
+            return keyPrefix + ++keyCount;
+        }
+
+        @Override
+        public void notifyPageSequenceFinished(
+                AbstractPageSequence pageSequence, int pageCount) {
+            parent.notifyPageSequenceFinished(pageSequence, pageCount);
+        }
+    }
+
+    private static final class LayoutThreadFactory implements ThreadFactory {
+
+        private final ThreadFactory defaultFactory = Executors.defaultThreadFactory();
+
+        public Thread newThread(Runnable r) {
+            Thread thread = defaultFactory.newThread(r);
+            thread.setName("FOP page-sequence layout " + thread.getName());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
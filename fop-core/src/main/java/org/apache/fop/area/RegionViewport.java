@@ -125,6 +125,7 @@ public class RegionViewport extends Area implements Viewport {
     public Object clone() throws CloneNotSupportedException {
         RegionViewport rv = (RegionViewport) super.clone();
         rv.regionReference = (RegionReference) regionReference.clone();
+        rv.regionReference.regionViewport = rv;
         rv.viewArea = (Rectangle2D) viewArea.clone();
         return rv;
     }
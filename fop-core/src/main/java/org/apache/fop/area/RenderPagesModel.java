@@ -31,6 +31,7 @@ import org.xml.sax.SAXException;
 import org.apache.fop.apps.FOPException;
 import org.apache.fop.apps.FOUserAgent;
 import org.apache.fop.fonts.FontInfo;
+import org.apache.fop.metrics.Phase;
 import org.apache.fop.render.Renderer;
 import org.apache.fop.render.RendererEventProducer;
 
@@ -119,6 +120,7 @@ public class RenderPagesModel extends AreaTreeModel {
             if (!renderer.supportsOutOfOrder() && page.getPageSequence().isFirstPage(page)) {
                 renderer.startPageSequence(getCurrentPageSequence());
             }
+            renderer.getUserAgent().getMetrics().start(Phase.RENDERING);
             try {
                 renderer.renderPage(page);
             } catch (RuntimeException re) {
@@ -135,6 +137,8 @@ public class RenderPagesModel extends AreaTreeModel {
                 log.error(err, e);
                 throw new IllegalStateException("Fatal error occurred. Cannot continue. "
                         + e.getClass().getName() + ": " + err);
+            } finally {
+                renderer.getUserAgent().getMetrics().stop(Phase.RENDERING);
             }
             page.clear();
         } else {
@@ -189,6 +193,7 @@ public class RenderPagesModel extends AreaTreeModel {
      * @param pageViewport the page to be rendered.
      */
     protected void renderPage(PageViewport pageViewport) {
+        renderer.getUserAgent().getMetrics().start(Phase.RENDERING);
         try {
             renderer.renderPage(pageViewport);
             if (!pageViewport.isResolved()) {
@@ -208,6 +213,8 @@ public class RenderPagesModel extends AreaTreeModel {
             if (e instanceof RuntimeException) {
                 throw (RuntimeException)e;
             }
+        } finally {
+            renderer.getUserAgent().getMetrics().stop(Phase.RENDERING);
         }
     }
 
@@ -261,10 +268,13 @@ public class RenderPagesModel extends AreaTreeModel {
         pendingODI.clear();
         processOffDocumentItems(endDocODI);
 
+        renderer.getUserAgent().getMetrics().start(Phase.RENDERING);
         try {
             renderer.stopRenderer();
         } catch (IOException ex) {
             throw new SAXException(ex);
+        } finally {
+            renderer.getUserAgent().getMetrics().stop(Phase.RENDERING);
         }
     }
 }
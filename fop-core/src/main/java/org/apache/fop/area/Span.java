@@ -99,6 +99,18 @@ public class Span extends Area {
         return colWidth;
     }
 
+    /**
+     * Replaces the normal flow areas of this span area.
+     * @param flowAreas the normal flow areas, one per column
+     * @param colWidth the width of each normal flow
+     * @param curFlowIdx the index of the normal flow currently being processed
+     */
+    void setNormalFlows(List<NormalFlow> flowAreas, int colWidth, int curFlowIdx) {
+        this.flowAreas = flowAreas;
+        this.colWidth = colWidth;
+        this.curFlowIdx = curFlowIdx;
+    }
+
     /**
      * Get the height of this span area.
      *
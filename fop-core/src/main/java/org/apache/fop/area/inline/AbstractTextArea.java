@@ -112,6 +112,29 @@ public abstract class AbstractTextArea extends InlineParent {
         this.textLetterSpaceAdjust = textLetterSpaceAdjust;
     }
 
+    /**
+     * Returns the information about spaces and potential adjustments of the text.
+     * @return the available stretch, the available shrink, the adjustment and the space
+     * difference, or null if there is no such information
+     */
+    public int[] getTextAdjustingValues() {
+        if (textAdjustingInfo == null) {
+            return null;
+        }
+        return new int[] {textAdjustingInfo.availableStretch, textAdjustingInfo.availableShrink,
+                textAdjustingInfo.adjustment, textAdjustingInfo.spaceDifference};
+    }
+
+    /**
+     * Creates the information about spaces and potential adjustments of the text.
+     * @param stretch  the available stretch of the text
+     * @param shrink   the available shrink of the text
+     * @param adj      the current adjustment of the area
+     */
+    public void setTextAdjustingInfo(int stretch, int shrink, int adj) {
+        textAdjustingInfo = new TextAdjustingInfo(stretch, shrink, adj);
+    }
+
     /**
      * Set the difference between optimal width of a space and
      * default width of a space according to the font; this part
@@ -197,4 +220,18 @@ public abstract class AbstractTextArea extends InlineParent {
         /* Word and space areas don't have a properly set bpd; return this area's bpd instead. */
         return getBPD();
     }
+
+    /**
+     * {@inheritDoc}
+     * The text adjusting information is copied as well.
+     */
+    public Object clone() throws CloneNotSupportedException {
+        AbstractTextArea ta = (AbstractTextArea) super.clone();
+        if (textAdjustingInfo != null) {
+            ta.textAdjustingInfo = ta.new TextAdjustingInfo(textAdjustingInfo.availableStretch,
+                    textAdjustingInfo.availableShrink, textAdjustingInfo.adjustment);
+            ta.textAdjustingInfo.spaceDifference = textAdjustingInfo.spaceDifference;
+        }
+        return ta;
+    }
 }
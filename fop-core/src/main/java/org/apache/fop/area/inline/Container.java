@@ -76,5 +76,18 @@ public class Container extends Area {
     public int getWidth() {
         return width;
     }
+
+    /**
+     * {@inheritDoc}
+     * The block areas are copied as well.
+     */
+    public Object clone() throws CloneNotSupportedException {
+        Container c = (Container) super.clone();
+        c.blocks = new ArrayList<Block>(blocks.size());
+        for (Block block : blocks) {
+            c.blocks.add((Block) block.clone());
+        }
+        return c;
+    }
 }
 
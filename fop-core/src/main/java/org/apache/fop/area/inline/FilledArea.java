@@ -84,6 +84,15 @@ public class FilledArea extends InlineParent {
         return this.unitWidth;
     }
 
+    /**
+     * Return the areas that fill one unit width.
+     *
+     * @return the list of child areas, not copied
+     */
+    public List<InlineArea> getUnitAreas() {
+        return inlines;
+    }
+
     /** {@inheritDoc} */
     @Override
     public int getBPD() {
@@ -127,6 +127,19 @@ public class InlineArea extends Area {
         return adjustingInfo;
     }
 
+    /**
+     * Returns the content of the adjustment information object.
+     * @return the available stretch, the available shrink and the adjustment, or null if
+     * there is no adjustment information
+     */
+    public int[] getAdjustingValues() {
+        if (adjustingInfo == null) {
+            return null;
+        }
+        return new int[] {adjustingInfo.availableStretch, adjustingInfo.availableShrink,
+                adjustingInfo.adjustment};
+    }
+
     /**
      * Create a new adjustment information object
      * @param stretch the available space for stretching
@@ -348,4 +361,18 @@ public class InlineArea extends Area {
         return false;
     }
 
+    /**
+     * {@inheritDoc}
+     * The adjusting information is copied as well. The copy keeps the parent area of
+     * this area until it is added to a copy of the parent.
+     */
+    public Object clone() throws CloneNotSupportedException {
+        InlineArea ia = (InlineArea) super.clone();
+        if (adjustingInfo != null) {
+            ia.adjustingInfo = ia.new InlineAdjustingInfo(adjustingInfo.availableStretch,
+                    adjustingInfo.availableShrink, adjustingInfo.adjustment);
+        }
+        return ia;
+    }
+
 }
@@ -28,7 +28,7 @@ import org.apache.fop.area.Block;
 public class InlineBlock extends InlineParent {
 
     private static final long serialVersionUID = -3725062353292109517L;
-    private final Block block;
+    private Block block;
 
     public InlineBlock(Block block) {
         this.block = block;
@@ -40,4 +40,14 @@ public class InlineBlock extends InlineParent {
     public Block getBlock() {
         return block;
     }
+
+    /**
+     * {@inheritDoc}
+     * The wrapped block area is copied as well.
+     */
+    public Object clone() throws CloneNotSupportedException {
+        InlineBlock ib = (InlineBlock) super.clone();
+        ib.block = (Block) block.clone();
+        return ib;
+    }
 }
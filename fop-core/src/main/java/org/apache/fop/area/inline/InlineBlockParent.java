@@ -73,4 +73,16 @@ public class InlineBlockParent extends InlineArea {
         return child;
     }
 
+    /**
+     * {@inheritDoc}
+     * The child block area is copied as well.
+     */
+    public Object clone() throws CloneNotSupportedException {
+        InlineBlockParent ibp = (InlineBlockParent) super.clone();
+        if (child != null) {
+            ibp.child = (Block) child.clone();
+        }
+        return ibp;
+    }
+
 }
@@ -135,6 +135,21 @@ public class InlineParent extends InlineArea {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * The child areas are copied as well.
+     */
+    public Object clone() throws CloneNotSupportedException {
+        InlineParent ip = (InlineParent) super.clone();
+        ip.inlines = new ArrayList<InlineArea>(inlines.size());
+        for (InlineArea inline : inlines) {
+            InlineArea copy = (InlineArea) inline.clone();
+            copy.setParentArea(ip);
+            ip.inlines.add(copy);
+        }
+        return ip;
+    }
+
     private void updateLevel(int newLevel) {
         if (newLevel >= 0) {
             int curLevel = getBidiLevel();
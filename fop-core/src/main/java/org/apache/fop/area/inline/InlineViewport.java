@@ -152,4 +152,19 @@ public class InlineViewport extends InlineArea implements Viewport {
     public int getEffectiveIPD() {
         return getIPD();
     }
+
+    /**
+     * {@inheritDoc}
+     * The content area is copied as well.
+     */
+    public Object clone() throws CloneNotSupportedException {
+        InlineViewport iv = (InlineViewport) super.clone();
+        if (content != null) {
+            iv.content = (Area) content.clone();
+        }
+        if (contentPosition != null) {
+            iv.contentPosition = (Rectangle2D) contentPosition.clone();
+        }
+        return iv;
+    }
 }
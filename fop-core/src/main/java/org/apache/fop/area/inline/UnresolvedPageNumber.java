@@ -93,6 +93,15 @@ public class UnresolvedPageNumber extends TextArea implements Resolvable {
         return new String[] {pageIDRef};
     }
 
+    /**
+     * Indicates whether the reference refers to the first or the last area generated by a
+     * formatting object.
+     * @return {@link #FIRST} or {@link #LAST}
+     */
+    public boolean getPageType() {
+        return pageType;
+    }
+
     /**
      * Get the (resolved or unresolved) text.
      *
@@ -139,6 +148,16 @@ public class UnresolvedPageNumber extends TextArea implements Resolvable {
         }
     }
 
+    /**
+     * Marks this page number as resolved to the given text, without updating its child
+     * areas or its extent. Used when a saved page is restored.
+     * @param text the resolved text
+     */
+    public void setResolvedText(String text) {
+        this.text = text;
+        resolved = true;
+    }
+
     /**
      * Check if this is resolved.
      *
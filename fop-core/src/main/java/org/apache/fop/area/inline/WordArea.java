@@ -297,6 +297,29 @@ public class WordArea extends InlineArea {
         return maybeAdjustLength(levels, count);
     }
 
+    /**
+     * {@inheritDoc}
+     * The adjustment and level arrays are copied as well, as they are reversed in place.
+     */
+    public Object clone() throws CloneNotSupportedException {
+        WordArea wa = (WordArea) super.clone();
+        if (letterAdjust != null) {
+            wa.letterAdjust = letterAdjust.clone();
+        }
+        if (levels != null) {
+            wa.levels = levels.clone();
+        }
+        if (gposAdjustments != null) {
+            wa.gposAdjustments = new int[gposAdjustments.length][];
+            for (int i = 0, n = gposAdjustments.length; i < n; i++) {
+                if (gposAdjustments[i] != null) {
+                    wa.gposAdjustments[i] = gposAdjustments[i].clone();
+                }
+            }
+        }
+        return wa;
+    }
+
     private static void reverse(int[] a) {
         for (int i = 0, n = a.length, m = n / 2; i < m; i++) {
             int k = n - i - 1;
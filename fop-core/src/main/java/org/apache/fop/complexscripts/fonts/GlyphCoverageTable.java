@@ -136,6 +136,7 @@ public final class GlyphCoverageTable extends GlyphMappingTable implements Glyph
 
     private static class MappedCoverageTable extends GlyphMappingTable.MappedMappingTable implements GlyphCoverageMapping {
         private int[] map;
+        private GlyphBitSet gs;                                          // set of covered glyphs, or null
         public MappedCoverageTable(List entries) {
             populate(entries);
         }
@@ -155,7 +156,9 @@ public final class GlyphCoverageTable extends GlyphMappingTable implements Glyph
         }
         public int getMappedIndex(int gid) {
             int i;
-            if ((i = Arrays.binarySearch(map, gid)) >= 0) {
+            if (gs != null) {
+                return gs.contains(gid) ? gs.rank(gid) : -1;
+            } else if ((i = Arrays.binarySearch(map, gid)) >= 0) {
                 return i;
             } else {
                 return -1;
@@ -195,6 +198,9 @@ public final class GlyphCoverageTable extends GlyphMappingTable implements Glyph
             assert (i + skipped) == n;
             assert this.map == null;
             this.map = map;
+            if ((skipped == 0) && GlyphBitSet.isDense(map, map, n)) {
+                this.gs = new GlyphBitSet(map, map, n);
+            }
         }
         /** {@inheritDoc} */
         public String toString() {
@@ -128,6 +128,8 @@ public class GlyphMappingTable {
         private int[] ea;                                                // array of range (inclusive) ends
         private int[] ma;                                                // array of range mapped values
         private int miMax = -1;
+        private GlyphBitSet ga;                                          // set of glyphs in ranges, or null
+        private GlyphBitSet gsa;                                         // set of range starts, or null
         /**
          * Construct range mapping table.
          * @param entries of mapping ranges
@@ -157,7 +159,14 @@ public class GlyphMappingTable {
         public int getMappedIndex(int gid) {
             int i;
             int mi;
-            if ((i = Arrays.binarySearch(sa, gid)) >= 0) {
+            if (ga != null) {
+                if (ga.contains(gid)) {
+                    i = gsa.rank(gid + 1) - 1;
+                    mi = getMappedIndex(gid, sa [ i ], ma [ i ]);            // intersects (some) range
+                } else {
+                    mi = -1;                                                    // outside of all ranges
+                }
+            } else if ((i = Arrays.binarySearch(sa, gid)) >= 0) {
                 mi = getMappedIndex(gid, sa [ i ], ma [ i ]);                // matches start of (some) range
             } else if ((i = -(i + 1)) == 0) {
                 mi = -1;                                                        // precedes first range
@@ -223,6 +232,18 @@ public class GlyphMappingTable {
             this.ea = ea;
             this.ma = ma;
             this.miMax = miMax;
+            if (GlyphBitSet.isDense(sa, ea, n) && isDisjoint(sa, ea)) {
+                this.ga = new GlyphBitSet(sa, ea, n);
+                this.gsa = new GlyphBitSet(sa, sa, n);
+            }
+        }
+        private static boolean isDisjoint(int[] sa, int[] ea) {
+            for (int i = 1, n = sa.length; i < n; i++) {
+                if (sa [ i ] <= ea [ i - 1 ]) {
+                    return false;
+                }
+            }
+            return true;
         }
         /** {@inheritDoc} */
         public String toString() {
@@ -243,6 +264,84 @@ public class GlyphMappingTable {
         }
     }
 
+    /**
+     * The <code>GlyphBitSet</code> class implements a set of glyph identifiers as a bit set over
+     * the span from the first to the last glyph of the set, together with the number of glyphs
+     * preceding each word of the bit set, so that both membership and the rank of a glyph are
+     * found without searching.
+     */
+    protected static final class GlyphBitSet {
+        /** largest average span of a range, in glyphs, for which a bit set is worth building */
+        private static final int MAX_SPAN_PER_RANGE = 32;
+        private final int first;                                         // first glyph of set
+        private final int span;                                          // last glyph less first glyph, plus one
+        private final long[] bits;                                       // membership bits
+        private final int[] ranks;                                       // number of glyphs preceding each word
+        private final int count;                                         // number of glyphs
+        /**
+         * Construct glyph bit set from ordered, disjoint glyph ranges.
+         * @param sa array of range (inclusive) starts
+         * @param ea array of range (inclusive) ends
+         * @param n number of ranges to use, which must be positive
+         */
+        public GlyphBitSet(int[] sa, int[] ea, int n) {
+            int first = sa [ 0 ];
+            int span = ea [ n - 1 ] - first + 1;
+            long[] bits = new long [ (span + 63) >> 6 ];
+            int[] ranks = new int [ bits.length ];
+            for (int i = 0; i < n; i++) {
+                for (int k = sa [ i ] - first, e = ea [ i ] - first; k <= e; k++) {
+                    bits [ k >> 6 ] |= 1L << k;
+                }
+            }
+            int count = 0;
+            for (int w = 0; w < bits.length; w++) {
+                ranks [ w ] = count;
+                count += Long.bitCount(bits [ w ]);
+            }
+            this.first = first;
+            this.span = span;
+            this.bits = bits;
+            this.ranks = ranks;
+            this.count = count;
+        }
+        /**
+         * Determine if ordered glyph ranges are dense enough for a bit set over their span to
+         * take about as little room as the ranges themselves.
+         * @param sa array of range (inclusive) starts
+         * @param ea array of range (inclusive) ends
+         * @param n number of ranges to use
+         * @return true if a bit set should be built for the ranges
+         */
+        public static boolean isDense(int[] sa, int[] ea, int n) {
+            return (n > 0) && (((ea [ n - 1 ] - sa [ 0 ]) / n) < MAX_SPAN_PER_RANGE);
+        }
+        /**
+         * Determine if glyph is a member of this set.
+         * @param gid glyph identifier (code)
+         * @return true if glyph is a member
+         */
+        public boolean contains(int gid) {
+            int k = gid - first;
+            return (k >= 0) && (k < span) && ((bits [ k >> 6 ] & (1L << k)) != 0);
+        }
+        /**
+         * Obtain number of members of this set that precede a glyph.
+         * @param gid glyph identifier (code)
+         * @return number of members less than glyph
+         */
+        public int rank(int gid) {
+            int k = gid - first;
+            if (k <= 0) {
+                return 0;
+            } else if (k >= span) {
+                return count;
+            } else {
+                return ranks [ k >> 6 ] + Long.bitCount(bits [ k >> 6 ] & ((1L << k) - 1));
+            }
+        }
+    }
+
     /**
      * The <code>MappingRange</code> class encapsulates a glyph [start,end] range and
      * a mapping index.
@@ -88,6 +88,28 @@ public class GlyphPositioningTable extends GlyphTable {
         }
     }
 
+    /**
+     * Instantiate a <code>GlyphPositioningTable</code> object using the specified lookups, whose
+     * subtables are loaded when a lookup is first used.
+     * @param gdef glyph definition table that applies
+     * @param lookups a map of lookup specifications to subtable identifier strings
+     * @param lids identifiers of the lookups whose subtables are loaded on first use
+     * @param loader loads the (glyph positioning) subtables of a lookup
+     * @param processors script processors
+     */
+    public GlyphPositioningTable(GlyphDefinitionTable gdef, Map lookups, List<String> lids, SubtableLoader loader,
+                                 Map<String, ScriptProcessor> processors) {
+        super(gdef, lookups, processors);
+        if ((lids == null) || (lids.size() == 0)) {
+            throw new AdvancedTypographicTableFormatException("lookup identifiers must be non-empty");
+        } else {
+            for (String lid : lids) {
+                addLookupTable(lid, loader);
+            }
+            freezeSubtables();
+        }
+    }
+
     /**
      * Map a lookup type name to its constant (integer) value.
      * @param name lookup type name
@@ -233,15 +255,20 @@ public class GlyphPositioningTable extends GlyphTable {
      * @return true if some adjustment is not zero; otherwise, false
      */
     public boolean position(GlyphSequence gs, String script, String language, int fontSize, int[] widths, int[][] adjustments) {
-        Map<LookupSpec, List<LookupTable>> lookups = matchLookups(script, language, "*");
-        if ((lookups != null) && (lookups.size() > 0)) {
-            ScriptProcessor sp = ScriptProcessor.getInstance(script, processors);
-            return sp.position(this, gs, script, language, fontSize, lookups, widths, adjustments);
+        CompiledLookups lookups = compileLookups(script, language);
+        if (!lookups.isEmpty()) {
+            ScriptProcessor sp = lookups.getProcessor();
+            return sp.position(gs, script, language, fontSize, lookups.getUseSpecs(), widths, adjustments, sp.getPositioningContextTester());
         } else {
             return false;
         }
     }
 
+    /** {@inheritDoc} */
+    protected String[] getFeatures(ScriptProcessor sp) {
+        return sp.getPositioningFeatures();
+    }
+
     private abstract static class SingleSubtable extends GlyphPositioningSubtable {
         SingleSubtable(String id, int sequence, int flags, int format, GlyphCoverageTable coverage, List entries) {
             super(id, sequence, flags, format, coverage);
@@ -74,6 +74,8 @@ public class GlyphProcessingState {
     protected GlyphTester ignoreDefault;
     /** current subtable */
     private GlyphSubtable subtable;
+    /** combined ignore glyph testers, indexed by ignore lookup flags */
+    private GlyphTester[] combinedIgnoreTesters;
 
     /**
      * Construct default (reset) glyph processing state.
@@ -97,21 +99,7 @@ public class GlyphProcessingState {
         this.indexLast = gs.getGlyphCount();
         this.sct = sct;
         this.gct = (sct != null) ? sct.getTester(feature) : null;
-        this.ignoreBase = new GlyphTester() {
-                public boolean test(int gi, int flags) {
-                    return isIgnoredBase(gi, flags);
-                }
-            };
-        this.ignoreLigature = new GlyphTester() {
-                public boolean test(int gi, int flags) {
-                    return isIgnoredLigature(gi, flags);
-                }
-            };
-        this.ignoreMark = new GlyphTester() {
-                public boolean test(int gi, int flags) {
-                    return isIgnoredMark(gi, flags);
-                }
-            };
+        createIgnoreTesters();
     }
 
     /**
@@ -146,26 +134,32 @@ public class GlyphProcessingState {
         this.classMatchSet = 0; // @SuppressFBWarnings("URF_UNREAD_PUBLIC_OR_PROTECTED_FIELD")
         this.sct = sct;
         this.gct = (sct != null) ? sct.getTester(feature) : null;
-        this.ignoreBase = new GlyphTester() {
-                public boolean test(int gi, int flags) {
-                    return isIgnoredBase(gi, flags);
-                }
-            };
-        this.ignoreLigature = new GlyphTester() {
-                public boolean test(int gi, int flags) {
-                    return isIgnoredLigature(gi, flags);
-                }
-            };
-        this.ignoreMark = new GlyphTester() {
-                public boolean test(int gi, int flags) {
-                    return isIgnoredMark(gi, flags);
-                }
-            };
+        createIgnoreTesters();
         this.ignoreDefault = null;
         this.subtable = null;
         return this;
     }
 
+    private void createIgnoreTesters() {
+        if (ignoreBase == null) {
+            this.ignoreBase = new GlyphTester() {
+                    public boolean test(int gi, int flags) {
+                        return isIgnoredBase(gi, flags);
+                    }
+                };
+            this.ignoreLigature = new GlyphTester() {
+                    public boolean test(int gi, int flags) {
+                        return isIgnoredLigature(gi, flags);
+                    }
+                };
+            this.ignoreMark = new GlyphTester() {
+                    public boolean test(int gi, int flags) {
+                        return isIgnoredMark(gi, flags);
+                    }
+                };
+        }
+    }
+
     /**
      * Set governing glyph definition table.
      * @param gdef glyph definition table (or null, to unset)
@@ -1127,6 +1121,19 @@ public class GlyphProcessingState {
      * @return a glyph tester
      */
     public GlyphTester getCombinedIgnoreTester(int flags) {
+        int k = (flags & (GlyphSubtable.LF_IGNORE_BASE | GlyphSubtable.LF_IGNORE_LIGATURE
+                | GlyphSubtable.LF_IGNORE_MARK)) >> 1;
+        if (combinedIgnoreTesters == null) {
+            combinedIgnoreTesters = new GlyphTester [ 8 ];
+        }
+        GlyphTester gt = combinedIgnoreTesters [ k ];
+        if (gt == null) {
+            gt = combinedIgnoreTesters [ k ] = createCombinedIgnoreTester(flags);
+        }
+        return gt;
+    }
+
+    private GlyphTester createCombinedIgnoreTester(int flags) {
         GlyphTester[] gta = new GlyphTester [ 3 ];
         int ngt = 0;
         if ((flags & GlyphSubtable.LF_IGNORE_BASE) != 0) {
@@ -87,6 +87,28 @@ public class GlyphSubstitutionTable extends GlyphTable {
         }
     }
 
+    /**
+     * Instantiate a <code>GlyphSubstitutionTable</code> object using the specified lookups, whose
+     * subtables are loaded when a lookup is first used.
+     * @param gdef glyph definition table that applies
+     * @param lookups a map of lookup specifications to subtable identifier strings
+     * @param lids identifiers of the lookups whose subtables are loaded on first use
+     * @param loader loads the (glyph substitution) subtables of a lookup
+     * @param processors script processors
+     */
+    public GlyphSubstitutionTable(GlyphDefinitionTable gdef, Map lookups, List<String> lids, SubtableLoader loader,
+                                  Map<String, ScriptProcessor> processors) {
+        super(gdef, lookups, processors);
+        if ((lids == null) || (lids.size() == 0)) {
+            throw new AdvancedTypographicTableFormatException("lookup identifiers must be non-empty");
+        } else {
+            for (String lid : lids) {
+                addLookupTable(lid, loader);
+            }
+            freezeSubtables();
+        }
+    }
+
     /**
      * Perform substitution processing using all matching lookups.
      * @param gs an input glyph sequence
@@ -96,16 +118,21 @@ public class GlyphSubstitutionTable extends GlyphTable {
      */
     public GlyphSequence substitute(GlyphSequence gs, String script, String language) {
         GlyphSequence ogs;
-        Map<LookupSpec, List<LookupTable>> lookups = matchLookups(script, language, "*");
-        if ((lookups != null) && (lookups.size() > 0)) {
-            ScriptProcessor sp = ScriptProcessor.getInstance(script, processors);
-            ogs = sp.substitute(this, gs, script, language, lookups);
+        CompiledLookups lookups = compileLookups(script, language);
+        if (!lookups.isEmpty()) {
+            ScriptProcessor sp = lookups.getProcessor();
+            ogs = sp.substitute(gs, script, language, lookups.getUseSpecs(), sp.getSubstitutionContextTester());
         } else {
             ogs = gs;
         }
         return ogs;
     }
 
+    /** {@inheritDoc} */
+    protected String[] getFeatures(ScriptProcessor sp) {
+        return sp.getSubstitutionFeatures();
+    }
+
     public CharSequence preProcess(CharSequence charSequence, String script, MultiByteFont font, List associations) {
         ScriptProcessor scriptProcessor = ScriptProcessor.getInstance(script, processors);
         return scriptProcessor.preProcess(charSequence, font, associations);
@@ -21,7 +21,6 @@ package org.apache.fop.complexscripts.fonts;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -29,6 +28,8 @@ import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -72,6 +73,9 @@ public class GlyphTable {
     // cache for lookups matching
     private Map<LookupSpec, Map<LookupSpec, List<LookupTable>>> matchedLookups;
 
+    // cache for lookups compiled per script and language
+    private ConcurrentMap<LookupSpec, CompiledLookups> compiledLookups;
+
     // if true, then prevent further subtable addition
     private boolean frozen;
 
@@ -93,7 +97,8 @@ public class GlyphTable {
             this.gdef = gdef;
             this.lookups = lookups;
             this.lookupTables = new LinkedHashMap<String, LookupTable>();
-            this.matchedLookups = new HashMap<LookupSpec, Map<LookupSpec, List<LookupTable>>>();
+            this.matchedLookups = new ConcurrentHashMap<LookupSpec, Map<LookupSpec, List<LookupTable>>>();
+            this.compiledLookups = new ConcurrentHashMap<LookupSpec, CompiledLookups>();
         }
     }
 
@@ -160,6 +165,19 @@ public class GlyphTable {
         }
     }
 
+    /**
+     * Add a lookup table whose subtables are loaded when the lookup is first used.
+     * @param lid lookup identifier
+     * @param loader loads the subtables of the lookup
+     */
+    protected void addLookupTable(String lid, SubtableLoader loader) {
+        // ensure table is not frozen
+        if (frozen) {
+            throw new IllegalStateException("glyph table is frozen, lookup table addition prohibited");
+        }
+        lookupTables.put(lid, new LookupTable(lid, this, loader));
+    }
+
     /**
      * Freeze subtables, i.e., do not allow further subtable addition, and
      * create resulting cached state.
@@ -281,6 +299,44 @@ public class GlyphTable {
         return uss.toArray(new UseSpec [ uss.size() ]);
     }
 
+    /**
+     * Obtain the lookups that apply to the specified script and language, compiled into the ordered
+     * array of lookup table use specifications for the features of the script processor. The result
+     * is computed once per script and language, so that processing a glyph sequence neither matches
+     * lookup specifications nor assembles lookups again.
+     * @param script a script identifier
+     * @param language a language identifier
+     * @return the compiled lookups, which are empty if no lookup matches
+     */
+    public CompiledLookups compileLookups(String script, String language) {
+        LookupSpec key = new LookupSpec(script, language, "*", true, true);
+        CompiledLookups cl = compiledLookups.get(key);
+        if (cl == null) {
+            Map<LookupSpec, List<LookupTable>> lookups = matchLookups(script, language, "*");
+            if ((lookups != null) && (lookups.size() > 0)) {
+                ScriptProcessor sp = ScriptProcessor.getInstance(script, processors);
+                cl = new CompiledLookups(sp, sp.assembleLookups(this, getFeatures(sp), lookups));
+            } else {
+                cl = CompiledLookups.EMPTY;
+            }
+            CompiledLookups clExisting = compiledLookups.putIfAbsent(key, cl);
+            if (clExisting != null) {
+                cl = clExisting;
+            }
+        }
+        return cl;
+    }
+
+    /**
+     * Obtain the features this table applies for the specified script processor. The base
+     * implementation applies no feature.
+     * @param sp a script processor
+     * @return array of feature identifiers to apply
+     */
+    protected String[] getFeatures(ScriptProcessor sp) {
+        return new String[0];
+    }
+
     /**
      * Determine if table supports specific feature, i.e., supports at least one lookup.
      *
@@ -474,6 +530,8 @@ public class GlyphTable {
         private boolean doesSub;                                // performs substitutions
         private boolean doesPos;                                // performs positioning
         private boolean frozen;                                 // if true, then don't permit further subtable additions
+        private GlyphTable table;                               // table owning subtables that are loaded on first use
+        private volatile SubtableLoader loader;                 // loads subtables on first use, or null if loaded
         // frozen state
         private GlyphSubtable[] subtablesArray;
         private static GlyphSubtable[] subtablesArrayEmpty       = new GlyphSubtable[0];
@@ -507,8 +565,55 @@ public class GlyphTable {
             }
         }
 
+        /**
+         * Instantiate a LookupTable whose subtables are loaded on first use.
+         * @param id the lookup table's identifier
+         * @param table the glyph table that owns the subtables
+         * @param loader loads the subtables
+         */
+        private LookupTable(String id, GlyphTable table, SubtableLoader loader) {
+            this (id, (List<GlyphSubtable>) null);
+            this.table = table;
+            this.loader = loader;
+        }
+
+        /**
+         * Load and freeze the subtables of a lookup table that is loaded on first use,
+         * unless already done.
+         */
+        private void load() {
+            if (loader != null) {
+                synchronized (this) {
+                    if (loader != null) {
+                        try {
+                            for (GlyphSubtable st : loader.loadSubtables(id)) {
+                                st.setTable(table);
+                                addSubtable(st);
+                            }
+                        } catch (AdvancedTypographicTableFormatException e) {
+                            log.warn("ignoring lookup table '" + id + "': " + e.getMessage());
+                            subtables.clear();
+                            doesSub = false;
+                            doesPos = false;
+                        }
+                        GlyphSubtable[] sta = toSubtablesArray();
+                        resolveLookupReferences(sta, table.lookupTables);
+                        this.subtablesArray = sta;
+                        this.frozen = true;
+                        this.table = null;
+                        this.loader = null;
+                    }
+                }
+            }
+        }
+
         /** @return the subtables as an array */
         public GlyphSubtable[] getSubtables() {
+            load();
+            return toSubtablesArray();
+        }
+
+        private GlyphSubtable[] toSubtablesArray() {
             if (frozen) {
                 return (subtablesArray != null) ? subtablesArray : subtablesArrayEmpty;
             } else {
@@ -592,8 +697,8 @@ public class GlyphTable {
          * @param lookupTables map from lookup table identifers, e.g. "lu4", to lookup tables
          */
         public void freezeSubtables(Map<String, LookupTable> lookupTables) {
-            if (!frozen) {
-                GlyphSubtable[] sta = getSubtables();
+            if (!frozen && (loader == null)) {
+                GlyphSubtable[] sta = toSubtablesArray();
                 resolveLookupReferences(sta, lookupTables);
                 this.subtablesArray = sta;
                 this.frozen = true;
@@ -615,6 +720,7 @@ public class GlyphTable {
          * @return true if it performs substitution
          */
         public boolean performsSubstitution() {
+            load();
             return doesSub;
         }
 
@@ -654,6 +760,7 @@ public class GlyphTable {
          * @return true if it performs positioning
          */
         public boolean performsPositioning() {
+            load();
             return doesPos;
         }
 
@@ -757,6 +864,21 @@ public class GlyphTable {
 
     }
 
+    /**
+     * The <code>SubtableLoader</code> interface is implemented by sources of lookup subtables
+     * that are only decoded when their lookup is first used.
+     */
+    public interface SubtableLoader {
+
+        /**
+         * Load the subtables of a lookup.
+         * @param lid lookup identifier
+         * @return the (possibly empty) list of subtables of the lookup
+         */
+        List<GlyphSubtable> loadSubtables(String lid);
+
+    }
+
     /**
      * The <code>UseSpec</code> class comprises a lookup table reference
      * and the feature that selected the lookup table.
@@ -843,6 +965,43 @@ public class GlyphTable {
 
     }
 
+    /**
+     * The <code>CompiledLookups</code> class comprises the script processor and the ordered
+     * lookup table use specifications that apply to a script and language.
+     */
+    public static final class CompiledLookups {
+
+        /** compiled lookups of a script and language for which no lookup matches */
+        public static final CompiledLookups EMPTY = new CompiledLookups(null, new UseSpec[0]);
+
+        private final ScriptProcessor processor;
+        private final UseSpec[] useSpecs;
+
+        private CompiledLookups(ScriptProcessor processor, UseSpec[] useSpecs) {
+            this.processor = processor;
+            this.useSpecs = useSpecs;
+        }
+
+        /**
+         * Determine if no lookup matched, in which case no processing applies.
+         * @return true if no lookup matched
+         */
+        public boolean isEmpty() {
+            return processor == null;
+        }
+
+        /** @return the script processor, or null if no lookup matched */
+        public ScriptProcessor getProcessor() {
+            return processor;
+        }
+
+        /** @return the ordered lookup table use specifications */
+        public UseSpec[] getUseSpecs() {
+            return useSpecs;
+        }
+
+    }
+
     /**
      * The <code>RuleLookup</code> class implements a rule lookup record, comprising
      * a glyph sequence index and a lookup table index (in an applicable lookup list).
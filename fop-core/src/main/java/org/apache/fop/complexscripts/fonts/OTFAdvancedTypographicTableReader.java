@@ -20,6 +20,7 @@
 package org.apache.fop.complexscripts.fonts;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -47,8 +48,9 @@ public final class OTFAdvancedTypographicTableReader {
     // logging state
     private static Log log = LogFactory.getLog(OTFAdvancedTypographicTableReader.class);
     // instance state
-    private OpenFont otf;                                        // parent font file reader
+    private OpenFont otf;                                        // parent font file reader, or null if reading lookups
     private FontFileReader in;                                  // input reader
+    private int upem;                                           // units per em, if reading lookups
     private GlyphDefinitionTable gdef;                          // glyph definition table
     private GlyphSubstitutionTable gsub;                        // glyph substitution table
     private GlyphPositioningTable gpos;                         // glyph positioning table
@@ -73,6 +75,17 @@ public final class OTFAdvancedTypographicTableReader {
         this.in = in;
     }
 
+    /**
+     * Construct an <code>OTFAdvancedTypographicTableReader</code> instance that reads the
+     * lookup subtables of a single GSUB or GPOS table.
+     * @param in reader on the bytes of the table
+     * @param upem units per em of the font
+     */
+    private OTFAdvancedTypographicTableReader(FontFileReader in, int upem) {
+        this.in = in;
+        this.upem = upem;
+    }
+
     /**
      * Read all advanced typographic tables.
      * @throws AdvancedTypographicTableFormatException if ATT table has invalid format
@@ -1729,28 +1742,28 @@ public final class OTFAdvancedTypographicTableReader {
         // XPlacement
         int xp;
         if ((valueFormat & GlyphPositioningTable.Value.X_PLACEMENT) != 0) {
-            xp = otf.convertTTFUnit2PDFUnit(in.readTTFShort());
+            xp = convertTTFUnit2PDFUnit(in.readTTFShort());
         } else {
             xp = 0;
         }
         // YPlacement
         int yp;
         if ((valueFormat & GlyphPositioningTable.Value.Y_PLACEMENT) != 0) {
-            yp = otf.convertTTFUnit2PDFUnit(in.readTTFShort());
+            yp = convertTTFUnit2PDFUnit(in.readTTFShort());
         } else {
             yp = 0;
         }
         // XAdvance
         int xa;
         if ((valueFormat & GlyphPositioningTable.Value.X_ADVANCE) != 0) {
-            xa = otf.convertTTFUnit2PDFUnit(in.readTTFShort());
+            xa = convertTTFUnit2PDFUnit(in.readTTFShort());
         } else {
             xa = 0;
         }
         // YAdvance
         int ya;
         if ((valueFormat & GlyphPositioningTable.Value.Y_ADVANCE) != 0) {
-            ya = otf.convertTTFUnit2PDFUnit(in.readTTFShort());
+            ya = convertTTFUnit2PDFUnit(in.readTTFShort());
         } else {
             ya = 0;
         }
@@ -2022,23 +2035,23 @@ public final class OTFAdvancedTypographicTableReader {
         int af = in.readTTFUShort();
         if (af == 1) {
             // read x coordinate
-            int x = otf.convertTTFUnit2PDFUnit(in.readTTFShort());
+            int x = convertTTFUnit2PDFUnit(in.readTTFShort());
             // read y coordinate
-            int y = otf.convertTTFUnit2PDFUnit(in.readTTFShort());
+            int y = convertTTFUnit2PDFUnit(in.readTTFShort());
             a = new GlyphPositioningTable.Anchor(x, y);
         } else if (af == 2) {
             // read x coordinate
-            int x = otf.convertTTFUnit2PDFUnit(in.readTTFShort());
+            int x = convertTTFUnit2PDFUnit(in.readTTFShort());
             // read y coordinate
-            int y = otf.convertTTFUnit2PDFUnit(in.readTTFShort());
+            int y = convertTTFUnit2PDFUnit(in.readTTFShort());
             // read anchor point index
             int ap = in.readTTFUShort();
             a = new GlyphPositioningTable.Anchor(x, y, ap);
         } else if (af == 3) {
             // read x coordinate
-            int x = otf.convertTTFUnit2PDFUnit(in.readTTFShort());
+            int x = convertTTFUnit2PDFUnit(in.readTTFShort());
             // read y coordinate
-            int y = otf.convertTTFUnit2PDFUnit(in.readTTFShort());
+            int y = convertTTFUnit2PDFUnit(in.readTTFShort());
             // read x device table offset
             int xdo = in.readTTFUShort();
             // read y device table offset
@@ -3191,30 +3204,59 @@ public final class OTFAdvancedTypographicTableReader {
         }
     }
 
-    private void readLookupList(OFTableName tableTag, long lookupList) throws IOException {
+    private LookupLoader readLookupList(OFTableName tableTag, OFDirTabEntry dirTab, long lookupList) throws IOException {
         in.seekSet(lookupList);
         // read lookup record count
         int nl = in.readTTFUShort();
         if (log.isDebugEnabled()) {
             log.debug(tableTag + " lookup list record count: " + nl);
         }
-        if (nl > 0) {
-            int[] loa = new int[nl];
-            // read lookup records
-            for (int i = 0, n = nl; i < n; i++) {
-                int lo = in.readTTFUShort();
-                if (log.isDebugEnabled()) {
-                    log.debug(tableTag + " lookup table offset: " + lo);
-                }
-                loa[i] = lo;
+        int[] loa = new int[nl];
+        // read lookup records
+        for (int i = 0, n = nl; i < n; i++) {
+            int lo = in.readTTFUShort();
+            if (log.isDebugEnabled()) {
+                log.debug(tableTag + " lookup table offset: " + lo);
+            }
+            loa[i] = lo;
+        }
+        // record lookup tables that have subtables, which are read on first use
+        long to = dirTab.getOffset();
+        List<String> lids = new java.util.ArrayList<String>();
+        long[] lta = new long[nl];
+        for (int i = 0, n = nl; i < n; i++) {
+            long lookupTable = lookupList + loa [ i ];
+            in.seekSet(lookupTable + 4);
+            if (in.readTTFUShort() > 0) {
+                lids.add("lu" + i);
+                lta[i] = lookupTable - to;
+            } else {
+                lta[i] = -1;
             }
-            // read lookup tables
-            for (int i = 0, n = nl; i < n; i++) {
-                if (log.isDebugEnabled()) {
-                    log.debug(tableTag + " lookup index: " + i);
-                }
-                readLookupTable(tableTag, i, lookupList + loa [ i ]);
+        }
+        FontFileReader tin = new FontFileReader(ByteBuffer.wrap(in.getBytes((int) to, (int) dirTab.getLength())));
+        return new LookupLoader(tableTag, new OTFAdvancedTypographicTableReader(tin, otf.getUnitsPerEm()), lids, lta);
+    }
+
+    /**
+     * Read the subtables of a lookup table.
+     * @param tableTag GSUB or GPOS
+     * @param lookupSequence lookup index
+     * @param lookupTable offset of the lookup table
+     * @return the (possibly empty) list of subtables of the lookup
+     * @throws IOException In case of a I/O problem
+     */
+    private List<GlyphSubtable> readLookupSubtables(OFTableName tableTag, int lookupSequence, long lookupTable) throws IOException {
+        initATState();
+        try {
+            readLookupTable(tableTag, lookupSequence, lookupTable);
+            if (tableTag.equals(OFTableName.GSUB)) {
+                return constructGSUBSubtables();
+            } else {
+                return constructGPOSSubtables();
             }
+        } finally {
+            resetATState();
         }
     }
 
@@ -3226,7 +3268,7 @@ public final class OTFAdvancedTypographicTableReader {
      * @param lookupList offset to lookup list from beginning of font file
      * @throws IOException In case of a I/O problem
      */
-    private void readCommonLayoutTables(OFTableName tableTag, long scriptList, long featureList, long lookupList) throws IOException {
+    private LookupLoader readCommonLayoutTables(OFTableName tableTag, OFDirTabEntry dirTab, long scriptList, long featureList, long lookupList) throws IOException {
         if (scriptList > 0) {
             readScriptList(tableTag, scriptList);
         }
@@ -3234,7 +3276,9 @@ public final class OTFAdvancedTypographicTableReader {
             readFeatureList(tableTag, featureList);
         }
         if (lookupList > 0) {
-            readLookupList(tableTag, lookupList);
+            return readLookupList(tableTag, dirTab, lookupList);
+        } else {
+            return null;
         }
     }
 
@@ -3457,9 +3501,9 @@ public final class OTFAdvancedTypographicTableReader {
                 log.debug(tableTag + " lookup list offset: " + llo);
             }
             long to = dirTab.getOffset();
-            readCommonLayoutTables(tableTag, to + slo, to + flo, to + llo);
+            LookupLoader loader = readCommonLayoutTables(tableTag, dirTab, to + slo, to + flo, to + llo);
             GlyphSubstitutionTable gsub;
-            if ((gsub = constructGSUB()) != null) {
+            if ((gsub = constructGSUB(loader)) != null) {
                 this.gsub = gsub;
             }
         }
@@ -3494,9 +3538,9 @@ public final class OTFAdvancedTypographicTableReader {
                 log.debug(tableTag + " lookup list offset: " + llo);
             }
             long to = dirTab.getOffset();
-            readCommonLayoutTables(tableTag, to + slo, to + flo, to + llo);
+            LookupLoader loader = readCommonLayoutTables(tableTag, dirTab, to + slo, to + flo, to + llo);
             GlyphPositioningTable gpos;
-            if ((gpos = constructGPOS()) != null) {
+            if ((gpos = constructGPOS(loader)) != null) {
                 this.gpos = gpos;
             }
         }
@@ -3521,18 +3565,16 @@ public final class OTFAdvancedTypographicTableReader {
 
     /**
      * Construct the (internal representation of the) GSUB table based on previously
-     * parsed state.
+     * parsed state, whose lookup subtables are read on first use.
+     * @param loader reads the lookup subtables (or null if there is no lookup list)
      * @returns glyph substitution table or null if insufficient or invalid state
      */
-    private GlyphSubstitutionTable constructGSUB() {
+    private GlyphSubstitutionTable constructGSUB(LookupLoader loader) {
         GlyphSubstitutionTable gsub = null;
         Map lookups;
         if ((lookups = constructLookups()) != null) {
-            List subtables;
-            if ((subtables = constructGSUBSubtables()) != null) {
-                if ((lookups.size() > 0) && (subtables.size() > 0)) {
-                    gsub = new GlyphSubstitutionTable(gdef, lookups, subtables, processors);
-                }
+            if ((loader != null) && (lookups.size() > 0) && (loader.getLookupIds().size() > 0)) {
+                gsub = new GlyphSubstitutionTable(gdef, lookups, loader.getLookupIds(), loader, processors);
             }
         }
         resetATState();
@@ -3541,18 +3583,16 @@ public final class OTFAdvancedTypographicTableReader {
 
     /**
      * Construct the (internal representation of the) GPOS table based on previously
-     * parsed state.
+     * parsed state, whose lookup subtables are read on first use.
+     * @param loader reads the lookup subtables (or null if there is no lookup list)
      * @returns glyph positioning table or null if insufficient or invalid state
      */
-    private GlyphPositioningTable constructGPOS() {
+    private GlyphPositioningTable constructGPOS(LookupLoader loader) {
         GlyphPositioningTable gpos = null;
         Map lookups;
         if ((lookups = constructLookups()) != null) {
-            List subtables;
-            if ((subtables = constructGPOSSubtables()) != null) {
-                if ((lookups.size() > 0) && (subtables.size() > 0)) {
-                    gpos = new GlyphPositioningTable(gdef, lookups, subtables, processors);
-                }
+            if ((loader != null) && (lookups.size() > 0) && (loader.getLookupIds().size() > 0)) {
+                gpos = new GlyphPositioningTable(gdef, lookups, loader.getLookupIds(), loader, processors);
             }
         }
         resetATState();
@@ -3654,7 +3694,7 @@ public final class OTFAdvancedTypographicTableReader {
         return st;
     }
 
-    private List constructGSUBSubtables() {
+    private List<GlyphSubtable> constructGSUBSubtables() {
         List<GlyphSubtable> subtables = new java.util.ArrayList();
         if (seSubtables != null) {
             for (Object seSubtable : seSubtables) {
@@ -3690,7 +3730,7 @@ public final class OTFAdvancedTypographicTableReader {
         return st;
     }
 
-    private List constructGPOSSubtables() {
+    private List<GlyphSubtable> constructGPOSSubtables() {
         List<GlyphSubtable> subtables = new java.util.ArrayList();
         if (seSubtables != null) {
             for (Object seSubtable : seSubtables) {
@@ -3775,6 +3815,10 @@ public final class OTFAdvancedTypographicTableReader {
         gpos = null;
     }
 
+    private int convertTTFUnit2PDFUnit(int n) {
+        return (otf != null) ? otf.convertTTFUnit2PDFUnit(n) : OpenFont.convertTTFUnit2PDFUnit(n, upem);
+    }
+
     /** helper method for formatting an integer array for output */
     private String toString(int[] ia) {
         StringBuffer sb = new StringBuffer();
@@ -3794,4 +3838,53 @@ public final class OTFAdvancedTypographicTableReader {
         return sb.toString();
     }
 
-}
+    /**
+     * Reads the subtables of the lookups of a GSUB or GPOS table when a lookup is first used.
+     * It reads from a copy of the table, so that the font file need not be retained, and drops
+     * the copy once all lookups are read.
+     */
+    private static final class LookupLoader implements GlyphTable.SubtableLoader {
+
+        private final OFTableName tableTag;
+        private final List<String> lids;                        // identifiers of lookups with subtables
+        private final long[] lta;                               // lookup table offsets, indexed by lookup
+        private OTFAdvancedTypographicTableReader reader;       // reader on table copy, or null once done
+        private int pending;                                    // number of lookups not yet read
+
+        LookupLoader(OFTableName tableTag, OTFAdvancedTypographicTableReader reader, List<String> lids, long[] lta) {
+            this.tableTag = tableTag;
+            this.reader = reader;
+            this.lids = lids;
+            this.lta = lta;
+            this.pending = lids.size();
+        }
+
+        List<String> getLookupIds() {
+            return lids;
+        }
+
+        /** {@inheritDoc} */
+        public synchronized List<GlyphSubtable> loadSubtables(String lid) {
+            int li = Integer.parseInt(lid.substring(2));
+            List<GlyphSubtable> subtables;
+            if ((reader == null) || (li < 0) || (li >= lta.length) || (lta [ li ] < 0)) {
+                subtables = new java.util.ArrayList<GlyphSubtable>();
+            } else {
+                try {
+                    subtables = reader.readLookupSubtables(tableTag, li, lta [ li ]);
+                } catch (IOException e) {
+                    log.warn(tableTag + ": ignoring lookup table '" + lid + "': " + e.getMessage());
+                    subtables = new java.util.ArrayList<GlyphSubtable>();
+                } finally {
+                    lta [ li ] = -1;
+                    if (--pending == 0) {
+                        reader = null;
+                    }
+                }
+            }
+            return subtables;
+        }
+
+    }
+
+}
\ No newline at end of file
@@ -27,6 +27,8 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -402,7 +404,8 @@ public class IndicScriptProcessor extends DefaultScriptProcessor {
             }
             return d;
         }
-        private static Map<String, Syllabizer> syllabizers = new HashMap<String, Syllabizer>();
+        // shared by all documents and page-sequences laid out concurrently
+        private static ConcurrentMap<String, Syllabizer> syllabizers = new ConcurrentHashMap<String, Syllabizer>();
         static Syllabizer getSyllabizer(String script, String language, Class<? extends Syllabizer> syllabizerClass) {
             String sid = makeSyllabizerId(script, language);
             Syllabizer s = syllabizers.get(sid);
@@ -411,7 +414,10 @@ public class IndicScriptProcessor extends DefaultScriptProcessor {
                     log.warn("No syllabizer available for script '" + script + "', language '" + language + "', using default Indic syllabizer.");
                     s = new DefaultSyllabizer(script, language);
                 }
-                syllabizers.put(sid, s);
+                Syllabizer existing = syllabizers.putIfAbsent(sid, s);
+                if (existing != null) {
+                    s = existing;
+                }
             }
             return s;
         }
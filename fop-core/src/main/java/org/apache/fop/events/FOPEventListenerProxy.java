@@ -54,6 +54,16 @@ public class FOPEventListenerProxy implements EventListener {
 
     /** {@inheritDoc} */
     public synchronized void processEvent(Event event) {
+        reduceSeverity(event, userAgent);
+        this.delegate.processEvent(event);
+    }
+
+    /**
+     * Reduces the severity of a validation or layout event if FOP can recover from it.
+     * @param event the event
+     * @param userAgent the FO user agent
+     */
+    public static void reduceSeverity(Event event, FOUserAgent userAgent) {
         if (event.getEventID().startsWith(FOVALIDATION_EVENT_ID_PREFIX)) {
             Boolean canRecover = (Boolean)event.getParam("canRecover");
             if (Boolean.TRUE.equals(canRecover) && !userAgent.validateStrictly()) {
@@ -67,7 +77,6 @@ public class FOPEventListenerProxy implements EventListener {
                 event.setSeverity(EventSeverity.WARN);
             }
         }
-        this.delegate.processEvent(event);
     }
 
 }
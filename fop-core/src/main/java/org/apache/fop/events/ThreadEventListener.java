@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.events;
+
+/**
+ * Holds the listener that receives the events broadcast by a user agent on the current
+ * thread, in place of the listeners registered with the user agent. A thread working on
+ * part of a document next to others binds a listener that keeps the events, to broadcast
+ * them later in document order. The severity of the events is adjusted before they are
+ * passed to the bound listener, so that fatal events still stop processing right away.
+ */
+public final class ThreadEventListener {
+
+    private static final ThreadLocal<EventListener> CURRENT = new ThreadLocal<EventListener>();
+
+    private ThreadEventListener() {
+    }
+
+    /** @return the listener bound to the current thread, null if there is none */
+    public static EventListener getCurrent() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Binds a listener to the current thread.
+     * @param listener the listener
+     * @return the listener previously bound to the thread, to pass to {@link #restore}
+     */
+    public static EventListener bind(EventListener listener) {
+        EventListener previous = CURRENT.get();
+        CURRENT.set(listener);
+        return previous;
+    }
+
+    /**
+     * Restores the listener that was bound to the current thread before a call to
+     * {@link #bind}.
+     * @param previous the previous listener, null if there was none
+     */
+    public static void restore(EventListener previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
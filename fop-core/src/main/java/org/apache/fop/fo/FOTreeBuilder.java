@@ -40,6 +40,8 @@ import org.apache.fop.apps.FormattingResults;
 import org.apache.fop.fo.ElementMapping.Maker;
 import org.apache.fop.fo.extensions.ExtensionElementMapping;
 import org.apache.fop.fo.pagination.Root;
+import org.apache.fop.fo.properties.PropertyCacheScope;
+import org.apache.fop.metrics.Phase;
 import org.apache.fop.render.pdf.extensions.PDFElementMapping;
 import org.apache.fop.util.ContentHandlerFactory;
 import org.apache.fop.util.ContentHandlerFactory.ObjectBuiltListener;
@@ -86,6 +88,9 @@ public class FOTreeBuilder extends DefaultHandler {
     private int depth;
     private boolean errorinstart;
 
+    /** The property cache scope of the user agent, null for the JVM-wide scope. */
+    private PropertyCacheScope propertyCacheScope;
+
     /**
      * <code>FOTreeBuilder</code> constructor
      *
@@ -100,8 +105,20 @@ public class FOTreeBuilder extends DefaultHandler {
                 OutputStream stream)
             throws FOPException {
 
+        builderContext = new FOTreeBuilderContext();
+        builderContext.setPropertyListMaker(new PropertyListMaker() {
+            public PropertyList make(FObj fobj, PropertyList parentPropertyList) {
+                return new StaticPropertyList(fobj, parentPropertyList);
+            }
+        });
+        setUp(outputFormat, foUserAgent, stream);
+    }
+
+    private void setUp(String outputFormat, FOUserAgent foUserAgent, OutputStream stream)
+            throws FOPException {
         this.userAgent = foUserAgent;
         this.elementMappingRegistry = userAgent.getElementMappingRegistry();
+        this.propertyCacheScope = userAgent.getPropertyCacheScope();
         //This creates either an AreaTreeHandler and ultimately a Renderer, or
         //one of the RTF-, MIF- etc. Handlers.
         foEventHandler = foUserAgent.getRendererFactory().createFOEventHandler(
@@ -110,12 +127,41 @@ public class FOTreeBuilder extends DefaultHandler {
             foEventHandler = new FO2StructureTreeConverter(
                     foUserAgent.getStructureTreeEventHandler(), foEventHandler);
         }
-        builderContext = new FOTreeBuilderContext();
-        builderContext.setPropertyListMaker(new PropertyListMaker() {
-            public PropertyList make(FObj fobj, PropertyList parentPropertyList) {
-                return new StaticPropertyList(fobj, parentPropertyList);
-            }
-        });
+    }
+
+    /**
+     * Prepares this builder for another processing run, so that builders can be pooled. The
+     * builder must not be reset while a document is being parsed.
+     *
+     * @param outputFormat the MIME type of the output format to use (ex. "application/pdf").
+     * @param foUserAgent   the {@link FOUserAgent} in effect for the new run
+     * @param stream    the <code>OutputStream</code> to direct the results to
+     * @throws FOPException if the <code>FOTreeBuilder</code> cannot be set up for the new run
+     */
+    public void reset(String outputFormat, FOUserAgent foUserAgent, OutputStream stream)
+            throws FOPException {
+        release();
+        used = false;
+        depth = 0;
+        errorinstart = false;
+        setUp(outputFormat, foUserAgent, stream);
+    }
+
+    /**
+     * Drops the references to the last processing run, so that a pooled builder does not keep
+     * its user agent, FO tree, ID references or output stream reachable. The builder must be
+     * {@link #reset} before it is used again.
+     */
+    public void release() {
+        locator = null;
+        rootFObj = null;
+        mainFOHandler = null;
+        delegate = null;
+        foEventHandler = null;
+        userAgent = null;
+        elementMappingRegistry = null;
+        propertyCacheScope = null;
+        builderContext.reset();
     }
 
     /** {@inheritDoc} */
@@ -133,7 +179,12 @@ public class FOTreeBuilder extends DefaultHandler {
     /** {@inheritDoc} */
     public void characters(char[] data, int start, int length)
                 throws SAXException {
-        delegate.characters(data, start, length);
+        PropertyCacheScope previousScope = bindPropertyCacheScope();
+        try {
+            delegate.characters(data, start, length);
+        } finally {
+            restorePropertyCacheScope(previousScope);
+        }
     }
 
     /** {@inheritDoc} */
@@ -144,30 +195,58 @@ public class FOTreeBuilder extends DefaultHandler {
         }
 
         used = true;
+        userAgent.getMetrics().start(Phase.FO_PARSE);
         empty = true;
         rootFObj = null;    // allows FOTreeBuilder to be reused
         if (LOG.isDebugEnabled()) {
             LOG.debug("Building formatting object tree");
         }
-        foEventHandler.startDocument();
-        this.mainFOHandler = new MainFOHandler();
-        this.mainFOHandler.startDocument();
-        this.delegate = this.mainFOHandler;
+        PropertyCacheScope previousScope = bindPropertyCacheScope();
+        try {
+            foEventHandler.startDocument();
+            this.mainFOHandler = new MainFOHandler();
+            this.mainFOHandler.startDocument();
+            this.delegate = this.mainFOHandler;
+        } finally {
+            restorePropertyCacheScope(previousScope);
+        }
     }
 
     /** {@inheritDoc} */
     public void endDocument() throws SAXException {
-        this.delegate.endDocument();
-        if (this.rootFObj == null && empty) {
-            FOValidationEventProducer eventProducer
-                = FOValidationEventProducer.Provider.get(userAgent.getEventBroadcaster());
-            eventProducer.emptyDocument(this);
+        PropertyCacheScope previousScope = bindPropertyCacheScope();
+        try {
+            this.delegate.endDocument();
+            if (this.rootFObj == null && empty) {
+                FOValidationEventProducer eventProducer
+                    = FOValidationEventProducer.Provider.get(userAgent.getEventBroadcaster());
+                eventProducer.emptyDocument(this);
+            }
+            rootFObj = null;
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Parsing of document complete");
+            }
+            foEventHandler.endDocument();
+        } finally {
+            restorePropertyCacheScope(previousScope);
+            userAgent.getMetrics().finish();
         }
-        rootFObj = null;
-        if (LOG.isDebugEnabled()) {
-            LOG.debug("Parsing of document complete");
+    }
+
+    /**
+     * Binds the property cache scope of the user agent to the current thread. The scope is
+     * only bound while an event is handled, so it doesn't stay bound to the thread if
+     * parsing is aborted.
+     * @return the scope previously bound to the thread
+     */
+    private PropertyCacheScope bindPropertyCacheScope() {
+        return (propertyCacheScope != null ? propertyCacheScope.bind() : null);
+    }
+
+    private void restorePropertyCacheScope(PropertyCacheScope previousScope) {
+        if (propertyCacheScope != null) {
+            PropertyCacheScope.restore(previousScope);
         }
-        foEventHandler.endDocument();
     }
 
     /** {@inheritDoc} */
@@ -175,11 +254,14 @@ public class FOTreeBuilder extends DefaultHandler {
                              Attributes attlist) throws SAXException {
         this.depth++;
         errorinstart = false;
+        PropertyCacheScope previousScope = bindPropertyCacheScope();
         try {
             delegate.startElement(namespaceURI, localName, rawName, attlist);
         } catch (SAXException e) {
             errorinstart = true;
             throw e;
+        } finally {
+            restorePropertyCacheScope(previousScope);
         }
     }
 
@@ -187,15 +269,20 @@ public class FOTreeBuilder extends DefaultHandler {
     public void endElement(String uri, String localName, String rawName)
                 throws SAXException {
         if (!errorinstart) {
-            this.delegate.endElement(uri, localName, rawName);
-            this.depth--;
-            if (depth == 0) {
-                if (delegate != mainFOHandler) {
-                    //Return from sub-handler back to main handler
-                    delegate.endDocument();
-                    delegate = mainFOHandler;
-                    delegate.endElement(uri, localName, rawName);
+            PropertyCacheScope previousScope = bindPropertyCacheScope();
+            try {
+                this.delegate.endElement(uri, localName, rawName);
+                this.depth--;
+                if (depth == 0) {
+                    if (delegate != mainFOHandler) {
+                        //Return from sub-handler back to main handler
+                        delegate.endDocument();
+                        delegate = mainFOHandler;
+                        delegate.endElement(uri, localName, rawName);
+                    }
                 }
+            } finally {
+                restorePropertyCacheScope(previousScope);
             }
         }
     }
@@ -288,10 +375,15 @@ public class FOTreeBuilder extends DefaultHandler {
                     rootFObj.setBuilderContext(builderContext);
                     rootFObj.setFOEventHandler(foEventHandler);
                 }
-                propertyList = foNode.createPropertyList(
-                                    currentPropertyList, foEventHandler);
-                foNode.processNode(localName, getEffectiveLocator(),
-                                    attlist, propertyList);
+                userAgent.getMetrics().start(Phase.PROPERTY_RESOLUTION);
+                try {
+                    propertyList = foNode.createPropertyList(
+                                        currentPropertyList, foEventHandler);
+                    foNode.processNode(localName, getEffectiveLocator(),
+                                        attlist, propertyList);
+                } finally {
+                    userAgent.getMetrics().stop(Phase.PROPERTY_RESOLUTION);
+                }
                 if (foNode.getNameId() == Constants.FO_MARKER) {
                     if (builderContext.inMarker()) {
                         nestedMarkerDepth++;
@@ -48,6 +48,16 @@ public class FOTreeBuilderContext {
      */
     private boolean inMarker;
 
+    /**
+     * Clears the state left by a processing run, so that the context can be used for the
+     * next one.
+     */
+    void reset() {
+        idReferences.clear();
+        whiteSpaceHandler = new XMLWhiteSpaceHandler();
+        inMarker = false;
+    }
+
     /**
      * Returns the set of ID references.
      * @return the ID references
@@ -20,6 +20,7 @@
 package org.apache.fop.fo;
 
 import org.apache.fop.fo.expr.PropertyException;
+import org.apache.fop.fo.properties.CommonBorderPaddingBackground;
 import org.apache.fop.fo.properties.Property;
 
 /**
@@ -27,9 +28,29 @@ import org.apache.fop.fo.properties.Property;
  * the explicit set properties and another array to store cached values.
  */
 public class StaticPropertyList extends PropertyList {
+
+    /** The properties from which the border, padding and background traits are determined. */
+    private static final boolean[] BORDER_PADDING_BACKGROUND = new boolean[Constants.PROPERTY_COUNT + 1];
+
+    static {
+        for (int prop = 1; prop <= Constants.PROPERTY_COUNT; prop++) {
+            String name = FOPropertyMapping.getPropertyName(prop);
+            if (name != null) {
+                if (name.startsWith("fox:")) {
+                    name = name.substring(4);
+                }
+                BORDER_PADDING_BACKGROUND[prop] = name.startsWith("border")
+                        || name.startsWith("padding") || name.startsWith("background");
+            }
+        }
+    }
+
     private final Property[] explicit;
     private final Property[] values;
 
+    /** True if any of the border, padding or background properties is specified on this FO. */
+    private boolean borderPaddingBackgroundSpecified;
+
     /**
      * Construct a StaticPropertyList.
      * @param fObjToAttach The FObj object.
@@ -57,6 +78,9 @@ public class StaticPropertyList extends PropertyList {
      */
     public void putExplicit(int propId, Property value) {
         explicit[propId] = value;
+        if (BORDER_PADDING_BACKGROUND[propId]) {
+            borderPaddingBackgroundSpecified = true;
+        }
         if (values[propId] != null) { // if the cached value is set overwrite it
             values[propId] = value;
         }
@@ -76,4 +100,18 @@ public class StaticPropertyList extends PropertyList {
         }
         return p;
     }
+
+    /**
+     * Overrides PropertyList.getBorderPaddingBackgroundProps() and returns the shared
+     * default instance when none of the properties it is made of is specified on this FO.
+     * Those properties are not inherited, so their values are the initial ones then.
+     * {@inheritDoc}
+     */
+    public CommonBorderPaddingBackground getBorderPaddingBackgroundProps()
+            throws PropertyException {
+        if (borderPaddingBackgroundSpecified) {
+            return super.getBorderPaddingBackgroundProps();
+        }
+        return CommonBorderPaddingBackground.getDefaultInstance(this);
+    }
 }
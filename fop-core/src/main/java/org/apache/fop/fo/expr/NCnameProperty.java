@@ -23,6 +23,7 @@ import java.awt.Color;
 
 import org.apache.fop.apps.FOUserAgent;
 import org.apache.fop.fo.properties.Property;
+import org.apache.fop.fo.properties.PropertyCacheScope;
 import org.apache.fop.util.ColorUtil;
 import org.apache.fop.util.CompareUtil;
 
@@ -49,12 +50,21 @@ public class NCnameProperty extends Property {
      * @return Color object corresponding to the NCName
      */
     public Color getColor(FOUserAgent foUserAgent)  {
+        // parsed names are shared, what is known about them is kept in the scope
+        PropertyCacheScope scope = PropertyCacheScope.getCurrent();
+        if (scope == null) {
+            scope = PropertyCacheScope.getGlobal();
+        }
+        if (scope.isNotAColor(ncName)) {
+            return null;
+        }
         try {
             return ColorUtil.parseColorString(foUserAgent, ncName);
         } catch (PropertyException e) {
             //Not logging this error since for properties like "border" you would get an awful
             //lot of error messages for things like "solid" not being valid colors.
             //log.error("Can't create color value: " + e.getMessage());
+            scope.putNotAColor(ncName);
             return null;
         }
     }
@@ -34,6 +34,7 @@ import org.apache.fop.fo.properties.ListProperty;
 import org.apache.fop.fo.properties.NumberProperty;
 import org.apache.fop.fo.properties.PercentLength;
 import org.apache.fop.fo.properties.Property;
+import org.apache.fop.fo.properties.PropertyCacheScope;
 import org.apache.fop.fo.properties.StringProperty;
 
 /**
@@ -44,6 +45,9 @@ import org.apache.fop.fo.properties.StringProperty;
 public final class PropertyParser extends PropertyTokenizer {
     private PropertyInfo propInfo;    // Maker and propertyList related info
 
+    /** True if the result depends on the property or the FO the expression is evaluated for. */
+    private boolean contextDependent;
+
     private static final String RELUNIT = "em";
     private static final HashMap FUNCTION_TABLE = new HashMap();
 
@@ -88,12 +92,27 @@ public final class PropertyParser extends PropertyTokenizer {
      */
     public static Property parse(String expr, PropertyInfo propInfo)
             throws PropertyException {
-        try {
-            return new PropertyParser(expr, propInfo).parseProperty();
-        } catch (PropertyException exc) {
-            exc.setPropertyInfo(propInfo);
-            throw exc;
+        // expressions such as "0.5pt solid black" are specified over and over in a document
+        PropertyCacheScope scope = PropertyCacheScope.getCurrent();
+        if (scope == null) {
+            scope = PropertyCacheScope.getGlobal();
+        }
+        Property prop = scope.getParsedExpression(expr);
+        if (prop == null) {
+            PropertyParser parser = new PropertyParser(expr, propInfo);
+            try {
+                prop = parser.parseProperty();
+            } catch (PropertyException exc) {
+                exc.setPropertyInfo(propInfo);
+                throw exc;
+            }
+            if (parser.contextDependent) {
+                return prop;
+            }
+            scope.putParsedExpression(expr, prop);
         }
+        // lists may be modified by the property makers; their elements are immutable
+        return (prop instanceof ListProperty ? new ListProperty((ListProperty) prop) : prop);
     }
 
 
@@ -268,6 +287,7 @@ public final class PropertyParser extends PropertyTokenizer {
              * Get the length base value object from the Maker. If null, then
              * this property can't have % values. Treat it as a real number.
              */
+            contextDependent = true;
             double pcval = Double.parseDouble(
                     currentTokenValue.substring(0, currentTokenValue.length() - 1)) / 100.0;
             PercentBase pcBase = this.propInfo.getPercentBase();
@@ -306,11 +326,13 @@ public final class PropertyParser extends PropertyTokenizer {
             String unitPart = currentTokenValue.substring(numLen);
             double numPart = Double.parseDouble(currentTokenValue.substring(0, numLen));
             if (RELUNIT.equals(unitPart)) {
+                contextDependent = true;
                 prop = (Property) NumericOp.multiply(
                                     NumberProperty.getInstance(numPart),
                                     propInfo.currentFontSize());
             } else {
                 if ("px".equals(unitPart)) {
+                    contextDependent = true;
                     //pass the ratio between target-resolution and
                     //the default resolution of 72dpi
                     float resolution = propInfo.getPropertyList().getFObj()
@@ -330,6 +352,7 @@ public final class PropertyParser extends PropertyTokenizer {
             break;
 
         case TOK_FUNCTION_LPAR:
+            contextDependent = true;
             Function function = (Function)FUNCTION_TABLE.get(currentTokenValue);
             if (function == null) {
                 throw new PropertyException("no such function: "
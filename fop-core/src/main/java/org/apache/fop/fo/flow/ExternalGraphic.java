@@ -37,6 +37,8 @@ import org.apache.fop.fo.FONode;
 import org.apache.fop.fo.PropertyList;
 import org.apache.fop.fo.ValidationException;
 import org.apache.fop.fo.properties.FixedLength;
+import org.apache.fop.metrics.Counter;
+import org.apache.fop.metrics.Phase;
 
 /**
  * Class modelling the <a href="http://www.w3.org/TR/xsl/#fo_external-graphic">
@@ -77,6 +79,8 @@ public class ExternalGraphic extends AbstractGraphics {
         FOUserAgent userAgent = getUserAgent();
         ImageManager manager = userAgent.getImageManager();
         ImageInfo info = null;
+        userAgent.getMetrics().increment(Counter.IMAGE_REQUESTS);
+        userAgent.getMetrics().start(Phase.IMAGE_LOADING);
         try {
             info = manager.getImageInfo(url, userAgent.getImageSessionContext());
         } catch (ImageException e) {
@@ -91,6 +95,8 @@ public class ExternalGraphic extends AbstractGraphics {
             ResourceEventProducer eventProducer = ResourceEventProducer.Provider.get(
                     getUserAgent().getEventBroadcaster());
             eventProducer.imageIOError(this, url, ioe, getLocator());
+        } finally {
+            userAgent.getMetrics().stop(Phase.IMAGE_LOADING);
         }
         if (info != null) {
             this.intrinsicWidth = info.getSize().getWidthMpt();
@@ -306,11 +306,31 @@ public class PageSequence extends AbstractPageSequence implements WritingModeTra
         return pageSequenceMaster == null || pageSequenceMaster.goToPreviousSimplePageMaster();
     }
 
+    /**
+     * Gives this page-sequence its own copy of the page-sequence-master it refers to, so that
+     * it can be laid out while other page-sequences using the same master are.
+     * @throws FOPException if the page-sequence-master cannot be copied
+     */
+    public void usePrivatePageSequenceMaster() throws FOPException {
+        if (pageSequenceMaster != null) {
+            pageSequenceMaster = pageSequenceMaster.copy();
+        }
+    }
+
     /** @return true if the page-sequence has a page-master with page-position="last" */
     public boolean hasPagePositionLast() {
         return pageSequenceMaster != null && pageSequenceMaster.hasPagePositionLast();
     }
 
+    /**
+     * Indicates whether any of the subsequences of the page-sequence-master has a
+     * page-master with page-position="last", whichever subsequence is in use.
+     * @return true if a page-master for the last page may be used
+     */
+    public boolean usesPagePositionLast() {
+        return pageSequenceMaster != null && pageSequenceMaster.usesPagePositionLast();
+    }
+
     /** @return true if the page-sequence has a page-master with page-position="only" */
     public boolean hasPagePositionOnly() {
         return pageSequenceMaster != null && pageSequenceMaster.hasPagePositionOnly();
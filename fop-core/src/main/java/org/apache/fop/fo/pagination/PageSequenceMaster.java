@@ -138,6 +138,24 @@ public class PageSequenceMaster extends FObj {
         return Collections.unmodifiableList(subSequenceSpecifiers);
     }
 
+    /**
+     * Creates a copy of this page-sequence-master that keeps its own position in the
+     * subsequence specifiers, so that page-sequences referring to the same master can be
+     * laid out at the same time.
+     * @return a reset copy sharing the page-masters of this page-sequence-master
+     * @throws FOPException if a subsequence specifier cannot be copied
+     */
+    public PageSequenceMaster copy() throws FOPException {
+        PageSequenceMaster copy = (PageSequenceMaster) clone(parent, false);
+        copy.subSequenceSpecifiers = new java.util.ArrayList<SubSequenceSpecifier>();
+        for (SubSequenceSpecifier subSequenceSpecifier : subSequenceSpecifiers) {
+            copy.subSequenceSpecifiers.add(
+                    (SubSequenceSpecifier) ((FONode) subSequenceSpecifier).clone(copy, false));
+        }
+        copy.reset();
+        return copy;
+    }
+
     /**
      * Resets the subsequence specifiers subsystem.
      */
@@ -177,6 +195,19 @@ public class PageSequenceMaster extends FObj {
                 && currentSubSequence.hasPagePositionLast());
     }
 
+    /**
+     * @return true if any of the subsequence specifiers has a page-master with
+     * page-position="last"
+     */
+    public boolean usesPagePositionLast() {
+        for (SubSequenceSpecifier subSequenceSpecifier : subSequenceSpecifiers) {
+            if (subSequenceSpecifier.hasPagePositionLast()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /** @return true if the page-sequence-master has a page-master with page-position="only" */
     public boolean hasPagePositionOnly() {
         return (currentSubSequence != null
@@ -24,7 +24,13 @@ import org.xml.sax.Locator;
 
 import org.apache.fop.apps.FOPException;
 import org.apache.fop.fo.FONode;
+import org.apache.fop.fo.FObj;
 import org.apache.fop.fo.ValidationException;
+import org.apache.fop.fo.flow.AbstractPageNumberCitation;
+import org.apache.fop.fo.flow.AbstractRetrieveMarker;
+import org.apache.fop.fo.flow.BasicLink;
+import org.apache.fop.fo.flow.ChangeBar;
+import org.apache.fop.fo.flow.PageNumber;
 
 /**
  * Class modelling the <a href="http://www.w3.org/TR/xsl/#fo_static-content">
@@ -32,6 +38,8 @@ import org.apache.fop.fo.ValidationException;
  */
 public class StaticContent extends Flow {
 
+    private Boolean pageIndependent;
+
     /**
      * @param parent FONode that is the parent of this object
      */
@@ -77,6 +85,37 @@ public class StaticContent extends Flow {
         return "static-content";
     }
 
+    /**
+     * Indicates whether this static-content lays out the same way on every page. This is
+     * the case if it contains no retrieve-markers, page numbers, page number citations,
+     * links, change bars or IDs, all of which depend on the page the content ends up on.
+     * @return true if the areas of this static-content can be reused on other pages
+     */
+    public boolean isPageIndependent() {
+        if (pageIndependent == null) {
+            pageIndependent = isPageIndependent(this);
+        }
+        return pageIndependent;
+    }
+
+    private static boolean isPageIndependent(FONode node) {
+        if (node instanceof AbstractRetrieveMarker
+                || node instanceof PageNumber
+                || node instanceof AbstractPageNumberCitation
+                || node instanceof BasicLink
+                || node instanceof ChangeBar
+                || (node instanceof FObj && ((FObj) node).hasId())) {
+            return false;
+        }
+        FONodeIterator it = node.getChildNodes();
+        while (it != null && it.hasNext()) {
+            if (!isPageIndependent(it.next())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * {@inheritDoc}
      * @return {@link org.apache.fop.fo.Constants#FO_STATIC_CONTENT}
@@ -38,6 +38,8 @@ import org.apache.fop.fo.Constants;
 import org.apache.fop.fo.FObj;
 import org.apache.fop.fo.PropertyList;
 import org.apache.fop.fo.expr.PropertyException;
+import org.apache.fop.metrics.Counter;
+import org.apache.fop.metrics.Phase;
 import org.apache.fop.util.CompareUtil;
 
 /**
@@ -428,6 +430,8 @@ public class CommonBorderPaddingBackground {
                 ImageManager manager = userAgent.getImageManager();
                 ImageSessionContext sessionContext = userAgent.getImageSessionContext();
                 ImageInfo info;
+                userAgent.getMetrics().increment(Counter.IMAGE_REQUESTS);
+                userAgent.getMetrics().start(Phase.IMAGE_LOADING);
                 try {
                     info = manager.getImageInfo(uri, sessionContext);
                     newInstance.backgroundImageInfo = info;
@@ -443,6 +447,8 @@ public class CommonBorderPaddingBackground {
                     ResourceEventProducer eventProducer = ResourceEventProducer.Provider.get(
                             fobj.getUserAgent().getEventBroadcaster());
                     eventProducer.imageIOError(fobj, uri, ioe, fobj.getLocator());
+                } finally {
+                    userAgent.getMetrics().stop(Phase.IMAGE_LOADING);
                 }
             }
         }
@@ -450,6 +456,29 @@ public class CommonBorderPaddingBackground {
         return (cachedInstance != null ? cachedInstance : newInstance);
     }
 
+    /**
+     * Obtain the CommonBorderPaddingBackground instance holding the initial values, which
+     * is shared by all FOs that specify none of the related properties. The instance is
+     * remembered by the {@link PropertyCacheScope} in use, like the instances it is made of.
+     *
+     * @param pList a {@link PropertyList} on which none of the related properties is specified
+     * @return the CommonBorderPaddingBackground instance holding the initial values
+     * @throws PropertyException in case of an error
+     */
+    public static CommonBorderPaddingBackground getDefaultInstance(PropertyList pList)
+            throws PropertyException {
+        PropertyCacheScope scope = PropertyCacheScope.getCurrent();
+        if (scope == null) {
+            scope = PropertyCacheScope.getGlobal();
+        }
+        CommonBorderPaddingBackground instance = scope.getDefaultBorderPaddingBackground();
+        if (instance == null) {
+            instance = getInstance(pList);
+            scope.setDefaultBorderPaddingBackground(instance);
+        }
+        return instance;
+    }
+
     private void initBorderInfo(PropertyList pList, int side,
             int colorProp, int styleProp, int widthProp, int paddingProp,
             int radiusStartProp, int radiusEndProp)
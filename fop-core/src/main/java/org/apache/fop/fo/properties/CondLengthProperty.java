@@ -159,6 +159,9 @@ public class CondLengthProperty extends Property implements CompoundDatatype {
      * @return this.condLength
      */
     public CondLengthProperty getCondLength() {
+        if (isCached) {
+            return this;
+        }
         if (this.length.getLength().isAbsolute()) {
             CondLengthProperty clp = CACHE.fetch(this);
             if (clp == this) {
@@ -165,6 +165,9 @@ public final class KeepProperty extends Property implements CompoundDatatype {
      *          this property
      */
     public KeepProperty getKeep() {
+        if (isCachedValue) {
+            return this;
+        }
         KeepProperty keep = CACHE.fetch(this);
         /* make sure setComponent() can never alter cached values */
         keep.isCachedValue = true;
@@ -78,6 +78,15 @@ public class ListProperty extends Property {
         addProperty(prop);
     }
 
+    /**
+     * Create a new instance holding the same properties as the given list.
+     * @param listProperty the list to copy
+     */
+    public ListProperty(ListProperty listProperty) {
+        this();
+        list.addAll(listProperty.list);
+    }
+
     /**
      * Add a new property to the list
      * @param prop Property to be added to the list
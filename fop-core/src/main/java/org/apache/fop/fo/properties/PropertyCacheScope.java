@@ -0,0 +1,360 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fo.properties;
+
+import java.lang.ref.Reference;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * The scope in which {@link PropertyCache property caches} intern their values. By default,
+ * all caches use a single JVM-wide scope, bounded by the system property
+ * "org.apache.fop.fo.properties.cache-max-size" (the maximum number of entries per cache,
+ * unbounded by default). A {@link org.apache.fop.apps.FopFactory} can be given a scope of
+ * its own, so that the documents it processes share neither their cached values nor their
+ * cache size limits with other factories:
+ * <pre>
+ * fopFactoryBuilder.setPropertyCacheScope(
+ *         new PropertyCacheScope(100000, PropertyCacheScope.EvictionPolicy.TRIM));
+ * </pre>
+ * A scope is bound to the thread processing a document with {@link #bind()}, while the
+ * thread handles the events of the document; caches used on a thread without a bound scope
+ * use the JVM-wide one.
+ * <p>
+ * When a cache has more entries than the maximum size allows, entries whose values are still
+ * in use may be evicted, and equal values fetched later are no longer replaced by the
+ * evicted instance. Cached values must therefore be compared with equals().
+ * <p>
+ * The scope also remembers the results of the most recently used property expressions
+ * whose value does not depend on the context they are evaluated in, up to the maximum size,
+ * and the names found not to be colors. The remembered values are shared and never modified.
+ * <p>
+ * The scope counts the misses, hash code collisions, evictions and reclaimed entries of its
+ * caches, and, once enabled with {@link #setHitCountEnabled(boolean)}, the hits. It can be
+ * registered as an MXBean for monitoring.
+ */
+public final class PropertyCacheScope implements PropertyCacheScopeMXBean {
+
+    private static final Log LOG = LogFactory.getLog(PropertyCacheScope.class);
+
+    private static final PropertyCacheScope GLOBAL = new PropertyCacheScope(
+            getGlobalMaxSize(), EvictionPolicy.TRIM);
+
+    /** The maximum number of property expressions remembered by a scope. */
+    private static final int MAX_PARSED_EXPRESSIONS = 2048;
+
+    private static final ThreadLocal<PropertyCacheScope> CURRENT = new ThreadLocal<PropertyCacheScope>();
+
+    private final int maxSize;
+
+    private final EvictionPolicy evictionPolicy;
+
+    private final ConcurrentMap<PropertyCache<?>, PropertyCacheStore<?>> stores
+            = new ConcurrentHashMap<PropertyCache<?>, PropertyCacheStore<?>>();
+
+    private final ParsedExpressions parsedExpressions;
+
+    private final Set<String> namesNotColors
+            = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /** The border, padding and background of FOs that specify none of them. */
+    private volatile CommonBorderPaddingBackground defaultBorderPaddingBackground;
+
+    private volatile boolean hitCountEnabled;
+
+    /**
+     * Decides which entries a cache drops when it has grown beyond its maximum size. Caches
+     * are split into segments, each of which holds at most its share of the maximum size;
+     * the policy is applied to one segment at a time, after the entries whose values have
+     * been reclaimed have been removed.
+     */
+    public interface EvictionPolicy {
+
+        /** Removes all entries of the segment. */
+        EvictionPolicy CLEAR = new EvictionPolicy() {
+            public void evict(ConcurrentMap<Integer, ? extends Reference<?>> entries, int capacity) {
+                entries.clear();
+            }
+        };
+
+        /** Removes entries, in no particular order, until the segment is three quarters full. */
+        EvictionPolicy TRIM = new EvictionPolicy() {
+            public void evict(ConcurrentMap<Integer, ? extends Reference<?>> entries, int capacity) {
+                int excess = entries.size() - capacity * 3 / 4;
+                Iterator<Integer> iterator = entries.keySet().iterator();
+                while (excess > 0 && iterator.hasNext()) {
+                    iterator.next();
+                    iterator.remove();
+                    excess--;
+                }
+            }
+        };
+
+        /**
+         * Removes entries from a segment that has grown beyond its capacity.
+         * @param entries the entries of the segment, keyed by the hash code of their values
+         * @param capacity the capacity of the segment
+         */
+        void evict(ConcurrentMap<Integer, ? extends Reference<?>> entries, int capacity);
+    }
+
+    /**
+     * Creates a new scope.
+     * @param maxSize the maximum number of entries of each cache, Integer.MAX_VALUE for no limit
+     * @param evictionPolicy the policy used to make room in a cache that is full
+     */
+    public PropertyCacheScope(int maxSize, EvictionPolicy evictionPolicy) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.maxSize = maxSize;
+        this.evictionPolicy = evictionPolicy;
+        this.parsedExpressions = new ParsedExpressions(Math.min(maxSize, MAX_PARSED_EXPRESSIONS));
+    }
+
+    private static int getGlobalMaxSize() {
+        try {
+            String maxSize = System.getProperty("org.apache.fop.fo.properties.cache-max-size");
+            return (maxSize != null ? Integer.parseInt(maxSize) : Integer.MAX_VALUE);
+        } catch (SecurityException e) {
+            LOG.info("Unable to access org.apache.fop.fo.properties.cache-max-size"
+                   + " due to security restriction; defaulting to no limit.");
+        } catch (NumberFormatException e) {
+            LOG.warn("Invalid value for org.apache.fop.fo.properties.cache-max-size: " + e.getMessage());
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    /** @return the JVM-wide scope */
+    public static PropertyCacheScope getGlobal() {
+        return GLOBAL;
+    }
+
+    /** @return the scope bound to the current thread, null if the JVM-wide scope is in use */
+    public static PropertyCacheScope getCurrent() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Binds this scope to the current thread.
+     * @return the scope previously bound to the thread, to pass to {@link #restore}
+     */
+    public PropertyCacheScope bind() {
+        PropertyCacheScope previous = CURRENT.get();
+        CURRENT.set(this);
+        return previous;
+    }
+
+    /**
+     * Restores the scope that was bound to the current thread before a call to {@link #bind()}.
+     * @param previous the previous scope, null for the JVM-wide scope
+     */
+    public static void restore(PropertyCacheScope previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /** @return the maximum number of entries of each cache */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /** @return the policy used to make room in a cache that is full */
+    public EvictionPolicy getEvictionPolicy() {
+        return evictionPolicy;
+    }
+
+    /**
+     * Returns the result of a property expression remembered by this scope.
+     * @param expr the property expression
+     * @return the parsed property, null if the expression is not remembered
+     */
+    public Property getParsedExpression(String expr) {
+        synchronized (parsedExpressions) {
+            return parsedExpressions.get(expr);
+        }
+    }
+
+    /**
+     * Remembers the result of a property expression whose value does not depend on the
+     * context it is evaluated in. The least recently used expression is forgotten when the
+     * scope holds too many.
+     * @param expr the property expression
+     * @param prop the parsed property, which must not be modified afterwards
+     */
+    public void putParsedExpression(String expr, Property prop) {
+        synchronized (parsedExpressions) {
+            parsedExpressions.put(expr, prop);
+        }
+    }
+
+    /**
+     * Tells whether a name has been found not to be a color. Names such as "solid" are
+     * specified where a color may also be, in border shorthands for instance, and finding
+     * out that they are not colors is costly.
+     * @param name the name
+     * @return true if the name is known not to be a color
+     */
+    public boolean isNotAColor(String name) {
+        return namesNotColors.contains(name);
+    }
+
+    /**
+     * Remembers that a name is not a color, as long as the scope holds fewer names than
+     * it remembers property expressions.
+     * @param name the name
+     */
+    public void putNotAColor(String name) {
+        if (namesNotColors.size() < parsedExpressions.maxSize) {
+            namesNotColors.add(name);
+        }
+    }
+
+    /** @return the border, padding and background of FOs that specify none of them, or null */
+    CommonBorderPaddingBackground getDefaultBorderPaddingBackground() {
+        return defaultBorderPaddingBackground;
+    }
+
+    /**
+     * Remembers the border, padding and background of FOs that specify none of them.
+     * @param instance the instance holding the initial values, fetched from this scope
+     */
+    void setDefaultBorderPaddingBackground(CommonBorderPaddingBackground instance) {
+        defaultBorderPaddingBackground = instance;
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> PropertyCacheStore<T> getStore(PropertyCache<T> cache) {
+        PropertyCacheStore<T> store = (PropertyCacheStore<T>) stores.get(cache);
+        if (store == null) {
+            store = new PropertyCacheStore<T>(this);
+            PropertyCacheStore<T> existing = (PropertyCacheStore<T>) stores.putIfAbsent(cache, store);
+            if (existing != null) {
+                store = existing;
+            }
+        }
+        return store;
+    }
+
+    /** {@inheritDoc} */
+    public boolean isHitCountEnabled() {
+        return hitCountEnabled;
+    }
+
+    /** {@inheritDoc} */
+    public void setHitCountEnabled(boolean hitCountEnabled) {
+        this.hitCountEnabled = hitCountEnabled;
+    }
+
+    /** {@inheritDoc} */
+    public long getHitCount() {
+        long count = 0;
+        for (PropertyCacheStore<?> store : stores.values()) {
+            count += store.getHitCount();
+        }
+        return count;
+    }
+
+    /** {@inheritDoc} */
+    public long getMissCount() {
+        long count = 0;
+        for (PropertyCacheStore<?> store : stores.values()) {
+            count += store.getMissCount();
+        }
+        return count;
+    }
+
+    /** {@inheritDoc} */
+    public long getCollisionCount() {
+        long count = 0;
+        for (PropertyCacheStore<?> store : stores.values()) {
+            count += store.getCollisionCount();
+        }
+        return count;
+    }
+
+    /** {@inheritDoc} */
+    public long getEvictionCount() {
+        long count = 0;
+        for (PropertyCacheStore<?> store : stores.values()) {
+            count += store.getEvictionCount();
+        }
+        return count;
+    }
+
+    /** {@inheritDoc} */
+    public long getReclaimedCount() {
+        long count = 0;
+        for (PropertyCacheStore<?> store : stores.values()) {
+            count += store.getReclaimedCount();
+        }
+        return count;
+    }
+
+    /** {@inheritDoc} */
+    public Map<String, Long> getSizes() {
+        Map<String, Long> sizes = new TreeMap<String, Long>();
+        for (PropertyCacheStore<?> store : stores.values()) {
+            String type = store.getValueType();
+            if (type != null) {
+                Long size = sizes.get(type);
+                sizes.put(type, (size != null ? size : 0) + store.getSize());
+            }
+        }
+        return sizes;
+    }
+
+    /** {@inheritDoc} */
+    public void resetCounts() {
+        for (PropertyCacheStore<?> store : stores.values()) {
+            store.resetCounts();
+        }
+    }
+
+    /** The remembered property expressions, in least recently used order. */
+    private static final class ParsedExpressions extends LinkedHashMap<String, Property> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int maxSize;
+
+        ParsedExpressions(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        /** {@inheritDoc} */
+        protected boolean removeEldestEntry(Map.Entry<String, Property> eldest) {
+            return size() > maxSize;
+        }
+    }
+}
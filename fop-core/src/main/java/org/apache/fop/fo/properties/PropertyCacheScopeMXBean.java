@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fo.properties;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link PropertyCacheScope}, for registration with a JMX
+ * {@link javax.management.MBeanServer}.
+ */
+public interface PropertyCacheScopeMXBean {
+
+    /** @return true if the hits are counted */
+    boolean isHitCountEnabled();
+
+    /**
+     * Enables or disables the counting of hits. Hits are not counted by default, as every
+     * hit would update a counter shared by the threads fetching the same values.
+     * @param hitCountEnabled true to count hits
+     */
+    void setHitCountEnabled(boolean hitCountEnabled);
+
+    /** @return the number of fetched values that were already cached, if counted */
+    long getHitCount();
+
+    /** @return the number of fetched values that were added to a cache */
+    long getMissCount();
+
+    /** @return the number of fetched values that had the hash code of a different cached value */
+    long getCollisionCount();
+
+    /** @return the number of entries evicted from caches that were full */
+    long getEvictionCount();
+
+    /** @return the number of entries removed because their values had been garbage collected */
+    long getReclaimedCount();
+
+    /** @return the number of entries of each cache, by class name of the cached values */
+    Map<String, Long> getSizes();
+
+    /** Resets all counts to zero. */
+    void resetCounts();
+}
@@ -0,0 +1,245 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fo.properties;
+
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * The entries of a {@link PropertyCache} within a {@link PropertyCacheScope}. The entries
+ * are spread over independent segments by hash code, so that threads fetching different
+ * values rarely touch the same map or counter. Fetching is lock-free; the periodic removal
+ * of reclaimed entries and the eviction of entries from a full segment are only done by
+ * the thread that manages to lock the segment, while the others carry on.
+ * @param <T> the type of the cached values
+ */
+final class PropertyCacheStore<T> {
+
+    private static final Log LOG = LogFactory.getLog(PropertyCacheStore.class);
+
+    /** The number of entries put in a segment between two removals of reclaimed entries. */
+    private static final int CLEANUP_INTERVAL = 1000;
+
+    private final PropertyCacheScope scope;
+
+    private final Segment<T>[] segments;
+
+    private final int segmentShift;
+
+    private final int segmentCapacity;
+
+    private volatile String valueType;
+
+    @SuppressWarnings("unchecked")
+    PropertyCacheStore(PropertyCacheScope scope) {
+        this.scope = scope;
+        int count = 1;
+        int shift = 32;
+        while (count < Runtime.getRuntime().availableProcessors() * 2 && count < 64) {
+            count <<= 1;
+            shift--;
+        }
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment<T>();
+        }
+        segmentShift = shift;
+        int maxSize = scope.getMaxSize();
+        segmentCapacity = (maxSize == Integer.MAX_VALUE ? maxSize : Math.max(1, maxSize / count));
+    }
+
+    /**
+     * Returns the cached value equal to the given one, caching the given one if there is none.
+     * @param obj the value, not null
+     * @return the cached value
+     */
+    T fetch(T obj) {
+        int hashCode = obj.hashCode();
+        Segment<T> segment = segments[(hashCode * 0x9E3779B9) >>> segmentShift & (segments.length - 1)];
+        Integer key = hashCode;
+        WeakReference<T> weakRef = segment.map.get(key);
+        if (weakRef == null) {
+            weakRef = segment.map.putIfAbsent(key, new WeakReference<T>(obj));
+            if (weakRef == null) {
+                added(segment, obj);
+                return obj;
+            }
+            // else another thread added a value, continue.
+        }
+
+        T cached = weakRef.get();
+        if (cached != null) {
+            if (cached == obj || cached.equals(obj)) {
+                if (scope.isHitCountEnabled()) {
+                    segment.hits.incrementAndGet();
+                }
+                return cached;
+            }
+            /*
+             * Log a message when obj.getClass() does not implement correctly the equals() or
+             * hashCode() method. It is expected that only very few objects will have the
+             * same hashCode but will not be equal.
+             */
+            if ((segment.collisions.incrementAndGet() % 10) == 0) {
+                LOG.info(getCollisionCount() + " hashCode() collisions for " + obj.getClass().getName());
+            }
+        }
+
+        // Adds a new or replaces an existing entry with obj that has the same hash code
+        segment.map.put(key, new WeakReference<T>(obj));
+        added(segment, obj);
+        return obj;
+
+        /*
+         * Another thread might add first. We could check this using map.replace() instead of
+         * map.put() and then recursively call fetch(obj). But if in the meantime, garbage
+         * collection kicks in, we might end up with a StackOverflowException. Not caching an entry
+         * is tolerable, after all it's configurable.
+         */
+    }
+
+    private void added(Segment<T> segment, T obj) {
+        segment.misses.incrementAndGet();
+        if (valueType == null) {
+            valueType = obj.getClass().getName();
+        }
+        boolean full = segmentCapacity != Integer.MAX_VALUE && segment.map.size() > segmentCapacity;
+        if (full || (segment.puts.incrementAndGet() % CLEANUP_INTERVAL) == 0) {
+            // Lock as there is no need for concurrent cleanup of a segment
+            if (segment.cleanupLock.tryLock()) {
+                try {
+                    segment.removeReclaimedEntries();
+                    int size = segment.map.size();
+                    if (size > segmentCapacity) {
+                        scope.getEvictionPolicy().evict(segment.map, segmentCapacity);
+                        segment.evictions.addAndGet(Math.max(0, size - segment.map.size()));
+                    }
+                } finally {
+                    segment.cleanupLock.unlock();
+                }
+            }
+        }
+    }
+
+    /** @return the class name of the cached values, null if nothing has been cached yet */
+    String getValueType() {
+        return valueType;
+    }
+
+    /** @return the number of entries, including the ones whose values have been reclaimed */
+    long getSize() {
+        long size = 0;
+        for (Segment<T> segment : segments) {
+            size += segment.map.size();
+        }
+        return size;
+    }
+
+    long getHitCount() {
+        long count = 0;
+        for (Segment<T> segment : segments) {
+            count += segment.hits.get();
+        }
+        return count;
+    }
+
+    long getMissCount() {
+        long count = 0;
+        for (Segment<T> segment : segments) {
+            count += segment.misses.get();
+        }
+        return count;
+    }
+
+    long getCollisionCount() {
+        long count = 0;
+        for (Segment<T> segment : segments) {
+            count += segment.collisions.get();
+        }
+        return count;
+    }
+
+    long getEvictionCount() {
+        long count = 0;
+        for (Segment<T> segment : segments) {
+            count += segment.evictions.get();
+        }
+        return count;
+    }
+
+    long getReclaimedCount() {
+        long count = 0;
+        for (Segment<T> segment : segments) {
+            count += segment.reclaimed.get();
+        }
+        return count;
+    }
+
+    /** Resets the counters. */
+    void resetCounts() {
+        for (Segment<T> segment : segments) {
+            segment.hits.set(0);
+            segment.misses.set(0);
+            segment.collisions.set(0);
+            segment.evictions.set(0);
+            segment.reclaimed.set(0);
+        }
+    }
+
+    /** A segment of the store, with its own map, counters and cleanup lock. */
+    private static final class Segment<T> {
+
+        private final ConcurrentMap<Integer, WeakReference<T>> map
+                = new ConcurrentHashMap<Integer, WeakReference<T>>(16, 0.75f, 1);
+
+        /** Counts the entries put in the map in order to periodically remove reclaimed ones. */
+        private final AtomicInteger puts = new AtomicInteger();
+
+        private final ReentrantLock cleanupLock = new ReentrantLock();
+
+        private final AtomicLong hits = new AtomicLong();
+
+        private final AtomicLong misses = new AtomicLong();
+
+        private final AtomicLong collisions = new AtomicLong();
+
+        private final AtomicLong evictions = new AtomicLong();
+
+        private final AtomicLong reclaimed = new AtomicLong();
+
+        private void removeReclaimedEntries() {
+            Iterator<WeakReference<T>> iterator = map.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().get() == null) {
+                    iterator.remove();
+                    reclaimed.incrementAndGet();
+                }
+            }
+        }
+    }
+}
@@ -38,6 +38,16 @@ public abstract class CIDFont extends CustomFont {
         super(resourceResolver);
     }
 
+    /**
+     * Creates a font sharing the metrics of the given font.
+     * @param font the font to share the metrics of
+     * @see CustomFont#CustomFont(CustomFont)
+     */
+    protected CIDFont(CIDFont font) {
+        super(font);
+        this.width = font.width;
+    }
+
     // ---- Required ----
     /**
      * Returns the type of the CID font.
@@ -32,6 +32,8 @@ import java.util.Map;
 import java.util.Set;
 
 import org.apache.fop.apps.io.InternalResourceResolver;
+import org.apache.fop.fonts.truetype.FontFileBufferPool;
+import org.apache.fop.fonts.truetype.FontFileReader;
 
 
 /**
@@ -78,8 +80,11 @@ public abstract class CustomFont extends Typeface
     private Map<Integer, Map<Integer, Integer>> kerning;
 
     private boolean useKerning = true;
-    /** the character map, mapping Unicode ranges to glyph indices. */
-    protected List<CMapSegment> cmap = new ArrayList<CMapSegment>();
+    /**
+     * the character map, mapping Unicode ranges to glyph indices. It is replaced rather than
+     * modified once the font is in use.
+     */
+    protected volatile List<CMapSegment> cmap = new ArrayList<CMapSegment>();
     private boolean useAdvanced = true;
     private boolean simulateStyle;
     protected List<SimpleSingleByteEncoding> additionalEncodings;
@@ -92,6 +97,50 @@ public abstract class CustomFont extends Typeface
         this.resourceResolver = resourceResolver;
     }
 
+    /**
+     * Creates a font sharing the metrics of the given font, for use in another rendering run.
+     * The immutable data (widths, kerning, bounding box, ...) is shared, the character map and
+     * everything recorded while the font is used start afresh from the given font's state.
+     * @param font the font to share the metrics of
+     */
+    protected CustomFont(CustomFont font) {
+        this.resourceResolver = font.resourceResolver;
+        this.fontFileURI = font.fontFileURI;
+        this.fontName = font.fontName;
+        this.fullName = font.fullName;
+        this.familyNames = font.familyNames;
+        this.fontSubName = font.fontSubName;
+        this.embedFileURI = font.embedFileURI;
+        this.embedResourceName = font.embedResourceName;
+        this.embeddingMode = font.embeddingMode;
+        this.capHeight = font.capHeight;
+        this.xHeight = font.xHeight;
+        this.ascender = font.ascender;
+        this.descender = font.descender;
+        this.fontBBox = font.fontBBox;
+        this.flags = font.flags;
+        this.weight = font.weight;
+        this.stemV = font.stemV;
+        this.italicAngle = font.italicAngle;
+        this.missingWidth = font.missingWidth;
+        this.fontType = font.fontType;
+        this.firstChar = font.firstChar;
+        this.lastChar = font.lastChar;
+        this.underlinePosition = font.underlinePosition;
+        this.underlineThickness = font.underlineThickness;
+        this.strikeoutPosition = font.strikeoutPosition;
+        this.strikeoutThickness = font.strikeoutThickness;
+        this.kerning = font.kerning;
+        this.useKerning = font.useKerning;
+        this.cmap.addAll(font.cmap);
+        this.useAdvanced = font.useAdvanced;
+        this.simulateStyle = font.simulateStyle;
+        if (font.unencodedCharacters != null) {
+            this.unencodedCharacters = new HashMap<Character, SingleByteFont.UnencodedCharacter>(
+                    font.unencodedCharacters);
+        }
+    }
+
 
     /** {@inheritDoc} */
     public URI getFontURI() {
@@ -166,6 +215,17 @@ public abstract class CustomFont extends Typeface
         return resourceResolver.getResource(embedFileURI);
     }
 
+    /**
+     * Returns a {@link FontFileReader} on the embeddable font file. The font file's content
+     * is shared with other readers of the same file (see {@link FontFileBufferPool}).
+     *
+     * @return the reader on the embeddable font file, or null if it isn't available
+     * @throws IOException if the font file can't be read
+     */
+    public FontFileReader getFontFileReader() throws IOException {
+        return FontFileBufferPool.getReader(embedFileURI, resourceResolver);
+    }
+
     /**
      * Returns the lookup name to an embeddable font file available as a
      * resource.
@@ -545,6 +605,31 @@ public abstract class CustomFont extends Typeface
         return cmap.toArray(new CMapSegment[cmap.size()]);
     }
 
+    /** @return the unscaled x-height, as set on the font */
+    int getXHeight() {
+        return xHeight;
+    }
+
+    /** @return the unscaled underline position, 0 if the font doesn't provide one */
+    int getUnderlinePosition() {
+        return underlinePosition;
+    }
+
+    /** @return the unscaled underline thickness, 0 if the font doesn't provide one */
+    int getUnderlineThickness() {
+        return underlineThickness;
+    }
+
+    /** @return the unscaled strikeout position, 0 if the font doesn't provide one */
+    int getStrikeoutPosition() {
+        return strikeoutPosition;
+    }
+
+    /** @return the unscaled strikeout thickness, 0 if the font doesn't provide one */
+    int getStrikeoutThickness() {
+        return strikeoutThickness;
+    }
+
     public int getUnderlinePosition(int size) {
         return (underlinePosition == 0)
                 ? getDescender(size) / 2
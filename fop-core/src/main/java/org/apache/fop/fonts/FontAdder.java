@@ -19,9 +19,15 @@
 
 package org.apache.fop.fonts;
 
+import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import org.apache.fop.apps.io.InternalResourceResolver;
 import org.apache.fop.fonts.autodetect.FontInfoFinder;
@@ -48,26 +54,67 @@ public class FontAdder {
     }
 
     /**
-     * Iterates over font url list adding to font info list
+     * Iterates over font url list adding to font info list. The font files are examined
+     * concurrently if the font manager allows more than one font detection thread, in which
+     * case the resource resolver and the event listener are called from worker threads. The
+     * font infos are added in the order of the font url list in any case.
      * @param fontURLList font file list
      * @param fontInfoList a configured font info list
      * @throws URISyntaxException if a URI syntax error is found
      */
     public void add(List<URL> fontURLList, List<EmbedFontInfo> fontInfoList)
             throws URISyntaxException {
-        FontCache cache = manager.getFontCache();
-        FontInfoFinder finder = new FontInfoFinder();
+        final FontCache cache = manager.getFontCache();
+        final FontInfoFinder finder = new FontInfoFinder();
         finder.setEventListener(listener);
 
+        List<URI> fontURIList = new ArrayList<URI>(fontURLList.size());
         for (URL fontURL : fontURLList) {
-            EmbedFontInfo[] embedFontInfos = finder.find(fontURL.toURI(), resourceResolver, cache);
-            if (embedFontInfos == null) {
-                continue;
+            fontURIList.add(fontURL.toURI());
+        }
+        int threads = Math.min(manager.getFontDetectionThreads(), fontURIList.size());
+        if (threads <= 1) {
+            for (URI fontURI : fontURIList) {
+                addAll(finder.find(fontURI, resourceResolver, cache), fontInfoList);
             }
-            for (EmbedFontInfo fontInfo : embedFontInfos) {
-                if (fontInfo != null) {
-                    fontInfoList.add(fontInfo);
+            return;
+        }
+
+        List<Callable<EmbedFontInfo[]>> tasks = new ArrayList<Callable<EmbedFontInfo[]>>(fontURIList.size());
+        for (final URI fontURI : fontURIList) {
+            tasks.add(new Callable<EmbedFontInfo[]>() {
+                public EmbedFontInfo[] call() {
+                    return finder.find(fontURI, resourceResolver, cache);
                 }
+            });
+        }
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            for (Future<EmbedFontInfo[]> result : pool.invokeAll(tasks)) {
+                addAll(result.get(), fontInfoList);
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void addAll(EmbedFontInfo[] embedFontInfos, List<EmbedFontInfo> fontInfoList) {
+        if (embedFontInfos == null) {
+            return;
+        }
+        for (EmbedFontInfo fontInfo : embedFontInfos) {
+            if (fontInfo != null) {
+                fontInfoList.add(fontInfo);
             }
         }
     }
@@ -39,6 +39,9 @@ import org.apache.commons.logging.LogFactory;
  * <br>
  * Currently font supported font-variant small-caps is not
  * implemented.
+ * <br>
+ * The font lookup methods may be called concurrently, while page-sequences are laid out
+ * in parallel; the setup methods may not.
  */
 public class FontInfo {
 
@@ -280,7 +283,7 @@ public class FontInfo {
      * Tells this class that the font with the given internal name has been used.
      * @param internalName the internal font name (F1, F2 etc.)
      */
-    public void useFont(String internalName) {
+    public synchronized void useFont(String internalName) {
         usedFonts.put(internalName, fonts.get(internalName));
     }
 
@@ -298,7 +301,7 @@ public class FontInfo {
      * @param fontSize the font size
      * @return the requested Font instance
      */
-    public Font getFontInstance(FontTriplet triplet, int fontSize) {
+    public synchronized Font getFontInstance(FontTriplet triplet, int fontSize) {
         Map<Integer, Font> sizes = getFontInstanceCache().get(triplet);
         if (sizes == null) {
             sizes = new HashMap<Integer, Font>();
@@ -333,7 +336,7 @@ public class FontInfo {
      * @param awtFont the AWT font
      * @return a best matching internal Font
      */
-    public Font getFontInstanceForAWTFont(java.awt.Font awtFont) {
+    public synchronized Font getFontInstanceForAWTFont(java.awt.Font awtFont) {
         String awtFontName = awtFont.getName();
         String awtFontFamily = awtFont.getFamily();
         String awtFontStyle = awtFont.isItalic() ? Font.STYLE_ITALIC : Font.STYLE_NORMAL;
@@ -375,7 +378,7 @@ public class FontInfo {
      * @param weight font weight
      * @return the font triplet of the font chosen
      */
-    public FontTriplet fontLookup(String family, String style, int weight) {
+    public synchronized FontTriplet fontLookup(String family, String style, int weight) {
         return fontLookup(family, style, weight, true);
     }
 
@@ -404,7 +407,7 @@ public class FontInfo {
      * @return the set of font triplets of all supported and chosen font-families
      *          in the specified style and weight.
      */
-    public FontTriplet[] fontLookup(String[] families, String style, int weight) {
+    public synchronized FontTriplet[] fontLookup(String[] families, String style, int weight) {
         if (families.length == 0) {
             throw new IllegalArgumentException("Specify at least one font family");
         }
@@ -569,7 +572,7 @@ public class FontInfo {
      * @param fontName internal key
      * @return font metrics
      */
-    public FontMetrics getMetricsFor(String fontName) {
+    public synchronized FontMetrics getMetricsFor(String fontName) {
         Typeface metrics = fonts.get(fontName);
         usedFonts.put(fontName, metrics);
         return metrics;
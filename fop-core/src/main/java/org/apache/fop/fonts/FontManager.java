@@ -19,6 +19,7 @@
 
 package org.apache.fop.fonts;
 
+import java.io.File;
 import java.net.URI;
 import java.util.List;
 
@@ -43,6 +44,12 @@ public class FontManager {
 
     private FontCacheManager fontCacheManager;
 
+    /** the cache of font metrics, null if disabled */
+    private FontMetricsCache fontMetricsCache;
+
+    /** the pool of fonts shared between rendering runs, null if disabled */
+    private TypefacePool typefacePool;
+
     /** Font substitutions */
     private FontSubstitutions fontSubstitutions;
 
@@ -52,6 +59,9 @@ public class FontManager {
     /** FontTriplet matcher for fonts that shall be referenced rather than embedded. */
     private FontTriplet.Matcher referencedFontsMatcher;
 
+    /** the number of threads font files are examined on during font auto-detection */
+    private int fontDetectionThreads = 1;
+
     /**
      * Main constructor
      *
@@ -72,6 +82,7 @@ public class FontManager {
      */
     public void setResourceResolver(InternalResourceResolver resourceResolver) {
         this.resourceResolver = resourceResolver;
+        clearTypefacePool();
     }
 
     public InternalResourceResolver getResourceResolver() {
@@ -118,6 +129,50 @@ public class FontManager {
         fontCacheManager.setCacheFile(resourceResolver.resolveFromBase(cacheFileURI));
     }
 
+    /**
+     * Sets the directory holding the font metrics cache. Fonts set up through this font manager
+     * then read their metrics from this cache rather than parsing the font files again.
+     * @param directoryURI the URI of the font metrics cache directory, null to disable the cache
+     */
+    public void setFontMetricsCacheDirectory(URI directoryURI) {
+        if (directoryURI == null) {
+            fontMetricsCache = null;
+        } else {
+            fontMetricsCache = new FontMetricsCache(
+                    new File(resourceResolver.resolveFromBase(directoryURI)));
+        }
+    }
+
+    /**
+     * Returns the font metrics cache used by this font manager.
+     * @return the font metrics cache, or null if it isn't enabled
+     */
+    public FontMetricsCache getFontMetricsCache() {
+        return fontMetricsCache;
+    }
+
+    /**
+     * Controls whether fonts loaded for a rendering run are kept and shared with later runs
+     * (see {@link TypefacePool}). Disabled by default. The pool is emptied when the resource
+     * resolver is replaced or the font cache is deleted.
+     * @param enabled true to share loaded fonts between rendering runs
+     */
+    public void setTypefacePoolEnabled(boolean enabled) {
+        if (!enabled) {
+            typefacePool = null;
+        } else if (typefacePool == null) {
+            typefacePool = new TypefacePool();
+        }
+    }
+
+    /**
+     * Returns the pool of fonts shared between rendering runs.
+     * @return the typeface pool, or null if it isn't enabled
+     */
+    public TypefacePool getTypefacePool() {
+        return typefacePool;
+    }
+
     /**
      * Whether or not to cache results of font triplet detection/auto-config
      */
@@ -148,6 +203,13 @@ public class FontManager {
      */
     public void deleteCache() throws FOPException {
         fontCacheManager.delete();
+        clearTypefacePool();
+    }
+
+    private void clearTypefacePool() {
+        if (typefacePool != null) {
+            typefacePool.clear();
+        }
     }
 
     /**
@@ -162,6 +224,14 @@ public class FontManager {
         for (FontCollection fontCollection : fontCollections) {
             startNum = fontCollection.setup(startNum, fontInfo);
         }
+        if (fontMetricsCache != null || typefacePool != null) {
+            for (Typeface font : fontInfo.getFonts().values()) {
+                if (font instanceof LazyFont) {
+                    ((LazyFont) font).setMetricsCache(fontMetricsCache);
+                    ((LazyFont) font).setTypefacePool(typefacePool);
+                }
+            }
+        }
         // Make any defined substitutions in the font info
         getFontSubstitutions().adjustFontInfo(fontInfo);
     }
@@ -213,6 +283,28 @@ public class FontManager {
         }
     }
 
+    /**
+     * Sets the number of threads font files are examined on during font auto-detection.
+     * The default, 1, examines the font files on the calling thread. With more than one
+     * thread, the resource resolver and the {@link FontEventListener} are called from
+     * worker threads, concurrently, so they must be thread-safe.
+     * @param threads the number of font detection threads
+     */
+    public void setFontDetectionThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("The number of font detection threads must be at least 1");
+        }
+        this.fontDetectionThreads = threads;
+    }
+
+    /**
+     * Returns the number of threads font files are examined on during font auto-detection.
+     * @return the number of font detection threads
+     */
+    public int getFontDetectionThreads() {
+        return fontDetectionThreads;
+    }
+
     /**
      * Detect fonts from the operating system via FOPs autodetect mechanism.
      *
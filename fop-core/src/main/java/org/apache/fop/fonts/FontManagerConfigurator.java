@@ -104,6 +104,22 @@ public class FontManagerConfigurator {
                 LogUtil.handleException(log, mfue, true);
             }
         }
+        // caching (font metrics)
+        if (cfg.getChild("font-metrics-cache", false) != null) {
+            try {
+                fontManager.setFontMetricsCacheDirectory(
+                        URI.create(cfg.getChild("font-metrics-cache").getValue()));
+            } catch (ConfigurationException e) {
+                LogUtil.handleException(log, e, true);
+            }
+        }
+        if (cfg.getChild("typeface-pool", false) != null) {
+            try {
+                fontManager.setTypefacePoolEnabled(cfg.getChild("typeface-pool").getValueAsBoolean());
+            } catch (ConfigurationException e) {
+                LogUtil.handleException(log, e, true);
+            }
+        }
         // [GA] permit configuration control over base14 kerning; without this,
         // there is no way for a user to enable base14 kerning other than by
         // programmatic API;
@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fonts;
+
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Records the character mapping operations of the fonts used on a thread, instead of
+ * performing them. Embedded fonts build their subsets, and warn about missing glyphs, in
+ * the order characters are first mapped; a thread laying out part of a document next to
+ * others records its mappings so they can be replayed, with {@link #replay}, in document
+ * order. While a recorder is bound to the thread, fonts return the glyph indices and
+ * widths of the full font instead of those of the subset.
+ * <p>
+ * Mappings whose result depends on the order in which they are made, such as the code
+ * points given to characters outside the encoding of a single-byte font, or the private
+ * use code points given to substituted glyphs, cannot be deferred. Before making them, a
+ * font waits with {@link #awaitTurn()} until all that precedes in the document has been
+ * replayed.
+ */
+public abstract class FontMappingRecorder {
+
+    private static final ThreadLocal<FontMappingRecorder> CURRENT = new ThreadLocal<FontMappingRecorder>();
+
+    /** The characters recorded so far, per font, two bits per code point. */
+    private final Map<Typeface, BitSet> recorded = new IdentityHashMap<Typeface, BitSet>();
+
+    private Typeface lastFont;
+    private BitSet lastRecorded;
+
+    /** @return the recorder bound to the current thread, null if mappings are performed */
+    public static FontMappingRecorder getCurrent() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Binds this recorder to the current thread.
+     * @return the recorder previously bound to the thread, to pass to {@link #restore}
+     */
+    public FontMappingRecorder bind() {
+        FontMappingRecorder previous = CURRENT.get();
+        CURRENT.set(this);
+        return previous;
+    }
+
+    /**
+     * Restores the recorder that was bound to the current thread before a call to
+     * {@link #bind()}.
+     * @param previous the previous recorder, null if there was none
+     */
+    public static void restore(FontMappingRecorder previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Performs a recorded mapping. Must be called on a thread without a bound recorder.
+     * @param font the font
+     * @param codePoint the mapped character or code point
+     * @param isChar true if the font was asked to map a character, false for a code point
+     */
+    public static void replay(Typeface font, int codePoint, boolean isChar) {
+        if (isChar) {
+            font.mapChar((char) codePoint);
+        } else {
+            ((CIDFont) font).mapCodePoint(codePoint);
+        }
+    }
+
+    /**
+     * Records the mapping of a character.
+     * @param font the font
+     * @param c the character
+     */
+    void recordChar(Typeface font, char c) {
+        record(font, c, true);
+    }
+
+    /**
+     * Records the mapping of a code point.
+     * @param font the font
+     * @param codePoint the code point
+     */
+    void recordCodePoint(Typeface font, int codePoint) {
+        record(font, codePoint, false);
+    }
+
+    private void record(Typeface font, int codePoint, boolean isChar) {
+        if (font != lastFont) {
+            lastRecorded = recorded.get(font);
+            if (lastRecorded == null) {
+                lastRecorded = new BitSet();
+                recorded.put(font, lastRecorded);
+            }
+            lastFont = font;
+        }
+        // only the first mapping of a character changes the state of the font
+        int bit = codePoint * 2 + (isChar ? 1 : 0);
+        if (!lastRecorded.get(bit)) {
+            lastRecorded.set(bit);
+            mappingRecorded(font, codePoint, isChar);
+        }
+    }
+
+    /**
+     * Called the first time a character or code point is mapped by a font.
+     * @param font the font
+     * @param codePoint the character or code point
+     * @param isChar true if the font was asked to map a character, false for a code point
+     */
+    protected abstract void mappingRecorded(Typeface font, int codePoint, boolean isChar);
+
+    /**
+     * Waits until the recordings of all that precedes in the document have been replayed.
+     * The font calling this method must not hold its own lock.
+     */
+    protected abstract void awaitTurn();
+}
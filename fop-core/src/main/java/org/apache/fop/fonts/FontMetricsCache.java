@@ -0,0 +1,418 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fonts;
+
+import java.awt.Rectangle;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.apache.fop.apps.io.InternalResourceResolver;
+import org.apache.fop.fonts.truetype.OFFontLoader;
+
+/**
+ * An on-disk cache of the metrics of loaded fonts, so a {@link LazyFont} can be set up
+ * without parsing its font file again. Every font is stored in a file of its own in a compact,
+ * versioned binary format and only read (memory-mapped) when the font is first used.
+ * Entries are keyed by the font file URI, its modification time and size, and the font loading
+ * options, so a changed font file is simply loaded and cached anew.
+ * <p>
+ * Only fonts loaded from local files as CID fonts ({@link MultiByteFont}) are cached. The
+ * advanced typographic tables (GDEF, GSUB, GPOS) aren't: when they are requested, and present
+ * or not known to be absent, they alone are read from the font file, the metrics still coming
+ * from the cache.
+ */
+public final class FontMetricsCache {
+
+    private static Log log = LogFactory.getLog(FontMetricsCache.class);
+
+    private static final int MAGIC = 0x464f504d; // "FOPM"
+
+    /** Incremented whenever the entry format changes; entries of other versions are ignored. */
+    private static final int VERSION = 1;
+
+    private static final String ENTRY_SUFFIX = ".metrics";
+
+    private static final byte ADVANCED_ABSENT = 0;
+    private static final byte ADVANCED_PRESENT = 1;
+    private static final byte ADVANCED_UNKNOWN = 2;
+
+    private final File directory;
+
+    /**
+     * Creates a font metrics cache stored in the given directory.
+     * @param directory the cache directory (created when the first entry is written)
+     */
+    public FontMetricsCache(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Returns the directory holding the cache entries.
+     * @return the cache directory
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns the font cached for the given font file and loading options.
+     * @param fontURI the font file URI
+     * @param options a string identifying the options the font is loaded with
+     * @param useAdvanced true if advanced typographic information is requested
+     * @param resourceResolver the resource resolver the font is loaded with
+     * @return the cached font or null if there's no usable entry
+     */
+    public CustomFont getFont(URI fontURI, String options, boolean useAdvanced,
+            InternalResourceResolver resourceResolver) {
+        String key = getKey(fontURI, options, resourceResolver);
+        if (key == null) {
+            return null;
+        }
+        File entry = getEntryFile(key);
+        if (!entry.isFile()) {
+            return null;
+        }
+        try {
+            return readEntry(map(entry), key, useAdvanced, resourceResolver);
+        } catch (IOException ioe) {
+            log.warn("Ignoring unreadable font metrics cache entry " + entry + ": " + ioe.getMessage());
+        } catch (BufferUnderflowException bue) {
+            log.warn("Ignoring truncated font metrics cache entry " + entry);
+        } catch (IllegalArgumentException iae) {
+            log.warn("Ignoring corrupt font metrics cache entry " + entry + ": " + iae.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Stores the metrics of a font just loaded from the given font file. Fonts that can't be
+     * cached are ignored.
+     * @param fontURI the font file URI
+     * @param options a string identifying the options the font was loaded with
+     * @param font the loaded font
+     * @param useAdvanced true if advanced typographic information was requested for the font
+     * @param resourceResolver the resource resolver the font was loaded with
+     */
+    public void putFont(URI fontURI, String options, Typeface font, boolean useAdvanced,
+            InternalResourceResolver resourceResolver) {
+        if (!isCacheable(font)) {
+            return;
+        }
+        String key = getKey(fontURI, options, resourceResolver);
+        if (key == null) {
+            return;
+        }
+        File temp = null;
+        try {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Could not create " + directory);
+            }
+            temp = File.createTempFile("fop", ENTRY_SUFFIX, directory);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(temp)));
+            try {
+                writeEntry(out, key, (MultiByteFont) font, useAdvanced);
+            } finally {
+                IOUtils.closeQuietly(out);
+            }
+            File entry = getEntryFile(key);
+            if (!temp.renameTo(entry) && !(entry.delete() && temp.renameTo(entry))) {
+                throw new IOException("Could not rename " + temp + " to " + entry);
+            }
+            temp = null;
+        } catch (IOException ioe) {
+            log.warn("Could not write font metrics cache entry for " + fontURI + ": " + ioe.getMessage());
+        } finally {
+            if (temp != null && !temp.delete()) {
+                temp.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Removes all entries from the cache.
+     */
+    public void clear() {
+        File[] entries = directory.listFiles();
+        if (entries != null) {
+            for (File entry : entries) {
+                if (entry.getName().endsWith(ENTRY_SUFFIX) && !entry.delete()) {
+                    log.warn("Could not delete font metrics cache entry " + entry);
+                }
+            }
+        }
+    }
+
+    private static boolean isCacheable(Typeface font) {
+        if (font == null || font.getClass() != MultiByteFont.class) {
+            return false;
+        }
+        MultiByteFont mbf = (MultiByteFont) font;
+        return mbf.getFontType() == FontType.TYPE0 && mbf.getFontURI() != null
+                && mbf.getEmbedResourceName() == null;
+    }
+
+    private static String getKey(URI fontURI, String options, InternalResourceResolver resourceResolver) {
+        if (fontURI == null) {
+            return null;
+        }
+        URI resolved = resourceResolver.resolveFromBase(fontURI);
+        if (!"file".equals(resolved.getScheme()) || resolved.isOpaque()) {
+            return null;
+        }
+        File file;
+        try {
+            file = new File(resolved);
+        } catch (IllegalArgumentException iae) {
+            return null;
+        }
+        if (!file.isFile()) {
+            return null;
+        }
+        return resolved.toASCIIString() + '|' + file.lastModified() + '|' + file.length() + '|' + options;
+    }
+
+    private File getEntryFile(String key) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            byte[] digest = md.digest(key.getBytes("UTF-8"));
+            StringBuilder name = new StringBuilder();
+            for (byte b : digest) {
+                name.append(String.format("%02x", b));
+            }
+            return new File(directory, name.append(ENTRY_SUFFIX).toString());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static ByteBuffer map(File file) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    private static void writeEntry(DataOutputStream out, String key, MultiByteFont font, boolean useAdvanced)
+            throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        writeString(out, key);
+        if (!useAdvanced) {
+            out.writeByte(ADVANCED_UNKNOWN);
+        } else if (font.getGDEF() != null || font.getGSUB() != null || font.getGPOS() != null) {
+            out.writeByte(ADVANCED_PRESENT);
+        } else {
+            out.writeByte(ADVANCED_ABSENT);
+        }
+
+        writeString(out, font.getEmbeddingMode().name());
+        writeString(out, font.getCIDType().name());
+        out.writeBoolean(font.isOTFFile());
+        writeString(out, font.getTTCName());
+        writeString(out, font.getFontURI().toASCIIString());
+        writeString(out, font.getEmbedFileURI() != null ? font.getEmbedFileURI().toASCIIString() : null);
+        out.writeBoolean(font.getSimulateStyle());
+
+        writeString(out, font.getFontName());
+        writeString(out, font.getFullName());
+        Set<String> familyNames = font.getFamilyNames();
+        out.writeInt(familyNames.size());
+        for (String familyName : familyNames) {
+            writeString(out, familyName);
+        }
+        writeString(out, font.getFontSubName());
+
+        out.writeInt(font.getCapHeight());
+        out.writeInt(font.getXHeight());
+        out.writeInt(font.getAscender());
+        out.writeInt(font.getDescender());
+        int[] bbox = font.getFontBBox();
+        for (int i = 0; i < 4; i++) {
+            out.writeInt(bbox[i]);
+        }
+        out.writeInt(font.getUnderlinePosition());
+        out.writeInt(font.getUnderlineThickness());
+        out.writeInt(font.getStrikeoutPosition());
+        out.writeInt(font.getStrikeoutThickness());
+        out.writeInt(font.getFlags());
+        out.writeInt(font.getStemV());
+        out.writeInt(font.getItalicAngle());
+        out.writeInt(font.getMissingWidth());
+        out.writeInt(font.getWeight());
+        out.writeInt(font.getDefaultWidth());
+
+        int[] widths = font.getWidths();
+        out.writeInt(widths.length);
+        for (int width : widths) {
+            out.writeInt(width);
+        }
+        Rectangle[] boundingBoxes = font.boundingBoxes;
+        out.writeInt(boundingBoxes.length);
+        for (Rectangle r : boundingBoxes) {
+            out.writeInt(r.x);
+            out.writeInt(r.y);
+            out.writeInt(r.width);
+            out.writeInt(r.height);
+        }
+        CMapSegment[] cmap = font.getCMap();
+        out.writeInt(cmap.length);
+        for (CMapSegment segment : cmap) {
+            out.writeInt(segment.getUnicodeStart());
+            out.writeInt(segment.getUnicodeEnd());
+            out.writeInt(segment.getGlyphStartIndex());
+        }
+        Map<Integer, Map<Integer, Integer>> kerning = font.getKerningInfo();
+        out.writeInt(kerning.size());
+        for (Map.Entry<Integer, Map<Integer, Integer>> first : kerning.entrySet()) {
+            out.writeInt(first.getKey());
+            out.writeInt(first.getValue().size());
+            for (Map.Entry<Integer, Integer> second : first.getValue().entrySet()) {
+                out.writeInt(second.getKey());
+                out.writeInt(second.getValue());
+            }
+        }
+    }
+
+    private static CustomFont readEntry(ByteBuffer in, String key, boolean useAdvanced,
+            InternalResourceResolver resourceResolver) throws IOException {
+        if (in.getInt() != MAGIC || in.getInt() != VERSION || !key.equals(readString(in))) {
+            return null;
+        }
+        byte advanced = in.get();
+
+        EmbeddingMode embeddingMode = EmbeddingMode.valueOf(readString(in));
+        MultiByteFont font = new MultiByteFont(resourceResolver, embeddingMode);
+        font.setCIDType(CIDFontType.valueOf(readString(in)));
+        font.setIsOTFFile(in.get() != 0);
+        font.setTTCName(readString(in));
+        font.setFontURI(URI.create(readString(in)));
+        String embedURI = readString(in);
+        if (embedURI != null) {
+            font.setEmbedURI(URI.create(embedURI));
+        }
+        font.setSimulateStyle(in.get() != 0);
+
+        font.setFontName(readString(in));
+        font.setFullName(readString(in));
+        int familyNameCount = in.getInt();
+        Set<String> familyNames = new LinkedHashSet<String>();
+        for (int i = 0; i < familyNameCount; i++) {
+            familyNames.add(readString(in));
+        }
+        font.setFamilyNames(familyNames);
+        font.setFontSubFamilyName(readString(in));
+
+        font.setCapHeight(in.getInt());
+        font.setXHeight(in.getInt());
+        font.setAscender(in.getInt());
+        font.setDescender(in.getInt());
+        font.setFontBBox(new int[] {in.getInt(), in.getInt(), in.getInt(), in.getInt()});
+        font.setUnderlinePosition(in.getInt());
+        font.setUnderlineThickness(in.getInt());
+        font.setStrikeoutPosition(in.getInt());
+        font.setStrikeoutThickness(in.getInt());
+        font.setFlags(in.getInt());
+        font.setStemV(in.getInt());
+        font.setItalicAngle(in.getInt());
+        font.setMissingWidth(in.getInt());
+        font.setWeight(in.getInt());
+        font.setDefaultWidth(in.getInt());
+
+        int[] widths = new int[in.getInt()];
+        for (int i = 0; i < widths.length; i++) {
+            widths[i] = in.getInt();
+        }
+        font.setWidthArray(widths);
+        Rectangle[] boundingBoxes = new Rectangle[in.getInt()];
+        for (int i = 0; i < boundingBoxes.length; i++) {
+            boundingBoxes[i] = new Rectangle(in.getInt(), in.getInt(), in.getInt(), in.getInt());
+        }
+        font.setBBoxArray(boundingBoxes);
+        CMapSegment[] cmap = new CMapSegment[in.getInt()];
+        for (int i = 0; i < cmap.length; i++) {
+            cmap[i] = new CMapSegment(in.getInt(), in.getInt(), in.getInt());
+        }
+        font.setCMap(cmap);
+        int kerningCount = in.getInt();
+        for (int i = 0; i < kerningCount; i++) {
+            Integer first = in.getInt();
+            int pairCount = in.getInt();
+            Map<Integer, Integer> pairs = new HashMap<Integer, Integer>(pairCount * 2);
+            for (int j = 0; j < pairCount; j++) {
+                pairs.put(in.getInt(), in.getInt());
+            }
+            font.putKerningEntry(first, pairs);
+        }
+        if (useAdvanced && advanced != ADVANCED_ABSENT) {
+            try {
+                OFFontLoader.readAdvancedTables(font, resourceResolver);
+            } catch (IOException ioe) {
+                log.warn("Could not read the advanced typographic tables of " + font.getFontURI()
+                        + ": " + ioe.getMessage());
+                return null;
+            }
+        }
+        return font;
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = s.getBytes("UTF-8");
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(ByteBuffer in) throws IOException {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, "UTF-8");
+    }
+}
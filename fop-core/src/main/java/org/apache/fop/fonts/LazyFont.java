@@ -19,6 +19,7 @@
 
 package org.apache.fop.fonts;
 import java.awt.Rectangle;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.util.List;
@@ -53,9 +54,11 @@ public class LazyFont extends Typeface implements FontDescriptor, Substitutable,
     private final boolean embedded;
     private final InternalResourceResolver resourceResolver;
 
-    private boolean isMetricsLoaded;
+    private volatile boolean isMetricsLoaded;
     private Typeface realFont;
     private FontDescriptor realFontDescriptor;
+    private FontMetricsCache metricsCache;
+    private TypefacePool typefacePool;
 
     /**
      * Main constructor
@@ -95,7 +98,47 @@ public class LazyFont extends Typeface implements FontDescriptor, Substitutable,
         return sbuf.toString();
     }
 
-    private void load(boolean fail) {
+    /**
+     * Sets the cache the font's metrics are looked up in before the font file is parsed,
+     * and stored in after the font file has been parsed.
+     * @param metricsCache the font metrics cache (may be null)
+     */
+    public void setMetricsCache(FontMetricsCache metricsCache) {
+        this.metricsCache = metricsCache;
+    }
+
+    /**
+     * Sets the pool the loaded font is shared through with other rendering runs.
+     * @param typefacePool the typeface pool (may be null)
+     */
+    public void setTypefacePool(TypefacePool typefacePool) {
+        this.typefacePool = typefacePool;
+    }
+
+    /** @return the options the font is loaded with, as used in cache keys */
+    String getLoadingOptions() {
+        return subFontName + '|' + embedded + '|' + embeddingMode + '|' + encodingMode
+                + '|' + useKerning + '|' + simulateStyle + '|' + embedAsType1;
+    }
+
+    private Typeface loadCustomFont() throws IOException {
+        if (metricsCache != null) {
+            CustomFont font = metricsCache.getFont(fontUris.getEmbed(), getLoadingOptions(), useAdvanced,
+                    resourceResolver);
+            if (font != null) {
+                return font;
+            }
+        }
+        CustomFont font = FontLoader.loadFont(fontUris, subFontName, embedded, embeddingMode,
+                encodingMode, useKerning, useAdvanced, resourceResolver, simulateStyle, embedAsType1);
+        if (metricsCache != null) {
+            metricsCache.putFont(fontUris.getEmbed(), getLoadingOptions(), font, useAdvanced,
+                    resourceResolver);
+        }
+        return font;
+    }
+
+    private synchronized void load(boolean fail) {
         if (!isMetricsLoaded) {
             try {
                 if (fontUris.getMetrics() != null) {
@@ -116,8 +159,18 @@ public class LazyFont extends Typeface implements FontDescriptor, Substitutable,
                     if (fontUris.getEmbed() == null) {
                         throw new RuntimeException("Cannot load font. No font URIs available.");
                     }
-                    realFont = FontLoader.loadFont(fontUris, subFontName, embedded, embeddingMode,
-                                encodingMode, useKerning, useAdvanced, resourceResolver, simulateStyle, embedAsType1);
+                    String poolKey = null;
+                    if (typefacePool != null) {
+                        poolKey = TypefacePool.getKey(resourceResolver.resolveFromBase(
+                                fontUris.getEmbed()), getLoadingOptions() + '|' + useAdvanced);
+                        realFont = typefacePool.getFont(poolKey);
+                    }
+                    if (realFont == null) {
+                        realFont = loadCustomFont();
+                        if (poolKey != null) {
+                            realFont = typefacePool.putFont(poolKey, realFont);
+                        }
+                    }
                 }
                 if (realFont instanceof FontDescriptor) {
                     realFontDescriptor = (FontDescriptor) realFont;
@@ -66,6 +66,9 @@ public class MultiByteFont extends CIDFont implements Substitutable, Positionabl
     private GlyphSubstitutionTable gsub;
     private GlyphPositioningTable gpos;
 
+    /* results of glyph substitution and positioning; not shared with copies of this font */
+    private final ShapingCache shapingCache = new ShapingCache();
+
     /* dynamic private use (character) mappings */
     private int numMapped;
     private int numUnmapped;
@@ -101,6 +104,29 @@ public class MultiByteFont extends CIDFont implements Substitutable, Positionabl
         }
     }
 
+    /**
+     * Creates a font sharing the metrics and the advanced typographic tables of the given font,
+     * for use in another rendering run. The glyphs used in the new font are tracked separately.
+     * @param font the font to share the metrics of
+     */
+    public MultiByteFont(MultiByteFont font) {
+        super(font);
+        this.ttcName = font.ttcName;
+        this.encoding = font.encoding;
+        this.defaultWidth = font.defaultWidth;
+        this.cidType = font.cidType;
+        this.gdef = font.gdef;
+        this.gsub = font.gsub;
+        this.gpos = font.gpos;
+        this.boundingBoxes = font.boundingBoxes;
+        this.isOTFFile = font.isOTFFile;
+        if (getEmbeddingMode() != EmbeddingMode.FULL) {
+            cidSet = new CIDSubset(this);
+        } else {
+            cidSet = new CIDFull(this);
+        }
+    }
+
     /** {@inheritDoc} */
     @Override
     public int getDefaultWidth() {
@@ -191,7 +217,7 @@ public class MultiByteFont extends CIDFont implements Substitutable, Positionabl
 
     /** {@inheritDoc} */
     public int getWidth(int i, int size) {
-        if (isEmbeddable()) {
+        if (isEmbeddable() && FontMappingRecorder.getCurrent() == null) {
             int glyphIndex = cidSet.getOriginalGlyphIndex(i);
             return size * width[glyphIndex];
         } else {
@@ -207,7 +233,8 @@ public class MultiByteFont extends CIDFont implements Substitutable, Positionabl
     }
 
     public Rectangle getBoundingBox(int glyphIndex, int size) {
-        int index = isEmbeddable() ? cidSet.getOriginalGlyphIndex(glyphIndex) : glyphIndex;
+        int index = isEmbeddable() && FontMappingRecorder.getCurrent() == null
+                ? cidSet.getOriginalGlyphIndex(glyphIndex) : glyphIndex;
         Rectangle bbox = boundingBoxes[index];
         return new Rectangle(bbox.x * size, bbox.y * size, bbox.width * size, bbox.height * size);
     }
@@ -252,7 +279,11 @@ public class MultiByteFont extends CIDFont implements Substitutable, Positionabl
      */
     protected synchronized void addPrivateUseMapping(int pu, int gi) {
         assert findGlyphIndex(pu) == SingleByteEncoding.NOT_FOUND_CODE_POINT;
-        cmap.add(new CMapSegment(pu, pu, gi));
+        // copied, as the map may be searched on other threads
+        List<CMapSegment> augmented = new ArrayList<CMapSegment>(cmap.size() + 1);
+        augmented.addAll(cmap);
+        augmented.add(new CMapSegment(pu, pu, gi));
+        cmap = augmented;
     }
 
     /**
@@ -309,19 +340,32 @@ public class MultiByteFont extends CIDFont implements Substitutable, Positionabl
      */
     // [TBD] - needs optimization, i.e., change from linear search to binary search
     private int findCharacterFromGlyphIndex(int gi, boolean augment) {
-        int cc = 0;
+        int cc = findCharacterFromGlyphIndex(cmap, gi);
+        if ((cc == 0) && augment) {
+            // private use code points are given out in document order
+            FontMappingRecorder recorder = FontMappingRecorder.getCurrent();
+            if (recorder != null) {
+                recorder.awaitTurn();
+            }
+            synchronized (this) {
+                cc = findCharacterFromGlyphIndex(cmap, gi);
+                if (cc == 0) {
+                    cc = createPrivateUseMapping(gi);
+                }
+            }
+        }
+        return cc;
+    }
+
+    private static int findCharacterFromGlyphIndex(List<CMapSegment> cmap, int gi) {
         for (CMapSegment segment : cmap) {
             int s = segment.getGlyphStartIndex();
             int e = s + (segment.getUnicodeEnd() - segment.getUnicodeStart());
             if ((gi >= s) && (gi <= e)) {
-                cc = segment.getUnicodeStart() + (gi - s);
-                break;
+                return segment.getUnicodeStart() + (gi - s);
             }
         }
-        if ((cc == 0) && augment) {
-            cc = createPrivateUseMapping(gi);
-        }
-        return cc;
+        return 0;
     }
 
     private int findCharacterFromGlyphIndex(int gi) {
@@ -361,6 +405,15 @@ public class MultiByteFont extends CIDFont implements Substitutable, Positionabl
     /** {@inheritDoc} */
     @Override
     public char mapChar(char c) {
+        FontMappingRecorder recorder = FontMappingRecorder.getCurrent();
+        if (recorder != null) {
+            recorder.recordChar(this, c);
+            return (char) findGlyphIndexOrNotFound(c);
+        }
+        return mapCharInSubset(c);
+    }
+
+    private synchronized char mapCharInSubset(char c) {
         notifyMapOperation();
         int glyphIndex = findGlyphIndex(c);
         if (glyphIndex == SingleByteEncoding.NOT_FOUND_CODE_POINT) {
@@ -381,6 +434,15 @@ public class MultiByteFont extends CIDFont implements Substitutable, Positionabl
     /** {@inheritDoc} */
     @Override
     public int mapCodePoint(int cp) {
+        FontMappingRecorder recorder = FontMappingRecorder.getCurrent();
+        if (recorder != null) {
+            recorder.recordCodePoint(this, cp);
+            return (char) findGlyphIndexOrNotFound(cp);
+        }
+        return mapCodePointInSubset(cp);
+    }
+
+    private synchronized int mapCodePointInSubset(int cp) {
         notifyMapOperation();
         int glyphIndex = findGlyphIndex(cp);
         if (glyphIndex == SingleByteEncoding.NOT_FOUND_CODE_POINT) {
@@ -400,6 +462,18 @@ public class MultiByteFont extends CIDFont implements Substitutable, Positionabl
         return (char) glyphIndex;
     }
 
+    /**
+     * Returns the glyph index of a code point in the full font, the way
+     * {@link #mapCodePoint(int)} does before the glyph is added to the subset.
+     */
+    private int findGlyphIndexOrNotFound(int cp) {
+        int glyphIndex = findGlyphIndex(cp);
+        if (glyphIndex == SingleByteEncoding.NOT_FOUND_CODE_POINT && !isOTFFile) {
+            glyphIndex = findGlyphIndex(Typeface.NOT_FOUND);
+        }
+        return glyphIndex;
+    }
+
     /** {@inheritDoc} */
     @Override
     public boolean hasChar(char c) {
@@ -546,23 +620,39 @@ public class MultiByteFont extends CIDFont implements Substitutable, Positionabl
     /** {@inheritDoc} */
     public CharSequence performSubstitution(CharSequence charSequence, String script, String language,
                                             List associations, boolean retainControls) {
-        if (gsub != null) {
-            charSequence = gsub.preProcess(charSequence, script, this, associations);
-            GlyphSequence glyphSequence = charSequenceToGlyphSequence(charSequence, associations);
-            GlyphSequence glyphSequenceSubstituted = gsub.substitute(glyphSequence, script, language);
-            if (associations != null) {
-                associations.clear();
-                associations.addAll(glyphSequenceSubstituted.getAssociations());
-            }
-            if (!retainControls) {
-                glyphSequenceSubstituted = elideControls(glyphSequenceSubstituted);
-            }
-            // may not contains all the characters that were in charSequence.
-            // see: #createPrivateUseMapping(int gi)
-            return mapGlyphsToChars(glyphSequenceSubstituted);
-        } else {
+        if (gsub == null) {
             return charSequence;
+        } else if (associations != null && !associations.isEmpty()) {
+            // the substitution depends on the given associations
+            return substitute(charSequence, script, language, associations, retainControls);
+        }
+        ShapingCache.Key key = new ShapingCache.Key(charSequence, script, language,
+                (associations != null ? 1 : 0) | (retainControls ? 2 : 0));
+        CharSequence substituted = shapingCache.getSubstitution(key, associations);
+        if (substituted == null) {
+            substituted = substitute(charSequence, script, language, associations, retainControls);
+            shapingCache.putSubstitution(key, substituted, associations);
+        } else {
+            notifyMapOperation();
+        }
+        return substituted;
+    }
+
+    private CharSequence substitute(CharSequence charSequence, String script, String language,
+                                    List associations, boolean retainControls) {
+        charSequence = gsub.preProcess(charSequence, script, this, associations);
+        GlyphSequence glyphSequence = charSequenceToGlyphSequence(charSequence, associations);
+        GlyphSequence glyphSequenceSubstituted = gsub.substitute(glyphSequence, script, language);
+        if (associations != null) {
+            associations.clear();
+            associations.addAll(glyphSequenceSubstituted.getAssociations());
+        }
+        if (!retainControls) {
+            glyphSequenceSubstituted = elideControls(glyphSequenceSubstituted);
         }
+        // may not contains all the characters that were in charSequence.
+        // see: #createPrivateUseMapping(int gi)
+        return mapGlyphsToChars(glyphSequenceSubstituted);
     }
 
     public GlyphSequence charSequenceToGlyphSequence(CharSequence charSequence, List associations) {
@@ -606,13 +696,28 @@ public class MultiByteFont extends CIDFont implements Substitutable, Positionabl
     public int[][]
         performPositioning(CharSequence cs, String script, String language, int fontSize) {
         if (gpos != null) {
-            GlyphSequence gs = mapCharsToGlyphs(cs, null);
-            int[][] adjustments = new int [ gs.getGlyphCount() ] [ 4 ];
-            if (gpos.position(gs, script, language, fontSize, this.width, adjustments)) {
-                return scaleAdjustments(adjustments, fontSize);
+            ShapingCache.Key key = new ShapingCache.Key(cs, script, language, fontSize);
+            int[][] adjustments = shapingCache.getAdjustments(key);
+            if (adjustments == null) {
+                adjustments = position(cs, script, language, fontSize);
+                shapingCache.putAdjustments(key, adjustments);
+            } else if (adjustments == ShapingCache.NO_ADJUSTMENTS) {
+                notifyMapOperation();
+                adjustments = null;
             } else {
-                return null;
+                notifyMapOperation();
             }
+            return adjustments;
+        } else {
+            return null;
+        }
+    }
+
+    private int[][] position(CharSequence cs, String script, String language, int fontSize) {
+        GlyphSequence gs = mapCharsToGlyphs(cs, null);
+        int[][] adjustments = new int [ gs.getGlyphCount() ] [ 4 ];
+        if (gpos.position(gs, script, language, fontSize, this.width, adjustments)) {
+            return scaleAdjustments(adjustments, fontSize);
         } else {
             return null;
         }
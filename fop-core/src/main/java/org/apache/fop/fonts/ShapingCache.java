@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fonts;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.fop.complexscripts.util.CharAssociation;
+
+/**
+ * A cache of the results of complex script shaping, that is, of glyph substitution and glyph
+ * positioning, for one font instance. Documents repeat the same words many times, and shaping
+ * a word takes a walk over all the lookups of the font's GSUB and GPOS tables that apply to
+ * the word's script and language, so words that were shaped before are not shaped again.
+ * <p>
+ * The results are keyed by the text, script and language, which together with the font
+ * determine the features applied, and by the other parameters the results depend on. Each
+ * font instance has a cache of its own, since substitution may create private use mappings
+ * for glyphs that have no character, and these mappings belong to the font instance. The
+ * cache is safe for use by several threads; a cache that is full is cleared.
+ */
+final class ShapingCache {
+
+    /** Stands for the positioning of text that needs no adjustments. */
+    static final int[][] NO_ADJUSTMENTS = new int[0][];
+
+    private static final int MAX_SIZE = 2048;
+
+    private final ConcurrentMap<Key, Substitution> substitutions = new ConcurrentHashMap<Key, Substitution>();
+
+    private final ConcurrentMap<Key, int[][]> adjustments = new ConcurrentHashMap<Key, int[][]>();
+
+    /**
+     * Returns the cached substitution of a text.
+     * @param key the key of the text and shaping parameters
+     * @param associations the list to which the character associations of the substituted text
+     *          are added, or null if they are not needed
+     * @return the substituted text, or null if it is not in the cache
+     */
+    CharSequence getSubstitution(Key key, List associations) {
+        Substitution substitution = substitutions.get(key);
+        if (substitution == null) {
+            return null;
+        }
+        if (associations != null) {
+            for (CharAssociation association : substitution.associations) {
+                associations.add(association.clone());
+            }
+        }
+        return substitution.text;
+    }
+
+    /**
+     * Caches the substitution of a text.
+     * @param key the key of the text and shaping parameters
+     * @param text the substituted text
+     * @param associations the character associations of the substituted text, or null
+     */
+    void putSubstitution(Key key, CharSequence text, List associations) {
+        CharAssociation[] copies = new CharAssociation[associations != null ? associations.size() : 0];
+        for (int i = 0; i < copies.length; i++) {
+            copies[i] = (CharAssociation) ((CharAssociation) associations.get(i)).clone();
+        }
+        if (substitutions.size() >= MAX_SIZE) {
+            substitutions.clear();
+        }
+        substitutions.put(key, new Substitution(text.toString(), copies));
+    }
+
+    /**
+     * Returns a copy of the cached glyph position adjustments of a text.
+     * @param key the key of the text and shaping parameters
+     * @return the adjustments, {@link #NO_ADJUSTMENTS} if the text needs none, or null if they
+     *          are not in the cache
+     */
+    int[][] getAdjustments(Key key) {
+        int[][] cached = adjustments.get(key);
+        return (cached == null || cached == NO_ADJUSTMENTS ? cached : copy(cached));
+    }
+
+    /**
+     * Caches the glyph position adjustments of a text.
+     * @param key the key of the text and shaping parameters
+     * @param gpa the adjustments, or null if the text needs none
+     */
+    void putAdjustments(Key key, int[][] gpa) {
+        if (adjustments.size() >= MAX_SIZE) {
+            adjustments.clear();
+        }
+        adjustments.put(key, gpa != null ? copy(gpa) : NO_ADJUSTMENTS);
+    }
+
+    private static int[][] copy(int[][] gpa) {
+        int[][] copy = new int[gpa.length][];
+        for (int i = 0; i < gpa.length; i++) {
+            copy[i] = gpa[i].clone();
+        }
+        return copy;
+    }
+
+    private static final class Substitution {
+
+        private final String text;
+
+        private final CharAssociation[] associations;
+
+        Substitution(String text, CharAssociation[] associations) {
+            this.text = text;
+            this.associations = associations;
+        }
+    }
+
+    /** The text and parameters a shaping result depends on. */
+    static final class Key {
+
+        private final String text;
+
+        private final String script;
+
+        private final String language;
+
+        private final int options;
+
+        private final int hash;
+
+        /**
+         * Creates a key.
+         * @param text the text
+         * @param script the script
+         * @param language the language
+         * @param options the other parameters the result depends on, like the font size
+         */
+        Key(CharSequence text, String script, String language, int options) {
+            this.text = text.toString();
+            this.script = script;
+            this.language = language;
+            this.options = options;
+            int h = this.text.hashCode();
+            h = 31 * h + (script != null ? script.hashCode() : 0);
+            h = 31 * h + (language != null ? language.hashCode() : 0);
+            this.hash = 31 * h + options;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash
+                    && options == other.options
+                    && text.equals(other.text)
+                    && (script == null ? other.script == null : script.equals(other.script))
+                    && (language == null ? other.language == null : language.equals(other.language));
+        }
+    }
+}
@@ -113,17 +113,19 @@ public class SingleByteFont extends CustomFont {
                 return size * width[idx];
             }
         } else if (this.additionalEncodings != null) {
-            int encodingIndex = (i / 256) - 1;
-            SimpleSingleByteEncoding encoding = getAdditionalEncoding(encodingIndex);
-            int codePoint = i % 256;
-            NamedCharacter nc = encoding.getCharacterForIndex(codePoint);
-            UnencodedCharacter uc
-                = this.unencodedCharacters.get(nc.getSingleUnicodeValue());
-            return size * uc.getWidth();
+            return size * getUnencodedCharacter(i).getWidth();
         }
         return 0;
     }
 
+    private synchronized UnencodedCharacter getUnencodedCharacter(int i) {
+        int encodingIndex = (i / 256) - 1;
+        SimpleSingleByteEncoding encoding = getAdditionalEncoding(encodingIndex);
+        int codePoint = i % 256;
+        NamedCharacter nc = encoding.getCharacterForIndex(codePoint);
+        return this.unencodedCharacters.get(nc.getSingleUnicodeValue());
+    }
+
     /** {@inheritDoc} */
     public int[] getWidths() {
         int[] arr = new int[width.length];
@@ -139,12 +141,7 @@ public class SingleByteFont extends CustomFont {
                 bbox =  boundingBoxes[idx];
             }
         } else if (this.additionalEncodings != null) {
-            int encodingIndex = (glyphIndex / 256) - 1;
-            SimpleSingleByteEncoding encoding = getAdditionalEncoding(encodingIndex);
-            int codePoint = glyphIndex % 256;
-            NamedCharacter nc = encoding.getCharacterForIndex(codePoint);
-            UnencodedCharacter uc = this.unencodedCharacters.get(nc.getSingleUnicodeValue());
-            bbox = uc.getBBox();
+            bbox = getUnencodedCharacter(glyphIndex).getBBox();
         }
         return bbox == null ? null : new Rectangle(bbox.x * size, bbox.y * size, bbox.width * size, bbox.height * size);
     }
@@ -206,7 +203,31 @@ public class SingleByteFont extends CustomFont {
     /** {@inheritDoc} */
     @Override
     public char mapChar(char c) {
-        notifyMapOperation();
+        FontMappingRecorder recorder = FontMappingRecorder.getCurrent();
+        if (recorder == null) {
+            return mapChar(c, false);
+        }
+        char d = mapping.mapChar(c);
+        if (d == SingleByteEncoding.NOT_FOUND_CODE_POINT) {
+            // characters outside the encoding are given code points in document order
+            recorder.awaitTurn();
+            d = mapChar(c, true);
+        }
+        recorder.recordChar(this, c);
+        return d;
+    }
+
+    /**
+     * Maps a character.
+     * @param c the character
+     * @param recorded true if the mapping is recorded and performed later, in which case
+     * the character is neither added to the subset nor reported missing
+     * @return the mapped character
+     */
+    private synchronized char mapChar(char c, boolean recorded) {
+        if (!recorded) {
+            notifyMapOperation();
+        }
         char d = lookupChar(c);
         if (d == SingleByteEncoding.NOT_FOUND_CODE_POINT) {
             // Check for alternative
@@ -214,11 +235,13 @@ public class SingleByteFont extends CustomFont {
             if (d != SingleByteEncoding.NOT_FOUND_CODE_POINT) {
                 return d;
             } else {
-                this.warnMissingGlyph(c);
+                if (!recorded) {
+                    this.warnMissingGlyph(c);
+                }
                 return Typeface.NOT_FOUND;
             }
         }
-        if (isEmbeddable() && isSubset()) {
+        if (!recorded && isEmbeddable() && isSubset()) {
             mapChar(d, c);
         }
         return d;
@@ -256,8 +279,16 @@ public class SingleByteFont extends CustomFont {
         if (d != SingleByteEncoding.NOT_FOUND_CODE_POINT) {
             return true;
         }
+        FontMappingRecorder recorder = FontMappingRecorder.getCurrent();
+        if (recorder != null) {
+            recorder.awaitTurn();
+        }
+        return hasUnencodedChar(c);
+    }
+
+    private synchronized boolean hasUnencodedChar(char c) {
         //Check unencoded characters which are available in the font by character name
-        d = mapUnencodedChar(c);
+        char d = mapUnencodedChar(c);
         if (d != SingleByteEncoding.NOT_FOUND_CODE_POINT) {
             return true;
         }
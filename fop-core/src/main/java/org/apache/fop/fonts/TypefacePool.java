@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fonts;
+
+import java.io.File;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A thread-safe pool of loaded fonts shared by all rendering runs of a {@link FontManager}.
+ * A font file is loaded only once; every run gets its own lightweight font instance that
+ * shares the font's metrics, kerning and advanced typographic tables with the pooled font,
+ * while the glyphs used in the run are tracked per instance. The lookup caches of the
+ * advanced typographic tables are thread-safe, so runs may use them concurrently.
+ * <p>
+ * Only CID fonts ({@link MultiByteFont}) are pooled; other fonts are loaded for every run.
+ * The pool holds a limited number of fonts and drops the least recently used one when it
+ * is full. A font file that has changed on disk is loaded anew.
+ */
+public final class TypefacePool {
+
+    /** The default maximum number of pooled fonts. */
+    public static final int DEFAULT_MAX_SIZE = 32;
+
+    private final Map<String, MultiByteFont> fonts;
+
+    /**
+     * Creates a pool holding at most {@link #DEFAULT_MAX_SIZE} fonts.
+     */
+    public TypefacePool() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Creates a pool.
+     * @param maxSize the maximum number of pooled fonts
+     */
+    public TypefacePool(final int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        fonts = new LinkedHashMap<String, MultiByteFont>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, MultiByteFont> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the key identifying a font file and the options it is loaded with. The
+     * modification time of local font files is part of the key.
+     * @param embedURI the resolved URI of the font file
+     * @param loadingOptions the options the font is loaded with
+     * @return the key
+     */
+    public static String getKey(URI embedURI, String loadingOptions) {
+        StringBuilder key = new StringBuilder(embedURI.toASCIIString());
+        key.append('|').append(loadingOptions);
+        if ("file".equals(embedURI.getScheme())) {
+            try {
+                key.append('|').append(new File(embedURI).lastModified());
+            } catch (IllegalArgumentException e) {
+                // not a hierarchical file URI
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Returns a new instance of the pooled font with the given key for use in a rendering run.
+     * @param key the key identifying the font file and its loading options
+     * @return the font instance, or null if no such font has been pooled
+     */
+    public CustomFont getFont(String key) {
+        MultiByteFont font;
+        synchronized (fonts) {
+            font = fonts.get(key);
+        }
+        return (font != null ? new MultiByteFont(font) : null);
+    }
+
+    /**
+     * Adds a font that has just been loaded to the pool, unless it can't be pooled.
+     * @param key the key identifying the font file and its loading options
+     * @param font the loaded font, which must not have been used yet
+     * @return the font instance to use in place of the given font
+     */
+    public Typeface putFont(String key, Typeface font) {
+        if (font == null || font.getClass() != MultiByteFont.class) {
+            return font;
+        }
+        MultiByteFont pooled;
+        synchronized (fonts) {
+            pooled = fonts.get(key);
+            if (pooled == null) {
+                pooled = (MultiByteFont) font;
+                fonts.put(key, pooled);
+            }
+        }
+        return new MultiByteFont(pooled);
+    }
+
+    /**
+     * Returns the number of pooled fonts.
+     * @return the number of pooled fonts
+     */
+    public int size() {
+        synchronized (fonts) {
+            return fonts.size();
+        }
+    }
+
+    /**
+     * Removes all fonts from the pool.
+     */
+    public void clear() {
+        synchronized (fonts) {
+            fonts.clear();
+        }
+    }
+}
@@ -19,14 +19,12 @@
 
 package org.apache.fop.fonts.autodetect;
 
-import java.io.InputStream;
 import java.net.URI;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import java.util.regex.Pattern;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -43,6 +41,7 @@ import org.apache.fop.fonts.FontTriplet;
 import org.apache.fop.fonts.FontUris;
 import org.apache.fop.fonts.FontUtil;
 import org.apache.fop.fonts.MultiByteFont;
+import org.apache.fop.fonts.truetype.FontFileBufferPool;
 import org.apache.fop.fonts.truetype.FontFileReader;
 import org.apache.fop.fonts.truetype.OFFontLoader;
 import org.apache.fop.fonts.truetype.TTFFile;
@@ -197,11 +196,9 @@ public class FontInfoFinder {
         if (fontURI.toASCIIString().toLowerCase().endsWith(".ttc")) {
             // Get a list of the TTC Font names
             List<String> ttcNames = null;
-            InputStream in = null;
             try {
-                in = resourceResolver.getResource(fontURI);
                 TTFFile ttf = new TTFFile(false, false);
-                FontFileReader reader = new FontFileReader(in);
+                FontFileReader reader = FontFileBufferPool.getReader(fontURI, resourceResolver);
                 ttcNames = ttf.getTTCnames(reader);
             } catch (Exception e) {
                 if (this.eventListener != null) {
@@ -209,8 +206,6 @@ public class FontInfoFinder {
                             fontURI.toASCIIString(), e);
                 }
                 return null;
-            } finally {
-                IOUtils.closeQuietly(in);
             }
 
             List<EmbedFontInfo> embedFontInfoList = new java.util.ArrayList<EmbedFontInfo>();
@@ -221,10 +216,7 @@ public class FontInfoFinder {
                     log.debug("Loading " + fontName);
                 }
                 try {
-                    OFFontLoader ttfLoader = new OFFontLoader(fontURI, fontName, true,
-                            EmbeddingMode.AUTO, EncodingMode.AUTO, useKerning, useAdvanced,
-                            resourceResolver, false, false);
-                    customFont = ttfLoader.getFont();
+                    customFont = OFFontLoader.readFontNames(fontURI, fontName, resourceResolver);
                     if (this.eventListener != null) {
                         customFont.setEventListener(this.eventListener);
                     }
@@ -249,9 +241,14 @@ public class FontInfoFinder {
         } else {
             // The normal case
             try {
-                FontUris fontUris = new FontUris(fontURI, null);
-                customFont = FontLoader.loadFont(fontUris, null, true, EmbeddingMode.AUTO, EncodingMode.AUTO,
-                        useKerning, useAdvanced, resourceResolver, false, false);
+                if (fontURI.toASCIIString().toLowerCase().endsWith(".pfb")) {
+                    FontUris fontUris = new FontUris(fontURI, null);
+                    customFont = FontLoader.loadFont(fontUris, null, true, EmbeddingMode.AUTO,
+                            EncodingMode.AUTO, useKerning, useAdvanced, resourceResolver, false, false);
+                } else {
+                    // only the names are needed here, the font is fully loaded when it's used
+                    customFont = OFFontLoader.readFontNames(fontURI, null, resourceResolver);
+                }
                 if (this.eventListener != null) {
                     customFont.setEventListener(this.eventListener);
                 }
@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fonts.truetype;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.apache.fop.apps.io.InternalResourceResolver;
+
+/**
+ * Provides {@link FontFileReader} instances for font files. A font file is read through the
+ * resource resolver once and its content is shared by all readers obtained for the same URI
+ * and resolver while any of them is in use, so large fonts such as CJK TrueType collections
+ * are not held several times on the heap. The readers never modify the shared content.
+ * <p>
+ * Local font files can instead be memory-mapped, with the mapping shared by all readers of the
+ * file in the JVM, by setting the system property {@value #MAP_FONT_FILES_PROPERTY} to
+ * "true". Mapped files are opened directly and not through the resource resolver, so this
+ * must not be enabled if the resource resolver restricts or redirects access to font files.
+ */
+public final class FontFileBufferPool {
+
+    /** System property enabling memory-mapping of local font files. */
+    public static final String MAP_FONT_FILES_PROPERTY = "org.apache.fop.fonts.map-font-files";
+
+    private static final Log LOG = LogFactory.getLog(FontFileBufferPool.class);
+
+    private static final boolean MAP_FONT_FILES = Boolean.getBoolean(MAP_FONT_FILES_PROPERTY);
+
+    /** Mapped buffers by file; an entry lives as long as a reader uses its buffer. */
+    private static final Map<String, Reference<ByteBuffer>> BUFFERS
+            = new HashMap<String, Reference<ByteBuffer>>();
+
+    /** Font file contents read through a resolver, by resolver and URI. */
+    private static final Map<InternalResourceResolver, Map<URI, Reference<ByteBuffer>>> RESOLVED
+            = new WeakHashMap<InternalResourceResolver, Map<URI, Reference<ByteBuffer>>>();
+
+    private FontFileBufferPool() {
+    }
+
+    /**
+     * Returns a reader for the given font file.
+     *
+     * @param fontFileURI the font file URI
+     * @param resourceResolver the resolver used to resolve and read the font file
+     * @return the font file reader, or null if the resolver doesn't provide the font file
+     * @throws IOException if the font file can't be read
+     */
+    public static FontFileReader getReader(URI fontFileURI, InternalResourceResolver resourceResolver)
+            throws IOException {
+        if (MAP_FONT_FILES) {
+            File file = toFile(resourceResolver.resolveFromBase(fontFileURI));
+            if (file != null) {
+                try {
+                    return new FontFileReader(getBuffer(file));
+                } catch (IOException ioe) {
+                    LOG.debug("Could not map font file " + file + ", reading it instead", ioe);
+                }
+            }
+        }
+        ByteBuffer buffer = getBuffer(fontFileURI, resourceResolver);
+        return buffer != null ? new FontFileReader(buffer) : null;
+    }
+
+    /**
+     * Returns the shared content of the given font file, reading it through the resolver if
+     * no reader currently holds it. The content must not be modified.
+     * @param fontFileURI the font file URI
+     * @param resourceResolver the resolver used to resolve and read the font file
+     * @return the buffer, or null if the resolver doesn't provide the font file
+     * @throws IOException if the font file can't be read
+     */
+    static ByteBuffer getBuffer(URI fontFileURI, InternalResourceResolver resourceResolver)
+            throws IOException {
+        URI uri = resourceResolver.resolveFromBase(fontFileURI);
+        ByteBuffer buffer = getResolvedBuffer(resourceResolver, uri);
+        if (buffer != null) {
+            return buffer;
+        }
+        InputStream in = resourceResolver.getResource(fontFileURI);
+        if (in == null) {
+            return null;
+        }
+        try {
+            buffer = ByteBuffer.wrap(IOUtils.toByteArray(in));
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+        return putResolvedBuffer(resourceResolver, uri, buffer);
+    }
+
+    private static synchronized ByteBuffer getResolvedBuffer(InternalResourceResolver resourceResolver,
+            URI uri) {
+        Map<URI, Reference<ByteBuffer>> buffers = RESOLVED.get(resourceResolver);
+        Reference<ByteBuffer> ref = (buffers != null ? buffers.get(uri) : null);
+        return ref != null ? ref.get() : null;
+    }
+
+    private static synchronized ByteBuffer putResolvedBuffer(InternalResourceResolver resourceResolver,
+            URI uri, ByteBuffer buffer) {
+        Map<URI, Reference<ByteBuffer>> buffers = RESOLVED.get(resourceResolver);
+        if (buffers == null) {
+            buffers = new HashMap<URI, Reference<ByteBuffer>>();
+            RESOLVED.put(resourceResolver, buffers);
+        }
+        Reference<ByteBuffer> ref = buffers.get(uri);
+        ByteBuffer current = (ref != null ? ref.get() : null);
+        if (current != null) {
+            // read concurrently by another thread
+            return current;
+        }
+        purgeClearedEntries(buffers);
+        buffers.put(uri, new WeakReference<ByteBuffer>(buffer));
+        return buffer;
+    }
+
+    private static File toFile(URI uri) {
+        if (!"file".equals(uri.getScheme()) || uri.isOpaque()) {
+            return null;
+        }
+        try {
+            File file = new File(uri);
+            return file.isFile() ? file : null;
+        } catch (IllegalArgumentException iae) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the shared read-only mapping of the given file, mapping it if no reader currently
+     * holds it. The file's size and modification time are part of the key so a font file that
+     * changed on disk is mapped anew.
+     * @param file the font file
+     * @return the read-only buffer
+     * @throws IOException if the file can't be mapped
+     */
+    static synchronized ByteBuffer getBuffer(File file) throws IOException {
+        String key = file.getAbsolutePath() + '|' + file.length() + '|' + file.lastModified();
+        Reference<ByteBuffer> ref = BUFFERS.get(key);
+        ByteBuffer buffer = (ref != null ? ref.get() : null);
+        if (buffer == null) {
+            purgeClearedEntries(BUFFERS);
+            buffer = map(file);
+            BUFFERS.put(key, new WeakReference<ByteBuffer>(buffer));
+        }
+        return buffer;
+    }
+
+    private static ByteBuffer map(File file) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    private static void purgeClearedEntries(Map<?, Reference<ByteBuffer>> buffers) {
+        Iterator<Reference<ByteBuffer>> iter = buffers.values().iterator();
+        while (iter.hasNext()) {
+            if (iter.next().get() == null) {
+                iter.remove();
+            }
+        }
+    }
+}
@@ -21,18 +21,26 @@ package org.apache.fop.fonts.truetype;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import org.apache.commons.io.IOUtils;
 
 /**
- * Reads a TrueType font file into a byte array and
- * provides file like functions for array access.
+ * Reads a TrueType font file into a byte buffer and
+ * provides file like functions for buffer access.
+ * <p>
+ * The buffer may be shared with other readers (for example the font file content pooled by
+ * {@link FontFileBufferPool}). Such a buffer is never modified: it is copied the first time
+ * this reader has to write to it. The reader holds on to the buffer it was created on, so a
+ * pooled buffer stays shared for as long as the reader is in use.
  */
 public class FontFileReader {
 
     private final int fsize; // file size
     private int current;    // current position in file
-    private final byte[] file;
+    private ByteBuffer file;
+    private boolean shared; // true if the buffer must not be written to
+    private final ByteBuffer source; // the buffer given to the constructor
 
     /**
      * Constructor
@@ -41,8 +49,24 @@ public class FontFileReader {
      * @throws IOException In case of an I/O problem
      */
     public FontFileReader(InputStream in) throws IOException {
-        this.file = IOUtils.toByteArray(in);
-        this.fsize = this.file.length;
+        this(ByteBuffer.wrap(IOUtils.toByteArray(in)), null);
+    }
+
+    /**
+     * Creates a reader on the remaining content of the given buffer without copying it.
+     * The buffer's content is left untouched; its position and limit are not changed.
+     *
+     * @param buffer the font file content
+     */
+    public FontFileReader(ByteBuffer buffer) {
+        this(buffer.slice(), buffer);
+    }
+
+    private FontFileReader(ByteBuffer file, ByteBuffer source) {
+        this.file = file;
+        this.source = source;
+        this.shared = (source != null);
+        this.fsize = file.remaining();
         this.current = 0;
     }
 
@@ -100,7 +124,7 @@ public class FontFileReader {
             throw new java.io.EOFException("Reached EOF, file size=" + fsize);
         }
 
-        final byte ret = file[current++];
+        final byte ret = file.get(current++);
         return ret;
     }
 
@@ -167,8 +191,12 @@ public class FontFileReader {
         final byte b1 = (byte)((val >> 8) & 0xff);
         final byte b2 = (byte)(val & 0xff);
         final int fileIndex = (int) pos;
-        file[fileIndex] = b1;
-        file[fileIndex + 1] = b2;
+        if (shared || file.isReadOnly()) {
+            file = ByteBuffer.wrap(copyBytes(0, fsize));
+            shared = false;
+        }
+        file.put(fileIndex, b1);
+        file.put(fileIndex + 1, b2);
     }
 
     /**
@@ -239,15 +267,14 @@ public class FontFileReader {
      */
     public final String readTTFString() throws IOException {
         int i = current;
-        while (file[i++] != 0) {
+        while (file.get(i++) != 0) {
             if (i >= fsize) {
                 throw new java.io.EOFException("Reached EOF, file size="
                                                + fsize);
             }
         }
 
-        byte[] tmp = new byte[i - current - 1];
-        System.arraycopy(file, current, tmp, 0, i - current - 1);
+        byte[] tmp = copyBytes(current, i - current - 1);
         return new String(tmp, "ISO-8859-1");
     }
 
@@ -264,8 +291,7 @@ public class FontFileReader {
             throw new java.io.EOFException("Reached EOF, file size=" + fsize);
         }
 
-        byte[] tmp = new byte[len];
-        System.arraycopy(file, current, tmp, 0, len);
+        byte[] tmp = copyBytes(current, len);
         current += len;
         final String encoding;
         if ((tmp.length > 0) && (tmp[0] == 0)) {
@@ -289,8 +315,7 @@ public class FontFileReader {
             throw new java.io.EOFException("Reached EOF, file size=" + fsize);
         }
 
-        byte[] tmp = new byte[len];
-        System.arraycopy(file, current, tmp, 0, len);
+        byte[] tmp = copyBytes(current, len);
         current += len;
         final String encoding;
         encoding = "UTF-16BE"; //Use this for all known encoding IDs for now
@@ -311,15 +336,42 @@ public class FontFileReader {
             throw new java.io.IOException("Reached EOF");
         }
 
+        return copyBytes(offset, length);
+    }
+
+    private byte[] copyBytes(int offset, int length) {
         byte[] ret = new byte[length];
-        System.arraycopy(file, offset, ret, 0, length);
+        ByteBuffer src = file.duplicate();
+        src.position(offset);
+        src.get(ret);
         return ret;
     }
+
+    /**
+     * Returns a read-only view of the file content, from offset 0 to the file size. The
+     * content isn't copied, so this is the way to read large parts of a shared buffer.
+     * The view's position and limit are independent of this reader's.
+     * @return the file content
+     */
+    public ByteBuffer getByteBuffer() {
+        ByteBuffer view = file.asReadOnlyBuffer();
+        view.clear();
+        return view;
+    }
+
     /**
-     * Returns the full byte array representation of the file.
+     * Returns the full byte array representation of the file. The array belongs to this
+     * reader: if its buffer is shared with other readers or isn't backed by an accessible
+     * array (e.g. a memory-mapped file), the content is copied once and the reader continues
+     * on the copy. Use {@link #getByteBuffer()} or {@link #getBytes(int, int)} to read
+     * the content without copying all of it.
      * @return byte array.
      */
     public byte[] getAllBytes() {
-        return file;
+        if (shared || !file.hasArray() || file.arrayOffset() != 0 || file.array().length != fsize) {
+            file = ByteBuffer.wrap(copyBytes(0, fsize));
+            shared = false;
+        }
+        return file.array();
     }
 }
@@ -21,13 +21,10 @@ package org.apache.fop.fonts.truetype;
 
 import java.awt.Rectangle;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.URI;
 import java.util.Map;
 import java.util.Set;
 
-import org.apache.commons.io.IOUtils;
-
 import org.apache.fop.apps.io.InternalResourceResolver;
 import org.apache.fop.fonts.CFFToType1Font;
 import org.apache.fop.fonts.CIDFontType;
@@ -108,21 +105,16 @@ public class OFFontLoader extends FontLoader {
      * @throws IOException if an I/O error occurs
      */
     private void read(String ttcFontName) throws IOException {
-        InputStream in = resourceResolver.getResource(this.fontFileURI);
-        try {
-            FontFileReader reader = new FontFileReader(in);
-            String header = readHeader(reader);
-            boolean isCFF = header.equals("OTTO");
-            OpenFont otf = (isCFF) ? new OTFFile(useKerning, useAdvanced) : new TTFFile(useKerning, useAdvanced);
-            boolean supported = otf.readFont(reader, header, ttcFontName);
-            if (!supported) {
-                throw new IOException("The font does not have a Unicode cmap table: " + fontFileURI);
-            }
-            buildFont(otf, ttcFontName, embedAsType1);
-            loaded = true;
-        } finally {
-            IOUtils.closeQuietly(in);
+        FontFileReader reader = FontFileBufferPool.getReader(this.fontFileURI, resourceResolver);
+        String header = readHeader(reader);
+        boolean isCFF = header.equals("OTTO");
+        OpenFont otf = (isCFF) ? new OTFFile(useKerning, useAdvanced) : new TTFFile(useKerning, useAdvanced);
+        boolean supported = otf.readFont(reader, header, ttcFontName);
+        if (!supported) {
+            throw new IOException("The font does not have a Unicode cmap table: " + fontFileURI);
         }
+        buildFont(otf, ttcFontName, embedAsType1);
+        loaded = true;
     }
 
     public static String readHeader(FontFileReader fontFile) throws IOException {
@@ -133,6 +125,68 @@ public class OFFontLoader extends FontLoader {
         return null;
     }
 
+    /**
+     * Reads just enough of a font file to identify the font, for font auto-detection (see
+     * {@link OpenFont#readFontNames(FontFileReader, String, String)}). The returned font
+     * carries the font's names, italic angle and weight but no metrics, so it must not be
+     * used for layout or rendering.
+     * @param fontFileURI the URI representing the font file
+     * @param subFontName the sub-fontname of a font in a TrueType Collection (or null for normal
+     *          TrueType fonts)
+     * @param resourceResolver the resource resolver for font URI resolution
+     * @return the font identified by its names
+     * @throws IOException if an I/O error occurs or the font is unsupported
+     */
+    public static CustomFont readFontNames(URI fontFileURI, String subFontName,
+            InternalResourceResolver resourceResolver) throws IOException {
+        FontFileReader reader = FontFileBufferPool.getReader(fontFileURI, resourceResolver);
+        String header = readHeader(reader);
+        boolean isCFF = header.equals("OTTO");
+        OpenFont otf = (isCFF) ? new OTFFile(false, false) : new TTFFile(false, false);
+        if (!otf.readFontNames(reader, header, subFontName)) {
+            throw new IOException("The font does not have a Unicode cmap table: " + fontFileURI);
+        }
+        if (!otf.isEmbeddable()) {
+            throw new RuntimeException("The font " + fontFileURI + " is not embeddable due to a"
+                    + " licensing restriction.");
+        }
+        MultiByteFont font = new MultiByteFont(resourceResolver, EmbeddingMode.SUBSET);
+        font.setIsOTFFile(isCFF);
+        font.setTTCName(subFontName);
+        font.setFontURI(fontFileURI);
+        if (!otf.getEmbedFontName().equals("")) {
+            font.setFontName(otf.getEmbedFontName());
+        } else {
+            font.setFontName(otf.getPostScriptName());
+        }
+        font.setFullName(otf.getFullName());
+        font.setFamilyNames(otf.getFamilyNames());
+        font.setFontSubFamilyName(otf.getSubFamilyName());
+        font.setItalicAngle(Integer.parseInt(otf.getItalicAngle()));
+        font.setWeight(otf.getWeightClass());
+        return font;
+    }
+
+    /**
+     * Reads the advanced typographic tables (GDEF, GSUB and GPOS) of a font whose metrics
+     * were obtained otherwise, for instance from a {@link org.apache.fop.fonts.FontMetricsCache},
+     * and sets them on the font. None of the other tables is read.
+     * @param font the font, which must not have advanced typographic tables yet
+     * @param resourceResolver the resource resolver for font URI resolution
+     * @throws IOException if an I/O error occurs
+     */
+    public static void readAdvancedTables(MultiByteFont font, InternalResourceResolver resourceResolver)
+            throws IOException {
+        FontFileReader reader = FontFileBufferPool.getReader(font.getFontURI(), resourceResolver);
+        String header = readHeader(reader);
+        boolean isCFF = header.equals("OTTO");
+        OpenFont otf = (isCFF) ? new OTFFile(false, true) : new TTFFile(false, true);
+        otf.readAdvancedTables(reader, header, font.getTTCName(), font.getFullName());
+        font.setGDEF(otf.getGDEF());
+        font.setGSUB(otf.getGSUB());
+        font.setGPOS(otf.getGPOS());
+    }
+
     private void buildFont(OpenFont otf, String ttcFontName, boolean embedAsType1) {
         boolean isCid = this.embedded;
         if (this.encodingMode == EncodingMode.SINGLE_BYTE) {
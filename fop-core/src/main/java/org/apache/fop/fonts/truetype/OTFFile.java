@@ -20,15 +20,18 @@
 package org.apache.fop.fonts.truetype;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.List;
 
-import org.apache.fontbox.cff.CFFDataInput;
 import org.apache.fontbox.cff.CFFFont;
 import org.apache.fontbox.cff.CFFParser;
 import org.apache.fontbox.cff.CFFType1Font;
 
 public class OTFFile extends OpenFont {
 
+    /** The "CFF " table tag. */
+    private static final int CFF_TAG = 0x43464620;
+
     protected CFFFont fileFont;
 
     public OTFFile() throws IOException {
@@ -100,7 +103,8 @@ public class OTFFile extends OpenFont {
         fontFile = in;
         fontFile.seekSet(0);
         CFFParser parser = new CFFParser();
-        fileFont = parser.parse(in.getAllBytes()).get(0);
+        // the parser only needs the CFF table, not a copy of the whole file
+        fileFont = parser.parse(getCFFData(in)).get(0);
         embedFontName = fileFont.getName();
     }
 
@@ -118,33 +122,22 @@ public class OTFFile extends OpenFont {
     /**
      * Reads the CFFData from a given font file
      * @param fontFile The font file being read
-     * @return The byte data found in the CFF table
+     * @return A copy of the byte data found in the CFF table, or of the whole file if
+     * there is no such table
      */
     public static byte[] getCFFData(FontFileReader fontFile) throws IOException {
-        byte[] cff = fontFile.getAllBytes();
-        CFFDataInput input = new CFFDataInput(fontFile.getAllBytes());
-        input.readBytes(4); //OTTO
-        short numTables = input.readShort();
-        input.readShort(); //searchRange
-        input.readShort(); //entrySelector
-        input.readShort(); //rangeShift
-
-        for (int q = 0; q < numTables; q++) {
-            String tagName = new String(input.readBytes(4));
-            readLong(input); //Checksum
-            long offset = readLong(input);
-            long length = readLong(input);
-            if (tagName.equals("CFF ")) {
-                cff = new byte[(int)length];
-                System.arraycopy(fontFile.getAllBytes(), (int)offset, cff, 0, cff.length);
-                break;
+        // the table directory is read in place, only the table is copied
+        ByteBuffer file = fontFile.getByteBuffer();
+        int numTables = (file.limit() >= 12 ? file.getShort(4) & 0xFFFF : 0); //after OTTO
+        for (int q = 0; q < numTables && 12 + (q + 1) * 16 <= file.limit(); q++) {
+            int entry = 12 + q * 16; //after the searchRange, entrySelector and rangeShift
+            if (file.getInt(entry) == CFF_TAG) {
+                long offset = file.getInt(entry + 8) & 0xFFFFFFFFL; //after the checksum
+                long length = file.getInt(entry + 12) & 0xFFFFFFFFL;
+                return fontFile.getBytes((int) offset, (int) length);
             }
         }
-        return cff;
-    }
-
-    private static long readLong(CFFDataInput input) throws IOException {
-        return (input.readCard16() << 16) | input.readCard16();
+        return fontFile.getBytes(0, fontFile.getFileSize());
     }
 
     public boolean isType1() {
@@ -371,6 +371,17 @@ public abstract class OpenFont {
      * @return pdf unit
      */
     public int convertTTFUnit2PDFUnit(int n) {
+        return convertTTFUnit2PDFUnit(n, upem);
+    }
+
+    /**
+     * Convert from truetype unit to pdf unit based on the
+     * specified unitsPerEm value
+     * @param n truetype unit
+     * @param upem units per em
+     * @return pdf unit
+     */
+    public static int convertTTFUnit2PDFUnit(int n, int upem) {
         int ret;
         if (n < 0) {
             long rest1 = n % upem;
@@ -861,6 +872,90 @@ public abstract class OpenFont {
         return true;
     }
 
+    /**
+     * Reads only the parts of the font needed to identify it: its names, italic angle and
+     * weight, whether it may be embedded and whether it has a supported cmap. This is much
+     * cheaper than {@link #readFont(FontFileReader, String, String)} and meant for font
+     * auto-detection; glyph metrics, kerning and advanced tables are not read.
+     *
+     * @param in The FontFileReader to use
+     * @param header the font file header
+     * @param name The name of the font in a TrueType Collection (ignored otherwise)
+     * @return true if the font has a supported cmap, false otherwise
+     * @throws IOException In case of an I/O problem
+     */
+    public boolean readFontNames(FontFileReader in, String header, String name) throws IOException {
+        initializeFont(in);
+        if (!checkTTC(header, name)) {
+            if (name == null) {
+                throw new IllegalArgumentException(
+                    "For TrueType collection you must specify which font "
+                    + "to select (-ttcname)");
+            } else {
+                throw new IOException(
+                    "Name does not exist in the TrueType collection: " + name);
+            }
+        }
+        readDirTabs();
+        readFontHeader();
+        if (seekTab(fontFile, OFTableName.POST, 4)) {
+            italicAngle = fontFile.readTTFULong();
+        }
+        readOS2();
+        readName();
+        return hasSupportedCMAP();
+    }
+
+    /**
+     * Reads only the advanced typographic tables (GDEF, GSUB and GPOS) of the font, for a
+     * font whose metrics are known already. Nothing is read unless the font was created with
+     * advanced typographic information requested. The font's outlines (the CFF data of an
+     * OpenType CFF font) are not parsed.
+     *
+     * @param in The FontFileReader to use
+     * @param header the font file header
+     * @param name The name of the font in a TrueType Collection (ignored otherwise)
+     * @param fullName the full name of the font, for the messages about its tables
+     * @throws IOException In case of an I/O problem
+     */
+    public void readAdvancedTables(FontFileReader in, String header, String name, String fullName)
+            throws IOException {
+        fontFile = in;
+        this.fullName = fullName;
+        if (!checkTTC(header, name)) {
+            if (name == null) {
+                throw new IllegalArgumentException(
+                    "For TrueType collection you must specify which font "
+                    + "to select (-ttcname)");
+            } else {
+                throw new IOException(
+                    "Name does not exist in the TrueType collection: " + name);
+            }
+        }
+        readDirTabs();
+        readFontHeader();
+        handleCharacterSpacing(in);
+    }
+
+    /**
+     * Checks the "cmap" table for a subtable {@link #readCMAP()} can use.
+     */
+    private boolean hasSupportedCMAP() throws IOException {
+        if (!seekTab(fontFile, OFTableName.CMAP, 2)) {
+            return true;
+        }
+        int numCMap = fontFile.readTTFUShort();
+        for (int i = 0; i < numCMap; i++) {
+            int cmapPID = fontFile.readTTFUShort();
+            int cmapEID = fontFile.readTTFUShort();
+            fontFile.readTTFLong();
+            if (cmapPID == 3 && (cmapEID == 0 || cmapEID == 1 || cmapEID == 10)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Reads a font.
      *
@@ -1263,6 +1358,14 @@ public abstract class OpenFont {
         log.debug("dir tables: " + dirTabs.keySet());
     }
 
+    /**
+     * Returns the number of units per em, as read from the "head" table.
+     * @return units per em
+     */
+    public int getUnitsPerEm() {
+        return upem;
+    }
+
     /**
      * Read the "head" table, this reads the bounding box and
      * sets the upem (unitsPerEM) variable
@@ -1766,7 +1869,6 @@ public abstract class OpenFont {
      */
     public void stream(TTFOutputStream ttfOut) throws IOException {
         SortedSet<Map.Entry<OFTableName, OFDirTabEntry>> sortedDirTabs = sortDirTabMap(dirTabs);
-        byte[] file = fontFile.getAllBytes();
         TTFTableOutputStream tableOut = ttfOut.getTableOutputStream();
         TTFGlyphOutputStream glyphOut = ttfOut.getGlyphOutputStream();
         ttfOut.startFontStream();
@@ -1774,10 +1876,12 @@ public abstract class OpenFont {
             int offset = (int) entry.getValue().getOffset();
             int paddedLength = (int) entry.getValue().getLength();
             paddedLength += getPadSize(offset + paddedLength);
+            // one table at a time, the file content may be shared with other readers
+            byte[] table = fontFile.getBytes(offset, paddedLength);
             if (entry.getKey().equals(OFTableName.GLYF)) {
-                streamGlyf(glyphOut, file, offset, paddedLength);
+                streamGlyf(glyphOut, table, 0, paddedLength);
             } else {
-                tableOut.streamTable(file, offset, paddedLength);
+                tableOut.streamTable(table, 0, paddedLength);
             }
         }
         ttfOut.endFontStream();
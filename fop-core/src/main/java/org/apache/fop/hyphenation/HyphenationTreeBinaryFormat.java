@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.hyphenation;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes hyphenation trees in a flat binary format, as an alternative to Java
+ * serialization. The format holds the arrays of the trees as they are, so that a pattern file
+ * can be memory-mapped and copied into a {@link HyphenationTree} in bulk, without a per-object
+ * decoding step.
+ * <p>
+ * All values are big-endian. A file starts with {@link #MAGIC} and {@link #VERSION}, followed by
+ * the pattern tree, the packed interletter values, the character class tree and the exceptions.
+ * A tree is written as its length, root and free node, the size and contents of the four node
+ * arrays and the size and contents of its key vector. The exceptions are written as a count
+ * followed by, for each exception, the word and its parts; a part is a tag followed by either
+ * a string or the three strings of a {@link Hyphen}. A string is its length, or -1 for null,
+ * followed by its characters.
+ */
+final class HyphenationTreeBinaryFormat {
+
+    /** The first four bytes of a pattern file in this format: "FHYP". */
+    static final int MAGIC = 0x46485950;
+    /** The version of the format. */
+    static final int VERSION = 1;
+
+    private static final int STRING = 0;
+    private static final int HYPHEN = 1;
+
+    private HyphenationTreeBinaryFormat() {
+    }
+
+    /**
+     * Indicates whether the buffer holds a pattern file in this format. The position of the
+     * buffer is not changed.
+     * @param buffer the buffer
+     * @return true if the buffer starts with the magic number of the format
+     */
+    static boolean isBinaryFormat(ByteBuffer buffer) {
+        return buffer.remaining() >= 4
+                && buffer.order(ByteOrder.BIG_ENDIAN).getInt(buffer.position()) == MAGIC;
+    }
+
+    /**
+     * Writes a hyphenation tree.
+     * @param hTree the hyphenation tree
+     * @param out the stream to write to; it is flushed but not closed
+     * @throws IOException if an I/O error occurs
+     */
+    static void write(HyphenationTree hTree, OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        writeTree(hTree, data);
+        int valueCount = hTree.vspace.length();
+        data.writeInt(valueCount);
+        data.write(hTree.vspace.getArray(), 0, valueCount);
+        writeTree(hTree.classmap, data);
+        Map<?, ?> stoplist = hTree.stoplist;
+        data.writeInt(stoplist.size());
+        for (Map.Entry<?, ?> entry : stoplist.entrySet()) {
+            writeString((String) entry.getKey(), data);
+            List<?> parts = (List<?>) entry.getValue();
+            data.writeInt(parts.size());
+            for (Object part : parts) {
+                if (part instanceof Hyphen) {
+                    Hyphen hyphen = (Hyphen) part;
+                    data.writeByte(HYPHEN);
+                    writeString(hyphen.preBreak, data);
+                    writeString(hyphen.noBreak, data);
+                    writeString(hyphen.postBreak, data);
+                } else {
+                    data.writeByte(STRING);
+                    writeString((String) part, data);
+                }
+            }
+        }
+        data.flush();
+    }
+
+    private static void writeTree(TernaryTree tree, DataOutputStream data) throws IOException {
+        data.writeInt(tree.length);
+        data.writeChar(tree.root);
+        data.writeChar(tree.freenode);
+        int nodeCount = tree.lo.length;
+        data.writeInt(nodeCount);
+        writeChars(tree.lo, nodeCount, data);
+        writeChars(tree.hi, nodeCount, data);
+        writeChars(tree.eq, nodeCount, data);
+        writeChars(tree.sc, nodeCount, data);
+        int keyCount = tree.kv.length();
+        data.writeInt(keyCount);
+        writeChars(tree.kv.getArray(), keyCount, data);
+    }
+
+    private static void writeChars(char[] chars, int count, DataOutputStream data) throws IOException {
+        for (int i = 0; i < count; i++) {
+            data.writeChar(chars[i]);
+        }
+    }
+
+    private static void writeString(String s, DataOutputStream data) throws IOException {
+        if (s == null) {
+            data.writeInt(-1);
+        } else {
+            data.writeInt(s.length());
+            data.writeChars(s);
+        }
+    }
+
+    /**
+     * Reads a hyphenation tree. The tree does not keep a reference to the buffer, which may be
+     * unmapped or reused once this method returns.
+     * @param buffer the buffer, positioned at the start of the pattern file
+     * @return the hyphenation tree
+     * @throws IOException if the buffer does not hold a pattern file in this format
+     */
+    static HyphenationTree read(ByteBuffer buffer) throws IOException {
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a binary hyphenation pattern file");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported binary hyphenation pattern file version: " + version);
+            }
+            HyphenationTree hTree = new HyphenationTree();
+            readTree(hTree, buffer);
+            int valueCount = buffer.getInt();
+            // one spare byte, or alloc() would grow the array
+            byte[] values = new byte[valueCount + 1];
+            buffer.get(values, 0, valueCount);
+            hTree.vspace = new ByteVector(values);
+            hTree.vspace.alloc(valueCount);
+            readTree(hTree.classmap, buffer);
+            int exceptionCount = buffer.getInt();
+            HashMap<String, List<Object>> stoplist
+                    = new HashMap<String, List<Object>>(Math.max(23, exceptionCount * 4 / 3 + 1));
+            for (int i = 0; i < exceptionCount; i++) {
+                String word = readString(buffer);
+                int partCount = buffer.getInt();
+                List<Object> parts = new ArrayList<Object>(partCount);
+                for (int j = 0; j < partCount; j++) {
+                    if (buffer.get() == HYPHEN) {
+                        parts.add(new Hyphen(readString(buffer), readString(buffer), readString(buffer)));
+                    } else {
+                        parts.add(readString(buffer));
+                    }
+                }
+                stoplist.put(word, parts);
+            }
+            hTree.stoplist = stoplist;
+            return hTree;
+        } catch (RuntimeException e) {
+            // BufferUnderflowException, NegativeArraySizeException and the like
+            throw new IOException("Corrupt binary hyphenation pattern file", e);
+        }
+    }
+
+    private static void readTree(TernaryTree tree, ByteBuffer buffer) {
+        tree.length = buffer.getInt();
+        tree.root = buffer.getChar();
+        tree.freenode = buffer.getChar();
+        int nodeCount = buffer.getInt();
+        tree.lo = readChars(buffer, nodeCount);
+        tree.hi = readChars(buffer, nodeCount);
+        tree.eq = readChars(buffer, nodeCount);
+        tree.sc = readChars(buffer, nodeCount);
+        tree.kv = new CharVector(readChars(buffer, buffer.getInt()));
+    }
+
+    private static char[] readChars(ByteBuffer buffer, int count) {
+        char[] chars = new char[count];
+        CharBuffer view = buffer.asCharBuffer();
+        view.get(chars);
+        buffer.position(buffer.position() + count * 2);
+        return chars;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        return length < 0 ? null : new String(readChars(buffer, length));
+    }
+}
@@ -19,19 +19,38 @@
 
 package org.apache.fop.hyphenation;
 
-import java.util.Hashtable;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * <p>This is a cache for HyphenationTree instances.</p>
+ * <p>This is a cache for HyphenationTree instances. It is safe for use by several threads;
+ * the cached trees are only read once loaded and are shared by all the users of the cache.</p>
  */
 public class HyphenationTreeCache {
 
     /** Contains the cached hyphenation trees */
-    private Hashtable hyphenTrees = new Hashtable();
+    private final Map<String, HyphenationTree> hyphenTrees
+            = new ConcurrentHashMap<String, HyphenationTree>();
     /** Used to avoid multiple error messages for the same language if a pattern file is missing. */
-    private Set missingHyphenationTrees;
+    private final Set<String> missingHyphenationTrees
+            = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    /** Contains the hyphenated words */
+    private final HyphenationWordCache wordCache;
+
+    /** Creates a cache whose word cache has the default maximum size. */
+    public HyphenationTreeCache() {
+        this(new HyphenationWordCache());
+    }
+
+    /**
+     * Creates a cache.
+     * @param wordCache the cache of hyphenated words
+     */
+    public HyphenationTreeCache(HyphenationWordCache wordCache) {
+        this.wordCache = wordCache;
+    }
 
     /**
      * Looks in the cache if a hyphenation tree is available and returns it if it is found.
@@ -43,13 +62,19 @@ public class HyphenationTreeCache {
         String key = constructLlccKey(lang, country);
 
         // first try to find it in the cache
-        if (hyphenTrees.containsKey(key)) {
-            return (HyphenationTree)hyphenTrees.get(key);
-        } else if (hyphenTrees.containsKey(lang)) {
-            return (HyphenationTree)hyphenTrees.get(lang);
-        } else {
-            return null;
+        HyphenationTree hTree = hyphenTrees.get(key);
+        if (hTree == null) {
+            hTree = hyphenTrees.get(lang);
         }
+        return hTree;
+    }
+
+    /**
+     * Returns the cache of the words hyphenated with the cached hyphenation trees.
+     * @return the word cache
+     */
+    public HyphenationWordCache getWordCache() {
+        return wordCache;
     }
 
     /**
@@ -101,9 +126,6 @@ public class HyphenationTreeCache {
      * @param key the key (ex. "de_CH" or "en")
      */
     public void noteMissing(String key) {
-        if (missingHyphenationTrees == null) {
-            missingHyphenationTrees = new java.util.HashSet();
-        }
         missingHyphenationTrees.add(key);
     }
 
@@ -115,7 +137,7 @@ public class HyphenationTreeCache {
      * @return true if the hyphenation tree is unavailable
      */
     public boolean isMissing(String key) {
-        return (missingHyphenationTrees != null && missingHyphenationTrees.contains(key));
+        return missingHyphenationTrees.contains(key);
     }
 
 }
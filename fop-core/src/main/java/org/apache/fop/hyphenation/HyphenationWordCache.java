@@ -0,0 +1,284 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.hyphenation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A bounded cache of hyphenated words, keyed by language, country, word and minimum numbers
+ * of characters before and after a hyphen. Documents repeat the same words many times, so
+ * this makes the cost of hyphenation proportional to their vocabulary rather than to their
+ * length. Each {@link HyphenationTreeCache}, and so each {@link org.apache.fop.apps.FopFactory},
+ * has a word cache of its own, as the factories may use different hyphenation patterns.
+ * <p>
+ * The cache is split into segments, each holding the words of its share of the keys in least
+ * recently used order, so that threads looking up different words seldom wait for each other.
+ * The default maximum size is given by the system property
+ * "org.apache.fop.hyphenation.word-cache-size"; 0 disables the cache.
+ * <p>
+ * The cache counts its hits, misses and evictions, and can be registered as an MXBean.
+ */
+public final class HyphenationWordCache implements HyphenationWordCacheMXBean {
+
+    private static final Log LOG = LogFactory.getLog(HyphenationWordCache.class);
+
+    /** The default maximum number of cached words. */
+    public static final int DEFAULT_MAX_SIZE = 10000;
+
+    private static final int SEGMENT_COUNT = 16;
+
+    /** Stands for a word that has no hyphenation points. */
+    private static final Hyphenation NO_HYPHENATION = new Hyphenation("", new int[0]);
+
+    private final int maxSize;
+
+    private final Segment[] segments;
+
+    /** Creates a cache whose maximum size is given by the system property, if set. */
+    public HyphenationWordCache() {
+        this(getDefaultMaxSize());
+    }
+
+    /**
+     * Creates a cache.
+     * @param maxSize the maximum number of cached words, 0 to disable the cache
+     */
+    public HyphenationWordCache(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize must not be negative");
+        }
+        this.maxSize = maxSize;
+        int segmentCount = Math.min(SEGMENT_COUNT, Math.max(1, maxSize));
+        segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            int capacity = maxSize / segmentCount + (i < maxSize % segmentCount ? 1 : 0);
+            segments[i] = new Segment(capacity);
+        }
+    }
+
+    private static int getDefaultMaxSize() {
+        try {
+            String maxSize = System.getProperty("org.apache.fop.hyphenation.word-cache-size");
+            return (maxSize != null ? Integer.parseInt(maxSize) : DEFAULT_MAX_SIZE);
+        } catch (SecurityException e) {
+            LOG.info("Unable to access org.apache.fop.hyphenation.word-cache-size"
+                   + " due to security restriction; defaulting to " + DEFAULT_MAX_SIZE + ".");
+        } catch (NumberFormatException e) {
+            LOG.warn("Invalid value for org.apache.fop.hyphenation.word-cache-size: " + e.getMessage());
+        }
+        return DEFAULT_MAX_SIZE;
+    }
+
+    /**
+     * Returns the hyphenation of a word, from the cache if the word was hyphenated before.
+     * @param lang the language
+     * @param country the country (may be null or "none")
+     * @param word the word
+     * @param remainCharCount the minimum number of characters before a hyphen
+     * @param pushCharCount the minimum number of characters after a hyphen
+     * @param hTree the hyphenation tree to use if the word is not in the cache
+     * @return the hyphenation of the word, null if it has no hyphenation points
+     */
+    public Hyphenation hyphenate(String lang, String country, String word,
+            int remainCharCount, int pushCharCount, HyphenationTree hTree) {
+        if (maxSize == 0) {
+            return hTree.hyphenate(word, remainCharCount, pushCharCount);
+        }
+        Key key = new Key(lang, country, word, remainCharCount, pushCharCount);
+        Segment segment = segments[(key.hash & Integer.MAX_VALUE) % segments.length];
+        Hyphenation hyphenation = segment.lookUp(key);
+        if (hyphenation == null) {
+            hyphenation = hTree.hyphenate(word, remainCharCount, pushCharCount);
+            segment.store(key, hyphenation != null ? hyphenation : NO_HYPHENATION);
+        } else if (hyphenation == NO_HYPHENATION) {
+            hyphenation = null;
+        }
+        return hyphenation;
+    }
+
+    /** {@inheritDoc} */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /** {@inheritDoc} */
+    public int getSize() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /** {@inheritDoc} */
+    public long getHitCount() {
+        long count = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                count += segment.hitCount;
+            }
+        }
+        return count;
+    }
+
+    /** {@inheritDoc} */
+    public long getMissCount() {
+        long count = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                count += segment.missCount;
+            }
+        }
+        return count;
+    }
+
+    /** {@inheritDoc} */
+    public long getEvictionCount() {
+        long count = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                count += segment.evictionCount;
+            }
+        }
+        return count;
+    }
+
+    /** {@inheritDoc} */
+    public double getHitRatio() {
+        long hitCount = getHitCount();
+        long lookupCount = hitCount + getMissCount();
+        return (lookupCount == 0 ? 0 : (double) hitCount / lookupCount);
+    }
+
+    /** {@inheritDoc} */
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    public void resetCounts() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.hitCount = 0;
+                segment.missCount = 0;
+                segment.evictionCount = 0;
+            }
+        }
+    }
+
+    /** A share of the cached words, in least recently used order. Guarded by itself. */
+    private static final class Segment extends LinkedHashMap<Key, Hyphenation> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        private long hitCount;
+
+        private long missCount;
+
+        private long evictionCount;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        synchronized Hyphenation lookUp(Key key) {
+            Hyphenation hyphenation = get(key);
+            if (hyphenation != null) {
+                hitCount++;
+            } else {
+                missCount++;
+            }
+            return hyphenation;
+        }
+
+        synchronized void store(Key key, Hyphenation hyphenation) {
+            put(key, hyphenation);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Hyphenation> eldest) {
+            if (size() > capacity) {
+                evictionCount++;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private static final class Key {
+
+        private final String lang;
+
+        private final String country;
+
+        private final String word;
+
+        private final int remainCharCount;
+
+        private final int pushCharCount;
+
+        private final int hash;
+
+        Key(String lang, String country, String word, int remainCharCount, int pushCharCount) {
+            this.lang = lang;
+            this.country = country;
+            this.word = word;
+            this.remainCharCount = remainCharCount;
+            this.pushCharCount = pushCharCount;
+            int h = word.hashCode();
+            h = 31 * h + (lang != null ? lang.hashCode() : 0);
+            h = 31 * h + (country != null ? country.hashCode() : 0);
+            h = 31 * h + remainCharCount;
+            this.hash = 31 * h + pushCharCount;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash
+                    && remainCharCount == other.remainCharCount
+                    && pushCharCount == other.pushCharCount
+                    && word.equals(other.word)
+                    && (lang == null ? other.lang == null : lang.equals(other.lang))
+                    && (country == null ? other.country == null : country.equals(other.country));
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.hyphenation;
+
+/**
+ * Management interface of {@link HyphenationWordCache}, for registration with a JMX
+ * {@link javax.management.MBeanServer}.
+ */
+public interface HyphenationWordCacheMXBean {
+
+    /** @return the maximum number of cached words */
+    int getMaxSize();
+
+    /** @return the number of cached words */
+    int getSize();
+
+    /** @return the number of words whose hyphenation was found in the cache */
+    long getHitCount();
+
+    /** @return the number of words that had to be hyphenated */
+    long getMissCount();
+
+    /** @return the number of words evicted from the cache to make room for others */
+    long getEvictionCount();
+
+    /** @return the share of looked up words that were found in the cache, between 0 and 1 */
+    double getHitRatio();
+
+    /** Removes all words from the cache. */
+    void clear();
+
+    /** Resets all counts to zero. */
+    void resetCounts();
+}
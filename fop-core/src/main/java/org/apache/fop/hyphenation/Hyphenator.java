@@ -20,11 +20,19 @@
 package org.apache.fop.hyphenation;
 
 import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.xml.sax.InputSource;
 
@@ -54,6 +62,13 @@ public final class Hyphenator {
     public static final String HYPTYPE = Hyphenator.class.toString() + "HYP";
     public static final String XMLTYPE = Hyphenator.class.toString() + "XML";
 
+    /**
+     * The hyphenation trees loaded from the class path, by resource URL. They are shared by all
+     * FOP factories, since class path resources do not change while the JVM runs.
+     */
+    private static final ConcurrentMap<String, HyphenationTree> FOP_HYPHENATION_TREES
+            = new ConcurrentHashMap<String, HyphenationTree>();
+
     private Hyphenator() {
     }
 
@@ -107,40 +122,36 @@ public final class Hyphenator {
         return hTree;
     }
 
-    private static InputStream getResourceStream(String key) {
-        InputStream is = null;
+    private static URL getResource(String key) {
+        URL url = null;
         // Try to use Context Class Loader to load the properties file.
-        try {
-            java.lang.reflect.Method getCCL = Thread.class.getMethod(
-                    "getContextClassLoader", new Class[0]);
-            if (getCCL != null) {
-                ClassLoader contextClassLoader = (ClassLoader)getCCL.invoke(
-                        Thread.currentThread(),
-                        new Object[0]);
-                is = contextClassLoader.getResourceAsStream("hyph/" + key
-                                                            + ".hyp");
-            }
-        } catch (NoSuchMethodException e) {
-            //ignore, fallback further down
-        } catch (IllegalAccessException e) {
-            //ignore, fallback further down
-        } catch (java.lang.reflect.InvocationTargetException e) {
-            //ignore, fallback further down
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        if (contextClassLoader != null) {
+            url = contextClassLoader.getResource("hyph/" + key + ".hyp");
         }
-
-        if (is == null) {
-            is = Hyphenator.class.getResourceAsStream("/hyph/" + key
-                                                      + ".hyp");
+        if (url == null) {
+            url = Hyphenator.class.getResource("/hyph/" + key + ".hyp");
         }
-
-        return is;
+        return url;
     }
 
-    private static HyphenationTree readHyphenationTree(InputStream in) {
+    /**
+     * Reads a precompiled hyphenation tree, in the binary format written by
+     * {@link SerializeHyphPattern} or as a serialized Java object.
+     */
+    private static HyphenationTree readHyphenationTree(InputStream stream) {
         HyphenationTree hTree = null;
         try {
-            ObjectInputStream ois = new ObjectInputStream(in);
-            hTree = (HyphenationTree)ois.readObject();
+            InputStream in = stream.markSupported() ? stream : new BufferedInputStream(stream);
+            in.mark(4);
+            int magic = new DataInputStream(in).readInt();
+            in.reset();
+            if (magic == HyphenationTreeBinaryFormat.MAGIC) {
+                hTree = HyphenationTreeBinaryFormat.read(ByteBuffer.wrap(IOUtils.toByteArray(in)));
+            } else {
+                ObjectInputStream ois = new ObjectInputStream(in);
+                hTree = (HyphenationTree)ois.readObject();
+            }
         } catch (IOException ioe) {
             log.error("I/O error while loading precompiled hyphenation pattern file", ioe);
         } catch (ClassNotFoundException cnfe) {
@@ -150,21 +161,64 @@ public final class Hyphenator {
     }
 
     /**
-     * Returns a hyphenation tree. This method looks in the resources (getResourceStream) for
-     * the hyphenation patterns.
+     * Reads a precompiled hyphenation tree from the class path. A pattern file in the binary
+     * format that lies in a directory is memory-mapped rather than read through a stream.
+     */
+    private static HyphenationTree readHyphenationTree(URL url) {
+        try {
+            if ("file".equals(url.getProtocol())) {
+                FileInputStream in = new FileInputStream(new File(url.toURI()));
+                try {
+                    FileChannel channel = in.getChannel();
+                    ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                    if (HyphenationTreeBinaryFormat.isBinaryFormat(buffer)) {
+                        return HyphenationTreeBinaryFormat.read(buffer);
+                    }
+                } finally {
+                    IOUtils.closeQuietly(in);
+                }
+            }
+            InputStream in = url.openStream();
+            try {
+                return readHyphenationTree(in);
+            } finally {
+                IOUtils.closeQuietly(in);
+            }
+        } catch (IOException ioe) {
+            log.error("I/O error while loading precompiled hyphenation pattern file " + url, ioe);
+        } catch (URISyntaxException use) {
+            log.error("Invalid hyphenation pattern file URL " + url, use);
+        }
+        return null;
+    }
+
+    /**
+     * Returns a hyphenation tree. This method looks in the resources (getResource) for
+     * the hyphenation patterns. The trees are loaded once and shared JVM-wide.
      * @param key the language/country key
      * @return the hyphenation tree or null if it wasn't found in the resources
      */
     public static HyphenationTree getFopHyphenationTree(String key) {
-        InputStream is = getResourceStream(key);
-        if (is == null) {
+        URL url = getResource(key);
+        if (url == null) {
             if (log.isDebugEnabled()) {
                 log.debug("Couldn't find precompiled hyphenation pattern "
                           + key + " in resources");
             }
             return null;
         }
-        return readHyphenationTree(is);
+        String urlKey = url.toExternalForm();
+        HyphenationTree hTree = FOP_HYPHENATION_TREES.get(urlKey);
+        if (hTree == null) {
+            hTree = readHyphenationTree(url);
+            if (hTree != null) {
+                HyphenationTree existing = FOP_HYPHENATION_TREES.putIfAbsent(urlKey, hTree);
+                if (existing != null) {
+                    hTree = existing;
+                }
+            }
+        }
+        return hTree;
     }
 
     /**
@@ -179,7 +233,7 @@ public final class Hyphenator {
         HyphenationTree hTree = null;
         // I use here the following convention. The file name specified in
         // the configuration is taken as the base name. First we try
-        // name + ".hyp" assuming a serialized HyphenationTree. If that fails
+        // name + ".hyp" assuming a precompiled HyphenationTree. If that fails
         // we try name + ".xml", assumming a raw hyphenation pattern file.
 
         // first try serialized object
@@ -252,7 +306,8 @@ public final class Hyphenator {
         if (hTree == null) {
             return null;
         }
-        return hTree.hyphenate(word, leftMin, rightMin);
+        HyphenationWordCache wordCache = foUserAgent.getHyphenationTreeCache().getWordCache();
+        return wordCache.hyphenate(lang, country, word, leftMin, rightMin, hTree);
     }
 
 }
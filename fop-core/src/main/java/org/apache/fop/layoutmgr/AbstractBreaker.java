@@ -30,7 +30,9 @@ import org.apache.commons.logging.LogFactory;
 
 import org.apache.fop.events.EventBroadcaster;
 import org.apache.fop.fo.Constants;
+import org.apache.fop.fo.FObj;
 import org.apache.fop.layoutmgr.BreakingAlgorithm.KnuthNode;
+import org.apache.fop.metrics.Counter;
 import org.apache.fop.traits.MinOptMax;
 import org.apache.fop.util.ListUtil;
 
@@ -413,6 +415,7 @@ public abstract class AbstractBreaker {
                 alg.setConstantLineWidth(flowBPD);
                 int optimalPageCount = alg.findBreakingPoints(blockList, 1, true,
                         BreakingAlgorithm.ALL_BREAKS);
+                countNodes(alg);
                 boolean ipdChangesOnNextPage = (alg.getIPDdifference() != 0);
                 boolean onLastPageAndIPDChanges = false;
                 if (!ipdChangesOnNextPage) {
@@ -543,6 +546,18 @@ public abstract class AbstractBreaker {
         return restartAtLM;
     }
 
+    /**
+     * Adds the nodes registered by the last run of a breaking algorithm to the processing
+     * metrics.
+     * @param alg the breaking algorithm
+     */
+    protected void countNodes(BreakingAlgorithm alg) {
+        FObj fobj = getTopLevelLM().getFObj();
+        if (fobj != null) {
+            fobj.getUserAgent().getMetrics().add(Counter.KNUTH_NODES, alg.getRegisteredNodeCount());
+        }
+    }
+
     private int findPositionIndex(KnuthNode optimalBreak, PageBreakingAlgorithm alg, int start) {
         int positionIndex = (optimalBreak != null) ? optimalBreak.position : start;
         for (int i = positionIndex; i < alg.par.size(); i++) {
@@ -34,6 +34,7 @@ import org.apache.fop.fo.Constants;
 import org.apache.fop.fo.flow.Marker;
 import org.apache.fop.fo.flow.RetrieveMarker;
 import org.apache.fop.fo.pagination.AbstractPageSequence;
+import org.apache.fop.metrics.Phase;
 
 /**
  * Abstract base class for a page sequence layout manager.
@@ -313,7 +314,12 @@ public abstract class AbstractPageSequenceLayoutManager extends AbstractLayoutMa
         //
         idTracker.tryIDResolution(curPage.getPageViewport());
         // Queue for ID resolution and rendering
-        areaTreeHandler.getAreaTreeModel().addPage(curPage.getPageViewport());
+        areaTreeHandler.getUserAgent().getMetrics().start(Phase.AREA_TREE);
+        try {
+            areaTreeHandler.getAreaTreeModel().addPage(curPage.getPageViewport());
+        } finally {
+            areaTreeHandler.getUserAgent().getMetrics().stop(Phase.AREA_TREE);
+        }
         if (log.isDebugEnabled()) {
             log.debug("page finished: " + curPage.getPageViewport().getPageNumberString()
                     + ", current num: " + currentPageNum);
@@ -115,6 +115,15 @@ public abstract class BreakingAlgorithm {
      */
     protected KnuthSequence par;
 
+    /**
+     * The packed form of {@link #par}, from which the main loop reads the widths,
+     * stretch, shrink and penalties of the elements.
+     */
+    PackedKnuthSequence packed;
+
+    /** Scratch totals for {@link PackedKnuthSequence#addGluesAfterBreak(int, int[])}. */
+    private final int[] newTotals = new int[3];
+
     /**
      * The width of a line (or height of a column in page-breaking mode).
      * -1 indicates that the line widths are different for each line.
@@ -159,6 +168,11 @@ public abstract class BreakingAlgorithm {
      */
     protected int activeNodeCount;
 
+    /**
+     * The number of nodes registered since the last call to findBreakingPoints.
+     */
+    private int registeredNodeCount;
+
     /**
      * The lowest available line in the set of active nodes.
      */
@@ -523,8 +537,10 @@ public abstract class BreakingAlgorithm {
                                   double threshold, boolean force,
                                   int allowedBreaks) {
         this.par = par;
+        this.packed = par.getPackedSequence();
         this.threshold = threshold;
         this.force = force;
+        this.registeredNodeCount = 0;
 
         // initialize the algorithm
         initialize();
@@ -537,7 +553,7 @@ public abstract class BreakingAlgorithm {
         // penalties+glues used for the filler spaces
         int previousPosition = startIndex;
         if (alignment != Constants.EN_CENTER) {
-            int firstBoxIndex = par.getFirstBoxIndex(startIndex);
+            int firstBoxIndex = packed.getFirstBoxIndex(startIndex);
             previousPosition = (firstBoxIndex >= par.size()) ? startIndex : firstBoxIndex - 1;
         }
         previousPosition = (previousPosition < 0) ? 0 : previousPosition;
@@ -555,7 +571,7 @@ public abstract class BreakingAlgorithm {
         for (int elementIndex = startIndex; elementIndex < par.size(); elementIndex++) {
 
             previousIsBox = handleElementAt(
-                    elementIndex, previousIsBox, allowedBreaks).isBox();
+                    elementIndex, previousIsBox, allowedBreaks);
 
             if (activeNodeCount == 0) {
                 if (handlingFloat()) {
@@ -735,9 +751,9 @@ public abstract class BreakingAlgorithm {
      * taking into account whether the preceding element was a box, and which
      * type(s) of breaks are allowed.
      * Non-overridable. This method simply serves to route the call to one of the
-     * more specific handlers ({@link #handleBox(KnuthBox)},
-     * {@link #handleGlueAt(KnuthGlue,int,boolean,int)} or
-     * {@link #handlePenaltyAt(KnuthPenalty,int,int)}. The specialized handlers
+     * more specific handlers ({@link #handleBoxAt(int)},
+     * {@link #handleGlueAt(int,boolean,int)} or
+     * {@link #handlePenaltyAt(int,int)}. The specialized handlers
      * can be overridden by subclasses to add to or modify the default behavior
      * for the different types of elements.
      *
@@ -746,82 +762,78 @@ public abstract class BreakingAlgorithm {
      * @param allowedBreaks the type(s) of breaks allowed; should be one
      *                      of {@link #ALL_BREAKS}, {@link #NO_FLAGGED_PENALTIES}
      *                      or {@link #ONLY_FORCED_BREAKS}
-     * @return  the handled element
+     * @return  {@code true} if the handled element is a box
      */
-    protected final KnuthElement handleElementAt(int position,
-                                                 boolean previousIsBox,
-                                                 int allowedBreaks) {
-        KnuthElement element = getElement(position);
-        if (element.isBox()) {
-            handleBox((KnuthBox) element);
-        } else if (element.isGlue()) {
-            handleGlueAt((KnuthGlue) element, position, previousIsBox, allowedBreaks);
-        } else if (element.isPenalty()) {
-            handlePenaltyAt((KnuthPenalty) element, position, allowedBreaks);
+    protected final boolean handleElementAt(int position,
+                                            boolean previousIsBox,
+                                            int allowedBreaks) {
+        if (packed.isBox(position)) {
+            handleBoxAt(position);
+            return true;
+        } else if (packed.isGlue(position)) {
+            handleGlueAt(position, previousIsBox, allowedBreaks);
+        } else if (packed.isPenalty(position)) {
+            handlePenaltyAt(position, allowedBreaks);
         } else {
             throw new IllegalArgumentException(
                     "Unknown KnuthElement type: expecting KnuthBox, KnuthGlue or KnuthPenalty");
         }
-        return element;
+        return false;
     }
 
     /**
-     * Handle a {@link KnuthBox}.
+     * Handle the {@link KnuthBox} at the given position.
      * <br><em>Note: default implementation just adds the box's width
      * to the total content width. Subclasses that do not keep track
      * of this themselves, but override this method, should remember
-     * to call {@code super.handleBox(box)} to avoid unwanted side-effects.</em>
+     * to call {@code super.handleBoxAt(position)} to avoid unwanted side-effects.</em>
      *
-     * @param box   the {@link KnuthBox} to handle
+     * @param position  the position of the box in the list
      */
-    protected void handleBox(KnuthBox box) {
+    protected void handleBoxAt(int position) {
         // a KnuthBox object is not a legal line break,
         // just add the width to the total
-        totalWidth += box.getWidth();
+        totalWidth += packed.getWidth(position);
     }
 
     /**
-     * Handle a {@link KnuthGlue} at the given position,
+     * Handle the {@link KnuthGlue} at the given position,
      * taking into account the additional parameters.
      *
-     * @param glue   the {@link KnuthGlue} to handle
      * @param position   the position of the glue in the list
      * @param previousIsBox {@code true} if the preceding element is a box
      * @param allowedBreaks the type of breaks that are allowed
      */
-    protected void handleGlueAt(KnuthGlue glue, int position,
-                                boolean previousIsBox, int allowedBreaks) {
+    protected void handleGlueAt(int position, boolean previousIsBox, int allowedBreaks) {
         // a KnuthGlue object is a legal line break
         // only if the previous object is a KnuthBox
         // consider these glues according to the value of allowedBreaks
         if (previousIsBox
             && !(allowedBreaks == ONLY_FORCED_BREAKS)) {
-            considerLegalBreak(glue, position);
+            considerLegalBreak(getElement(position), position);
         }
-        totalWidth += glue.getWidth();
-        totalStretch += glue.getStretch();
-        totalShrink += glue.getShrink();
+        totalWidth += packed.getWidth(position);
+        totalStretch += packed.getStretch(position);
+        totalShrink += packed.getShrink(position);
     }
 
     /**
-     * Handle a {@link KnuthPenalty} at the given position,
+     * Handle the {@link KnuthPenalty} at the given position,
      * taking into account the type of breaks allowed.
      *
-     * @param penalty   the {@link KnuthPenalty} to handle
      * @param position  the position of the penalty in the list
      * @param allowedBreaks the type of breaks that are allowed
      */
-    protected void handlePenaltyAt(KnuthPenalty penalty, int position,
-                                   int allowedBreaks) {
+    protected void handlePenaltyAt(int position, int allowedBreaks) {
         // a KnuthPenalty is a legal line break
         // only if its penalty is not infinite;
         // consider all penalties, non-flagged penalties or non-forcing penalties
         // according to the value of allowedBreaks
-        if (((penalty.getPenalty() < KnuthElement.INFINITE)
-                && (!(allowedBreaks == NO_FLAGGED_PENALTIES) || !penalty.isPenaltyFlagged())
+        if (((packed.getPenalty(position) < KnuthElement.INFINITE)
+                && (!(allowedBreaks == NO_FLAGGED_PENALTIES) || !packed.isFlaggedPenalty(position))
                 && (!(allowedBreaks == ONLY_FORCED_BREAKS)
-                        || penalty.isForcedBreak()))) {
-            considerLegalBreak(penalty, position);
+                        || packed.isForcedBreak(position)))) {
+            considerLegalBreak(getElement(position), position);
         }
     }
 
@@ -904,8 +916,8 @@ public abstract class BreakingAlgorithm {
         // advance in the sequence in order to avoid taking into account
         // these elements twice
         int restartingIndex = restartingNode.position;
-        while (restartingIndex + 1 < par.size()
-               && !(getElement(restartingIndex + 1).isBox())) {
+        while (restartingIndex + 1 < packed.size()
+               && !(packed.isBox(restartingIndex + 1))) {
             restartingIndex++;
         }
         return restartingIndex;
@@ -1011,28 +1023,20 @@ public abstract class BreakingAlgorithm {
                              int availableShrink,
                              int availableStretch) {
 
-        int newWidth = totalWidth;
-        int newStretch = totalStretch;
-        int newShrink = totalShrink;
-
         // add the width, stretch and shrink of glue elements after
         // the break
         // this does not affect the dimension of the line / page, only
         // the values stored in the node; these would be as if the break
         // was just before the next box element, thus ignoring glues and
         // penalties between the "real" break and the following box
-        for (int i = elementIdx; i < par.size(); i++) {
-            KnuthElement tempElement = getElement(i);
-            if (tempElement.isBox()) {
-                break;
-            } else if (tempElement.isGlue()) {
-                newWidth += tempElement.getWidth();
-                newStretch += tempElement.getStretch();
-                newShrink += tempElement.getShrink();
-            } else if (tempElement.isForcedBreak() && i != elementIdx) {
-                break;
-            }
-        }
+        int[] totals = newTotals;
+        totals[0] = totalWidth;
+        totals[1] = totalStretch;
+        totals[2] = totalShrink;
+        packed.addGluesAfterBreak(elementIdx, totals);
+        int newWidth = totals[0];
+        int newStretch = totals[1];
+        int newShrink = totals[2];
 
         createForcedNodes(node, line, elementIdx, difference, r, demerits, fitnessClass, availableShrink,
                 availableStretch, newWidth, newStretch, newShrink);
@@ -1130,28 +1134,20 @@ public abstract class BreakingAlgorithm {
             return;
         }
 
-        int newWidth = totalWidth;
-        int newStretch = totalStretch;
-        int newShrink = totalShrink;
-
         // add the width, stretch and shrink of glue elements after
         // the break
         // this does not affect the dimension of the line / page, only
         // the values stored in the node; these would be as if the break
         // was just before the next box element, thus ignoring glues and
         // penalties between the "real" break and the following box
-        for (int i = elementIdx; i < par.size(); i++) {
-            KnuthElement tempElement = getElement(i);
-            if (tempElement.isBox()) {
-                break;
-            } else if (tempElement.isGlue()) {
-                newWidth += tempElement.getWidth();
-                newStretch += tempElement.getStretch();
-                newShrink += tempElement.getShrink();
-            } else if (tempElement.isForcedBreak() && i != elementIdx) {
-                break;
-            }
-        }
+        int[] totals = newTotals;
+        totals[0] = totalWidth;
+        totals[1] = totalStretch;
+        totals[2] = totalShrink;
+        packed.addGluesAfterBreak(elementIdx, totals);
+        int newWidth = totals[0];
+        int newStretch = totals[1];
+        int newShrink = totals[2];
 
         // add nodes to the active nodes list
         double minimumDemerits = best.getMinDemerits() + incompatibleFitnessDemerit;
@@ -1258,8 +1254,7 @@ public abstract class BreakingAlgorithm {
         }
 
         if (element.isPenalty() && ((KnuthPenalty) element).isPenaltyFlagged()
-            && getElement(activeNode.position).isPenalty()
-            && ((KnuthPenalty) getElement(activeNode.position)).isPenaltyFlagged()) {
+            && packed.isFlaggedPenalty(activeNode.position)) {
             // add demerit for consecutive breaks at flagged penalties
             demerits += repeatedFlaggedDemerit;
             // there are at least two consecutive lines ending with a flagged penalty;
@@ -1269,9 +1264,7 @@ public abstract class BreakingAlgorithm {
             for (KnuthNode prevNode = activeNode.previous;
                  prevNode != null && flaggedPenaltiesCount <= maxFlaggedPenaltiesCount;
                  prevNode = prevNode.previous) {
-                KnuthElement prevElement = getElement(prevNode.position);
-                if (prevElement.isPenalty()
-                    && ((KnuthPenalty) prevElement).isPenaltyFlagged()) {
+                if (packed.isFlaggedPenalty(prevNode.position)) {
                     // the previous line ends with a flagged penalty too
                     flaggedPenaltiesCount++;
                 } else {
@@ -1356,6 +1349,16 @@ public abstract class BreakingAlgorithm {
         }
         activeLines[headIdx + 1] = node;
         activeNodeCount++;
+        registeredNodeCount++;
+    }
+
+    /**
+     * Returns the number of active nodes registered by the last call to
+     * findBreakingPoints, for the processing metrics.
+     * @return the number of registered nodes
+     */
+    public int getRegisteredNodeCount() {
+        return registeredNodeCount;
     }
 
     /**
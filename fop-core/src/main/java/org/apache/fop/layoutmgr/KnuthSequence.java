@@ -33,6 +33,10 @@ public abstract class KnuthSequence extends ArrayList {
 
     //TODO: do not extend ArrayList
 
+    /** The packed form of this sequence, valid as long as modCount is packedModCount. */
+    private PackedKnuthSequence packed;
+    private int packedModCount;
+
     /**
      * Creates a new and empty list.
      */
@@ -183,6 +187,45 @@ public abstract class KnuthSequence extends ArrayList {
         }
     }
 
+    /**
+     * Returns the packed form of this sequence, which the breaking algorithms read.
+     * It is created the first time it is needed and kept, so that the element list is
+     * packed once however many times it is broken, until the list is structurally
+     * modified. Elements inserted through {@link #add(int, Object)} are packed in place;
+     * other modifications cause the sequence to be packed again.
+     * <p>
+     * The packed form does not see changes made to the elements themselves, nor
+     * replacements made through a {@link #subList(int, int) sub-list}. Such changes must
+     * be made before the sequence is handed to a breaking algorithm.
+     *
+     * @return the packed form of this sequence
+     */
+    PackedKnuthSequence getPackedSequence() {
+        if (packed == null || packedModCount != modCount) {
+            packed = new PackedKnuthSequence(this);
+            packedModCount = modCount;
+        }
+        return packed;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void add(int index, Object element) {
+        boolean packedIsCurrent = (packed != null && packedModCount == modCount);
+        super.add(index, element);
+        if (packedIsCurrent) {
+            packed.insert(index, (ListElement) element);
+            packedModCount = modCount;
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Object set(int index, Object element) {
+        packed = null;
+        return super.set(index, element);
+    }
+
     /**
      * Is this an inline or a block sequence?
      * @return true if this is an inline sequence
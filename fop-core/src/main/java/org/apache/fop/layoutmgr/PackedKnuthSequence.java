@@ -0,0 +1,289 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.layoutmgr;
+
+import java.util.List;
+
+/**
+ * A packed copy of a list of {@link KnuthElement Knuth elements}. The kind, width,
+ * stretch, shrink, penalty value and break class of every element are held in parallel
+ * primitive arrays, which the breaking algorithms read instead of the element objects.
+ * The elements, and with them their {@link Position positions}, stay reachable through
+ * {@link #getElement(int)} for the few places that need them, such as the legal breaks
+ * the algorithm considers.
+ * <p>
+ * The copy is taken when the instance is created. A {@link KnuthSequence} keeps its packed
+ * form up to date (see {@link KnuthSequence#getPackedSequence()}).
+ */
+final class PackedKnuthSequence {
+
+    private static final byte BOX = 1;
+    private static final byte GLUE = 2;
+    private static final byte PENALTY = 4;
+    private static final byte FLAGGED = 8;
+    private static final byte FORCED = 16;
+    private static final byte ANCHORS = 32;
+
+    private final List<?> elements;
+
+    private int size;
+    private byte[] kinds;
+    private int[] widths;
+    private int[] stretches;
+    private int[] shrinks;
+    private int[] penalties;
+    private int[] breakClasses;
+
+    /**
+     * Packs the given list of elements.
+     * @param elements the elements, usually a {@link KnuthSequence}
+     */
+    PackedKnuthSequence(List<?> elements) {
+        this.elements = elements;
+        this.size = elements.size();
+        int capacity = Math.max(size, 1);
+        kinds = new byte[capacity];
+        widths = new int[capacity];
+        stretches = new int[capacity];
+        shrinks = new int[capacity];
+        penalties = new int[capacity];
+        breakClasses = new int[capacity];
+        for (int i = 0; i < size; i++) {
+            pack(i, (ListElement) elements.get(i));
+        }
+    }
+
+    private void pack(int index, ListElement element) {
+        byte kind = 0;
+        if (element.isForcedBreak()) {
+            kind |= FORCED;
+        }
+        if (element instanceof KnuthElement) {
+            KnuthElement knuthElement = (KnuthElement) element;
+            widths[index] = knuthElement.getWidth();
+            if (knuthElement.isBox()) {
+                kind |= BOX;
+                if (knuthElement instanceof KnuthBlockBox
+                        && (((KnuthBlockBox) knuthElement).hasAnchors()
+                                || ((KnuthBlockBox) knuthElement).hasFloatAnchors())) {
+                    kind |= ANCHORS;
+                }
+            } else if (knuthElement.isGlue()) {
+                kind |= GLUE;
+                stretches[index] = knuthElement.getStretch();
+                shrinks[index] = knuthElement.getShrink();
+            } else if (knuthElement.isPenalty()) {
+                kind |= PENALTY;
+                KnuthPenalty penalty = (KnuthPenalty) knuthElement;
+                penalties[index] = penalty.getPenalty();
+                breakClasses[index] = penalty.getBreakClass();
+                if (penalty.isPenaltyFlagged()) {
+                    kind |= FLAGGED;
+                }
+            }
+        }
+        kinds[index] = kind;
+    }
+
+    /**
+     * Records the insertion of an element into the underlying list. The element must
+     * already have been added to the list at the given index.
+     * @param index the index the element was inserted at
+     * @param element the inserted element
+     */
+    void insert(int index, ListElement element) {
+        if (size == kinds.length) {
+            int capacity = size + (size >> 1) + 1;
+            kinds = grow(kinds, capacity);
+            widths = grow(widths, capacity);
+            stretches = grow(stretches, capacity);
+            shrinks = grow(shrinks, capacity);
+            penalties = grow(penalties, capacity);
+            breakClasses = grow(breakClasses, capacity);
+        }
+        int tail = size - index;
+        System.arraycopy(kinds, index, kinds, index + 1, tail);
+        System.arraycopy(widths, index, widths, index + 1, tail);
+        System.arraycopy(stretches, index, stretches, index + 1, tail);
+        System.arraycopy(shrinks, index, shrinks, index + 1, tail);
+        System.arraycopy(penalties, index, penalties, index + 1, tail);
+        System.arraycopy(breakClasses, index, breakClasses, index + 1, tail);
+        widths[index] = 0;
+        stretches[index] = 0;
+        shrinks[index] = 0;
+        penalties[index] = 0;
+        breakClasses[index] = 0;
+        size++;
+        pack(index, element);
+    }
+
+    private static byte[] grow(byte[] array, int capacity) {
+        byte[] grown = new byte[capacity];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+
+    private static int[] grow(int[] array, int capacity) {
+        int[] grown = new int[capacity];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+
+    /** @return the number of elements */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param index the element index
+     * @return the element at the given index
+     */
+    ListElement getElement(int index) {
+        return (ListElement) elements.get(index);
+    }
+
+    /**
+     * @param index the element index
+     * @return true if the element at the given index is a box
+     */
+    boolean isBox(int index) {
+        return (kinds[index] & BOX) != 0;
+    }
+
+    /**
+     * @param index the element index
+     * @return true if the element at the given index is a glue
+     */
+    boolean isGlue(int index) {
+        return (kinds[index] & GLUE) != 0;
+    }
+
+    /**
+     * @param index the element index
+     * @return true if the element at the given index is a penalty
+     */
+    boolean isPenalty(int index) {
+        return (kinds[index] & PENALTY) != 0;
+    }
+
+    /**
+     * @param index the element index
+     * @return true if the element at the given index is a flagged penalty
+     */
+    boolean isFlaggedPenalty(int index) {
+        return (kinds[index] & FLAGGED) != 0;
+    }
+
+    /**
+     * @param index the element index
+     * @return true if the element at the given index is a forced break
+     */
+    boolean isForcedBreak(int index) {
+        return (kinds[index] & FORCED) != 0;
+    }
+
+    /**
+     * @param index the element index
+     * @return true if the element at the given index is a block box that cites footnotes
+     * or floats
+     */
+    boolean hasAnchors(int index) {
+        return (kinds[index] & ANCHORS) != 0;
+    }
+
+    /**
+     * @param index the element index
+     * @return the width of the element at the given index
+     */
+    int getWidth(int index) {
+        return widths[index];
+    }
+
+    /**
+     * @param index the element index
+     * @return the stretch of the element at the given index, 0 if it is not a glue
+     */
+    int getStretch(int index) {
+        return stretches[index];
+    }
+
+    /**
+     * @param index the element index
+     * @return the shrink of the element at the given index, 0 if it is not a glue
+     */
+    int getShrink(int index) {
+        return shrinks[index];
+    }
+
+    /**
+     * @param index the element index
+     * @return the penalty value of the element at the given index, 0 if it is not a penalty
+     */
+    int getPenalty(int index) {
+        return penalties[index];
+    }
+
+    /**
+     * @param index the element index
+     * @return the break class of the element at the given index, 0 if it is not a penalty
+     */
+    int getBreakClass(int index) {
+        return breakClasses[index];
+    }
+
+    /**
+     * Returns the index of the first box at or after the given index.
+     * @param startIndex the index from which to start the lookup
+     * @return the index of the next box, {@link #size()} if there is none, or
+     * {@code startIndex} if it is out of bounds
+     * @see KnuthSequence#getFirstBoxIndex(int)
+     */
+    int getFirstBoxIndex(int startIndex) {
+        if (startIndex < 0 || startIndex >= size) {
+            return startIndex;
+        }
+        int boxIndex = startIndex;
+        while (boxIndex < size && !isBox(boxIndex)) {
+            boxIndex++;
+        }
+        return boxIndex;
+    }
+
+    /**
+     * Adds up the widths, stretch and shrink of the glues that follow a break at the
+     * given index, up to the next box or forced break.
+     * @param breakIndex the index of the break
+     * @param totals the running totals (width, stretch, shrink), updated in place
+     */
+    void addGluesAfterBreak(int breakIndex, int[] totals) {
+        for (int i = breakIndex; i < size; i++) {
+            byte kind = kinds[i];
+            if ((kind & BOX) != 0) {
+                break;
+            } else if ((kind & GLUE) != 0) {
+                totals[0] += widths[i];
+                totals[1] += stretches[i];
+                totals[2] += shrinks[i];
+            } else if ((kind & FORCED) != 0 && i != breakIndex) {
+                break;
+            }
+        }
+    }
+}
@@ -51,6 +51,23 @@ public class Page {
         this.isPagePositionOnly = isPagePositionOnly;
     }
 
+    /**
+     * Constructor used with a page reference area created from a page template.
+     * @param spm the simple-page-master used for this page
+     * @param page the page reference area created for the simple-page-master
+     * @param pageNumber the page number (as an int)
+     * @param pageNumberStr the page number (as a String)
+     * @param blank true if this is a blank page
+     * @param spanAll true if the first span area spans all columns
+     * @param isPagePositionOnly true if the page uses the page-position="only" master
+     */
+    public Page(SimplePageMaster spm, org.apache.fop.area.Page page, int pageNumber,
+            String pageNumberStr, boolean blank, boolean spanAll, boolean isPagePositionOnly) {
+        this.spm = spm;
+        this.pageViewport = new PageViewport(spm, page, pageNumber, pageNumberStr, blank, spanAll);
+        this.isPagePositionOnly = isPagePositionOnly;
+    }
+
     /**
      * Auxiliary constructor used when there's no SimplePageMaster.
      * @param viewArea the view area of the page
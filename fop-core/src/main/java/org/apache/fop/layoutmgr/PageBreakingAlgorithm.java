@@ -361,23 +361,25 @@ class PageBreakingAlgorithm extends BreakingAlgorithm {
     }
 
     /**
-     * Page-breaking specific handling of the given box. Currently it adds the footnotes
-     * cited in the given box to the list of to-be-handled footnotes.
+     * Page-breaking specific handling of the box at the given position. Currently it adds
+     * the footnotes cited in the box to the list of to-be-handled footnotes.
      * {@inheritDoc}
      */
     @Override
-    protected void handleBox(KnuthBox box) {
-        super.handleBox(box);
-        if (box instanceof KnuthBlockBox
-            && ((KnuthBlockBox) box).hasAnchors()) {
-            handleFootnotes(((KnuthBlockBox) box).getElementLists());
-            if (!newFootnotes) {
-                newFootnotes = true;
-                firstNewFootnoteIndex = footnotesList.size() - 1;
+    protected void handleBoxAt(int position) {
+        super.handleBoxAt(position);
+        if (packed.hasAnchors(position)) {
+            KnuthBlockBox box = (KnuthBlockBox) getElement(position);
+            if (box.hasAnchors()) {
+                handleFootnotes(box.getElementLists());
+                if (!newFootnotes) {
+                    newFootnotes = true;
+                    firstNewFootnoteIndex = footnotesList.size() - 1;
+                }
+            }
+            if (box.hasFloatAnchors()) {
+                handlingStartOfFloat = true;
             }
-        }
-        if (box instanceof KnuthBlockBox && ((KnuthBlockBox) box).hasFloatAnchors()) {
-            handlingStartOfFloat = true;
         }
         if (floatHeight != 0 && totalWidth >= floatHeight) {
             handlingEndOfFloat = true;
@@ -391,18 +393,17 @@ class PageBreakingAlgorithm extends BreakingAlgorithm {
      * {@inheritDoc}
      */
     @Override
-    protected void handlePenaltyAt(KnuthPenalty penalty, int position,
-                                   int allowedBreaks) {
-        super.handlePenaltyAt(penalty, position, allowedBreaks);
+    protected void handlePenaltyAt(int position, int allowedBreaks) {
+        super.handlePenaltyAt(position, allowedBreaks);
         /* if the penalty had value INFINITE, default implementation
          * will not have considered it a legal break, but it could still
          * be one.
          */
-        if (penalty.getPenalty() == KnuthPenalty.INFINITE) {
-            int breakClass = penalty.getBreakClass();
+        if (packed.getPenalty(position) == KnuthPenalty.INFINITE) {
+            int breakClass = packed.getBreakClass(position);
             if (breakClass == Constants.EN_PAGE
                     || breakClass == Constants.EN_COLUMN) {
-                considerLegalBreak(penalty, position);
+                considerLegalBreak(getElement(position), position);
             }
         }
     }
@@ -455,10 +456,11 @@ class PageBreakingAlgorithm extends BreakingAlgorithm {
             // remove from footnotesList the note lists that will be met
             // after the restarting point
             for (int j = currentIndex; j >= restartingNode.position; j--) {
-                final KnuthElement resetElement = getElement(j);
-                if (resetElement instanceof KnuthBlockBox
-                        && ((KnuthBlockBox) resetElement).hasAnchors()) {
-                    resetFootnotes(((KnuthBlockBox) resetElement).getElementLists());
+                if (packed.hasAnchors(j)) {
+                    final KnuthBlockBox resetBox = (KnuthBlockBox) getElement(j);
+                    if (resetBox.hasAnchors()) {
+                        resetFootnotes(resetBox.getElementLists());
+                    }
                 }
             }
             assert restartingNode instanceof KnuthPageNode;
@@ -676,7 +678,7 @@ class PageBreakingAlgorithm extends BreakingAlgorithm {
             int index;
             // ignore suppressed elements
             for (index = prevBreakIndex + 1;
-                    !par.getElement(index).isBox();
+                    !packed.isBox(index);
                     index++) {
                 //nop
             }
@@ -684,10 +686,9 @@ class PageBreakingAlgorithm extends BreakingAlgorithm {
             for (;
                  index < breakIndex;
                  index++) {
-                if (par.getElement(index).isGlue() && par.getElement(index - 1).isBox()
-                    || par.getElement(index).isPenalty()
-                       && ((KnuthElement) par
-                           .getElement(index)).getPenalty() < KnuthElement.INFINITE) {
+                if (packed.isGlue(index) && packed.isBox(index - 1)
+                    || packed.isPenalty(index)
+                       && packed.getPenalty(index) < KnuthElement.INFINITE) {
                     // break found
                     break;
                 }
@@ -907,8 +908,7 @@ class PageBreakingAlgorithm extends BreakingAlgorithm {
         }
 
         if (element.isPenalty() && ((KnuthPenalty) element).isPenaltyFlagged()
-            && getElement(activeNode.position).isPenalty()
-            && ((KnuthPenalty) getElement(activeNode.position)).isPenaltyFlagged()) {
+            && packed.isFlaggedPenalty(activeNode.position)) {
             // add demerit for consecutive breaks at flagged penalties
             demerits += repeatedFlaggedDemerit;
         }
@@ -360,16 +360,17 @@ public class PageProvider implements Constants {
         if (isPagePositionOnly) {
             spm = pageSeq.getNextSimplePageMaster(index, isFirstPage, true, isBlank);
         }
-        Page page = new Page(spm, index, pageNumberString, isBlank, spanAll, isPagePositionOnly);
+        Page page = new Page(spm, areaTreeHandler.createPage(spm), index, pageNumberString,
+                isBlank, spanAll, isPagePositionOnly);
         //Set unique key obtained from the AreaTreeHandler
         page.getPageViewport().setKey(areaTreeHandler.generatePageViewportKey());
         page.getPageViewport().setForeignAttributes(spm.getForeignAttributes());
         page.getPageViewport().setWritingModeTraits(pageSeq);
         cachedPages.add(page);
         if (isLastPage) {
-            pageSeq.getRoot().setLastSeq(pageSeq);
+            areaTreeHandler.setLastSeq(pageSeq.getRoot(), pageSeq);
         } else if (!isFirstPage) {
-            pageSeq.getRoot().setLastSeq(null);
+            areaTreeHandler.setLastSeq(pageSeq.getRoot(), null);
         }
         return page;
     }
@@ -386,7 +387,7 @@ public class PageProvider implements Constants {
         int index = this.cachedPages.size();
         boolean isFirstPage = (startPageOfPageSequence == index);
         SimplePageMaster spm = pageSeq.getLastSimplePageMaster(index, isFirstPage, false);
-        Page page = new Page(spm, index, "", false, false, false);
+        Page page = new Page(spm, areaTreeHandler.createPage(spm), index, "", false, false, false);
         if (pageSeq.getRoot().getLastSeq() != null && pageSeq.getRoot().getLastSeq() != pageSeq) {
             return -1;
         }
@@ -21,7 +21,9 @@ package org.apache.fop.layoutmgr;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -29,7 +31,9 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.fop.area.Area;
 import org.apache.fop.area.AreaTreeHandler;
 import org.apache.fop.area.AreaTreeModel;
+import org.apache.fop.area.Block;
 import org.apache.fop.area.LineArea;
+import org.apache.fop.area.RegionReference;
 import org.apache.fop.complexscripts.bidi.BidiResolver;
 import org.apache.fop.fo.Constants;
 import org.apache.fop.fo.pagination.PageSequence;
@@ -60,6 +64,12 @@ public class PageSequenceLayoutManager extends AbstractPageSequenceLayoutManager
     /** Footnotes coming from repeated table footers, to be added after any other footnote. */
     private List<List<KnuthElement>> tableFooterFootnotes;
 
+    /**
+     * Areas laid out for page-independent static content, by side region. The areas are
+     * never placed on a page themselves; every page gets its own copy.
+     */
+    private Map<SideRegion, List<Block>> staticContentAreas = new HashMap<SideRegion, List<Block>>();
+
     private int startIntrusionAdjustment;
     private int endIntrusionAdjustment;
 
@@ -226,10 +236,34 @@ public class PageSequenceLayoutManager extends AbstractPageSequenceLayoutManager
             return;
         }
 
+        RegionReference targetRegion = getCurrentPV().getRegionReference(reg.getNameId());
+        List<Block> areas = staticContentAreas.get(reg);
+        if (areas != null) {
+            for (Block block : areas) {
+                targetRegion.addBlock(copyBlock(block));
+            }
+            return;
+        }
+
         StaticContentLayoutManager lm = getLayoutManagerMaker()
                                             .makeStaticContentLayoutManager(
                                                 this, sc, reg);
         lm.doLayout();
+        if (lm.isReusable()) {
+            areas = new ArrayList<Block>(targetRegion.getBlocks().size());
+            for (Area block : targetRegion.getBlocks()) {
+                areas.add(copyBlock((Block) block));
+            }
+            staticContentAreas.put(reg, areas);
+        }
+    }
+
+    private static Block copyBlock(Block block) {
+        try {
+            return (Block) block.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(); // Can't happen
+        }
     }
 
     /** {@inheritDoc} */
@@ -44,6 +44,8 @@ public class StaticContentLayoutManager extends BlockStackingLayoutManager {
     private int contentAreaIPD;
     private int contentAreaBPD = -1;
 
+    private boolean overflow;
+
     /**
      * Creates a new StaticContentLayoutManager.
      * @param pslm PageSequenceLayoutManager this layout manager belongs to
@@ -138,7 +140,8 @@ public class StaticContentLayoutManager extends BlockStackingLayoutManager {
         setContentAreaBPD(targetBPD);
         breaker = new StaticContentBreaker(this, targetIPD, targetAlign);
         breaker.doLayout(targetBPD, autoHeight);
-        if (breaker.isOverflow()) {
+        overflow = breaker.isOverflow();
+        if (overflow) {
             if (!autoHeight) {
                 String page = getPSLM().getCurrentPage().getPageViewport().getPageNumberString();
 
@@ -155,6 +158,20 @@ public class StaticContentLayoutManager extends BlockStackingLayoutManager {
         }
     }
 
+    /**
+     * Indicates whether the areas produced by {@link #doLayout()} can be placed unchanged
+     * into the same region on other pages of the page-sequence. That is not the case if the
+     * content depends on the page, overflowed the region, or is tagged for accessibility.
+     * @return true if the laid out areas can be reused
+     */
+    public boolean isReusable() {
+        return !overflow
+                && targetBlock == null
+                && getStaticContentFO().isPageIndependent()
+                && !getPSLM().getPageSequence().hasChangeBars()
+                && !getStaticContentFO().getUserAgent().isAccessibilityEnabled();
+    }
+
     /**
      * Convenience method that returns the Static Content node.
      * @return the static content node
@@ -71,6 +71,7 @@ import org.apache.fop.layoutmgr.NonLeafPosition;
 import org.apache.fop.layoutmgr.Position;
 import org.apache.fop.layoutmgr.PositionIterator;
 import org.apache.fop.layoutmgr.SpaceSpecifier;
+import org.apache.fop.metrics.Counter;
 import org.apache.fop.traits.MinOptMax;
 
 /**
@@ -868,6 +869,7 @@ public class LineLayoutManager extends InlineStackingLayoutManager
         int allowedBreaks = (canWrap ? BreakingAlgorithm.NO_FLAGGED_PENALTIES
                 : BreakingAlgorithm.ONLY_FORCED_BREAKS);
         int breakingPoints = alg.findBreakingPoints(currPar, maxAdjustment, false, allowedBreaks);
+        countNodes(alg);
 
         if (breakingPoints == 0 || alignment == EN_JUSTIFY) {
             // if the first try found a set of breaking points, save them
@@ -892,6 +894,7 @@ public class LineLayoutManager extends InlineStackingLayoutManager
             }
 
             breakingPoints = alg.findBreakingPoints(currPar, maxAdjustment, false, allowedBreaks);
+            countNodes(alg);
             if (breakingPoints == 0) {
                 // the second try failed too, try with a huge threshold
                 // and force the algorithm to find a set of breaking points
@@ -901,6 +904,7 @@ public class LineLayoutManager extends InlineStackingLayoutManager
                 }
                 maxAdjustment = 20;
                 alg.findBreakingPoints(currPar, maxAdjustment, true, allowedBreaks);
+                countNodes(alg);
             }
 
             // use non-hyphenated breaks, when possible
@@ -910,6 +914,10 @@ public class LineLayoutManager extends InlineStackingLayoutManager
         return lineLayouts;
     }
 
+    private void countNodes(BreakingAlgorithm alg) {
+        fobj.getUserAgent().getMetrics().add(Counter.KNUTH_NODES, alg.getRegisteredNodeCount());
+    }
+
     /**
      * Creates the element list in BP direction for the broken lines.
      * @param alignment the currently applicable vertical alignment
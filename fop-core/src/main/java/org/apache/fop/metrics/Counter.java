@@ -0,0 +1,37 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.metrics;
+
+/**
+ * The events of a processing run that {@link ProcessingMetrics} counts.
+ */
+public enum Counter {
+
+    /** Nodes registered by the line and page breaking algorithms. */
+    KNUTH_NODES,
+    /** Page-sequences laid out. */
+    PAGE_SEQUENCES,
+    /** Pages laid out. */
+    PAGES,
+    /** Image and image information lookups made through the image manager. */
+    IMAGE_REQUESTS,
+    /** Image sources opened because an image lookup was not served from the image cache. */
+    IMAGE_CACHE_MISSES
+}
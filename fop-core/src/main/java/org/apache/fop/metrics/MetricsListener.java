@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.metrics;
+
+import java.util.EventListener;
+
+/**
+ * Receives the measurements of a processing run. Listeners are called on the thread
+ * doing the processing, so they should return quickly.
+ */
+public interface MetricsListener extends EventListener {
+
+    /**
+     * Called every time a phase stops running. A phase that runs several times in a
+     * processing run (for example {@link Phase#LAYOUT}, once per page-sequence) is
+     * reported every time.
+     * @param metrics the metrics of the processing run
+     * @param phase the phase
+     * @param nanos the time spent in the phase, excluding nested phases, in nanoseconds
+     * @param allocatedBytes the bytes allocated in the phase, excluding nested phases,
+     *          or -1 if the JVM does not measure allocations
+     */
+    void phaseFinished(ProcessingMetrics metrics, Phase phase, long nanos, long allocatedBytes);
+
+    /**
+     * Called when the processing run has finished.
+     * @param metrics the metrics of the processing run
+     */
+    void processingFinished(ProcessingMetrics metrics);
+}
@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.metrics;
+
+/**
+ * The phases of a processing run that {@link ProcessingMetrics} measures. Phases nest (for
+ * example, layout runs while the FO tree is being parsed); time and allocations are always
+ * charged to the innermost running phase only, so the phases of a run add up to its total.
+ */
+public enum Phase {
+
+    /** Setting up a processing run: the FO tree builder, the renderer and its fonts. */
+    SETUP,
+    /** Parsing the FO document and building the FO tree. */
+    FO_PARSE,
+    /** Creating property lists and resolving the properties of formatting objects. */
+    PROPERTY_RESOLUTION,
+    /** Laying out a page-sequence, reported once per page-sequence. */
+    LAYOUT,
+    /** Adding finished pages to the area tree model. */
+    AREA_TREE,
+    /** Rendering pages, including painting through the intermediate format. */
+    RENDERING,
+    /** Subsetting and embedding fonts. */
+    FONT_SUBSETTING,
+    /** Loading images and image information through the image manager. */
+    IMAGE_LOADING,
+    /** Compressing and otherwise encoding output streams. */
+    STREAM_COMPRESSION,
+    /** Serializing and writing the output document. */
+    OUTPUT_WRITE
+}
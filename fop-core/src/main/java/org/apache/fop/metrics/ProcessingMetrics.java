@@ -0,0 +1,291 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records the time spent and the memory allocated in each {@link Phase} of a processing
+ * run, and counts {@link Counter events} along the way. Measurements are only taken once
+ * the metrics have been {@link #setEnabled(boolean) enabled}; otherwise every method
+ * returns immediately.
+ * <p>
+ * Phases nest: starting a phase suspends the running one until the new phase stops, so
+ * every nanosecond and byte is charged to exactly one phase. Allocations are measured per
+ * thread, where the JVM supports it (through {@code com.sun.management.ThreadMXBean}, which is
+ * looked up at runtime so that other JVMs only lose the allocation figures).
+ * <p>
+ * An instance belongs to a single processing run. Phases are only measured on the thread
+ * that started the first one (the thread parsing the document); phases started on other
+ * threads, such as page-sequences laid out in parallel, are charged to whatever the
+ * parsing thread is doing meanwhile. Counters are updated from any thread.
+ */
+public class ProcessingMetrics {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    /** ThreadMXBean.getThreadAllocatedBytes(long) of the JVM, or null if it isn't supported. */
+    private static final Method ALLOCATIONS = getAllocationMethod();
+
+    private final long[] times = new long[Phase.values().length];
+    private final long[] allocations = new long[Phase.values().length];
+    private final AtomicLongArray counts = new AtomicLongArray(Counter.values().length);
+    private final List<MetricsListener> listeners = new CopyOnWriteArrayList<MetricsListener>();
+
+    private volatile boolean enabled;
+
+    /** The thread phases are measured on. */
+    private volatile Thread owner;
+
+    /** The innermost running phase. */
+    private Frame current;
+
+    private long markTime;
+    private long markAllocations;
+
+    private static final class Frame {
+
+        private final Phase phase;
+        private final Frame parent;
+        private long time;
+        private long allocations;
+
+        Frame(Phase phase, Frame parent) {
+            this.phase = phase;
+            this.parent = parent;
+        }
+    }
+
+    private static Method getAllocationMethod() {
+        try {
+            Class<?> beanClass = Class.forName("com.sun.management.ThreadMXBean");
+            if (!beanClass.isInstance(THREADS)
+                    || !(Boolean) beanClass.getMethod("isThreadAllocatedMemorySupported").invoke(THREADS)
+                    || !(Boolean) beanClass.getMethod("isThreadAllocatedMemoryEnabled").invoke(THREADS)) {
+                return null;
+            }
+            Method method = beanClass.getMethod("getThreadAllocatedBytes", long.class);
+            method.invoke(THREADS, Thread.currentThread().getId());
+            return method;
+        } catch (Exception e) {
+            // not a HotSpot-based JVM, or the management API isn't accessible
+            return null;
+        } catch (LinkageError e) {
+            return null;
+        }
+    }
+
+    private static long getAllocatedBytes() {
+        try {
+            return (Long) ALLOCATIONS.invoke(THREADS, Thread.currentThread().getId());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Enables or disables the metrics. They are disabled by default.
+     * @param enabled true to take measurements
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /** @return true if measurements are taken */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** @return true if the allocated bytes are measured */
+    public static boolean isAllocationMeasured() {
+        return ALLOCATIONS != null;
+    }
+
+    /**
+     * Adds a listener.
+     * @param listener the listener
+     */
+    public void addListener(MetricsListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener.
+     * @param listener the listener
+     */
+    public void removeListener(MetricsListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Starts a phase, suspending the running one. Every call must be matched by a call to
+     * {@link #stop(Phase)}, usually in a finally block.
+     * @param phase the phase
+     */
+    public void start(Phase phase) {
+        if (!enabled) {
+            return;
+        }
+        if (owner == null) {
+            owner = Thread.currentThread();
+        } else if (owner != Thread.currentThread()) {
+            return;
+        }
+        mark();
+        current = new Frame(phase, current);
+    }
+
+    /**
+     * Stops a phase, resuming the phase it suspended. Phases started after the given phase
+     * that have not been stopped, for instance because of an exception, are stopped with it.
+     * @param phase the phase
+     */
+    public void stop(Phase phase) {
+        if (!enabled || current == null || owner != Thread.currentThread()) {
+            return;
+        }
+        mark();
+        Frame frame = current;
+        while (frame != null && frame.phase != phase) {
+            frame = frame.parent;
+        }
+        if (frame == null) {
+            return;
+        }
+        Frame stopped = current;
+        current = frame.parent;
+        while (true) {
+            for (MetricsListener listener : listeners) {
+                listener.phaseFinished(this, stopped.phase, stopped.time,
+                        ALLOCATIONS != null ? stopped.allocations : -1);
+            }
+            if (stopped == frame) {
+                break;
+            }
+            stopped = stopped.parent;
+        }
+    }
+
+    /** Charges the time and allocations since the last mark to the running phase. */
+    private void mark() {
+        long time = System.nanoTime();
+        long allocated = ALLOCATIONS != null ? getAllocatedBytes() : 0;
+        if (current != null) {
+            int index = current.phase.ordinal();
+            times[index] += time - markTime;
+            current.time += time - markTime;
+            allocations[index] += allocated - markAllocations;
+            current.allocations += allocated - markAllocations;
+        }
+        markTime = time;
+        markAllocations = allocated;
+    }
+
+    /**
+     * Increments a counter by one.
+     * @param counter the counter
+     */
+    public void increment(Counter counter) {
+        add(counter, 1);
+    }
+
+    /**
+     * Adds to a counter.
+     * @param counter the counter
+     * @param count the amount to add
+     */
+    public void add(Counter counter, long count) {
+        if (enabled) {
+            counts.addAndGet(counter.ordinal(), count);
+        }
+    }
+
+    /**
+     * Stops all running phases and notifies the listeners that the processing run has
+     * finished.
+     */
+    public void finish() {
+        if (!enabled) {
+            return;
+        }
+        if (owner != null && owner != Thread.currentThread()) {
+            return;
+        }
+        while (current != null) {
+            stop(current.phase);
+        }
+        owner = null;
+        for (MetricsListener listener : listeners) {
+            listener.processingFinished(this);
+        }
+    }
+
+    /**
+     * Returns the total time spent in a phase, excluding nested phases.
+     * @param phase the phase
+     * @return the time in nanoseconds
+     */
+    public long getTime(Phase phase) {
+        return times[phase.ordinal()];
+    }
+
+    /**
+     * Returns the total number of bytes allocated in a phase, excluding nested phases.
+     * @param phase the phase
+     * @return the number of bytes, or -1 if the JVM does not measure allocations
+     */
+    public long getAllocatedBytes(Phase phase) {
+        return ALLOCATIONS != null ? allocations[phase.ordinal()] : -1;
+    }
+
+    /**
+     * Returns the value of a counter.
+     * @param counter the counter
+     * @return the value
+     */
+    public long getCount(Counter counter) {
+        return counts.get(counter.ordinal());
+    }
+
+    /** {@inheritDoc} */
+    public String toString() {
+        StringBuilder sb = new StringBuilder("ProcessingMetrics[");
+        for (Phase phase : Phase.values()) {
+            sb.append(phase).append('=').append(getTime(phase) / 1000000).append("ms");
+            if (ALLOCATIONS != null) {
+                sb.append('/').append(getAllocatedBytes(phase) / 1024).append("KiB");
+            }
+            sb.append(", ");
+        }
+        for (Counter counter : Counter.values()) {
+            sb.append(counter).append('=').append(getCount(counter)).append(", ");
+        }
+        sb.setLength(sb.length() - 2);
+        return sb.append(']').toString();
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.metrics;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A {@link MetricsListener} that sums up the metrics of many processing runs, typically
+ * all the runs of a server. It can be shared between the user agents of concurrent runs
+ * and registered as an MXBean:
+ * <pre>
+ * ProcessingStatistics statistics = new ProcessingStatistics();
+ * ManagementFactory.getPlatformMBeanServer().registerMBean(statistics,
+ *         new ObjectName("org.apache.fop:type=ProcessingStatistics"));
+ * ...
+ * userAgent.getMetrics().setEnabled(true);
+ * userAgent.getMetrics().addListener(statistics);
+ * </pre>
+ */
+public class ProcessingStatistics implements MetricsListener, ProcessingStatisticsMXBean {
+
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLongArray times = new AtomicLongArray(Phase.values().length);
+    private final AtomicLongArray allocations = new AtomicLongArray(Phase.values().length);
+    private final AtomicLongArray counts = new AtomicLongArray(Counter.values().length);
+
+    /** {@inheritDoc} */
+    public void phaseFinished(ProcessingMetrics metrics, Phase phase, long nanos, long allocatedBytes) {
+    }
+
+    /** {@inheritDoc} */
+    public void processingFinished(ProcessingMetrics metrics) {
+        runs.incrementAndGet();
+        for (Phase phase : Phase.values()) {
+            times.addAndGet(phase.ordinal(), metrics.getTime(phase));
+            allocations.addAndGet(phase.ordinal(), metrics.getAllocatedBytes(phase));
+        }
+        for (Counter counter : Counter.values()) {
+            counts.addAndGet(counter.ordinal(), metrics.getCount(counter));
+        }
+    }
+
+    /** {@inheritDoc} */
+    public long getProcessingRunCount() {
+        return runs.get();
+    }
+
+    /** {@inheritDoc} */
+    public Map<String, Long> getPhaseTimes() {
+        Map<String, Long> result = new LinkedHashMap<String, Long>();
+        for (Phase phase : Phase.values()) {
+            result.put(phase.name(), TimeUnit.NANOSECONDS.toMillis(times.get(phase.ordinal())));
+        }
+        return result;
+    }
+
+    /** {@inheritDoc} */
+    public Map<String, Long> getPhaseAllocatedBytes() {
+        if (!ProcessingMetrics.isAllocationMeasured()) {
+            return Collections.emptyMap();
+        }
+        Map<String, Long> result = new LinkedHashMap<String, Long>();
+        for (Phase phase : Phase.values()) {
+            result.put(phase.name(), allocations.get(phase.ordinal()));
+        }
+        return result;
+    }
+
+    /** {@inheritDoc} */
+    public Map<String, Long> getCounts() {
+        Map<String, Long> result = new LinkedHashMap<String, Long>();
+        for (Counter counter : Counter.values()) {
+            result.put(counter.name(), counts.get(counter.ordinal()));
+        }
+        return result;
+    }
+
+    /** {@inheritDoc} */
+    public void reset() {
+        runs.set(0);
+        for (int i = 0; i < times.length(); i++) {
+            times.set(i, 0);
+            allocations.set(i, 0);
+        }
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.metrics;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link ProcessingStatistics}, for registration with a JMX
+ * {@link javax.management.MBeanServer}.
+ */
+public interface ProcessingStatisticsMXBean {
+
+    /** @return the number of processing runs recorded */
+    long getProcessingRunCount();
+
+    /** @return the total time spent in each phase, in milliseconds, keyed by phase name */
+    Map<String, Long> getPhaseTimes();
+
+    /**
+     * @return the total number of bytes allocated in each phase, keyed by phase name;
+     *          empty if the JVM does not measure allocations
+     */
+    Map<String, Long> getPhaseAllocatedBytes();
+
+    /** @return the total value of each counter, keyed by counter name */
+    Map<String, Long> getCounts();
+
+    /** Resets all statistics to zero. */
+    void reset();
+}
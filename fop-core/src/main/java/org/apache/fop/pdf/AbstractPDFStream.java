@@ -20,11 +20,20 @@
 package org.apache.fop.pdf;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.apache.commons.io.output.CountingOutputStream;
 
+import org.apache.fop.metrics.Phase;
+import org.apache.fop.metrics.ProcessingMetrics;
 import org.apache.fop.util.CloseBlockerOutputStream;
 
 /**
@@ -32,6 +41,9 @@ import org.apache.fop.util.CloseBlockerOutputStream;
  */
 public abstract class AbstractPDFStream extends PDFObject {
 
+    /** Used for streams that don't belong to a document; never enabled */
+    private static final ProcessingMetrics NO_METRICS = new ProcessingMetrics();
+
     private final PDFDictionary dictionary;
 
     /** The filters that should be applied */
@@ -41,6 +53,9 @@ public abstract class AbstractPDFStream extends PDFObject {
 
     private PDFNumber refLength = new PDFNumber();
 
+    /** The stream data being encoded on a worker thread, if any */
+    private Future<StreamCache> pendingEncoding;
+
     protected AbstractPDFStream() {
         this(true);
     }
@@ -166,8 +181,10 @@ public abstract class AbstractPDFStream extends PDFObject {
      */
     protected StreamCache encodeStream() throws IOException {
         //Allocate a temporary buffer to find out the size of the encoded stream
-        final StreamCache encodedStream = StreamCacheFactory.getInstance()
-                .createStreamCache(getSizeHint());
+        PDFDocument doc = getDocument();
+        StreamCacheFactory factory = doc != null
+                ? doc.getStreamCacheFactory() : StreamCacheFactory.getInstance();
+        final StreamCache encodedStream = factory.createStreamCache(getSizeHint());
         OutputStream filteredOutput
                 = getFilterList().applyFilters(encodedStream.getOutputStream());
         outputRawStreamData(filteredOutput);
@@ -217,20 +234,42 @@ public abstract class AbstractPDFStream extends PDFObject {
      */
     @Override
     public int output(OutputStream stream) throws IOException {
-        setupFilterList();
-
         CountingOutputStream cout = new CountingOutputStream(stream);
         StringBuilder textBuffer = new StringBuilder(64);
 
+        ProcessingMetrics metrics = getMetrics();
         StreamCache encodedStream = null;
         final Object lengthEntry;
-        if (encodeOnTheFly) {
+        if (pendingEncoding != null) {
+            metrics.start(Phase.STREAM_COMPRESSION);
+            try {
+                encodedStream = getPendingEncoding();
+            } finally {
+                metrics.stop(Phase.STREAM_COMPRESSION);
+            }
+            if (encodeOnTheFly) {
+                if (!refLength.hasObjectNumber()) {
+                    registerChildren();
+                }
+                refLength.setNumber(encodedStream.getSize());
+                lengthEntry = refLength;
+            } else {
+                lengthEntry = encodedStream.getSize();
+            }
+        } else if (encodeOnTheFly) {
+            setupFilterList();
             if (!refLength.hasObjectNumber()) {
                 registerChildren();
             }
             lengthEntry = refLength;
         } else {
-            encodedStream = encodeStream();
+            setupFilterList();
+            metrics.start(Phase.STREAM_COMPRESSION);
+            try {
+                encodedStream = encodeStream();
+            } finally {
+                metrics.stop(Phase.STREAM_COMPRESSION);
+            }
             lengthEntry = encodedStream.getSize();
         }
 
@@ -240,7 +279,13 @@ public abstract class AbstractPDFStream extends PDFObject {
         //Send encoded stream to target OutputStream
         PDFDocument.flushTextBuffer(textBuffer, cout);
         if (encodedStream == null) {
-            encodeAndWriteStream(cout, refLength);
+            //Encoding and writing can't be told apart here, the whole is charged to encoding
+            metrics.start(Phase.STREAM_COMPRESSION);
+            try {
+                encodeAndWriteStream(cout, refLength);
+            } finally {
+                metrics.stop(Phase.STREAM_COMPRESSION);
+            }
         } else {
             outputStreamData(encodedStream, cout);
             encodedStream.clear(); //Encoded stream can now be discarded
@@ -250,6 +295,77 @@ public abstract class AbstractPDFStream extends PDFObject {
         return cout.getCount();
     }
 
+    /**
+     * Starts encoding the stream data on the given executor so that it is ready when
+     * {@link #output(OutputStream)} is called. The filters are set up on the calling thread.
+     * Nothing happens if the stream doesn't allow parallel encoding or is already being encoded.
+     * @param executor the executor to run the encoding on
+     */
+    void encodeAhead(ExecutorService executor) {
+        if (pendingEncoding != null || !isParallelEncodingAllowed()) {
+            return;
+        }
+        setupFilterList();
+        pendingEncoding = executor.submit(new Callable<StreamCache>() {
+            public StreamCache call() throws IOException {
+                return encodeStream();
+            }
+        });
+    }
+
+    /**
+     * Indicates whether the stream data is still being encoded on a worker thread.
+     * @return true if the encoding started by {@link #encodeAhead} hasn't finished yet
+     */
+    boolean isEncodingPending() {
+        return pendingEncoding != null && !pendingEncoding.isDone();
+    }
+
+    private ProcessingMetrics getMetrics() {
+        PDFDocument doc = getDocument();
+        return doc != null ? doc.getMetrics() : NO_METRICS;
+    }
+
+    private StreamCache getPendingEncoding() throws IOException {
+        try {
+            return pendingEncoding.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while encoding stream " + getObjectID());
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        } finally {
+            pendingEncoding = null;
+        }
+    }
+
+    /**
+     * Indicates whether the stream data may be encoded on a worker thread ahead of
+     * {@link #output(OutputStream)}. This is only the case if {@link #outputRawStreamData}
+     * doesn't access the document, as the latter isn't thread-safe.
+     * @return true if the stream can be encoded in parallel, false by default
+     */
+    protected boolean isParallelEncodingAllowed() {
+        return false;
+    }
+
+    /**
+     * Discards the data held for the stream once it has been written and won't be written
+     * again. Used by {@link PDFDocument} in streaming mode. Nothing is released by default;
+     * subclasses that keep their stream data until output should override this method.
+     * @throws IOException if the stream data can't be released
+     */
+    protected void releaseData() throws IOException {
+    }
+
     @Override
     public void setDocument(PDFDocument doc) {
         dictionary.setDocument(doc);
@@ -293,6 +409,52 @@ public abstract class AbstractPDFStream extends PDFObject {
         }
     }
 
+    /**
+     * Computes a SHA-256 digest of the stream dictionary and the raw stream data. Streams with
+     * the same digest have the same content and can be written as a single object. A
+     * collision-resistant digest is used because the data of a stream that has already been
+     * written may no longer be available to compare with. The "Name" and "Length" entries
+     * are not part of the digest. The stream must have been assigned to a document, as the
+     * dictionary is populated for the digest.
+     * @return the digest in hexadecimal form
+     * @throws IOException in case of an I/O problem
+     * @see PDFDocument#findIdenticalStream(AbstractPDFStream)
+     */
+    protected String computeContentDigest() throws IOException {
+        final MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        OutputStream out = new OutputStream() {
+            public void write(int b) {
+                md.update((byte) b);
+            }
+
+            public void write(byte[] b, int off, int len) {
+                md.update(b, off, len);
+            }
+        };
+        populateStreamDict(null);
+        StringBuilder textBuffer = new StringBuilder(getClass().getName());
+        textBuffer.append(' ').append(getDefaultFilterName()).append('\n');
+        for (String key : dictionary.order) {
+            if (!"Name".equals(key) && !"Length".equals(key)) {
+                textBuffer.append(PDFName.escapeName(key)).append(' ');
+                formatObject(dictionary.get(key), out, textBuffer);
+                textBuffer.append('\n');
+            }
+        }
+        PDFDocument.flushTextBuffer(textBuffer, out);
+        outputRawStreamData(out);
+        StringBuilder hex = new StringBuilder();
+        for (byte b : md.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
     public void registerChildren() {
         if (encodeOnTheFly) {
             getDocument().registerObject(refLength);
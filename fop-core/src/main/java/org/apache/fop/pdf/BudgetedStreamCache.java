@@ -0,0 +1,246 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.pdf;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * StreamCache implementation that keeps its data in memory while it is small and the
+ * memory budget of its {@link StreamCacheFactory} allows, and spills it to the factory's
+ * temporary file otherwise. Once spilled, new data is collected in a buffer of at most one
+ * block, which is charged to the budget like the in-memory data. When the budget cannot
+ * cover that buffer, data is written straight through to the file, so the heap used by
+ * all caches of a factory stays within its budget however many streams are open.
+ */
+final class BudgetedStreamCache implements StreamCache {
+
+    private static final int MIN_BUFFER_SIZE = 512;
+
+    private final StreamCacheFactory factory;
+    private final int hintSize;
+
+    /** The data while in memory, or the part of the last block not yet written once spilled. */
+    private byte[] buffer;
+
+    /** The number of bytes while in memory, or the number of bytes in the last block once spilled. */
+    private int count;
+
+    /** Once spilled, the number of bytes of the last block already in the spill file. */
+    private int written;
+
+    /** The number of bytes reserved from the memory budget for the buffer. */
+    private int reserved;
+
+    /** The blocks in the spill file, the last one possibly incomplete; null while in memory. */
+    private int[] blocks;
+    private int blockCount;
+
+    private final byte[] single = new byte[1];
+
+    private final OutputStream output = new OutputStream() {
+
+        public void write(int b) throws IOException {
+            single[0] = (byte) b;
+            append(single, 0, 1);
+        }
+
+        public void write(byte[] b, int off, int len) throws IOException {
+            append(b, off, len);
+        }
+    };
+
+    /**
+     * Creates a new cache.
+     * @param factory the factory providing the memory budget and the spill file
+     * @param hintSize a hint about the approximate expected size of the buffer
+     */
+    BudgetedStreamCache(StreamCacheFactory factory, int hintSize) {
+        this.factory = factory;
+        this.hintSize = hintSize;
+    }
+
+    private void append(byte[] b, int off, int len) throws IOException {
+        if (blocks == null) {
+            if (ensureInMemory(len)) {
+                System.arraycopy(b, off, buffer, count, len);
+                count += len;
+                return;
+            }
+            spill();
+        }
+        while (len > 0) {
+            if (blockCount == 0 || count == SpillFile.BLOCK_SIZE) {
+                startBlock();
+            }
+            int chunk = Math.min(len, SpillFile.BLOCK_SIZE - count);
+            if (ensureBuffer(count - written, chunk, SpillFile.BLOCK_SIZE)) {
+                System.arraycopy(b, off, buffer, count - written, chunk);
+                count += chunk;
+                if (count == SpillFile.BLOCK_SIZE) {
+                    flushBuffer();
+                }
+            } else {
+                flushBuffer();
+                factory.getSpillFile().write(blocks[blockCount - 1], count, b, off, chunk);
+                count += chunk;
+                written = count;
+            }
+            off += chunk;
+            len -= chunk;
+        }
+    }
+
+    /**
+     * Makes room in the in-memory buffer unless the data would grow beyond the factory's
+     * in-memory limit.
+     * @param len the number of bytes to be written
+     * @return true if the data fits, false if it has to be spilled
+     */
+    private boolean ensureInMemory(int len) {
+        long required = (long) count + len;
+        return required <= factory.getMaxInMemorySize()
+                && ensureBuffer(count, len, factory.getMaxInMemorySize());
+    }
+
+    /**
+     * Grows the buffer, reserving the additional memory from the budget.
+     * @param used the number of bytes in the buffer
+     * @param len the number of bytes to be added
+     * @param limit the maximum size of the buffer, at least used + len
+     * @return true if the buffer has room for len more bytes
+     */
+    private boolean ensureBuffer(int used, int len, long limit) {
+        int capacity = buffer != null ? buffer.length : 0;
+        if (capacity - used >= len) {
+            return true;
+        }
+        int newCapacity = (int) Math.min(Math.max(Math.max((long) used + len, capacity * 2L),
+                Math.max(hintSize, MIN_BUFFER_SIZE)), limit);
+        if (!factory.reserve(newCapacity - capacity)) {
+            return false;
+        }
+        byte[] grown = new byte[newCapacity];
+        if (buffer != null) {
+            System.arraycopy(buffer, 0, grown, 0, used);
+        }
+        buffer = grown;
+        reserved += newCapacity - capacity;
+        return true;
+    }
+
+    /** Moves the in-memory data to the spill file and releases its memory reservation. */
+    private void spill() throws IOException {
+        byte[] data = buffer;
+        int size = count;
+        buffer = null;
+        count = 0;
+        blocks = new int[Math.max(4, size / SpillFile.BLOCK_SIZE + 1)];
+        for (int offset = 0; offset < size; offset += SpillFile.BLOCK_SIZE) {
+            startBlock();
+            count = Math.min(SpillFile.BLOCK_SIZE, size - offset);
+            factory.getSpillFile().write(blocks[blockCount - 1], 0, data, offset, count);
+            written = count;
+        }
+        factory.release(reserved);
+        reserved = 0;
+    }
+
+    private void startBlock() throws IOException {
+        if (blockCount == blocks.length) {
+            int[] grown = new int[blocks.length * 2];
+            System.arraycopy(blocks, 0, grown, 0, blockCount);
+            blocks = grown;
+        }
+        blocks[blockCount++] = factory.getSpillFile().allocate();
+        count = 0;
+        written = 0;
+    }
+
+    /** Writes the buffered part of the last block to the spill file. */
+    private void flushBuffer() throws IOException {
+        if (count > written) {
+            factory.getSpillFile().write(blocks[blockCount - 1], written, buffer, 0, count - written);
+            written = count;
+        }
+    }
+
+    /** @return true if the data has been moved to the spill file */
+    boolean isSpilled() {
+        return blocks != null;
+    }
+
+    /** @return the size of the buffer held in memory, which is charged to the budget */
+    int getBufferCapacity() {
+        return buffer != null ? buffer.length : 0;
+    }
+
+    /** {@inheritDoc} */
+    public OutputStream getOutputStream() throws IOException {
+        return output;
+    }
+
+    /** {@inheritDoc} */
+    public void write(byte[] data) throws IOException {
+        output.write(data, 0, data.length);
+    }
+
+    /** {@inheritDoc} */
+    public int outputContents(OutputStream out) throws IOException {
+        if (blocks == null) {
+            if (count > 0) {
+                out.write(buffer, 0, count);
+            }
+            return count;
+        }
+        byte[] block = new byte[blockCount > 1 ? SpillFile.BLOCK_SIZE : written];
+        for (int i = 0; i < blockCount; i++) {
+            int length = i < blockCount - 1 ? SpillFile.BLOCK_SIZE : written;
+            factory.getSpillFile().read(blocks[i], block, length);
+            out.write(block, 0, length);
+        }
+        if (count > written) {
+            out.write(buffer, 0, count - written);
+        }
+        return getSize();
+    }
+
+    /** {@inheritDoc} */
+    public int getSize() throws IOException {
+        if (blocks == null || blockCount == 0) {
+            return count;
+        }
+        return (blockCount - 1) * SpillFile.BLOCK_SIZE + count;
+    }
+
+    /** {@inheritDoc} */
+    public void clear() throws IOException {
+        if (blocks != null) {
+            factory.getSpillFile().free(blocks, blockCount);
+            blocks = null;
+            blockCount = 0;
+        }
+        factory.release(reserved);
+        reserved = 0;
+        buffer = null;
+        count = 0;
+        written = 0;
+    }
+}
@@ -34,8 +34,15 @@ public class ObjectStream extends PDFStream {
 
     private static final PDFName OBJ_STM = new PDFName("ObjStm");
 
+    /** The objects added but not yet serialized */
     private List<CompressedObject> objects = new ArrayList<CompressedObject>();
 
+    private int objectCount;
+
+    private StringBuilder offsetsPart = new StringBuilder();
+
+    private ByteArrayOutputStream streamContent = new ByteArrayOutputStream();
+
     private int firstObjectOffset;
 
     ObjectStream() {
@@ -52,33 +59,65 @@ public class ObjectStream extends PDFStream {
             throw new NullPointerException("obj must not be null");
         }
         CompressedObjectReference reference = new CompressedObjectReference(obj.getObjectNumber(),
-                getObjectNumber(), objects.size());
+                getObjectNumber(), objectCount++);
         objects.add(obj);
         return reference;
     }
 
-    @Override
-    protected void outputRawStreamData(OutputStream out) throws IOException {
-        int currentOffset = 0;
-        StringBuilder offsetsPart = new StringBuilder();
-        ByteArrayOutputStream streamContent = new ByteArrayOutputStream();
+    /**
+     * Serializes the objects added since the last call, so that {@link #getContentSize()}
+     * accounts for them. Otherwise objects are serialized when the stream is written.
+     * @throws IOException if an object cannot be serialized
+     */
+    void serializeObjects() throws IOException {
         for (CompressedObject object : objects) {
             offsetsPart.append(object.getObjectNumber())
                     .append(' ')
-                    .append(currentOffset)
+                    .append(streamContent.size())
                     .append('\n');
-            currentOffset += object.output(streamContent);
+            object.output(streamContent);
         }
+        objects.clear();
+    }
+
+    /** @return the number of objects in this stream */
+    int getObjectCount() {
+        return objectCount;
+    }
+
+    /** @return the size of the serialized objects, before compression */
+    int getContentSize() {
+        return streamContent.size();
+    }
+
+    /**
+     * Releases the serialized objects once the stream has been written.
+     */
+    void releaseObjects() {
+        objects = null;
+        offsetsPart = null;
+        streamContent = null;
+    }
+
+    @Override
+    protected void outputRawStreamData(OutputStream out) throws IOException {
+        serializeObjects();
         byte[] offsets = PDFDocument.encode(offsetsPart.toString());
         firstObjectOffset = offsets.length;
         out.write(offsets);
         streamContent.writeTo(out);
     }
 
+    @Override
+    protected boolean isParallelEncodingAllowed() {
+        // the compressed objects are serialized while encoding
+        return false;
+    }
+
     @Override
     protected void populateStreamDict(Object lengthEntry) {
         put("Type", OBJ_STM);
-        put("N", objects.size());
+        put("N", objectCount);
         put("First", firstObjectOffset);
         super.populateStreamDict(lengthEntry);
     }
@@ -16,51 +16,117 @@
  */
 
 /* $Id$ */
-
 package org.apache.fop.pdf;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.fop.pdf.xref.CompressedObjectReference;
 
 /**
  * Manages a collection of object streams, creating new streams as necessary to keep the
- * number of objects in each stream at the recommended value. Streams are related to each
- * other through the use of the Extends entry in the stream dictionary.
+ * number of objects in each stream within the limits of an {@link ObjectStreamStrategy}.
+ * Streams are related to each other through the use of the Extends entry in the stream
+ * dictionary.
+ * <p>
+ * Streams that are full can be written with {@link #writeFullStreams(OutputStream)} while
+ * objects are still being added, which releases the serialized objects they hold.
  */
 class ObjectStreamManager {
 
-    private static final int OBJECT_STREAM_CAPACITY = 100;
-
     private final PDFDocument pdfDocument;
 
+    private final ObjectStreamStrategy strategy;
+
     private final List<CompressedObjectReference> compressedObjectReferences;
 
-    private int numObjectsInStream;
+    /** The streams objects are currently added to, by object kind */
+    private final Map<Object, ObjectStream> openStreams = new LinkedHashMap<Object, ObjectStream>();
 
-    private ObjectStream currentObjectStream;
+    /** The streams that are full but have not been written yet */
+    private final List<ObjectStream> fullStreams = new ArrayList<ObjectStream>();
+
+    private ObjectStream lastObjectStream;
 
     ObjectStreamManager(PDFDocument pdfDocument) {
+        this(pdfDocument, ObjectStreamStrategy.DEFAULT);
+    }
+
+    ObjectStreamManager(PDFDocument pdfDocument, ObjectStreamStrategy strategy) {
         this.pdfDocument = pdfDocument;
-        createObjectStream();
+        this.strategy = strategy;
         compressedObjectReferences = new ArrayList<CompressedObjectReference>();
     }
 
     void add(CompressedObject compressedObject) {
-        if (numObjectsInStream++ == OBJECT_STREAM_CAPACITY) {
-            createObjectStream();
-            numObjectsInStream = 1;
+        Object kind = strategy.isGroupedByKind() ? strategy.getKind(compressedObject) : null;
+        ObjectStream objectStream = openStreams.get(kind);
+        if (objectStream == null || isFull(objectStream)) {
+            if (objectStream != null) {
+                fullStreams.add(objectStream);
+            }
+            objectStream = createObjectStream();
+            openStreams.put(kind, objectStream);
+        }
+        compressedObjectReferences.add(objectStream.addObject(compressedObject));
+    }
+
+    private boolean isFull(ObjectStream objectStream) {
+        if (objectStream.getObjectCount() >= strategy.getCapacity()) {
+            return true;
         }
-        compressedObjectReferences.add(currentObjectStream.addObject(compressedObject));
+        if (strategy.getMaxBytes() > 0) {
+            try {
+                objectStream.serializeObjects();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            return objectStream.getContentSize() >= strategy.getMaxBytes();
+        }
+        return false;
     }
 
-    private void createObjectStream() {
-        currentObjectStream = currentObjectStream == null
+    private ObjectStream createObjectStream() {
+        lastObjectStream = lastObjectStream == null
                 ? new ObjectStream()
-                : new ObjectStream(currentObjectStream);
-        pdfDocument.assignObjectNumber(currentObjectStream);
-        pdfDocument.addTrailerObject(currentObjectStream);
+                : new ObjectStream(lastObjectStream);
+        pdfDocument.assignObjectNumber(lastObjectStream);
+        return lastObjectStream;
+    }
+
+    /**
+     * Writes the streams that have been filled up since the last call.
+     * @param stream the stream to write to
+     * @throws IOException if an I/O error occurs
+     */
+    void writeFullStreams(OutputStream stream) throws IOException {
+        for (ObjectStream objectStream : fullStreams) {
+            write(objectStream, stream);
+        }
+        fullStreams.clear();
+    }
+
+    /**
+     * Writes all the streams that haven't been written yet. No more objects may be added
+     * afterwards.
+     * @param stream the stream to write to
+     * @throws IOException if an I/O error occurs
+     */
+    void writeStreams(OutputStream stream) throws IOException {
+        writeFullStreams(stream);
+        for (ObjectStream objectStream : openStreams.values()) {
+            write(objectStream, stream);
+        }
+        openStreams.clear();
+    }
+
+    private void write(ObjectStream objectStream, OutputStream stream) throws IOException {
+        pdfDocument.streamIndirectObject(objectStream, stream);
+        objectStream.releaseObjects();
     }
 
     List<CompressedObjectReference> getCompressedObjectReferences() {
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.pdf;
+
+/**
+ * Controls how compressed objects are packed into object streams: how many objects or
+ * bytes a stream may hold, and whether objects of different kinds share streams. Larger
+ * streams compress better but hold more objects in memory until they are written; keeping
+ * objects of one kind together puts similar dictionaries next to each other, which helps
+ * the Flate filter.
+ */
+public final class ObjectStreamStrategy {
+
+    /** The recommended number of objects per stream, and the default capacity. */
+    public static final int DEFAULT_CAPACITY = 100;
+
+    /** Packs up to 100 objects per stream, in the order they are written. */
+    public static final ObjectStreamStrategy DEFAULT = new ObjectStreamStrategy(DEFAULT_CAPACITY, 0, false);
+
+    private final int capacity;
+
+    private final int maxBytes;
+
+    private final boolean groupedByKind;
+
+    /**
+     * Creates a new strategy.
+     * @param capacity the maximum number of objects per stream
+     * @param maxBytes the size in bytes, before compression, beyond which no more objects are
+     * added to a stream, 0 for no limit
+     * @param groupedByKind true to pack objects of different kinds into separate streams
+     */
+    public ObjectStreamStrategy(int capacity, int maxBytes, boolean groupedByKind) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("maxBytes must not be negative: " + maxBytes);
+        }
+        this.capacity = capacity;
+        this.maxBytes = maxBytes;
+        this.groupedByKind = groupedByKind;
+    }
+
+    /** @return the maximum number of objects per stream */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /** @return the size beyond which no more objects are added to a stream, 0 for no limit */
+    public int getMaxBytes() {
+        return maxBytes;
+    }
+
+    /** @return true if objects of different kinds are packed into separate streams */
+    public boolean isGroupedByKind() {
+        return groupedByKind;
+    }
+
+    /**
+     * Returns the kind of an object, used to group objects if {@link #isGroupedByKind()}.
+     * Structure elements are grouped by structure type, other objects by class.
+     * @param object the object
+     * @return the kind of the object
+     */
+    Object getKind(CompressedObject object) {
+        if (object instanceof PDFStructElem) {
+            return String.valueOf(((PDFStructElem) object).getStructureType());
+        }
+        return object.getClass();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return "ObjectStreamStrategy[capacity=" + capacity + ", maxBytes=" + maxBytes
+                + ", groupedByKind=" + groupedByKind + "]";
+    }
+}
@@ -54,4 +54,10 @@ public class PDFCFFStream extends AbstractPDFFontStream {
     public void setData(byte[] data) throws IOException {
         cffData = data;
     }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void releaseData() {
+        this.cffData = null;
+    }
 }
@@ -78,5 +78,10 @@ public class PDFCFFStreamType0C extends AbstractPDFFontStream {
         System.arraycopy(data, 0, this.cffData, 0, size);
     }
 
-}
+    /** {@inheritDoc} */
+    @Override
+    protected void releaseData() {
+        this.cffData = null;
+    }
 
+}
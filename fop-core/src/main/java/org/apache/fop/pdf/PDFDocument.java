@@ -23,6 +23,8 @@ package org.apache.fop.pdf;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -32,13 +34,21 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.apache.fop.metrics.ProcessingMetrics;
 import org.apache.fop.pdf.StandardStructureAttributes.Table.Scope;
 import org.apache.fop.pdf.xref.CrossReferenceStream;
 import org.apache.fop.pdf.xref.CrossReferenceTable;
+import org.apache.fop.pdf.xref.ObjectOffsetList;
 import org.apache.fop.pdf.xref.TrailerDictionary;
 
 /* image support modified from work of BoBoGi */
@@ -70,6 +80,12 @@ public class PDFDocument {
     /** the encoding to use when converting strings to PDF commands */
     public static final String ENCODING = "ISO-8859-1";
 
+    /** Time in milliseconds after which an idle compression thread ends */
+    static final long COMPRESSION_THREAD_KEEP_ALIVE = 1000;
+
+    /** The number of streams per compression thread that may be left for a later output() */
+    private static final int MAX_PENDING_ENCODINGS = 4;
+
     /** the counter for object numbering */
     protected int objectcount;
 
@@ -80,7 +96,7 @@ public class PDFDocument {
     protected long position;
 
     /** the character position of each object */
-    protected List<Long> indirectObjectOffsets = new ArrayList<Long>();
+    protected List<Long> indirectObjectOffsets = new ObjectOffsetList();
 
     protected List<PDFStructElem> structureTreeElements;
 
@@ -132,6 +148,13 @@ public class PDFDocument {
     /* TODO: Should be modified (works only for image subtype) */
     private Map<String, PDFXObject> xObjectsMap = new HashMap<String, PDFXObject>();
 
+    /**
+     * Streams by content digest, null unless stream deduplication is enabled. The streams are
+     * weakly referenced so that the map does not keep them in memory once the document has
+     * written them and no longer uses them.
+     */
+    private Map<String, Reference<AbstractPDFStream>> streamsByDigest;
+
     private Map<String, PDFFont> fontMap = new HashMap<String, PDFFont>();
 
     private Map<String, List<String>> filterMap = new HashMap<String, List<String>>();
@@ -176,6 +199,18 @@ public class PDFDocument {
 
     private boolean formXObjectEnabled;
 
+    private boolean streamingEnabled;
+
+    private int compressionThreads;
+
+    private ExecutorService compressionExecutor;
+
+    private ProcessingMetrics metrics = new ProcessingMetrics();
+
+    private StreamCacheFactory streamCacheFactory = StreamCacheFactory.getInstance();
+
+    private ObjectStreamStrategy objectStreamStrategy = ObjectStreamStrategy.DEFAULT;
+
     protected boolean outputStarted;
 
     /**
@@ -417,6 +452,10 @@ public class PDFDocument {
         addObject(obj);
         if (obj instanceof AbstractPDFStream) {
             ((AbstractPDFStream) obj).registerChildren();
+            if (isParallelCompressionEnabled()) {
+                //streams that may be encoded in parallel are complete once registered
+                ((AbstractPDFStream) obj).encodeAhead(getCompressionExecutor());
+            }
         }
         return obj;
     }
@@ -508,12 +547,14 @@ public class PDFDocument {
         }
         if (obj instanceof PDFPage) {
             this.pages.notifyKidRegistered((PDFPage)obj);
-            pageObjs.add((PDFPage) obj);
+            if (!isStreamingEnabled()) {
+                pageObjs.add((PDFPage) obj);
+            }
         }
         if (obj instanceof PDFLaunch) {
             this.launches.add((PDFLaunch) obj);
         }
-        if (obj instanceof PDFLink) {
+        if (obj instanceof PDFLink && !isStreamingEnabled()) {
             this.links.add((PDFLink) obj);
         }
         if (obj instanceof PDFFileSpec) {
@@ -868,9 +909,25 @@ public class PDFDocument {
         }
 
         // setup image
+        int objectsBeforeSetup = this.objects.size();
         img.setup(this);
         // create a new XObject
-        xObject = new PDFImageXObject(++this.xObjectCount, img);
+        xObject = new PDFImageXObject(this.xObjectCount + 1, img);
+        PDFImageXObject identical = findIdenticalStream(xObject);
+        if (identical != null) {
+            try {
+                xObject.discardRawData();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            unregisterColorSpacesSince(objectsBeforeSetup);
+            if (res != null) {
+                res.addXObject(identical);
+            }
+            this.xObjectsMap.put(key, identical);
+            return identical;
+        }
+        this.xObjectCount++;
         registerObject(xObject);
         this.resources.addXObject(xObject);
         if (res != null) {
@@ -880,6 +937,28 @@ public class PDFDocument {
         return xObject;
     }
 
+    /**
+     * Unregisters the color spaces the setup of an image registered, once the image turned
+     * out to be identical to an earlier one. Its ICC stream is then the earlier image's, but
+     * the setup looks color spaces up by the description of the image's profile, which need
+     * not be the one the stream was set up with (e.g. for sRGB), and so may add another one.
+     * Nothing is unregistered unless all objects registered since are such color spaces and
+     * none of them has been given an object number yet, so the numbering has no gaps.
+     * @param objectCount the number of pending objects before the setup
+     */
+    private void unregisterColorSpacesSince(int objectCount) {
+        List<PDFObject> registered = this.objects.subList(objectCount, this.objects.size());
+        for (PDFObject obj : registered) {
+            if (!(obj instanceof PDFICCBasedColorSpace) || obj.getObjectNumber().isAssigned()) {
+                return;
+            }
+        }
+        for (PDFObject obj : registered) {
+            this.resources.removeColorSpace((PDFColorSpace) obj);
+        }
+        registered.clear();
+    }
+
     /**
      * Add a form XObject to the PDF document.
      * This adds a Form XObject to the PDF objects.
@@ -982,18 +1061,86 @@ public class PDFDocument {
 
     /**
      * Writes out the entire document
+     * <p>
+     * If streams are compressed in parallel, the objects are written up to the first stream
+     * that is still being encoded; the others are written by a later call, so the document
+     * can be built further while the streams are encoded.
      *
      * @param stream the OutputStream to output the document to
      * @throws IOException if there is an exception writing to the output stream
      */
     public void output(OutputStream stream) throws IOException {
+        output(stream, false);
+    }
+
+    private void output(OutputStream stream, boolean waitForEncoding) throws IOException {
         outputStarted = true;
+        if (isParallelCompressionEnabled()) {
+            encodeStreamsAhead();
+        }
         //Write out objects until the list is empty. This approach (used with a
         //LinkedList) allows for output() methods to create and register objects
         //on the fly even during serialization.
         while (this.objects.size() > 0) {
-            PDFObject object = this.objects.remove(0);
+            PDFObject object = this.objects.get(0);
+            if (!waitForEncoding && isEncodingPending(object)
+                    && countPendingEncodings() <= compressionThreads * MAX_PENDING_ENCODINGS) {
+                break;
+            }
+            this.objects.remove(0);
             streamIndirectObject(object, stream);
+            if (isStreamingEnabled()) {
+                releaseObject(object);
+            }
+        }
+    }
+
+    private static boolean isEncodingPending(PDFObject object) {
+        return object instanceof AbstractPDFStream && ((AbstractPDFStream) object).isEncodingPending();
+    }
+
+    private int countPendingEncodings() {
+        int count = 0;
+        for (PDFObject object : objects) {
+            if (isEncodingPending(object)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Starts encoding all pending streams on the compression executor. The objects are still
+     * written in their original order.
+     */
+    private void encodeStreamsAhead() {
+        for (PDFObject object : objects) {
+            if (object instanceof AbstractPDFStream) {
+                ((AbstractPDFStream) object).encodeAhead(getCompressionExecutor());
+            }
+        }
+    }
+
+    private ExecutorService getCompressionExecutor() {
+        if (compressionExecutor == null) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(compressionThreads,
+                    compressionThreads, COMPRESSION_THREAD_KEEP_ALIVE, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new CompressionThreadFactory());
+            //Idle threads end on their own, so a document that is never finished (e.g. because
+            //rendering failed) doesn't leak its compression threads.
+            executor.allowCoreThreadTimeOut(true);
+            compressionExecutor = executor;
+        }
+        return compressionExecutor;
+    }
+
+    /**
+     * Releases the data held by an object that has been written out in streaming mode.
+     * Only the object's offset is kept; the object itself may only be referenced afterwards.
+     */
+    private void releaseObject(PDFObject object) throws IOException {
+        if (object instanceof AbstractPDFStream) {
+            ((AbstractPDFStream) object).releaseData();
         }
     }
 
@@ -1030,11 +1177,16 @@ public class PDFDocument {
     }
 
     private void recordObjectOffset(PDFObject object) {
-        int index = object.getObjectNumber().getNumber() - 1;
-        while (indirectObjectOffsets.size() <= index) {
-            indirectObjectOffsets.add(null);
+        int objectNumber = object.getObjectNumber().getNumber();
+        if (indirectObjectOffsets instanceof ObjectOffsetList) {
+            ((ObjectOffsetList) indirectObjectOffsets).setOffset(objectNumber, position);
+        } else {
+            int index = objectNumber - 1;
+            while (indirectObjectOffsets.size() <= index) {
+                indirectObjectOffsets.add(null);
+            }
+            indirectObjectOffsets.set(index, position);
         }
-        indirectObjectOffsets.set(index, position);
     }
 
     /**
@@ -1096,8 +1248,23 @@ public class PDFDocument {
      */
     public void outputTrailer(OutputStream stream) throws IOException {
         createDestinations();
-        output(stream);
-        outputTrailerObjectsAndXref(stream);
+        try {
+            try {
+                output(stream, true);
+            } finally {
+                shutdownCompressionExecutor();
+            }
+            outputTrailerObjectsAndXref(stream);
+        } finally {
+            streamCacheFactory.close();
+        }
+    }
+
+    private void shutdownCompressionExecutor() {
+        if (compressionExecutor != null) {
+            compressionExecutor.shutdown();
+            compressionExecutor = null;
+        }
     }
 
     private void createDestinations() {
@@ -1190,10 +1357,12 @@ public class PDFDocument {
         public void outputStructureTreeElements(OutputStream stream)
                 throws IOException {
             assert structureTreeElements.size() > 0;
-            structureTreeObjectStreams = new ObjectStreamManager(PDFDocument.this);
+            structureTreeObjectStreams = new ObjectStreamManager(PDFDocument.this, objectStreamStrategy);
             for (PDFStructElem structElem : structureTreeElements) {
                 structureTreeObjectStreams.add(structElem);
+                structureTreeObjectStreams.writeFullStreams(stream);
             }
+            structureTreeObjectStreams.writeStreams(stream);
         }
 
         public long outputCrossReferenceObject(OutputStream stream,
@@ -1238,4 +1407,180 @@ public class PDFDocument {
     public void setFormXObjectEnabled(boolean b) {
         formXObjectEnabled = b;
     }
+
+    /**
+     * Indicates whether objects are released as soon as they have been written. In streaming
+     * mode, pages, links and the data of content streams are not retained after output, so the
+     * memory used while producing a document does not grow with its page count. Streaming
+     * has no effect when linearization is enabled as the latter needs all pages until the end.
+     * @return true if streaming mode is active
+     */
+    public boolean isStreamingEnabled() {
+        return streamingEnabled && !linearizationEnabled;
+    }
+
+    /**
+     * Indicates whether stream data is encoded on worker threads. This is the case if a
+     * compression pool size has been set, unless encryption or linearization is active.
+     * @return true if streams are compressed in parallel
+     */
+    public boolean isParallelCompressionEnabled() {
+        return compressionThreads > 0 && !isEncryptionActive() && !linearizationEnabled;
+    }
+
+    /**
+     * Sets the number of worker threads used to encode (compress) streams before they are
+     * written. Objects are still written in the order they were registered.
+     * @param threads the pool size, 0 to encode all streams on the calling thread
+     */
+    public void setCompressionThreads(int threads) {
+        if (threads < 0) {
+            throw new IllegalArgumentException("threads must not be negative");
+        }
+        shutdownCompressionExecutor();
+        compressionThreads = threads;
+    }
+
+    /**
+     * Limits the memory used to buffer stream content. Streams beyond the limit, and
+     * streams too large to be worth buffering, are spilled to a temporary file that is
+     * deleted once the trailer has been written. Must be called before any content is added.
+     * @param bytes the memory budget in bytes, 0 to buffer all streams in memory
+     * @throws IOException if the previous stream cache cannot be closed
+     */
+    public void setStreamCacheMemory(long bytes) throws IOException {
+        if (bytes < 0) {
+            throw new IllegalArgumentException("bytes must not be negative");
+        }
+        streamCacheFactory.close();
+        streamCacheFactory = bytes > 0
+                ? StreamCacheFactory.newInstance(bytes) : StreamCacheFactory.getInstance();
+    }
+
+    /**
+     * Enables or disables the deduplication of streams by content. When enabled, images
+     * and ICC profiles whose dictionary and data are identical to those of a stream added
+     * earlier are written only once, even if they were added under different keys.
+     * @param enabled true to enable stream deduplication
+     */
+    public void setStreamDeduplicationEnabled(boolean enabled) {
+        if (enabled && streamsByDigest == null) {
+            streamsByDigest = new HashMap<String, Reference<AbstractPDFStream>>();
+        } else if (!enabled) {
+            streamsByDigest = null;
+        }
+    }
+
+    /**
+     * Indicates whether streams are deduplicated by content.
+     * @return true if stream deduplication is enabled
+     */
+    public boolean isStreamDeduplicationEnabled() {
+        return streamsByDigest != null;
+    }
+
+    /**
+     * Looks up a stream whose dictionary and data are identical to those of the given
+     * stream, which must not have been registered yet. If there is none, the given stream
+     * is recorded for later lookups and is expected to be registered by the caller. A stream
+     * is only found as long as it is still referenced elsewhere.
+     * @param stream the new stream
+     * @param <T> the type of the stream
+     * @return the identical stream found, or null if there is none or stream deduplication
+     * is disabled
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends AbstractPDFStream> T findIdenticalStream(T stream) {
+        if (streamsByDigest == null) {
+            return null;
+        }
+        stream.setDocument(this);
+        String digest;
+        try {
+            digest = stream.computeContentDigest();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        Reference<AbstractPDFStream> reference = streamsByDigest.get(digest);
+        AbstractPDFStream identical = (reference != null) ? reference.get() : null;
+        if (identical != null) {
+            return (T) identical;
+        }
+        streamsByDigest.put(digest, new WeakReference<AbstractPDFStream>(stream));
+        return null;
+    }
+
+    /**
+     * Sets how objects are packed into object streams. Object streams hold the structure
+     * tree of accessible documents from PDF 1.5 on.
+     * @param strategy the object stream strategy
+     */
+    public void setObjectStreamStrategy(ObjectStreamStrategy strategy) {
+        if (strategy == null) {
+            throw new NullPointerException("strategy must not be null");
+        }
+        objectStreamStrategy = strategy;
+    }
+
+    /**
+     * Returns how objects are packed into object streams.
+     * @return the object stream strategy
+     */
+    public ObjectStreamStrategy getObjectStreamStrategy() {
+        return objectStreamStrategy;
+    }
+
+    /**
+     * Returns the factory for the caches that buffer stream content.
+     * @return the stream cache factory
+     */
+    public StreamCacheFactory getStreamCacheFactory() {
+        return streamCacheFactory;
+    }
+
+    /**
+     * Returns the metrics that stream encoding is recorded in.
+     * @return the processing metrics
+     */
+    public ProcessingMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets the metrics that stream encoding is recorded in. Only the time the writing
+     * thread spends encoding, or waiting for the encoding workers, is recorded.
+     * @param metrics the processing metrics of the current processing run
+     */
+    public void setMetrics(ProcessingMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns the number of worker threads used to encode streams.
+     * @return the pool size, 0 if streams are encoded on the calling thread
+     */
+    public int getCompressionThreads() {
+        return compressionThreads;
+    }
+
+    private static final class CompressionThreadFactory implements ThreadFactory {
+
+        private final ThreadFactory defaultFactory = Executors.defaultThreadFactory();
+
+        public Thread newThread(Runnable r) {
+            Thread thread = defaultFactory.newThread(r);
+            thread.setName("FOP PDF compression " + thread.getName());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * Enables or disables streaming mode.
+     * @param b true to release objects once they have been written
+     * @see #isStreamingEnabled()
+     */
+    public void setStreamingEnabled(boolean b) {
+        streamingEnabled = b;
+    }
 }
@@ -20,6 +20,7 @@
 package org.apache.fop.pdf;
 
 // Java
+import java.awt.color.ICC_Profile;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.io.ByteArrayInputStream;
@@ -1358,21 +1359,27 @@ public class PDFFactory {
 
         CustomFont font = getCustomFont(desc);
 
+        FontFileReader reader = null;
         InputStream in = null;
         try {
-            in = font.getInputStream();
-            if (in == null) {
+            if (desc.getFontType() == FontType.TYPE0 || (desc.getFontType() == FontType.TYPE1C
+                    && font.getEmbeddingMode() == EmbeddingMode.SUBSET)) {
+                reader = font.getFontFileReader();
+            } else {
+                in = font.getInputStream();
+            }
+            if (reader == null && in == null) {
                 return null;
             }
             AbstractPDFStream embeddedFont = null;
             if (desc.getFontType() == FontType.TYPE0) {
                 MultiByteFont mbfont = (MultiByteFont) font;
-                FontFileReader reader = new FontFileReader(in);
                 byte[] fontBytes;
                 String header = OFFontLoader.readHeader(reader);
                 boolean isCFF = mbfont.isOTFFile();
                 if (font.getEmbeddingMode() == EmbeddingMode.FULL) {
-                    fontBytes = reader.getAllBytes();
+                    // a copy for the stream, the content of the reader stays shared
+                    fontBytes = reader.getBytes(0, reader.getFileSize());
                     if (isCFF) {
                         //Ensure version 1.6 for full OTF CFF embedding
                         document.setPDFVersion(Version.V1_6);
@@ -1398,7 +1405,6 @@ public class PDFFactory {
                 }
             } else if (desc.getFontType() == FontType.TYPE1C) {
                 if (font.getEmbeddingMode() == EmbeddingMode.SUBSET) {
-                    FontFileReader reader = new FontFileReader(in);
                     String header = OFFontLoader.readHeader(reader);
                     byte[] fontBytes = getFontSubsetBytes(reader, (MultiByteFont) font, header, fontPrefix, desc, true);
                     embeddedFont = getFontStream(font, fontBytes, true);
@@ -1528,6 +1534,25 @@ public class PDFFactory {
         return iccStream;
     }
 
+    /**
+     * Create a PDFICCStream for the given profile. If stream deduplication is enabled and
+     * an ICC stream with the same content has been created before, that one is returned.
+     * @param profile the ICC profile
+     * @param alt the alternate color space, may be null
+     * @return the PDF ICC stream object
+     * @see PDFDocument#setStreamDeduplicationEnabled(boolean)
+     */
+    public PDFICCStream makePDFICCStream(ICC_Profile profile, PDFDeviceColorSpace alt) {
+        PDFICCStream iccStream = new PDFICCStream();
+        iccStream.setColorSpace(profile, alt);
+        PDFICCStream identical = getDocument().findIdenticalStream(iccStream);
+        if (identical != null) {
+            return identical;
+        }
+        getDocument().registerObject(iccStream);
+        return iccStream;
+    }
+
     /* ========================= misc. objects ============================= */
 
     /**
@@ -34,6 +34,8 @@ import org.apache.xmlgraphics.java2d.color.profile.ColorProfileUtil;
  */
 public class PDFICCBasedColorSpace extends PDFObject implements PDFColorSpace {
 
+    private static ICC_Profile sRGBProfile;
+
     private PDFICCStream iccStream;
     private String explicitName;
     private int numComponents;
@@ -136,8 +138,19 @@ public class PDFICCBasedColorSpace extends PDFObject implements PDFColorSpace {
      * @return the ICC stream with the sRGB profile
      */
     public static PDFICCStream setupsRGBColorProfile(PDFDocument pdfDoc) {
+        return pdfDoc.getFactory().makePDFICCStream(getsRGBProfile(), null);
+    }
+
+    /**
+     * Returns the sRGB color profile, which is only loaded once; ICC profiles are not modified
+     * once they have been loaded, so all documents share it.
+     * @return the sRGB color profile
+     */
+    private static synchronized ICC_Profile getsRGBProfile() {
+        if (sRGBProfile != null) {
+            return sRGBProfile;
+        }
         ICC_Profile profile;
-        PDFICCStream sRGBProfile = pdfDoc.getFactory().makePDFICCStream();
         InputStream in = PDFDocument.class.getResourceAsStream("sRGB.icc");
         if (in != null) {
             try {
@@ -152,8 +165,8 @@ public class PDFICCBasedColorSpace extends PDFObject implements PDFColorSpace {
             // Fallback: Use the sRGB profile from the JRE (about 140KB)
             profile = ColorProfileUtil.getICC_Profile(ColorSpace.CS_sRGB);
         }
-        sRGBProfile.setColorSpace(profile, null);
-        return sRGBProfile;
+        sRGBProfile = profile;
+        return profile;
     }
 
     @Override
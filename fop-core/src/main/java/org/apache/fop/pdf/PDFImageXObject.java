@@ -43,6 +43,9 @@ public class PDFImageXObject extends PDFXObject {
 
     private PDFImage pdfimage;
 
+    /** The raw image data, if it had to be read before the image is written */
+    private StreamCache rawData;
+
     /**
      * create an XObject with the given number and name and load the
      * image in the object
@@ -67,7 +70,7 @@ public class PDFImageXObject extends PDFXObject {
     public int output(OutputStream stream) throws IOException {
         if (getDocument().getProfile().isPDFVTActive()) {
             ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            pdfimage.outputContents(baos);
+            outputRawStreamData(baos);
             put("GTS_XID", "uuid:" + UUID.nameUUIDFromBytes(baos.toByteArray()));
         }
         int length = super.output(stream);
@@ -76,9 +79,36 @@ public class PDFImageXObject extends PDFXObject {
         // this object is retained as a reference to inserting
         // the same image but the image data is no longer needed
         pdfimage = null;
+        discardRawData();
         return length;
     }
 
+    /**
+     * {@inheritDoc}
+     * The raw image data is read only once: it is kept in a stream cache until the image
+     * is written, as the image may not be able to provide it again.
+     */
+    @Override
+    protected String computeContentDigest() throws IOException {
+        if (rawData == null) {
+            rawData = getDocumentSafely().getStreamCacheFactory().createStreamCache();
+            pdfimage.outputContents(rawData.getOutputStream());
+        }
+        return super.computeContentDigest();
+    }
+
+    /**
+     * Releases the raw image data read for the content digest. Called when the image
+     * has been written, or when it is discarded in favour of an identical one.
+     * @throws IOException if the stream cache cannot be cleared
+     */
+    void discardRawData() throws IOException {
+        if (rawData != null) {
+            rawData.clear();
+            rawData = null;
+        }
+    }
+
     /** {@inheritDoc} */
     protected void populateStreamDict(Object lengthEntry) {
         super.populateStreamDict(lengthEntry);
@@ -150,7 +180,11 @@ public class PDFImageXObject extends PDFXObject {
 
     /** {@inheritDoc} */
     protected void outputRawStreamData(OutputStream out) throws IOException {
-        pdfimage.outputContents(out);
+        if (rawData != null) {
+            rawData.outputContents(out);
+        } else {
+            pdfimage.outputContents(out);
+        }
     }
 
     /** {@inheritDoc} */
@@ -179,6 +213,12 @@ public class PDFImageXObject extends PDFXObject {
         return pdfimage.multipleFiltersAllowed();
     }
 
+    /** {@inheritDoc} */
+    @Override
+    protected boolean isParallelEncodingAllowed() {
+        return !getDocument().getProfile().isPDFVTActive();
+    }
+
     @Override
     public void getChildren(Set<PDFObject> children) {
         super.getChildren(children);
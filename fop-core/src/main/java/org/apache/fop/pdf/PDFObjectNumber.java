@@ -40,6 +40,11 @@ public class PDFObjectNumber {
         return num;
     }
 
+    /** @return true if the number has been fixed, i.e. the object has been referenced or written */
+    boolean isAssigned() {
+        return num != 0;
+    }
+
     public String toString() {
         return String.valueOf(getNumber());
     }
@@ -163,6 +163,15 @@ public class PDFResources extends PDFDictionary {
         }
     }
 
+    /**
+     * Removes a color space added to the resources.
+     * @param colorSpace the color space to remove
+     */
+    void removeColorSpace(PDFColorSpace colorSpace) {
+        colorSpaces.values().remove(colorSpace);
+        iccColorSpaces.values().remove(colorSpace);
+    }
+
     static class LazyName {
         private PDFColorSpace colorSpace;
         public LazyName(PDFColorSpace colorSpace) {
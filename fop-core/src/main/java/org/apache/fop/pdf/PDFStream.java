@@ -45,6 +45,8 @@ public class PDFStream extends AbstractPDFStream {
     private transient Writer streamWriter;
     private transient char[] charBuffer;
 
+    private boolean parallelEncodingAllowed;
+
     /**
      * Create an empty stream object
      */
@@ -70,15 +72,45 @@ public class PDFStream extends AbstractPDFStream {
     private void setUp() {
         try {
             data = StreamCacheFactory.getInstance().createStreamCache();
-            this.streamWriter = new OutputStreamWriter(
-                    getBufferOutputStream(), PDFDocument.ENCODING);
-            //Buffer to minimize calls to the converter
-            this.streamWriter = new java.io.BufferedWriter(this.streamWriter);
+            createWriter();
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    private void createWriter() throws IOException {
+        this.streamWriter = null;
+        this.streamWriter = new OutputStreamWriter(
+                getBufferOutputStream(), PDFDocument.ENCODING);
+        //Buffer to minimize calls to the converter
+        this.streamWriter = new java.io.BufferedWriter(this.streamWriter);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Streams are created before they know their document, so they start out buffered in
+     * memory. If the document limits the memory used by streams, the buffered content is
+     * moved to a cache of the document's {@link StreamCacheFactory} here.
+     */
+    @Override
+    public void setDocument(PDFDocument doc) {
+        super.setDocument(doc);
+        if (doc != null && streamWriter != null && data instanceof InMemoryStreamCache
+                && doc.getStreamCacheFactory().isBudgeted()) {
+            try {
+                flush();
+                StreamCache budgeted = doc.getStreamCacheFactory().createStreamCache(data.getSize());
+                data.outputContents(budgeted.getOutputStream());
+                data.clear();
+                data = budgeted;
+                createWriter();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
     /**
      * Append data to the stream
      *
@@ -122,7 +154,9 @@ public class PDFStream extends AbstractPDFStream {
     }
 
     private void flush() throws IOException {
-        this.streamWriter.flush();
+        if (this.streamWriter != null) {
+            this.streamWriter.flush();
+        }
     }
 
     /**
@@ -194,6 +228,32 @@ public class PDFStream extends AbstractPDFStream {
         return len;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    protected boolean isParallelEncodingAllowed() {
+        return parallelEncodingAllowed;
+    }
+
+    /**
+     * Allows the stream to be encoded on a worker thread ahead of its output. This must only
+     * be enabled for streams whose data is complete when they are registered with the
+     * document, like page content streams; streams that write their data in
+     * {@link #output(OutputStream)}, like CMaps, must stay sequential.
+     * @param parallelEncodingAllowed true to allow parallel encoding
+     */
+    public void setParallelEncodingAllowed(boolean parallelEncodingAllowed) {
+        this.parallelEncodingAllowed = parallelEncodingAllowed;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void releaseData() throws IOException {
+        flush();
+        streamWriter = null;
+        charBuffer = null;
+        data.clear();
+    }
+
     public String streamHashCode() throws IOException {
         ByteArrayOutputStream bos = new ByteArrayOutputStream();
         outputRawStreamData(bos);
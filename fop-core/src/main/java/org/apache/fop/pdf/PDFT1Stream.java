@@ -85,4 +85,10 @@ public class PDFT1Stream extends AbstractPDFFontStream {
         this.pfb = pfb;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    protected void releaseData() {
+        this.pfb = null;
+    }
+
 }
@@ -86,4 +86,10 @@ public class PDFTTFStream extends AbstractPDFFontStream {
         System.arraycopy(data, 0, this.ttfData, 0, size);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    protected void releaseData() {
+        this.ttfData = null;
+    }
+
 }
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.pdf;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * The temporary file that the {@link BudgetedStreamCache}s of a {@link StreamCacheFactory}
+ * spill to. The file is divided into blocks of {@link #BLOCK_SIZE} bytes. Blocks released
+ * by a cache go to a free list and are reused before the file is extended, so the file
+ * only grows as far as the peak amount of spilled data.
+ * <p>
+ * Blocks are allocated under a lock; reading and writing blocks uses positional I/O on a
+ * shared channel and may happen concurrently.
+ * <p>
+ * The file isn't memory-mapped: a block is written once and read back once, in whole, into
+ * a buffer of the cache, so a mapping would save no copy. And as a mapping is only released
+ * when it is garbage collected, the file could neither be truncated nor, on some platforms,
+ * deleted by {@link #close()}, and it would have to be mapped anew each time it grows.
+ */
+final class SpillFile {
+
+    /** The size of a block in bytes. */
+    static final int BLOCK_SIZE = 64 * 1024;
+
+    private File file;
+    private RandomAccessFile access;
+    private volatile FileChannel channel;
+
+    private int blockCount;
+    private int[] freeBlocks = new int[16];
+    private int freeCount;
+
+    /**
+     * Allocates a block, creating the file on first use.
+     * @return the index of the block
+     * @throws IOException if the file cannot be created
+     */
+    synchronized int allocate() throws IOException {
+        if (channel == null) {
+            file = File.createTempFile("org.apache.fop.pdf.StreamCache-", ".temp");
+            file.deleteOnExit();
+            access = new RandomAccessFile(file, "rw");
+            channel = access.getChannel();
+        }
+        if (freeCount > 0) {
+            return freeBlocks[--freeCount];
+        }
+        return blockCount++;
+    }
+
+    /**
+     * Returns blocks to the free list.
+     * @param blocks the block indexes
+     * @param count the number of blocks to release, from the start of the array
+     */
+    synchronized void free(int[] blocks, int count) {
+        if (freeCount + count > freeBlocks.length) {
+            int[] grown = new int[Math.max(freeBlocks.length * 2, freeCount + count)];
+            System.arraycopy(freeBlocks, 0, grown, 0, freeCount);
+            freeBlocks = grown;
+        }
+        System.arraycopy(blocks, 0, freeBlocks, freeCount, count);
+        freeCount += count;
+    }
+
+    /**
+     * Writes data to a block.
+     * @param block the block index
+     * @param offset the position within the block to write at
+     * @param data the buffer holding the data
+     * @param off the offset of the data in the buffer
+     * @param len the number of bytes to write, at most {@link #BLOCK_SIZE} - offset
+     * @throws IOException if an I/O error occurs
+     */
+    void write(int block, int offset, byte[] data, int off, int len) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(data, off, len);
+        long position = (long) block * BLOCK_SIZE + offset;
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Reads data from the start of a block.
+     * @param block the block index
+     * @param data the buffer receiving the data
+     * @param len the number of bytes to read, at most {@link #BLOCK_SIZE}
+     * @throws IOException if an I/O error occurs
+     */
+    void read(int block, byte[] data, int len) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(data, 0, len);
+        long position = (long) block * BLOCK_SIZE;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of stream cache file " + file);
+            }
+            position += read;
+        }
+    }
+
+    /** @return the number of blocks in the file */
+    synchronized int getBlockCount() {
+        return blockCount;
+    }
+
+    /**
+     * Closes and deletes the file. It is recreated if a block is allocated again.
+     * @throws IOException if the file cannot be closed
+     */
+    synchronized void close() throws IOException {
+        if (channel != null) {
+            channel = null;
+            try {
+                access.close();
+            } finally {
+                access = null;
+                file.delete();
+                file = null;
+                blockCount = 0;
+                freeCount = 0;
+            }
+        }
+    }
+}
@@ -16,17 +16,31 @@
  */
 
 /* $Id$ */
-
 package org.apache.fop.pdf;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * This class is serves as a factory from
+ * This class serves as a factory for {@link StreamCache}s.
+ * <p>
+ * The shared instance returned by {@link #getInstance()} keeps all streams in memory.
+ * Instances created with {@link #newInstance(long)} keep streams in memory only up to a
+ * total memory budget; streams that exceed the budget, or that are too large to be worth
+ * buffering, are spilled to a single temporary file that is deleted by {@link #close()}.
  */
-public final class StreamCacheFactory {
+public final class StreamCacheFactory implements Closeable {
+
+    private static StreamCacheFactory memoryInstance = new StreamCacheFactory(-1);
+
+    /** The remaining memory budget in bytes, or -1 if memory is unbounded. */
+    private final AtomicLong available;
+
+    /** The size beyond which a single stream is spilled regardless of the budget. */
+    private final long maxInMemorySize;
 
-    private static StreamCacheFactory memoryInstance = new StreamCacheFactory();
+    private final SpillFile spillFile;
 
     /**
      * Returns an instance of a StreamCacheFactory with the requested features.
@@ -36,31 +50,120 @@ public final class StreamCacheFactory {
         return memoryInstance;
     }
 
+    /**
+     * Returns a new StreamCacheFactory whose caches together hold at most the given number
+     * of bytes in memory and spill everything else to a temporary file. The factory must be
+     * {@link #close() closed} when the streams it created are no longer needed.
+     * @param memoryBudget the memory budget in bytes
+     * @return the new factory
+     */
+    public static StreamCacheFactory newInstance(long memoryBudget) {
+        if (memoryBudget <= 0) {
+            throw new IllegalArgumentException("The memory budget must be positive: " + memoryBudget);
+        }
+        return new StreamCacheFactory(memoryBudget);
+    }
+
     /**
      * Creates a new StreamCacheFactory.
-     * @param cacheToFile True if file shall be cached using a temporary file
+     * @param memoryBudget the memory budget in bytes, or -1 to keep all streams in memory
      */
-    private StreamCacheFactory() {
+    private StreamCacheFactory(long memoryBudget) {
+        if (memoryBudget < 0) {
+            available = null;
+            maxInMemorySize = Integer.MAX_VALUE;
+            spillFile = null;
+        } else {
+            available = new AtomicLong(memoryBudget);
+            maxInMemorySize = Math.max(SpillFile.BLOCK_SIZE, memoryBudget / 16);
+            spillFile = new SpillFile();
+        }
     }
 
     /**
-     * Get the correct implementation (based on cacheToFile) of
+     * Get the correct implementation (based on the memory budget) of
      * StreamCache.
      * @throws IOException if there is an IO error
      * @return a new StreamCache for caching streams
      */
     public StreamCache createStreamCache() throws IOException {
-        return new InMemoryStreamCache();
+        return createStreamCache(0);
     }
 
     /**
-     * Get the correct implementation (based on cacheToFile) of
+     * Get the correct implementation (based on the memory budget) of
      * StreamCache.
      * @param hintSize a hint about the approximate expected size of the buffer
      * @throws IOException if there is an IO error
      * @return a new StreamCache for caching streams
      */
     public StreamCache createStreamCache(int hintSize) throws IOException {
-        return new InMemoryStreamCache(hintSize);
+        if (available == null) {
+            return hintSize > 0 ? new InMemoryStreamCache(hintSize) : new InMemoryStreamCache();
+        }
+        return new BudgetedStreamCache(this, hintSize);
+    }
+
+    /** @return true if the streams created by this factory may be spilled to a file */
+    public boolean isBudgeted() {
+        return available != null;
+    }
+
+    /** @return the part of the memory budget not currently in use, -1 if memory is unbounded */
+    public long getAvailableMemory() {
+        return available != null ? available.get() : -1;
+    }
+
+    /** @return the number of blocks the spill file has grown to */
+    int getSpilledBlockCount() {
+        return spillFile != null ? spillFile.getBlockCount() : 0;
+    }
+
+    /** @return the size beyond which a single stream is spilled regardless of the budget */
+    long getMaxInMemorySize() {
+        return maxInMemorySize;
+    }
+
+    /** @return the file streams are spilled to */
+    SpillFile getSpillFile() {
+        return spillFile;
+    }
+
+    /**
+     * Takes memory from the budget.
+     * @param bytes the number of bytes
+     * @return true if the memory was available and has been taken
+     */
+    boolean reserve(long bytes) {
+        while (true) {
+            long current = available.get();
+            if (current < bytes) {
+                return false;
+            }
+            if (available.compareAndSet(current, current - bytes)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns memory to the budget.
+     * @param bytes the number of bytes
+     */
+    void release(long bytes) {
+        if (bytes > 0) {
+            available.addAndGet(bytes);
+        }
+    }
+
+    /**
+     * Deletes the spill file. Streams that have been spilled can no longer be read
+     * afterwards. Does nothing for the shared in-memory instance.
+     * @throws IOException if the file cannot be closed
+     */
+    public void close() throws IOException {
+        if (spillFile != null) {
+            spillFile.close();
+        }
     }
 }
@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.pdf.xref;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * A list of byte offsets of indirect objects, indexed by object number minus one. The offsets
+ * are held in a primitive array so that documents with a very large number of objects don't
+ * retain one {@link Long} instance per object until the cross-reference section is written.
+ * Entries for objects that have not been written yet are {@code null}.
+ */
+public class ObjectOffsetList extends AbstractList<Long> implements RandomAccess {
+
+    private static final long UNSET = -1L;
+
+    private static final int DEFAULT_CAPACITY = 256;
+
+    private long[] offsets;
+
+    private int size;
+
+    /** Creates a new, empty list. */
+    public ObjectOffsetList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new, empty list.
+     * @param initialCapacity the number of entries to reserve space for
+     */
+    public ObjectOffsetList(int initialCapacity) {
+        offsets = new long[Math.max(initialCapacity, 1)];
+    }
+
+    /**
+     * Returns the offset at the given index without boxing it.
+     * @param index the index (object number minus one)
+     * @return the offset, or -1 if the entry is not set
+     */
+    public long getOffset(int index) {
+        checkIndex(index);
+        return offsets[index];
+    }
+
+    /**
+     * Records the offset of the given object, growing the list as necessary.
+     * @param objectNumber the object number (starting at 1)
+     * @param offset the byte offset of the object
+     */
+    public void setOffset(int objectNumber, long offset) {
+        int index = objectNumber - 1;
+        if (index >= size) {
+            ensureCapacity(index + 1);
+            Arrays.fill(offsets, size, index, UNSET);
+            size = index + 1;
+        }
+        offsets[index] = offset;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Long get(int index) {
+        long offset = getOffset(index);
+        return offset == UNSET ? null : Long.valueOf(offset);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Long set(int index, Long element) {
+        Long previous = get(index);
+        offsets[index] = toPrimitive(element);
+        return previous;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void add(int index, Long element) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        ensureCapacity(size + 1);
+        System.arraycopy(offsets, index, offsets, index + 1, size - index);
+        offsets[index] = toPrimitive(element);
+        size++;
+        modCount++;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Long remove(int index) {
+        Long previous = get(index);
+        System.arraycopy(offsets, index + 1, offsets, index, size - index - 1);
+        size--;
+        modCount++;
+        return previous;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void clear() {
+        size = 0;
+        modCount++;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private static long toPrimitive(Long element) {
+        if (element == null) {
+            return UNSET;
+        }
+        if (element < 0) {
+            throw new IllegalArgumentException("Negative offset: " + element);
+        }
+        return element;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > offsets.length) {
+            int newCapacity = Math.max(capacity, offsets.length + (offsets.length >> 1));
+            offsets = Arrays.copyOf(offsets, newCapacity);
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+}
@@ -144,7 +144,7 @@ public abstract class PrintRendererConfigurator extends AbstractRendererConfigur
         if (rendererConfigParser == null) {
             fontList = Collections.<EmbedFontInfo>emptyList();
         } else {
-            fontList = fontInfoConfigurator.configure(getRendererConfig(mimeType).getFontInfoConfig());
+            fontList = buildFontList(mimeType);
         }
         return createCollectionFromFontList(resolver, fontList);
     }
@@ -163,7 +163,8 @@ public abstract class PrintRendererConfigurator extends AbstractRendererConfigur
     }
 
     private List<EmbedFontInfo> buildFontList(String mimeType) throws FOPException {
-        return fontInfoConfigurator.configure(getRendererConfig(mimeType).getFontInfoConfig());
+        return userAgent.getConfiguredFonts(mimeType, fontInfoConfigurator,
+                getRendererConfig(mimeType).getFontInfoConfig());
     }
 
     public static PrintRendererConfigurator createDefaultInstance(FOUserAgent userAgent) {
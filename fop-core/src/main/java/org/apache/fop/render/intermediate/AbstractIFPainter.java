@@ -48,6 +48,8 @@ import org.apache.fop.apps.FOUserAgent;
 import org.apache.fop.fo.Constants;
 import org.apache.fop.fonts.FontInfo;
 import org.apache.fop.fonts.FontTriplet;
+import org.apache.fop.metrics.Counter;
+import org.apache.fop.metrics.Phase;
 import org.apache.fop.render.ImageHandler;
 import org.apache.fop.render.ImageHandlerRegistry;
 import org.apache.fop.render.ImageHandlerUtil;
@@ -156,9 +158,14 @@ public abstract class AbstractIFPainter<T extends IFDocumentHandler> implements
 
         ImageFlavor[] flavors = imageHandlerRegistry.getSupportedFlavors(context);
         info.getCustomObjects().put("warningincustomobject", true);
-        org.apache.xmlgraphics.image.loader.Image img = manager.getImage(
-                    info, flavors,
-                    hints, sessionContext);
+        org.apache.xmlgraphics.image.loader.Image img;
+        getUserAgent().getMetrics().increment(Counter.IMAGE_REQUESTS);
+        getUserAgent().getMetrics().start(Phase.IMAGE_LOADING);
+        try {
+            img = manager.getImage(info, flavors, hints, sessionContext);
+        } finally {
+            getUserAgent().getMetrics().stop(Phase.IMAGE_LOADING);
+        }
 
         if (info.getCustomObjects().get("warning") != null) {
             ResourceEventProducer eventProducer = ResourceEventProducer.Provider.get(
@@ -258,6 +265,8 @@ public abstract class AbstractIFPainter<T extends IFDocumentHandler> implements
      */
     protected ImageInfo getImageInfo(String uri) {
         ImageManager manager = getUserAgent().getImageManager();
+        getUserAgent().getMetrics().increment(Counter.IMAGE_REQUESTS);
+        getUserAgent().getMetrics().start(Phase.IMAGE_LOADING);
         try {
             ImageSessionContext sessionContext = getUserAgent().getImageSessionContext();
             return manager.getImageInfo(uri, sessionContext);
@@ -273,6 +282,8 @@ public abstract class AbstractIFPainter<T extends IFDocumentHandler> implements
             ResourceEventProducer eventProducer = ResourceEventProducer.Provider.get(
                     getUserAgent().getEventBroadcaster());
             eventProducer.imageIOError(this, uri, ioe, null);
+        } finally {
+            getUserAgent().getMetrics().stop(Phase.IMAGE_LOADING);
         }
         return null;
     }
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.render.intermediate;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Constants for the binary encoding of the intermediate format, written by
+ * {@link IFBinarySerializer} and read back by {@link IFParser}.
+ * <p>
+ * A binary IF document starts with {@link #SIGNATURE}, followed by a sequence of records, each
+ * introduced by a one-byte record type. The painting operations that make up the bulk of a
+ * document (text, fonts, rectangles, lines, images, viewports and groups) have dedicated records
+ * holding their values in binary form. Everything else (pages, the structure tree, document
+ * navigation, extension objects and foreign objects) is kept as a stream of SAX event records, so
+ * that it is handled exactly like its XML counterpart.
+ * <p>
+ * Integers are written as variable-length values, signed ones zigzag-encoded. Strings are written
+ * as their length followed by their characters, each a variable-length value. Names, which repeat
+ * throughout a document, are written in full on first use only and referred to by index afterwards.
+ */
+final class IFBinaryFormat {
+
+    /** The signature a binary IF document starts with. The first byte is not valid in XML. */
+    static final byte[] SIGNATURE = new byte[] {(byte) 0x89, 'F', 'O', 'P', 'I', 'F', '\r', '\n'};
+
+    /** The version of the binary encoding. */
+    static final int VERSION = 1;
+
+    static final int START_DOCUMENT = 1;
+    static final int END_DOCUMENT = 2;
+    static final int START_PREFIX_MAPPING = 3;
+    static final int END_PREFIX_MAPPING = 4;
+    static final int START_ELEMENT = 5;
+    static final int END_ELEMENT = 6;
+    static final int CHARACTERS = 7;
+
+    static final int START_VIEWPORT = 16;
+    static final int END_VIEWPORT = 17;
+    static final int START_GROUP = 18;
+    static final int END_GROUP = 19;
+    static final int FONT = 20;
+    static final int TEXT = 21;
+    static final int CLIP_RECT = 22;
+    static final int RECT = 23;
+    static final int BORDER_RECT = 24;
+    static final int LINE = 25;
+    static final int IMAGE = 26;
+
+    /** Name reference for null. */
+    static final int NULL_NAME = 0;
+    /** Name reference announcing a name that has not been written yet. */
+    static final int NEW_NAME = 1;
+    /** Offset of the indices of the names that have already been written. */
+    static final int NAME_INDEX_OFFSET = 2;
+
+    static final int NO_COLOR = 0;
+    static final int RGB_COLOR = 1;
+    static final int OTHER_COLOR = 2;
+
+    static final int FONT_FAMILY = 1;
+    static final int FONT_STYLE = 2;
+    static final int FONT_WEIGHT = 4;
+    static final int FONT_VARIANT = 8;
+    static final int FONT_SIZE = 16;
+    static final int FONT_COLOR = 32;
+
+    static final int TEXT_NEXT_IS_SPACE = 1;
+    static final int TEXT_HYPHENATED = 2;
+    static final int TEXT_DX = 4;
+    static final int TEXT_DP = 8;
+
+    private IFBinaryFormat() {
+    }
+
+    /**
+     * Indicates whether a stream holds a binary IF document. The stream must support marks; it is
+     * reset to its initial position.
+     * @param in the stream
+     * @return true if the stream starts with the binary IF signature
+     * @throws IOException if an I/O error occurs
+     */
+    static boolean isBinary(InputStream in) throws IOException {
+        in.mark(SIGNATURE.length);
+        try {
+            for (byte b : SIGNATURE) {
+                if (in.read() != (b & 0xff)) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            in.reset();
+        }
+    }
+}
@@ -0,0 +1,413 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.render.intermediate;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+import org.apache.xmlgraphics.util.QName;
+
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.fo.expr.PropertyException;
+import org.apache.fop.traits.BorderProps;
+import org.apache.fop.traits.RuleStyle;
+import org.apache.fop.util.ColorUtil;
+
+/**
+ * Reads the binary encoding of the intermediate format. Generic records are replayed as SAX
+ * events, painting records are decoded and passed on without going through strings.
+ * @see IFBinaryFormat
+ */
+class IFBinaryReader {
+
+    private static final AffineTransform[] NO_TRANSFORMS = new AffineTransform[0];
+
+    /**
+     * Receives the painting operations that need more than a call to the {@link IFPainter}.
+     */
+    interface PaintingHandler {
+
+        /** @return the painter for the current page, or null outside page content */
+        IFPainter getPainter();
+
+        /**
+         * Draws text.
+         * @param x X-coordinate of the starting point of the text
+         * @param y Y-coordinate of the starting point of the text
+         * @param letterSpacing additional spacing between characters
+         * @param wordSpacing additional spacing between words
+         * @param dp an array of 4-tuples, expressing [X,Y] placement adjustments and
+         * [X,Y] advancement adjustments, in that order (may be null)
+         * @param text the text
+         * @param nextIsSpace true if the text is followed by a space
+         * @param hyphenated true if the text ends with a hyphenation point
+         * @param structRef the reference to the structure tree element, or null
+         * @throws IFException if an error occurs while handling this operation
+         */
+        void drawText(int x, int y, int letterSpacing, int wordSpacing, int[][] dp, String text,
+                boolean nextIsSpace, boolean hyphenated, String structRef) throws IFException;
+
+        /**
+         * Restricts the painting area, with rounded corners if borders are given.
+         * @param rect the clipping rectangle
+         * @param borders the top, bottom, left and right borders, each may be null
+         * @throws IFException if an error occurs while handling this operation
+         */
+        void clipRect(Rectangle rect, BorderProps[] borders) throws IFException;
+
+        /**
+         * Draws an image.
+         * @param uri the image's URI
+         * @param rect the rectangle in which the image shall be painted
+         * @param foreignAttributes the foreign attributes of the image, or null
+         * @param structRef the reference to the structure tree element, or null
+         * @throws IFException if an error occurs while handling this operation
+         */
+        void drawImage(String uri, Rectangle rect, Map<QName, String> foreignAttributes,
+                String structRef) throws IFException;
+    }
+
+    private final DataInputStream in;
+
+    private final FOUserAgent userAgent;
+
+    private final List<String> names = new ArrayList<String>();
+
+    private final Map<String, Color> colors = new HashMap<String, Color>();
+
+    private final AttributesImpl attributes = new AttributesImpl();
+
+    private char[] chars = new char[256];
+
+    /**
+     * Creates a new reader.
+     * @param in the stream to read the document from
+     * @param userAgent the user agent
+     */
+    IFBinaryReader(InputStream in, FOUserAgent userAgent) {
+        this.in = new DataInputStream(in instanceof BufferedInputStream
+                ? in : new BufferedInputStream(in));
+        this.userAgent = userAgent;
+    }
+
+    /**
+     * Reads the document.
+     * @param contentHandler receives the SAX events
+     * @param paintingHandler receives the painting operations
+     * @throws IOException if an I/O error occurs or the document is not valid
+     * @throws SAXException if the content handler throws it
+     * @throws IFException if an IF-related error occurs while painting
+     */
+    void read(ContentHandler contentHandler, PaintingHandler paintingHandler)
+            throws IOException, SAXException, IFException {
+        for (byte b : IFBinaryFormat.SIGNATURE) {
+            if (in.readByte() != b) {
+                throw new IOException("Not a binary intermediate format document");
+            }
+        }
+        int version = readUnsignedInt();
+        if (version != IFBinaryFormat.VERSION) {
+            throw new IOException("Unsupported binary intermediate format version: " + version);
+        }
+        while (true) {
+            int type = in.read();
+            switch (type) {
+            case IFBinaryFormat.START_DOCUMENT:
+                contentHandler.startDocument();
+                break;
+            case IFBinaryFormat.END_DOCUMENT:
+                contentHandler.endDocument();
+                return;
+            case IFBinaryFormat.START_PREFIX_MAPPING:
+                contentHandler.startPrefixMapping(readName(), readName());
+                break;
+            case IFBinaryFormat.END_PREFIX_MAPPING:
+                contentHandler.endPrefixMapping(readName());
+                break;
+            case IFBinaryFormat.START_ELEMENT:
+                readStartElement(contentHandler);
+                break;
+            case IFBinaryFormat.END_ELEMENT:
+                contentHandler.endElement(readName(), readName(), readName());
+                break;
+            case IFBinaryFormat.CHARACTERS:
+                int length = readChars();
+                contentHandler.characters(chars, 0, length);
+                break;
+            case IFBinaryFormat.START_VIEWPORT:
+                readViewport(paintingHandler.getPainter());
+                break;
+            case IFBinaryFormat.END_VIEWPORT:
+                paintingHandler.getPainter().endViewport();
+                break;
+            case IFBinaryFormat.START_GROUP:
+                readGroup(paintingHandler.getPainter());
+                break;
+            case IFBinaryFormat.END_GROUP:
+                paintingHandler.getPainter().endGroup();
+                break;
+            case IFBinaryFormat.FONT:
+                readFont(paintingHandler.getPainter());
+                break;
+            case IFBinaryFormat.TEXT:
+                readText(paintingHandler);
+                break;
+            case IFBinaryFormat.CLIP_RECT:
+                Rectangle clipRect = readRectangle();
+                paintingHandler.clipRect(clipRect, readBorders());
+                break;
+            case IFBinaryFormat.RECT:
+                Rectangle rect = readRectangle();
+                paintingHandler.getPainter().fillRect(rect, readColor());
+                break;
+            case IFBinaryFormat.BORDER_RECT:
+                readBorderRect(paintingHandler.getPainter());
+                break;
+            case IFBinaryFormat.LINE:
+                readLine(paintingHandler.getPainter());
+                break;
+            case IFBinaryFormat.IMAGE:
+                readImage(paintingHandler);
+                break;
+            case -1:
+                throw new EOFException("Unexpected end of binary intermediate format document");
+            default:
+                throw new IOException("Invalid record in binary intermediate format document: "
+                        + type);
+            }
+        }
+    }
+
+    private void readStartElement(ContentHandler contentHandler) throws IOException, SAXException {
+        String uri = readName();
+        String localName = readName();
+        String qName = readName();
+        attributes.clear();
+        for (int i = 0, count = readUnsignedInt(); i < count; i++) {
+            attributes.addAttribute(readName(), readName(), readName(), readName(), readString());
+        }
+        contentHandler.startElement(uri, localName, qName, attributes);
+    }
+
+    private void readViewport(IFPainter painter) throws IOException, IFException {
+        AffineTransform[] transforms = readTransforms();
+        Dimension size = new Dimension(readInt(), readInt());
+        Rectangle clipRect = in.readBoolean() ? readRectangle() : null;
+        painter.startViewport(transforms, size, clipRect);
+    }
+
+    private void readGroup(IFPainter painter) throws IOException, IFException {
+        AffineTransform[] transforms = readTransforms();
+        painter.startGroup(transforms, readName());
+    }
+
+    private void readBorderRect(IFPainter painter) throws IOException, IFException {
+        Rectangle rect = readRectangle();
+        BorderProps[] borders = readBorders();
+        painter.drawBorderRect(rect, borders[0], borders[1], borders[2], borders[3], readColor());
+    }
+
+    private void readLine(IFPainter painter) throws IOException, IFException {
+        Point start = new Point(readInt(), readInt());
+        Point end = new Point(readInt(), readInt());
+        int width = readInt();
+        Color color = readColor();
+        painter.drawLine(start, end, width, color, RuleStyle.valueOf(readInt()));
+    }
+
+    private void readFont(IFPainter painter) throws IOException, IFException {
+        int fields = in.readUnsignedByte();
+        String family = (fields & IFBinaryFormat.FONT_FAMILY) != 0 ? readName() : null;
+        String style = (fields & IFBinaryFormat.FONT_STYLE) != 0 ? readName() : null;
+        Integer weight = (fields & IFBinaryFormat.FONT_WEIGHT) != 0 ? readInt() : null;
+        String variant = (fields & IFBinaryFormat.FONT_VARIANT) != 0 ? readName() : null;
+        Integer size = (fields & IFBinaryFormat.FONT_SIZE) != 0 ? readInt() : null;
+        Color color = (fields & IFBinaryFormat.FONT_COLOR) != 0 ? readColor() : null;
+        painter.setFont(family, style, weight, variant, size, color);
+    }
+
+    private void readText(PaintingHandler paintingHandler) throws IOException, IFException {
+        int flags = in.readUnsignedByte();
+        int x = readInt();
+        int y = readInt();
+        int letterSpacing = readInt();
+        int wordSpacing = readInt();
+        int[][] dp = null;
+        if ((flags & IFBinaryFormat.TEXT_DX) != 0) {
+            int[] dx = new int[readUnsignedInt()];
+            for (int i = 0; i < dx.length; i++) {
+                dx[i] = readInt();
+            }
+            dp = IFUtil.convertDXToDP(dx);
+        } else if ((flags & IFBinaryFormat.TEXT_DP) != 0) {
+            dp = new int[readUnsignedInt()][4];
+            for (int[] adjustments : dp) {
+                for (int i = 0; i < 4; i++) {
+                    adjustments[i] = readInt();
+                }
+            }
+        }
+        String structRef = readString();
+        String text = readString();
+        paintingHandler.drawText(x, y, letterSpacing, wordSpacing, dp, text,
+                (flags & IFBinaryFormat.TEXT_NEXT_IS_SPACE) != 0,
+                (flags & IFBinaryFormat.TEXT_HYPHENATED) != 0, structRef);
+    }
+
+    private void readImage(PaintingHandler paintingHandler) throws IOException, IFException {
+        String uri = readName();
+        Rectangle rect = readRectangle();
+        Map<QName, String> foreignAttributes = null;
+        int count = readUnsignedInt();
+        if (count > 0) {
+            foreignAttributes = new HashMap<QName, String>();
+            for (int i = 0; i < count; i++) {
+                QName qName = new QName(readName(), readName());
+                foreignAttributes.put(qName, readString());
+            }
+        }
+        paintingHandler.drawImage(uri, rect, foreignAttributes, readString());
+    }
+
+    private AffineTransform[] readTransforms() throws IOException {
+        int count = readUnsignedInt();
+        if (count == 0) {
+            return NO_TRANSFORMS;
+        }
+        AffineTransform[] transforms = new AffineTransform[count];
+        for (int i = 0; i < count; i++) {
+            transforms[i] = new AffineTransform(in.readDouble(), in.readDouble(), in.readDouble(),
+                    in.readDouble(), in.readDouble(), in.readDouble());
+        }
+        return transforms;
+    }
+
+    private Rectangle readRectangle() throws IOException {
+        return new Rectangle(readInt(), readInt(), readInt(), readInt());
+    }
+
+    private BorderProps[] readBorders() throws IOException, IFException {
+        BorderProps[] borders = new BorderProps[4];
+        int present = in.readUnsignedByte();
+        for (int i = 0; i < 4; i++) {
+            if ((present & (1 << i)) != 0) {
+                int style = readInt();
+                int width = readInt();
+                int radiusStart = readInt();
+                int radiusEnd = readInt();
+                Color color = readColor();
+                BorderProps.Mode mode = BorderProps.Mode.values()[in.readUnsignedByte()];
+                borders[i] = new BorderProps(style, width, radiusStart, radiusEnd, color, mode);
+            }
+        }
+        return borders;
+    }
+
+    private Color readColor() throws IOException, IFException {
+        int type = in.readUnsignedByte();
+        if (type == IFBinaryFormat.RGB_COLOR) {
+            return new Color(in.readInt(), true);
+        } else if (type == IFBinaryFormat.OTHER_COLOR) {
+            String s = readName();
+            Color color = colors.get(s);
+            if (color == null) {
+                try {
+                    color = ColorUtil.parseColorString(userAgent, s);
+                } catch (PropertyException pe) {
+                    throw new IFException("Error parsing the color " + s, pe);
+                }
+                colors.put(s, color);
+            }
+            return color;
+        } else {
+            return null;
+        }
+    }
+
+    private String readName() throws IOException {
+        int reference = readUnsignedInt();
+        if (reference == IFBinaryFormat.NULL_NAME) {
+            return null;
+        } else if (reference == IFBinaryFormat.NEW_NAME) {
+            String name = readString();
+            names.add(name);
+            return name;
+        } else {
+            return names.get(reference - IFBinaryFormat.NAME_INDEX_OFFSET);
+        }
+    }
+
+    private String readString() throws IOException {
+        int length = readUnsignedInt() - 1;
+        if (length < 0) {
+            return null;
+        }
+        readChars(length);
+        return new String(chars, 0, length);
+    }
+
+    private int readChars() throws IOException {
+        int length = readUnsignedInt();
+        readChars(length);
+        return length;
+    }
+
+    private void readChars(int length) throws IOException {
+        if (chars.length < length) {
+            chars = new char[Math.max(length, chars.length * 2)];
+        }
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) readUnsignedInt();
+        }
+    }
+
+    private int readInt() throws IOException {
+        int value = readUnsignedInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private int readUnsignedInt() throws IOException {
+        int value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.readUnsignedByte();
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
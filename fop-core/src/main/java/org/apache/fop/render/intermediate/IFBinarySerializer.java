@@ -0,0 +1,343 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.render.intermediate;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Paint;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Map;
+
+import javax.xml.transform.Result;
+import javax.xml.transform.stream.StreamResult;
+
+import org.xml.sax.SAXException;
+
+import org.apache.commons.io.IOUtils;
+
+import org.apache.xmlgraphics.image.loader.ImageManager;
+import org.apache.xmlgraphics.image.loader.ImageSessionContext;
+import org.apache.xmlgraphics.util.QName;
+
+import org.apache.fop.apps.MimeConstants;
+import org.apache.fop.render.intermediate.IFStructureTreeBuilder.IFStructureTreeElement;
+import org.apache.fop.traits.BorderProps;
+import org.apache.fop.traits.RuleStyle;
+import org.apache.fop.util.GenerationHelperContentHandler;
+
+/**
+ * IFSerializer variant that writes the intermediate format in a compact binary encoding instead
+ * of XML. The painting operations are written as binary records, so that {@link IFParser} can
+ * replay them without tokenizing XML or parsing coordinates, transforms and colors from strings.
+ * The rest of the document is written as SAX events, just like the XML serializer does.
+ * @see IFBinaryFormat
+ */
+public class IFBinarySerializer extends IFSerializer {
+
+    private IFBinaryWriter writer;
+
+    private OutputStream ownOutputStream;
+
+    /** Holds the intermediate format state */
+    private IFState state;
+
+    public IFBinarySerializer(IFContext context) {
+        super(context);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getMimeType() {
+        return MimeConstants.MIME_FOP_IF_BINARY;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setResult(Result result) throws IFException {
+        if (!(result instanceof StreamResult)) {
+            throw new UnsupportedOperationException(
+                    "Unsupported Result subclass: " + result.getClass().getName());
+        }
+        StreamResult streamResult = (StreamResult) result;
+        OutputStream out = streamResult.getOutputStream();
+        if (out == null) {
+            if (streamResult.getWriter() != null) {
+                throw new IllegalArgumentException(
+                        "FOP cannot use a Writer. Please supply an OutputStream!");
+            }
+            try {
+                URI resultURI = URI.create(streamResult.getSystemId());
+                out = new BufferedOutputStream(
+                        getUserAgent().getResourceResolver().getOutputStream(resultURI));
+            } catch (IOException ioe) {
+                throw new IFException("I/O error while opening output stream" , ioe);
+            }
+            this.ownOutputStream = out;
+        }
+        this.writer = new IFBinaryWriter(out);
+        this.handler = new GenerationHelperContentHandler(writer, getMainNamespace(), getContext());
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void endDocument() throws IFException {
+        try {
+            super.endDocument();
+        } finally {
+            IOUtils.closeQuietly(ownOutputStream);
+            ownOutputStream = null;
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public IFPainter startPageContent() throws IFException {
+        IFPainter painter = super.startPageContent();
+        this.state = IFState.create();
+        return painter;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void endPageContent() throws IFException {
+        this.state = null;
+        super.endPageContent();
+    }
+
+    //---=== IFPainter ===---
+
+    /** {@inheritDoc} */
+    @Override
+    public void startViewport(AffineTransform transform, Dimension size, Rectangle clipRect)
+            throws IFException {
+        startViewport(new AffineTransform[] {transform}, size, clipRect);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void startViewport(AffineTransform[] transforms, Dimension size, Rectangle clipRect)
+            throws IFException {
+        try {
+            writer.startViewport(transforms, size, clipRect);
+        } catch (IOException ioe) {
+            throw new IFException("I/O error in startViewport()", ioe);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void endViewport() throws IFException {
+        try {
+            writer.endViewport();
+        } catch (IOException ioe) {
+            throw new IFException("I/O error in endViewport()", ioe);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void startGroup(AffineTransform transform, String layer) throws IFException {
+        startGroup(new AffineTransform[] {transform}, layer);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void startGroup(AffineTransform[] transforms, String layer) throws IFException {
+        try {
+            writer.startGroup(transforms, layer);
+        } catch (IOException ioe) {
+            throw new IFException("I/O error in startGroup()", ioe);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void endGroup() throws IFException {
+        try {
+            writer.endGroup();
+        } catch (IOException ioe) {
+            throw new IFException("I/O error in endGroup()", ioe);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void drawImage(String uri, Rectangle rect) throws IFException {
+        try {
+            addID();
+            Map<QName, String> foreignAttributes = new java.util.HashMap<QName, String>();
+            for (Object o : getContext().getForeignAttributes().entrySet()) {
+                Map.Entry entry = (Map.Entry) o;
+                foreignAttributes.put((QName) entry.getKey(), entry.getValue().toString());
+            }
+            writer.drawImage(uri, rect, foreignAttributes, getStructureReference());
+        } catch (SAXException e) {
+            throw new IFException("SAX error in drawImage()", e);
+        } catch (IOException ioe) {
+            throw new IFException("I/O error in drawImage()", ioe);
+        } finally {
+            ImageSessionContext session = getUserAgent().getImageSessionContext();
+            ImageManager imageManager = getUserAgent().getImageManager();
+            imageManager.closeImage(uri, session);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void clipRect(Rectangle rect) throws IFException {
+        try {
+            writer.clipRect(rect, null, null, null, null);
+        } catch (IOException ioe) {
+            throw new IFException("I/O error in clipRect()", ioe);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void clipBackground(Rectangle rect, BorderProps bpsBefore, BorderProps bpsAfter,
+            BorderProps bpsStart, BorderProps bpsEnd) throws IFException {
+        try {
+            if (hasRoundedCorners(bpsBefore, bpsAfter, bpsStart, bpsEnd)) {
+                writer.clipRect(rect, bpsBefore, bpsAfter, bpsStart, bpsEnd);
+            } else {
+                writer.clipRect(rect, null, null, null, null);
+            }
+        } catch (IOException ioe) {
+            throw new IFException("I/O error in clipBackground()", ioe);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void fillRect(Rectangle rect, Paint fill) throws IFException {
+        if (fill == null) {
+            return;
+        }
+        if (!(fill instanceof Color)) {
+            throw new UnsupportedOperationException("Paint not supported: " + fill);
+        }
+        try {
+            writer.fillRect(rect, (Color) fill);
+        } catch (IOException ioe) {
+            throw new IFException("I/O error in fillRect()", ioe);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void drawBorderRect(Rectangle rect, BorderProps top, BorderProps bottom,
+            BorderProps left, BorderProps right, Color innerBackgroundColor) throws IFException {
+        if (top == null && bottom == null && left == null && right == null) {
+            return;
+        }
+        try {
+            writer.drawBorderRect(rect, top, bottom, left, right, innerBackgroundColor);
+        } catch (IOException ioe) {
+            throw new IFException("I/O error in drawBorderRect()", ioe);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void drawLine(Point start, Point end, int width, Color color, RuleStyle style)
+            throws IFException {
+        try {
+            addID();
+            writer.drawLine(start.x, start.y, end.x, end.y, width, color, style);
+        } catch (SAXException e) {
+            throw new IFException("SAX error in drawLine()", e);
+        } catch (IOException ioe) {
+            throw new IFException("I/O error in drawLine()", ioe);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void drawText(int x, int y, int letterSpacing, int wordSpacing,
+            int[][] dp, String text, boolean nextIsSpace) throws IFException {
+        try {
+            addID();
+            writer.drawText(x, y, letterSpacing, wordSpacing, dp, text, nextIsSpace,
+                    getContext().isHyphenated(), getStructureReference());
+        } catch (SAXException e) {
+            throw new IFException("SAX error in drawText()", e);
+        } catch (IOException ioe) {
+            throw new IFException("I/O error in drawText()", ioe);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setFont(String family, String style, Integer weight, String variant, Integer size,
+            Color color) throws IFException {
+        String changedFamily = null;
+        if (family != null && !family.equals(state.getFontFamily())) {
+            state.setFontFamily(family);
+            changedFamily = family;
+        }
+        String changedStyle = null;
+        if (style != null && !style.equals(state.getFontStyle())) {
+            state.setFontStyle(style);
+            changedStyle = style;
+        }
+        Integer changedWeight = null;
+        if (weight != null && weight != state.getFontWeight()) {
+            state.setFontWeight(weight);
+            changedWeight = weight;
+        }
+        String changedVariant = null;
+        if (variant != null && !variant.equals(state.getFontVariant())) {
+            state.setFontVariant(variant);
+            changedVariant = variant;
+        }
+        Integer changedSize = null;
+        if (size != null && size != state.getFontSize()) {
+            state.setFontSize(size);
+            changedSize = size;
+        }
+        Color changedColor = null;
+        if (color != null && !org.apache.xmlgraphics.java2d.color.ColorUtil.isSameColor(
+                color, state.getTextColor())) {
+            state.setTextColor(color);
+            changedColor = color;
+        }
+        if (changedFamily != null || changedStyle != null || changedWeight != null
+                || changedVariant != null || changedSize != null || changedColor != null) {
+            try {
+                writer.setFont(changedFamily, changedStyle, changedWeight, changedVariant,
+                        changedSize, changedColor);
+            } catch (IOException ioe) {
+                throw new IFException("I/O error in setFont()", ioe);
+            }
+        }
+    }
+
+    private String getStructureReference() {
+        IFStructureTreeElement structureTreeElement
+                = (IFStructureTreeElement) getContext().getStructureTreeElement();
+        return structureTreeElement != null ? structureTreeElement.getId() : null;
+    }
+}
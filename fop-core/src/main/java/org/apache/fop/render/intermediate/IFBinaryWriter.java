@@ -0,0 +1,409 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.render.intermediate;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import org.apache.xmlgraphics.util.QName;
+
+import org.apache.fop.traits.BorderProps;
+import org.apache.fop.traits.RuleStyle;
+import org.apache.fop.util.ColorUtil;
+
+/**
+ * Writes the binary encoding of the intermediate format. SAX events received as a
+ * {@link org.xml.sax.ContentHandler} are written as generic records, the painting operations
+ * through the dedicated methods.
+ * @see IFBinaryFormat
+ */
+class IFBinaryWriter extends DefaultHandler {
+
+    private final DataOutputStream out;
+
+    private final Map<String, Integer> names = new HashMap<String, Integer>();
+
+    private final double[] matrix = new double[6];
+
+    /**
+     * Creates a new writer.
+     * @param out the stream to write the document to
+     */
+    IFBinaryWriter(OutputStream out) {
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+    }
+
+    //---=== SAX events ===---
+
+    /** {@inheritDoc} */
+    @Override
+    public void startDocument() throws SAXException {
+        try {
+            out.write(IFBinaryFormat.SIGNATURE);
+            writeUnsignedInt(IFBinaryFormat.VERSION);
+            out.writeByte(IFBinaryFormat.START_DOCUMENT);
+        } catch (IOException ioe) {
+            throw new SAXException(ioe);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void endDocument() throws SAXException {
+        try {
+            out.writeByte(IFBinaryFormat.END_DOCUMENT);
+            out.flush();
+        } catch (IOException ioe) {
+            throw new SAXException(ioe);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void startPrefixMapping(String prefix, String uri) throws SAXException {
+        try {
+            out.writeByte(IFBinaryFormat.START_PREFIX_MAPPING);
+            writeName(prefix);
+            writeName(uri);
+        } catch (IOException ioe) {
+            throw new SAXException(ioe);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void endPrefixMapping(String prefix) throws SAXException {
+        try {
+            out.writeByte(IFBinaryFormat.END_PREFIX_MAPPING);
+            writeName(prefix);
+        } catch (IOException ioe) {
+            throw new SAXException(ioe);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes)
+            throws SAXException {
+        try {
+            out.writeByte(IFBinaryFormat.START_ELEMENT);
+            writeName(uri);
+            writeName(localName);
+            writeName(qName);
+            int count = attributes.getLength();
+            writeUnsignedInt(count);
+            for (int i = 0; i < count; i++) {
+                writeName(attributes.getURI(i));
+                writeName(attributes.getLocalName(i));
+                writeName(attributes.getQName(i));
+                writeName(attributes.getType(i));
+                writeString(attributes.getValue(i));
+            }
+        } catch (IOException ioe) {
+            throw new SAXException(ioe);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+        try {
+            out.writeByte(IFBinaryFormat.END_ELEMENT);
+            writeName(uri);
+            writeName(localName);
+            writeName(qName);
+        } catch (IOException ioe) {
+            throw new SAXException(ioe);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void characters(char[] ch, int start, int length) throws SAXException {
+        try {
+            out.writeByte(IFBinaryFormat.CHARACTERS);
+            writeUnsignedInt(length);
+            for (int i = start, end = start + length; i < end; i++) {
+                writeUnsignedInt(ch[i]);
+            }
+        } catch (IOException ioe) {
+            throw new SAXException(ioe);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+        characters(ch, start, length);
+    }
+
+    //---=== Painting operations ===---
+
+    void startViewport(AffineTransform[] transforms, Dimension size, Rectangle clipRect)
+            throws IOException {
+        out.writeByte(IFBinaryFormat.START_VIEWPORT);
+        writeTransforms(transforms);
+        writeInt(size.width);
+        writeInt(size.height);
+        out.writeBoolean(clipRect != null);
+        if (clipRect != null) {
+            writeRectangle(clipRect);
+        }
+    }
+
+    void endViewport() throws IOException {
+        out.writeByte(IFBinaryFormat.END_VIEWPORT);
+    }
+
+    void startGroup(AffineTransform[] transforms, String layer) throws IOException {
+        out.writeByte(IFBinaryFormat.START_GROUP);
+        writeTransforms(transforms);
+        writeName(layer != null && layer.length() > 0 ? layer : null);
+    }
+
+    void endGroup() throws IOException {
+        out.writeByte(IFBinaryFormat.END_GROUP);
+    }
+
+    void setFont(String family, String style, Integer weight, String variant, Integer size,
+            Color color) throws IOException {
+        int fields = (family != null ? IFBinaryFormat.FONT_FAMILY : 0)
+                | (style != null ? IFBinaryFormat.FONT_STYLE : 0)
+                | (weight != null ? IFBinaryFormat.FONT_WEIGHT : 0)
+                | (variant != null ? IFBinaryFormat.FONT_VARIANT : 0)
+                | (size != null ? IFBinaryFormat.FONT_SIZE : 0)
+                | (color != null ? IFBinaryFormat.FONT_COLOR : 0);
+        out.writeByte(IFBinaryFormat.FONT);
+        out.writeByte(fields);
+        if (family != null) {
+            writeName(family);
+        }
+        if (style != null) {
+            writeName(style);
+        }
+        if (weight != null) {
+            writeInt(weight);
+        }
+        if (variant != null) {
+            writeName(variant);
+        }
+        if (size != null) {
+            writeInt(size);
+        }
+        if (color != null) {
+            writeColor(color);
+        }
+    }
+
+    void drawText(int x, int y, int letterSpacing, int wordSpacing, int[][] dp, String text,
+            boolean nextIsSpace, boolean hyphenated, String structRef) throws IOException {
+        int[] dx = null;
+        if (dp != null) {
+            if (IFUtil.isDPIdentity(dp)) {
+                dp = null;
+            } else if (IFUtil.isDPOnlyDX(dp)) {
+                dx = IFUtil.convertDPToDX(dp);
+                dp = null;
+            }
+        }
+        int flags = (nextIsSpace ? IFBinaryFormat.TEXT_NEXT_IS_SPACE : 0)
+                | (hyphenated ? IFBinaryFormat.TEXT_HYPHENATED : 0)
+                | (dx != null ? IFBinaryFormat.TEXT_DX : 0)
+                | (dp != null ? IFBinaryFormat.TEXT_DP : 0);
+        out.writeByte(IFBinaryFormat.TEXT);
+        out.writeByte(flags);
+        writeInt(x);
+        writeInt(y);
+        writeInt(letterSpacing);
+        writeInt(wordSpacing);
+        if (dx != null) {
+            writeUnsignedInt(dx.length);
+            for (int value : dx) {
+                writeInt(value);
+            }
+        } else if (dp != null) {
+            writeUnsignedInt(dp.length);
+            for (int[] adjustments : dp) {
+                for (int i = 0; i < 4; i++) {
+                    writeInt(adjustments != null ? adjustments[i] : 0);
+                }
+            }
+        }
+        writeString(structRef);
+        writeString(text);
+    }
+
+    void clipRect(Rectangle rect, BorderProps top, BorderProps bottom, BorderProps left,
+            BorderProps right) throws IOException {
+        out.writeByte(IFBinaryFormat.CLIP_RECT);
+        writeRectangle(rect);
+        writeBorders(top, bottom, left, right);
+    }
+
+    void fillRect(Rectangle rect, Color fill) throws IOException {
+        out.writeByte(IFBinaryFormat.RECT);
+        writeRectangle(rect);
+        writeColor(fill);
+    }
+
+    void drawBorderRect(Rectangle rect, BorderProps top, BorderProps bottom, BorderProps left,
+            BorderProps right, Color innerBackgroundColor) throws IOException {
+        out.writeByte(IFBinaryFormat.BORDER_RECT);
+        writeRectangle(rect);
+        writeBorders(top, bottom, left, right);
+        writeColor(innerBackgroundColor);
+    }
+
+    void drawLine(int x1, int y1, int x2, int y2, int width, Color color, RuleStyle style)
+            throws IOException {
+        out.writeByte(IFBinaryFormat.LINE);
+        writeInt(x1);
+        writeInt(y1);
+        writeInt(x2);
+        writeInt(y2);
+        writeInt(width);
+        writeColor(color);
+        writeInt(style.getEnumValue());
+    }
+
+    void drawImage(String uri, Rectangle rect, Map<QName, String> foreignAttributes,
+            String structRef) throws IOException {
+        out.writeByte(IFBinaryFormat.IMAGE);
+        writeName(uri);
+        writeRectangle(rect);
+        writeUnsignedInt(foreignAttributes.size());
+        for (Map.Entry<QName, String> entry : foreignAttributes.entrySet()) {
+            writeName(entry.getKey().getNamespaceURI());
+            writeName(entry.getKey().getQName());
+            writeString(entry.getValue());
+        }
+        writeString(structRef);
+    }
+
+    //---=== Values ===---
+
+    private void writeTransforms(AffineTransform[] transforms) throws IOException {
+        int count = 0;
+        for (AffineTransform transform : transforms) {
+            if (!transform.isIdentity()) {
+                count++;
+            }
+        }
+        writeUnsignedInt(count);
+        for (AffineTransform transform : transforms) {
+            if (!transform.isIdentity()) {
+                transform.getMatrix(matrix);
+                for (double value : matrix) {
+                    out.writeDouble(value);
+                }
+            }
+        }
+    }
+
+    private void writeRectangle(Rectangle rect) throws IOException {
+        writeInt(rect.x);
+        writeInt(rect.y);
+        writeInt(rect.width);
+        writeInt(rect.height);
+    }
+
+    private void writeBorders(BorderProps... borders) throws IOException {
+        int present = 0;
+        for (int i = 0; i < borders.length; i++) {
+            if (borders[i] != null) {
+                present |= 1 << i;
+            }
+        }
+        out.writeByte(present);
+        for (BorderProps border : borders) {
+            if (border != null) {
+                writeInt(border.style);
+                writeInt(border.width);
+                writeInt(border.getRadiusStart());
+                writeInt(border.getRadiusEnd());
+                writeColor(border.color);
+                out.writeByte(border.getMode().ordinal());
+            }
+        }
+    }
+
+    private void writeColor(Color color) throws IOException {
+        if (color == null) {
+            out.writeByte(IFBinaryFormat.NO_COLOR);
+        } else if (color.getClass() == Color.class) {
+            out.writeByte(IFBinaryFormat.RGB_COLOR);
+            out.writeInt(color.getRGB());
+        } else {
+            out.writeByte(IFBinaryFormat.OTHER_COLOR);
+            writeName(ColorUtil.colorToString(color));
+        }
+    }
+
+    private void writeName(String name) throws IOException {
+        if (name == null) {
+            writeUnsignedInt(IFBinaryFormat.NULL_NAME);
+            return;
+        }
+        Integer index = names.get(name);
+        if (index != null) {
+            writeUnsignedInt(index + IFBinaryFormat.NAME_INDEX_OFFSET);
+        } else {
+            names.put(name, names.size());
+            writeUnsignedInt(IFBinaryFormat.NEW_NAME);
+            writeString(name);
+        }
+    }
+
+    private void writeString(String s) throws IOException {
+        if (s == null) {
+            writeUnsignedInt(0);
+            return;
+        }
+        int length = s.length();
+        writeUnsignedInt(length + 1);
+        for (int i = 0; i < length; i++) {
+            writeUnsignedInt(s.charAt(i));
+        }
+    }
+
+    private void writeInt(int value) throws IOException {
+        writeUnsignedInt((value << 1) ^ (value >> 31));
+    }
+
+    private void writeUnsignedInt(int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+}
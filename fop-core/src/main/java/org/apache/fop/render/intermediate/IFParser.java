@@ -24,6 +24,11 @@ import java.awt.Dimension;
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.geom.AffineTransform;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
@@ -34,6 +39,7 @@ import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.sax.SAXResult;
 import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.stream.StreamSource;
 
 import org.w3c.dom.DOMImplementation;
 import org.w3c.dom.Document;
@@ -43,6 +49,7 @@ import org.xml.sax.SAXException;
 import org.xml.sax.helpers.AttributesImpl;
 import org.xml.sax.helpers.DefaultHandler;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -70,7 +77,8 @@ import org.apache.fop.util.XMLUtil;
 
 /**
  * This is a parser for the intermediate format XML which converts the intermediate file into
- * {@link IFPainter} events.
+ * {@link IFPainter} events. Intermediate files in the binary encoding written by
+ * {@link IFBinarySerializer} are recognized and read as well.
  */
 public class IFParser implements IFConstants {
 
@@ -90,7 +98,8 @@ public class IFParser implements IFConstants {
     }
 
     /**
-     * Parses an intermediate file and paints it.
+     * Parses an intermediate file and paints it. A {@link StreamSource} may point to a binary
+     * intermediate file.
      * @param src the Source instance pointing to the intermediate file
      * @param documentHandler the intermediate format document handler used to process the IF events
      * @param userAgent the user agent
@@ -99,6 +108,13 @@ public class IFParser implements IFConstants {
      */
     public void parse(Source src, IFDocumentHandler documentHandler, FOUserAgent userAgent)
             throws TransformerException, IFException {
+        if (src instanceof StreamSource) {
+            InputStream in = getBinaryInputStream((StreamSource) src);
+            if (in != null) {
+                parseBinary(in, documentHandler, userAgent);
+                return;
+            }
+        }
         try {
             Transformer transformer = tFactory.newTransformer();
             transformer.setErrorListener(new DefaultErrorListener(log));
@@ -122,6 +138,64 @@ public class IFParser implements IFConstants {
         }
     }
 
+    /**
+     * Returns the stream holding a binary intermediate file, if the given source points to one.
+     * Otherwise, the source is left so that it can still be parsed as XML.
+     */
+    private static InputStream getBinaryInputStream(StreamSource src) throws TransformerException {
+        InputStream in = src.getInputStream();
+        if (in == null) {
+            if (src.getReader() != null || src.getSystemId() == null) {
+                return null;
+            }
+            try {
+                in = new URL(src.getSystemId()).openStream();
+            } catch (MalformedURLException e) {
+                return null;
+            } catch (IOException ioe) {
+                throw new TransformerException(ioe);
+            }
+        }
+        in = new BufferedInputStream(in);
+        try {
+            if (IFBinaryFormat.isBinary(in)) {
+                return in;
+            }
+        } catch (IOException ioe) {
+            IOUtils.closeQuietly(in);
+            throw new TransformerException(ioe);
+        }
+        src.setInputStream(in);
+        return null;
+    }
+
+    /**
+     * Parses a binary intermediate file, as written by {@link IFBinarySerializer}, and paints it.
+     * The stream is closed when done.
+     * @param in the stream holding the binary intermediate file
+     * @param documentHandler the intermediate format document handler used to process the IF events
+     * @param userAgent the user agent
+     * @throws TransformerException if an error occurs while reading the intermediate file
+     * @throws IFException if an IF-related error occurs inside the target document handler
+     */
+    public void parseBinary(InputStream in, IFDocumentHandler documentHandler, FOUserAgent userAgent)
+            throws TransformerException, IFException {
+        Handler handler = new Handler(documentHandler, userAgent, userAgent.getElementMappingRegistry());
+        try {
+            new IFBinaryReader(in, userAgent).read(handler, handler);
+        } catch (IOException ioe) {
+            throw new TransformerException("I/O error while reading binary intermediate format", ioe);
+        } catch (SAXException se) {
+            //Unpack original IFException if applicable
+            if (se.getCause() instanceof IFException) {
+                throw (IFException) se.getCause();
+            }
+            throw new TransformerException(se);
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
     /**
      * Creates a new ContentHandler instance that you can send the area tree XML to. The parsed
      * pages are added to the AreaTreeModel instance you pass in as a parameter.
@@ -136,7 +210,7 @@ public class IFParser implements IFConstants {
         return new Handler(documentHandler, userAgent, elementMappingRegistry);
     }
 
-    private static class Handler extends DefaultHandler {
+    private static class Handler extends DefaultHandler implements IFBinaryReader.PaintingHandler {
 
         private Map<String, ElementHandler> elementHandlers = new HashMap<String, ElementHandler>();
 
@@ -651,15 +725,10 @@ public class IFParser implements IFConstants {
                 if ((dp == null) && (dx != null)) {
                     dp = IFUtil.convertDXToDP(dx);
                 }
-                establishStructureTreeElement(lastAttributes);
                 boolean isHyphenated = Boolean.valueOf(lastAttributes.getValue("hyphenated"));
-                if (isHyphenated) {
-                    documentHandler.getContext().setHyphenated(isHyphenated);
-                }
                 boolean nextIsSpace = Boolean.valueOf(lastAttributes.getValue("next-is-space"));
-                painter.drawText(x, y, letterSpacing, wordSpacing, dp, content.toString(), nextIsSpace);
-                documentHandler.getContext().setHyphenated(false);
-                resetStructureTreeElement();
+                drawText(x, y, letterSpacing, wordSpacing, dp, content.toString(), nextIsSpace,
+                        isHyphenated, getStructRef(lastAttributes));
             }
 
             public boolean ignoreCharacters() {
@@ -682,13 +751,7 @@ public class IFParser implements IFConstants {
                         borders[i] = BorderProps.valueOf(userAgent, b);
                     }
                 }
-
-                if (!(borders[0] == null && borders[1] == null
-                        && borders[2] == null && borders[3] == null)) {
-                    painter.clipBackground(new Rectangle(x, y, width, height),
-                            borders[0], borders[1], borders[2], borders[3]);
-                }
-                painter.clipRect(new Rectangle(x, y, width, height));
+                clipRect(new Rectangle(x, y, width, height), borders);
             }
 
         }
@@ -792,22 +855,23 @@ public class IFParser implements IFConstants {
                 int width = Integer.parseInt(lastAttributes.getValue("width"));
                 int height = Integer.parseInt(lastAttributes.getValue("height"));
                 Map<QName, String> foreignAttributes = getForeignAttributes(lastAttributes);
-                establishForeignAttributes(foreignAttributes);
-                establishStructureTreeElement(lastAttributes);
+                String structRef = getStructRef(lastAttributes);
                 if (foreignObject != null) {
+                    establishForeignAttributes(foreignAttributes);
+                    establishStructureTreeElement(structRef);
                     painter.drawImage(foreignObject,
                             new Rectangle(x, y, width, height));
                     foreignObject = null;
+                    resetStructureTreeElement();
+                    resetForeignAttributes();
                 } else {
                     String uri = lastAttributes.getValue(
                             XLINK_HREF.getNamespaceURI(), XLINK_HREF.getLocalName());
                     if (uri == null) {
                         throw new IFException("xlink:href is missing on image", null);
                     }
-                    painter.drawImage(uri, new Rectangle(x, y, width, height));
+                    drawImage(uri, new Rectangle(x, y, width, height), foreignAttributes, structRef);
                 }
-                resetStructureTreeElement();
-                resetForeignAttributes();
                 inForeignObject = false;
             }
 
@@ -817,6 +881,41 @@ public class IFParser implements IFConstants {
         }
 
 
+        // ============== Painting operations shared with the binary format ==============
+
+        public IFPainter getPainter() {
+            return painter;
+        }
+
+        public void drawText(int x, int y, int letterSpacing, int wordSpacing, int[][] dp,
+                String text, boolean nextIsSpace, boolean hyphenated, String structRef)
+                throws IFException {
+            establishStructureTreeElement(structRef);
+            if (hyphenated) {
+                documentHandler.getContext().setHyphenated(hyphenated);
+            }
+            painter.drawText(x, y, letterSpacing, wordSpacing, dp, text, nextIsSpace);
+            documentHandler.getContext().setHyphenated(false);
+            resetStructureTreeElement();
+        }
+
+        public void clipRect(Rectangle rect, BorderProps[] borders) throws IFException {
+            if (!(borders[0] == null && borders[1] == null
+                    && borders[2] == null && borders[3] == null)) {
+                painter.clipBackground(rect, borders[0], borders[1], borders[2], borders[3]);
+            }
+            painter.clipRect(rect);
+        }
+
+        public void drawImage(String uri, Rectangle rect, Map<QName, String> foreignAttributes,
+                String structRef) throws IFException {
+            establishForeignAttributes(foreignAttributes);
+            establishStructureTreeElement(structRef);
+            painter.drawImage(uri, rect);
+            resetStructureTreeElement();
+            resetForeignAttributes();
+        }
+
         // ====================================================================
 
         /**
@@ -861,15 +960,22 @@ public class IFParser implements IFConstants {
             return foreignAttributes;
         }
 
-        private void establishStructureTreeElement(Attributes attributes) {
-            StructureTreeElement element = getStructureTreeElement(attributes);
+        private void establishStructureTreeElement(String structRef) {
+            StructureTreeElement element = getStructureTreeElement(structRef);
             if (element != null) {
                 documentHandler.getContext().setStructureTreeElement(element);
             }
         }
 
+        private static String getStructRef(Attributes attributes) {
+            return attributes.getValue(InternalElementMapping.URI, InternalElementMapping.STRUCT_REF);
+        }
+
         private StructureTreeElement getStructureTreeElement(Attributes attributes) {
-            String structRef = attributes.getValue(InternalElementMapping.URI, InternalElementMapping.STRUCT_REF);
+            return getStructureTreeElement(getStructRef(attributes));
+        }
+
+        private StructureTreeElement getStructureTreeElement(String structRef) {
             if (structRef != null && structRef.length() > 0) {
                 assert structureTreeElements.containsKey(structRef);
                 return structureTreeElements.get(structRef);
@@ -585,7 +585,7 @@ implements IFConstants, IFPainter, IFDocumentNavigationHandler {
 
     //TODO create a class representing all borders should exist
     //with query methods like this
-    private boolean hasRoundedCorners(BorderProps bpsBefore, BorderProps bpsAfter,
+    boolean hasRoundedCorners(BorderProps bpsBefore, BorderProps bpsAfter,
             BorderProps bpsStart, BorderProps bpsEnd) {
         boolean rtn = false;
 
@@ -821,7 +821,7 @@ implements IFConstants, IFPainter, IFDocumentNavigationHandler {
                 id);
     }
 
-    private void addID() throws SAXException {
+    void addID() throws SAXException {
         String id = getContext().getID();
         if (!currentID.equals(id)) {
             AttributesImpl atts = new AttributesImpl();
@@ -79,6 +79,7 @@ public class PDFContentGenerator {
         this.resourceContext = resourceContext;
         this.currentStream = document.getFactory()
                 .makeStream(PDFFilterList.CONTENT_FILTER, false);
+        this.currentStream.setParallelEncodingAllowed(true);
         this.textutil = new PDFTextUtil() {
             protected void write(String code) {
                 currentStream.add(code);
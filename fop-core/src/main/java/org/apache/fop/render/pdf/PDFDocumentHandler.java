@@ -37,6 +37,8 @@ import org.apache.xmlgraphics.xmp.Metadata;
 import org.apache.fop.accessibility.StructureTreeEventHandler;
 import org.apache.fop.apps.MimeConstants;
 import org.apache.fop.fo.extensions.xmp.XMPMetadata;
+import org.apache.fop.metrics.Phase;
+import org.apache.fop.metrics.ProcessingMetrics;
 import org.apache.fop.pdf.PDFAnnotList;
 import org.apache.fop.pdf.PDFArray;
 import org.apache.fop.pdf.PDFDocument;
@@ -157,6 +159,7 @@ public class PDFDocumentHandler extends AbstractBinaryWritingIFDocumentHandler {
         super.startDocument();
         try {
             this.pdfDoc = pdfUtil.setupPDFDocument(this.outputStream);
+            this.pdfDoc.setMetrics(getUserAgent().getMetrics());
             this.accessEnabled = getUserAgent().isAccessibilityEnabled();
             if (accessEnabled) {
                 setupAccessibility();
@@ -183,10 +186,21 @@ public class PDFDocumentHandler extends AbstractBinaryWritingIFDocumentHandler {
 
     /** {@inheritDoc} */
     public void endDocument() throws IFException {
-        pdfDoc.getResources().addFonts(pdfDoc, fontInfo);
+        ProcessingMetrics metrics = getUserAgent().getMetrics();
+        metrics.start(Phase.FONT_SUBSETTING);
+        try {
+            pdfDoc.getResources().addFonts(pdfDoc, fontInfo);
+        } finally {
+            metrics.stop(Phase.FONT_SUBSETTING);
+        }
+        metrics.start(Phase.OUTPUT_WRITE);
         try {
             if (pdfDoc.isLinearizationEnabled()) {
-                generator.flushPDFDoc();
+                try {
+                    generator.flushPDFDoc();
+                } finally {
+                    pdfDoc.getStreamCacheFactory().close();
+                }
             } else {
                 pdfDoc.outputTrailer(this.outputStream);
             }
@@ -197,6 +211,8 @@ public class PDFDocumentHandler extends AbstractBinaryWritingIFDocumentHandler {
             currentPage = null;
         } catch (IOException ioe) {
             throw new IFException("I/O error in endDocument()", ioe);
+        } finally {
+            metrics.stop(Phase.OUTPUT_WRITE);
         }
         super.endDocument();
     }
@@ -297,7 +313,12 @@ public class PDFDocumentHandler extends AbstractBinaryWritingIFDocumentHandler {
             this.pdfDoc.addObject(currentPage);
 
             if (!pdfDoc.isLinearizationEnabled()) {
-                this.generator.flushPDFDoc();
+                getUserAgent().getMetrics().start(Phase.OUTPUT_WRITE);
+                try {
+                    this.generator.flushPDFDoc();
+                } finally {
+                    getUserAgent().getMetrics().stop(Phase.OUTPUT_WRITE);
+                }
                 this.generator = null;
             }
         } catch (IOException ioe) {
@@ -45,6 +45,7 @@ import org.apache.fop.fonts.FontTriplet;
 import org.apache.fop.fonts.LazyFont;
 import org.apache.fop.fonts.SingleByteFont;
 import org.apache.fop.fonts.Typeface;
+import org.apache.fop.metrics.Phase;
 import org.apache.fop.pdf.PDFArray;
 import org.apache.fop.pdf.PDFDictionary;
 import org.apache.fop.pdf.PDFName;
@@ -294,10 +295,13 @@ public class PDFPainter extends AbstractIFPainter<PDFDocumentHandler> {
 
     private void flushPDFDoc() throws IFException {
         // output new data
+        getUserAgent().getMetrics().start(Phase.OUTPUT_WRITE);
         try {
             generator.flushPDFDoc();
         } catch (IOException ioe) {
             throw new IFException("I/O error flushing the PDF document", ioe);
+        } finally {
+            getUserAgent().getMetrics().stop(Phase.OUTPUT_WRITE);
         }
     }
 
@@ -55,16 +55,23 @@ import static org.apache.fop.render.pdf.PDFEncryptionOption.NO_PRINT;
 import static org.apache.fop.render.pdf.PDFEncryptionOption.NO_PRINTHQ;
 import static org.apache.fop.render.pdf.PDFEncryptionOption.OWNER_PASSWORD;
 import static org.apache.fop.render.pdf.PDFEncryptionOption.USER_PASSWORD;
+import static org.apache.fop.render.pdf.PDFRendererOption.COMPRESSION_THREADS;
+import static org.apache.fop.render.pdf.PDFRendererOption.DEDUPLICATE_STREAMS;
 import static org.apache.fop.render.pdf.PDFRendererOption.DISABLE_SRGB_COLORSPACE;
 import static org.apache.fop.render.pdf.PDFRendererOption.FILTER_LIST;
 import static org.apache.fop.render.pdf.PDFRendererOption.FORM_XOBJECT;
 import static org.apache.fop.render.pdf.PDFRendererOption.LINEARIZATION;
 import static org.apache.fop.render.pdf.PDFRendererOption.MERGE_FONTS;
+import static org.apache.fop.render.pdf.PDFRendererOption.OBJECT_STREAM_CAPACITY;
+import static org.apache.fop.render.pdf.PDFRendererOption.OBJECT_STREAM_GROUPING;
+import static org.apache.fop.render.pdf.PDFRendererOption.OBJECT_STREAM_MAX_BYTES;
 import static org.apache.fop.render.pdf.PDFRendererOption.OUTPUT_PROFILE;
 import static org.apache.fop.render.pdf.PDFRendererOption.PDF_A_MODE;
 import static org.apache.fop.render.pdf.PDFRendererOption.PDF_UA_MODE;
 import static org.apache.fop.render.pdf.PDFRendererOption.PDF_VT_MODE;
 import static org.apache.fop.render.pdf.PDFRendererOption.PDF_X_MODE;
+import static org.apache.fop.render.pdf.PDFRendererOption.STREAMING;
+import static org.apache.fop.render.pdf.PDFRendererOption.STREAM_CACHE_MEMORY;
 import static org.apache.fop.render.pdf.PDFRendererOption.VERSION;
 
 /**
@@ -152,6 +159,13 @@ public final class PDFRendererConfig implements RendererConfig {
                 parseAndPut(MERGE_FONTS, cfg);
                 parseAndPut(LINEARIZATION, cfg);
                 parseAndPut(FORM_XOBJECT, cfg);
+                parseAndPut(STREAMING, cfg);
+                parseAndPut(COMPRESSION_THREADS, cfg);
+                parseAndPut(STREAM_CACHE_MEMORY, cfg);
+                parseAndPut(DEDUPLICATE_STREAMS, cfg);
+                parseAndPut(OBJECT_STREAM_CAPACITY, cfg);
+                parseAndPut(OBJECT_STREAM_MAX_BYTES, cfg);
+                parseAndPut(OBJECT_STREAM_GROUPING, cfg);
                 parseAndPut(VERSION, cfg);
             } catch (ConfigurationException e) {
                 LogUtil.handleException(LOG, e, strict);
@@ -23,6 +23,7 @@ import java.net.URI;
 import java.net.URISyntaxException;
 
 import org.apache.fop.apps.io.InternalResourceResolver;
+import org.apache.fop.pdf.ObjectStreamStrategy;
 import org.apache.fop.pdf.PDFAMode;
 import org.apache.fop.pdf.PDFUAMode;
 import org.apache.fop.pdf.PDFVTMode;
@@ -99,6 +100,73 @@ public enum PDFRendererOption implements RendererConfigOption {
             return Boolean.valueOf(value);
         }
     },
+    /**
+     * Rendering Options key for streaming mode, in which pages and their content are released
+     * as soon as they have been written, default: false
+     */
+    STREAMING("streaming", false) {
+        @Override
+        Boolean deserialize(String value) {
+            return Boolean.valueOf(value);
+        }
+    },
+    /**
+     * Rendering Options key for the number of threads compressing streams in parallel,
+     * default: 0 (streams are compressed on the rendering thread)
+     */
+    COMPRESSION_THREADS("compression-threads", 0) {
+        @Override
+        Integer deserialize(String value) {
+            return Integer.valueOf(value);
+        }
+    },
+    /**
+     * Rendering Options key for the number of bytes of memory used to buffer stream content
+     * before it is spilled to a temporary file, default: 0 (all streams are kept in memory)
+     */
+    STREAM_CACHE_MEMORY("stream-cache-memory", 0L) {
+        @Override
+        Long deserialize(String value) {
+            return Long.valueOf(value);
+        }
+    },
+    /**
+     * Rendering Options key for writing images and ICC profiles with identical content only
+     * once, default: false
+     */
+    DEDUPLICATE_STREAMS("deduplicate-streams", false) {
+        @Override
+        Boolean deserialize(String value) {
+            return Boolean.valueOf(value);
+        }
+    },
+    /** Rendering Options key for the maximum number of objects per object stream, default: 100 */
+    OBJECT_STREAM_CAPACITY("object-stream-capacity", ObjectStreamStrategy.DEFAULT_CAPACITY) {
+        @Override
+        Integer deserialize(String value) {
+            return Integer.valueOf(value);
+        }
+    },
+    /**
+     * Rendering Options key for the size in bytes beyond which no more objects are added to an
+     * object stream, default: 0 (no limit)
+     */
+    OBJECT_STREAM_MAX_BYTES("object-stream-max-bytes", 0) {
+        @Override
+        Integer deserialize(String value) {
+            return Integer.valueOf(value);
+        }
+    },
+    /**
+     * Rendering Options key for packing objects of different kinds into separate object
+     * streams, default: false
+     */
+    OBJECT_STREAM_GROUPING("object-stream-grouping", false) {
+        @Override
+        Boolean deserialize(String value) {
+            return Boolean.valueOf(value);
+        }
+    },
     /** Rendering Options key for the ICC profile for the output intent. */
     OUTPUT_PROFILE("output-profile") {
         @Override
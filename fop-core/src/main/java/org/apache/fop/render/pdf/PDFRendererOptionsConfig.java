@@ -24,6 +24,7 @@ import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.fop.pdf.ObjectStreamStrategy;
 import org.apache.fop.pdf.PDFAMode;
 import org.apache.fop.pdf.PDFEncryptionParams;
 import org.apache.fop.pdf.PDFUAMode;
@@ -31,16 +32,23 @@ import org.apache.fop.pdf.PDFVTMode;
 import org.apache.fop.pdf.PDFXMode;
 import org.apache.fop.pdf.Version;
 
+import static org.apache.fop.render.pdf.PDFRendererOption.COMPRESSION_THREADS;
+import static org.apache.fop.render.pdf.PDFRendererOption.DEDUPLICATE_STREAMS;
 import static org.apache.fop.render.pdf.PDFRendererOption.DISABLE_SRGB_COLORSPACE;
 import static org.apache.fop.render.pdf.PDFRendererOption.FILTER_LIST;
 import static org.apache.fop.render.pdf.PDFRendererOption.FORM_XOBJECT;
 import static org.apache.fop.render.pdf.PDFRendererOption.LINEARIZATION;
 import static org.apache.fop.render.pdf.PDFRendererOption.MERGE_FONTS;
+import static org.apache.fop.render.pdf.PDFRendererOption.OBJECT_STREAM_CAPACITY;
+import static org.apache.fop.render.pdf.PDFRendererOption.OBJECT_STREAM_GROUPING;
+import static org.apache.fop.render.pdf.PDFRendererOption.OBJECT_STREAM_MAX_BYTES;
 import static org.apache.fop.render.pdf.PDFRendererOption.OUTPUT_PROFILE;
 import static org.apache.fop.render.pdf.PDFRendererOption.PDF_A_MODE;
 import static org.apache.fop.render.pdf.PDFRendererOption.PDF_UA_MODE;
 import static org.apache.fop.render.pdf.PDFRendererOption.PDF_VT_MODE;
 import static org.apache.fop.render.pdf.PDFRendererOption.PDF_X_MODE;
+import static org.apache.fop.render.pdf.PDFRendererOption.STREAMING;
+import static org.apache.fop.render.pdf.PDFRendererOption.STREAM_CACHE_MEMORY;
 import static org.apache.fop.render.pdf.PDFRendererOption.VERSION;
 
 /**
@@ -147,4 +155,26 @@ public final class PDFRendererOptionsConfig {
     public Boolean getFormXObjectEnabled() {
         return (Boolean)properties.get(FORM_XOBJECT);
     }
+
+    public Boolean getStreamingEnabled() {
+        return (Boolean)properties.get(STREAMING);
+    }
+
+    public Integer getCompressionThreads() {
+        return (Integer)properties.get(COMPRESSION_THREADS);
+    }
+
+    public Long getStreamCacheMemory() {
+        return (Long)properties.get(STREAM_CACHE_MEMORY);
+    }
+
+    public Boolean getStreamDeduplicationEnabled() {
+        return (Boolean)properties.get(DEDUPLICATE_STREAMS);
+    }
+
+    public ObjectStreamStrategy getObjectStreamStrategy() {
+        return new ObjectStreamStrategy((Integer) properties.get(OBJECT_STREAM_CAPACITY),
+                (Integer) properties.get(OBJECT_STREAM_MAX_BYTES),
+                (Boolean) properties.get(OBJECT_STREAM_GROUPING));
+    }
 }
@@ -621,6 +621,11 @@ class PDFRenderingUtil {
         pdfDoc.setMergeFontsEnabled(rendererConfig.getMergeFontsEnabled());
         pdfDoc.setLinearizationEnabled(rendererConfig.getLinearizationEnabled());
         pdfDoc.setFormXObjectEnabled(rendererConfig.getFormXObjectEnabled());
+        pdfDoc.setStreamingEnabled(rendererConfig.getStreamingEnabled());
+        pdfDoc.setCompressionThreads(rendererConfig.getCompressionThreads());
+        pdfDoc.setStreamCacheMemory(rendererConfig.getStreamCacheMemory());
+        pdfDoc.setStreamDeduplicationEnabled(rendererConfig.getStreamDeduplicationEnabled());
+        pdfDoc.setObjectStreamStrategy(rendererConfig.getObjectStreamStrategy());
 
         return this.pdfDoc;
     }
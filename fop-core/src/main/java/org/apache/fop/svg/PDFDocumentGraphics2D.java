@@ -279,6 +279,7 @@ public class PDFDocumentGraphics2D extends PDFGraphics2D {
         PDFStream pdfStream = this.pdfDoc.getFactory().makeStream(
                 PDFFilterList.CONTENT_FILTER, false);
         pdfStream.add(getString());
+        pdfStream.setParallelEncodingAllowed(true);
         this.pdfDoc.registerObject(pdfStream);
         pdfContext.getCurrentPage().setContents(new PDFReference(pdfStream));
         PDFAnnotList annots = pdfContext.getCurrentPage().getAnnotations();
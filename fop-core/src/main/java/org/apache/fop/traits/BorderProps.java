@@ -140,6 +140,11 @@ public class BorderProps implements Serializable {
         return mode == Mode.COLLAPSE_OUTER;
     }
 
+    /** @return the border mode */
+    public Mode getMode() {
+        return mode;
+    }
+
     /** {@inheritDoc} */
     @Override
     public int hashCode() {
@@ -23,11 +23,15 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
 
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 import org.apache.commons.io.IOUtils;
 
@@ -38,6 +42,7 @@ import org.apache.fop.hyphenation.Hyphenation;
 import org.apache.fop.hyphenation.HyphenationException;
 import org.apache.fop.hyphenation.HyphenationTree;
 import org.apache.fop.hyphenation.Hyphenator;
+import org.apache.fop.hyphenation.SerializeHyphPattern;
 
 public class HyphenationTestCase {
     private FopFactory fopFactory = FopFactory.newInstance(new File(".").toURI());
@@ -75,6 +80,65 @@ public class HyphenationTestCase {
         f.delete();
     }
 
+    @Test
+    public void testHyphenatorFlatBinary() throws IOException {
+        File f = File.createTempFile("hyp", "fop");
+        f.delete();
+        f.mkdir();
+        File frxml = new File(f, "fr.xml");
+        IOUtils.copy(new FileInputStream("test/resources/fop/fr.xml"), new FileOutputStream(frxml));
+        new SerializeHyphPattern().serializeDir(f, f);
+        File hyp = new File(f, "fr.hyp");
+        FileInputStream in = new FileInputStream(hyp);
+        byte[] content = IOUtils.toByteArray(in);
+        in.close();
+        assertEquals("FHYP", new String(content, 0, 4, "US-ASCII"));
+
+        InternalResourceResolver resourceResolver
+                = ResourceResolverFactory.createDefaultInternalResourceResolver(f.toURI());
+        Hyphenation hyph = Hyphenator.hyphenate("fr.hyp" + Hyphenator.HYPTYPE, null, resourceResolver, null,
+                "oello", 0, 0, fopFactory.newFOUserAgent());
+        assertEquals(hyph.toString(), "oel-lo");
+
+        hyp.delete();
+        frxml.delete();
+        f.delete();
+    }
+
+    @Test
+    public void testFopHyphenationTreeShared() throws IOException {
+        File f = File.createTempFile("hyp", "fop");
+        f.delete();
+        File hyphDir = new File(f, "hyph");
+        hyphDir.mkdirs();
+        File xml = new File(hyphDir, "zz_ZZ.xml");
+        IOUtils.copy(new FileInputStream("test/resources/fop/fr.xml"), new FileOutputStream(xml));
+        new SerializeHyphPattern().serializeDir(hyphDir, hyphDir);
+        File hyp = new File(hyphDir, "zz_ZZ.hyp");
+
+        Thread thread = Thread.currentThread();
+        ClassLoader contextClassLoader = thread.getContextClassLoader();
+        URLClassLoader classLoader = new URLClassLoader(new URL[] {f.toURI().toURL()}, contextClassLoader);
+        thread.setContextClassLoader(classLoader);
+        try {
+            HyphenationTree hTree = Hyphenator.getFopHyphenationTree("zz_ZZ");
+            assertNotNull(hTree);
+            assertEquals("oel-lo", hTree.hyphenate("oello", 0, 0).toString());
+            assertSame(hTree, Hyphenator.getFopHyphenationTree("zz_ZZ"));
+
+            Hyphenation hyph = Hyphenator.hyphenate("zz", "ZZ", null, null, "oello", 0, 0,
+                    FopFactory.newInstance(new File(".").toURI()).newFOUserAgent());
+            assertEquals("oel-lo", hyph.toString());
+        } finally {
+            thread.setContextClassLoader(contextClassLoader);
+        }
+
+        hyp.delete();
+        xml.delete();
+        hyphDir.delete();
+        f.delete();
+    }
+
     @Test
     public void testHyphenatorCache() throws IOException {
         File f = File.createTempFile("hyp", "fop");
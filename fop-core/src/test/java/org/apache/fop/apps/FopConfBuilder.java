@@ -201,6 +201,21 @@ public class FopConfBuilder implements FontConfigurator<FopConfBuilder> {
         return this;
     }
 
+    /**
+     * Set the &lt;property-cache&gt; tag within the fop.xconf.
+     *
+     * @param maxSize the maximum number of entries of each property cache
+     * @param eviction the eviction policy, "trim" or "clear"
+     * @return <b>this</b>
+     */
+    public FopConfBuilder setPropertyCache(int maxSize, String eviction) {
+        Element el = fopConfDOM.createElement("property-cache");
+        el.setAttribute("max-size", String.valueOf(maxSize));
+        el.setAttribute("eviction", eviction);
+        root.appendChild(el);
+        return this;
+    }
+
     /**
      * Sets whether the fonts cache is used or not.
      *
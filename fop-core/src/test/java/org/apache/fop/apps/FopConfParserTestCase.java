@@ -30,8 +30,12 @@ import org.xml.sax.SAXException;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import org.apache.fop.fo.properties.PropertyCacheScope;
+
 /**
  * Test case for {@link FopConfParser}.
  */
@@ -129,6 +133,15 @@ public class FopConfParserTestCase {
         assertTrue(buildFactory().getRendererFactory().isRendererPreferred());
     }
 
+    @Test
+    public void testPropertyCache() {
+        assertNull(buildFactory().getPropertyCacheScope());
+        builder.setPropertyCache(5000, "clear");
+        PropertyCacheScope scope = buildFactory().getPropertyCacheScope();
+        assertEquals(5000, scope.getMaxSize());
+        assertSame(PropertyCacheScope.EvictionPolicy.CLEAR, scope.getEvictionPolicy());
+    }
+
     @Test
     public void testRelativeURINoBaseNoFont() throws Exception {
         checkRelativeURIs("test/config/relative-uri/no-base_no-font.xconf",
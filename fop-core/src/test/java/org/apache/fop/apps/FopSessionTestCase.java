@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.apps;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.StringReader;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.apache.fop.fonts.EmbedFontInfo;
+import org.apache.fop.fonts.FontConfig;
+import org.apache.fop.fonts.FontConfigurator;
+
+public class FopSessionTestCase {
+
+    private final FopFactory fopFactory = FopFactory.newInstance(new File(".").toURI());
+
+    private static String createFO(int document) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<fo:root xmlns:fo='http://www.w3.org/1999/XSL/Format' xml:lang='en'>");
+        sb.append("<fo:layout-master-set>");
+        sb.append("<fo:simple-page-master master-name='A5' page-height='21cm' page-width='14.8cm'>");
+        sb.append("<fo:region-body margin='2cm'/></fo:simple-page-master>");
+        sb.append("</fo:layout-master-set>");
+        sb.append("<fo:page-sequence master-reference='A5'><fo:flow flow-name='xsl-region-body'>");
+        sb.append("<fo:block>Document ").append(document).append("</fo:block>");
+        for (int page = 1; page < document % 3 + 1; page++) {
+            sb.append("<fo:block break-before='page'>Page ").append(page + 1).append("</fo:block>");
+        }
+        sb.append("</fo:flow></fo:page-sequence></fo:root>");
+        return sb.toString();
+    }
+
+    private String renderWithNewFop(String fo) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Fop fop = fopFactory.newFop(MimeConstants.MIME_FOP_AREA_TREE, out);
+        TransformerFactory.newInstance().newTransformer().transform(
+                new StreamSource(new StringReader(fo)), new SAXResult(fop.getDefaultHandler()));
+        return out.toString("UTF-8");
+    }
+
+    private static String render(FopSession session, String fo) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        session.render(new StreamSource(new StringReader(fo)), out);
+        return out.toString("UTF-8");
+    }
+
+    @Test
+    public void rendersDocumentsInSequence() throws Exception {
+        FopSession session = fopFactory.newSession(MimeConstants.MIME_PDF);
+        for (int document = 0; document < 6; document++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            FormattingResults results = session.render(
+                    new StreamSource(new StringReader(createFO(document))), out);
+            assertEquals(document % 3 + 1, results.getPageCount());
+            assertTrue(out.toString("ISO-8859-1").startsWith("%PDF-"));
+        }
+        assertEquals(6, session.getDocumentCount());
+        assertTrue(session.getSetupTime() > 0);
+        assertTrue(session.getSetupTime() < session.getRenderingTime());
+    }
+
+    @Test
+    public void rendersDocumentsConcurrently() throws Exception {
+        final FopSession session = fopFactory.newSession(MimeConstants.MIME_FOP_AREA_TREE);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> outputs = new ArrayList<Future<String>>();
+            for (int document = 0; document < 24; document++) {
+                final String fo = createFO(document);
+                outputs.add(executor.submit(new Callable<String>() {
+                    public String call() throws Exception {
+                        return render(session, fo);
+                    }
+                }));
+            }
+            for (int document = 0; document < 24; document++) {
+                assertEquals(renderWithNewFop(createFO(document)), outputs.get(document).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(24, session.getDocumentCount());
+    }
+
+    @Test
+    public void usesUserAgentOfSession() throws Exception {
+        FopSession session = fopFactory.newSession(MimeConstants.MIME_PDF);
+        FOUserAgent userAgent = session.newFOUserAgent();
+        userAgent.setTitle("Session");
+        assertSame(session, userAgent.getSession());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        session.render(userAgent, new StreamSource(new StringReader(createFO(0))), out);
+        assertTrue(out.toString("ISO-8859-1").contains("(Session)"));
+    }
+
+    @Test
+    public void compilesStylesheetOnce() throws Exception {
+        StringBuilder xsl = new StringBuilder();
+        xsl.append("<xsl:stylesheet version='1.0' xmlns:xsl='http://www.w3.org/1999/XSL/Transform'");
+        xsl.append(" xmlns:fo='http://www.w3.org/1999/XSL/Format'>");
+        xsl.append("<xsl:template match='/letter'><fo:root xml:lang='en'><fo:layout-master-set>");
+        xsl.append("<fo:simple-page-master master-name='A5' page-height='21cm' page-width='14.8cm'>");
+        xsl.append("<fo:region-body margin='2cm'/></fo:simple-page-master></fo:layout-master-set>");
+        xsl.append("<fo:page-sequence master-reference='A5'><fo:flow flow-name='xsl-region-body'>");
+        xsl.append("<fo:block>Document <xsl:value-of select='@number'/></fo:block>");
+        xsl.append("</fo:flow></fo:page-sequence></fo:root></xsl:template></xsl:stylesheet>");
+        String systemId = new File("letter.xsl").toURI().toString();
+
+        FopSession session = fopFactory.newSession(MimeConstants.MIME_FOP_AREA_TREE);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        session.render(new StreamSource(new StringReader("<letter number='0'/>")),
+                new StreamSource(new StringReader(xsl.toString()), systemId), out);
+        assertEquals(renderWithNewFop(createFO(0)), out.toString("UTF-8"));
+        // the stylesheet has been compiled already, so its content is not read again
+        out = new ByteArrayOutputStream();
+        session.render(new StreamSource(new StringReader("<letter number='3'/>")),
+                new StreamSource(new StringReader("not a stylesheet"), systemId), out);
+        assertEquals(renderWithNewFop(createFO(3)), out.toString("UTF-8"));
+    }
+
+    @Test
+    public void recoversFromFailedDocument() throws Exception {
+        FopSession session = fopFactory.newSession(MimeConstants.MIME_FOP_AREA_TREE);
+        assertEquals(renderWithNewFop(createFO(1)), render(session, createFO(1)));
+        try {
+            render(session, "<fo:root xmlns:fo='http://www.w3.org/1999/XSL/Format'>");
+            fail("FOPException expected");
+        } catch (FOPException e) {
+            // expected
+        }
+        for (int document = 2; document < 5; document++) {
+            assertEquals(renderWithNewFop(createFO(document)), render(session, createFO(document)));
+        }
+        assertEquals(4, session.getDocumentCount());
+    }
+
+    @Test
+    public void pooledPipelineDoesNotKeepOutputReachable() throws Exception {
+        FopSession session = fopFactory.newSession(MimeConstants.MIME_PDF);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FOUserAgent userAgent = session.newFOUserAgent();
+        session.render(userAgent, new StreamSource(new StringReader(createFO(0))), out);
+        WeakReference<ByteArrayOutputStream> outRef = new WeakReference<ByteArrayOutputStream>(out);
+        WeakReference<FOUserAgent> userAgentRef = new WeakReference<FOUserAgent>(userAgent);
+        out = null;
+        userAgent = null;
+        for (int i = 0; i < 10 && (outRef.get() != null || userAgentRef.get() != null); i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(outRef.get());
+        assertNull(userAgentRef.get());
+        assertEquals(1, session.getDocumentCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUserAgentOfFactory() throws Exception {
+        FopSession session = fopFactory.newSession(MimeConstants.MIME_PDF);
+        session.render(fopFactory.newFOUserAgent(), new StreamSource(new StringReader(createFO(0))),
+                new ByteArrayOutputStream());
+    }
+
+    @Test(expected = FOPException.class)
+    public void rejectsUnknownOutputFormat() throws Exception {
+        fopFactory.newSession("application/x-unknown");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void configuresFontsOncePerSession() throws Exception {
+        FontConfigurator<EmbedFontInfo> fontConfigurator = mock(FontConfigurator.class);
+        FontConfig fontConfig = mock(FontConfig.class);
+        List<EmbedFontInfo> fonts = Collections.emptyList();
+        when(fontConfigurator.configure(fontConfig)).thenReturn(fonts);
+
+        FopSession session = fopFactory.newSession(MimeConstants.MIME_PDF);
+        for (int i = 0; i < 3; i++) {
+            assertSame(fonts, session.newFOUserAgent().getConfiguredFonts(
+                    MimeConstants.MIME_PDF, fontConfigurator, fontConfig));
+        }
+        verify(fontConfigurator, times(1)).configure(fontConfig);
+
+        for (int i = 0; i < 2; i++) {
+            fopFactory.newFOUserAgent().getConfiguredFonts(MimeConstants.MIME_PDF, fontConfigurator,
+                    fontConfig);
+        }
+        verify(fontConfigurator, times(3)).configure(fontConfig);
+    }
+}
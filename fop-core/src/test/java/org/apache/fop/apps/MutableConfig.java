@@ -27,6 +27,7 @@ import org.apache.xmlgraphics.io.ResourceResolver;
 
 import org.apache.fop.apps.io.InternalResourceResolver;
 import org.apache.fop.configuration.Configuration;
+import org.apache.fop.fo.properties.PropertyCacheScope;
 import org.apache.fop.fonts.FontManager;
 import org.apache.fop.layoutmgr.LayoutManagerMaker;
 
@@ -132,6 +133,10 @@ public final class MutableConfig implements FopFactoryConfig {
         return delegate.getHyphenationPatternNames();
     }
 
+    public PropertyCacheScope getPropertyCacheScope() {
+        return delegate.getPropertyCacheScope();
+    }
+
     public InternalResourceResolver getHyphenationResourceResolver() {
         return delegate.getHyphenationResourceResolver();
     }
@@ -29,12 +29,19 @@ import static org.apache.fop.render.pdf.PDFEncryptionOption.ENCRYPTION_LENGTH;
 import static org.apache.fop.render.pdf.PDFEncryptionOption.ENCRYPTION_PARAMS;
 import static org.apache.fop.render.pdf.PDFEncryptionOption.OWNER_PASSWORD;
 import static org.apache.fop.render.pdf.PDFEncryptionOption.USER_PASSWORD;
+import static org.apache.fop.render.pdf.PDFRendererOption.COMPRESSION_THREADS;
+import static org.apache.fop.render.pdf.PDFRendererOption.DEDUPLICATE_STREAMS;
 import static org.apache.fop.render.pdf.PDFRendererOption.DISABLE_SRGB_COLORSPACE;
 import static org.apache.fop.render.pdf.PDFRendererOption.FILTER_LIST;
 import static org.apache.fop.render.pdf.PDFRendererOption.FORM_XOBJECT;
+import static org.apache.fop.render.pdf.PDFRendererOption.OBJECT_STREAM_CAPACITY;
+import static org.apache.fop.render.pdf.PDFRendererOption.OBJECT_STREAM_GROUPING;
+import static org.apache.fop.render.pdf.PDFRendererOption.OBJECT_STREAM_MAX_BYTES;
 import static org.apache.fop.render.pdf.PDFRendererOption.OUTPUT_PROFILE;
 import static org.apache.fop.render.pdf.PDFRendererOption.PDF_A_MODE;
 import static org.apache.fop.render.pdf.PDFRendererOption.PDF_X_MODE;
+import static org.apache.fop.render.pdf.PDFRendererOption.STREAMING;
+import static org.apache.fop.render.pdf.PDFRendererOption.STREAM_CACHE_MEMORY;
 import static org.apache.fop.render.pdf.PDFRendererOption.VERSION;
 
 /**
@@ -99,6 +106,41 @@ public final class PDFRendererConfBuilder extends RendererConfBuilder {
         return this;
     }
 
+    public PDFRendererConfBuilder setStreamingEnabled(boolean b) {
+        createTextElement(STREAMING, String.valueOf(b));
+        return this;
+    }
+
+    public PDFRendererConfBuilder setCompressionThreads(int threads) {
+        createTextElement(COMPRESSION_THREADS, String.valueOf(threads));
+        return this;
+    }
+
+    public PDFRendererConfBuilder setStreamCacheMemory(long bytes) {
+        createTextElement(STREAM_CACHE_MEMORY, String.valueOf(bytes));
+        return this;
+    }
+
+    public PDFRendererConfBuilder setStreamDeduplicationEnabled(boolean b) {
+        createTextElement(DEDUPLICATE_STREAMS, String.valueOf(b));
+        return this;
+    }
+
+    public PDFRendererConfBuilder setObjectStreamCapacity(int capacity) {
+        createTextElement(OBJECT_STREAM_CAPACITY, String.valueOf(capacity));
+        return this;
+    }
+
+    public PDFRendererConfBuilder setObjectStreamMaxBytes(int bytes) {
+        createTextElement(OBJECT_STREAM_MAX_BYTES, String.valueOf(bytes));
+        return this;
+    }
+
+    public PDFRendererConfBuilder setObjectStreamGrouping(boolean b) {
+        createTextElement(OBJECT_STREAM_GROUPING, String.valueOf(b));
+        return this;
+    }
+
     public final class EncryptionParamsBuilder {
         private final Element el;
 
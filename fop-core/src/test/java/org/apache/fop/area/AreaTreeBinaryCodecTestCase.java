@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.area;
+
+import java.awt.Rectangle;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import javax.xml.transform.Result;
+import javax.xml.transform.Source;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.apache.fop.apps.FOPException;
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.Fop;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.apps.MimeConstants;
+import org.apache.fop.fo.Constants;
+import org.apache.fop.render.xml.XMLRenderer;
+
+public class AreaTreeBinaryCodecTestCase {
+
+    private static final String FO = "<fo:root xmlns:fo='http://www.w3.org/1999/XSL/Format'>"
+            + "<fo:layout-master-set>"
+            + "<fo:simple-page-master master-name='simple' page-height='10cm' page-width='12cm'>"
+            + "<fo:region-body margin='1cm' column-count='2'/><fo:region-before extent='1cm'/>"
+            + "</fo:simple-page-master>"
+            + "</fo:layout-master-set>"
+            + "<fo:page-sequence master-reference='simple' language='en' country='GB'>"
+            + "<fo:static-content flow-name='xsl-region-before'>"
+            + "<fo:block text-align='end'>Page <fo:page-number/> of <fo:page-number-citation ref-id='end'/>"
+            + "</fo:block></fo:static-content>"
+            + "<fo:flow flow-name='xsl-region-body'>"
+            + "<fo:block>See <fo:basic-link internal-destination='end'>the end</fo:basic-link>"
+            + " on page <fo:page-number-citation ref-id='end'/>.</fo:block>"
+            + "%s"
+            + "<fo:block span='all' border='1pt solid red' background-color='#ccddee' padding='2pt'>"
+            + "Spanning<fo:leader leader-pattern='dots' leader-length='3cm'/>"
+            + "<fo:inline font-weight='bold' color='rgb(10,20,30)'>bold</fo:inline>"
+            + "<fo:footnote><fo:inline>1</fo:inline><fo:footnote-body><fo:block>A note</fo:block>"
+            + "</fo:footnote-body></fo:footnote></fo:block>"
+            + "<fo:block-container width='3cm' height='1cm' overflow='hidden' reference-orientation='90'>"
+            + "<fo:block>Rotated</fo:block></fo:block-container>"
+            + "<fo:block><fo:inline-container width='2cm'><fo:block>Inline</fo:block></fo:inline-container>"
+            + "<fo:basic-link external-destination='http://xmlgraphics.apache.org/fop/'>FOP</fo:basic-link>"
+            + "</fo:block>"
+            + "<fo:block id='end' text-align='justify'>The end.</fo:block>"
+            + "</fo:flow></fo:page-sequence></fo:root>";
+
+    private static String createFO() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 30; i++) {
+            sb.append("<fo:block text-align='justify' hyphenate='true'>Paragraph ").append(i)
+                    .append(" with some words that need to be broken across lines.</fo:block>");
+        }
+        return String.format(FO, sb);
+    }
+
+    private static String render(String fo, boolean roundTrip) throws Exception {
+        FopFactory fopFactory = FopFactory.newInstance(new File(".").toURI());
+        FOUserAgent userAgent = fopFactory.newFOUserAgent();
+        userAgent.setRendererOverride(roundTrip
+                ? new RoundTripRenderer(userAgent) : new XMLRenderer(userAgent));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Fop fop = fopFactory.newFop(MimeConstants.MIME_FOP_AREA_TREE, userAgent, out);
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        Source src = new StreamSource(new ByteArrayInputStream(fo.getBytes("UTF-8")));
+        Result res = new SAXResult(fop.getDefaultHandler());
+        transformer.transform(src, res);
+        return out.toString("UTF-8");
+    }
+
+    @Test
+    public void testStoredPagesRenderLikeOriginalPages() throws Exception {
+        String fo = createFO();
+        assertEquals(render(fo, false), render(fo, true));
+    }
+
+    @Test
+    public void testSharedObjectsStayShared() throws Exception {
+        Page page = new Page();
+        RegionViewport viewport = new RegionViewport(new Rectangle(0, 0, 1000, 2000));
+        RegionReference reference = new RegionReference(Constants.FO_REGION_BEFORE, "before", null);
+        viewport.setRegionReference(reference);
+        page.setRegionViewport(Constants.FO_REGION_BEFORE, viewport);
+        Block first = new Block();
+        Block second = new Block();
+        Trait.InternalLink link = new Trait.InternalLink("P1", "id");
+        first.addTrait(Trait.INTERNAL_LINK, link);
+        second.addTrait(Trait.INTERNAL_LINK, link);
+        reference.addBlock(first);
+        reference.addBlock(second);
+
+        Page copy = roundTrip(page);
+        RegionViewport copiedViewport = copy.getRegionViewport(Constants.FO_REGION_BEFORE);
+        assertEquals(viewport.getViewArea(), copiedViewport.getViewArea());
+        assertNull(copy.getRegionViewport(Constants.FO_REGION_BODY));
+        RegionReference copiedReference = copiedViewport.getRegionReference();
+        assertEquals("before", copiedReference.getRegionName());
+        Block copiedFirst = (Block) copiedReference.getBlocks().get(0);
+        Block copiedSecond = (Block) copiedReference.getBlocks().get(1);
+        Object copiedLink = copiedFirst.getTrait(Trait.INTERNAL_LINK);
+        assertNotSame(link, copiedLink);
+        assertEquals(link.xmlAttribute(), ((Trait.InternalLink) copiedLink).xmlAttribute());
+        assertSame(copiedLink, copiedSecond.getTrait(Trait.INTERNAL_LINK));
+    }
+
+    @Test
+    public void testUnknownAreasFallBackToSerialization() throws Exception {
+        Page page = new Page();
+        RegionViewport viewport = new RegionViewport(new Rectangle(0, 0, 1000, 2000));
+        RegionReference reference = new RegionReference(Constants.FO_REGION_AFTER, "after", null);
+        viewport.setRegionReference(reference);
+        page.setRegionViewport(Constants.FO_REGION_AFTER, viewport);
+        reference.addBlock(new CustomBlock());
+
+        AreaTreeBinaryWriter writer = new AreaTreeBinaryWriter();
+        writer.writePage(page);
+        assertEquals(AreaTreeBinaryFormat.JAVA_SERIALIZATION, writer.getBuffer()[0]);
+        Page copy = roundTrip(page);
+        RegionReference copiedReference = copy.getRegionViewport(Constants.FO_REGION_AFTER)
+                .getRegionReference();
+        assertEquals(CustomBlock.class, copiedReference.getBlocks().get(0).getClass());
+    }
+
+    private static Page roundTrip(Page page) throws Exception {
+        AreaTreeBinaryWriter writer = new AreaTreeBinaryWriter();
+        writer.writePage(page);
+        ByteBuffer record = ByteBuffer.wrap(writer.getBuffer(), 0, writer.getLength());
+        return new AreaTreeBinaryReader().readPage(record);
+    }
+
+    /** Moves every page through a page store before rendering it. */
+    private static class RoundTripRenderer extends XMLRenderer {
+
+        private final PageStore store;
+
+        RoundTripRenderer(FOUserAgent userAgent) {
+            super(userAgent);
+            store = new PageStore(userAgent.getResourceResolver());
+        }
+
+        @Override
+        public void renderPage(PageViewport page) throws IOException, FOPException {
+            store.save(page);
+            assertNull(page.getPage());
+            store.load(page);
+            assertEquals(0, store.size());
+            super.renderPage(page);
+        }
+
+        @Override
+        public void stopRenderer() throws IOException {
+            store.close();
+            super.stopRenderer();
+        }
+    }
+
+    private static class CustomBlock extends Block {
+        private static final long serialVersionUID = 1L;
+    }
+}
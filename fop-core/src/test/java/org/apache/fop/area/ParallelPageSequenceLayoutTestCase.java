@@ -0,0 +1,332 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.area;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.transform.Result;
+import javax.xml.transform.Source;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.Fop;
+import org.apache.fop.apps.FopConfParser;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.apps.FormattingResults;
+import org.apache.fop.apps.MimeConstants;
+import org.apache.fop.events.Event;
+import org.apache.fop.events.EventListener;
+
+public class ParallelPageSequenceLayoutTestCase {
+
+    private static final Pattern PAGE_KEY = Pattern.compile("key=\"([^\"]+)\"");
+
+    private static String createFO(boolean backwardReferences) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<fo:root xmlns:fo='http://www.w3.org/1999/XSL/Format'>");
+        sb.append("<fo:layout-master-set>");
+        sb.append("<fo:simple-page-master master-name='first' page-height='8cm' page-width='10cm'>");
+        sb.append("<fo:region-body margin='1.5cm 1cm'/><fo:region-before extent='1cm'/>");
+        sb.append("</fo:simple-page-master>");
+        sb.append("<fo:simple-page-master master-name='rest' page-height='8cm' page-width='10cm'>");
+        sb.append("<fo:region-body margin='1.5cm 1cm'/><fo:region-after extent='1cm'/>");
+        sb.append("</fo:simple-page-master>");
+        sb.append("<fo:page-sequence-master master-name='letter'>");
+        sb.append("<fo:repeatable-page-master-alternatives>");
+        sb.append("<fo:conditional-page-master-reference master-reference='first' page-position='first'/>");
+        sb.append("<fo:conditional-page-master-reference master-reference='rest' page-position='rest'/>");
+        sb.append("</fo:repeatable-page-master-alternatives></fo:page-sequence-master>");
+        sb.append("</fo:layout-master-set>");
+        for (int letter = 0; letter < 12; letter++) {
+            sb.append("<fo:page-sequence master-reference='letter' id='letter").append(letter).append("'");
+            if (letter != 5) {
+                sb.append(" initial-page-number='").append(letter * 10 + 1).append("'");
+            }
+            sb.append(">");
+            sb.append("<fo:static-content flow-name='xsl-region-before'><fo:block text-align='end'>");
+            if (letter == 8) {
+                // laid out sequentially
+                sb.append("<fo:retrieve-marker retrieve-class-name='topic'/>");
+            } else {
+                sb.append("Letter ").append(letter);
+            }
+            sb.append("</fo:block></fo:static-content>");
+            sb.append("<fo:static-content flow-name='xsl-region-after'><fo:block text-align='center'>");
+            sb.append("Page <fo:page-number/> of <fo:page-number-citation-last ref-id='letter")
+                    .append(letter).append("'/></fo:block></fo:static-content>");
+            sb.append("<fo:flow flow-name='xsl-region-body'>");
+            sb.append("<fo:block>Letter ").append(letter);
+            if (letter < 11) {
+                sb.append(", next one on page <fo:page-number-citation ref-id='start")
+                        .append(letter + 1).append("'/>, see <fo:basic-link internal-destination='start")
+                        .append(letter + 1).append("'>there</fo:basic-link>");
+            }
+            if (backwardReferences && letter > 0) {
+                sb.append(", previous one on page <fo:page-number-citation ref-id='start")
+                        .append(letter - 1).append("'/>");
+            }
+            sb.append(".</fo:block>");
+            sb.append("<fo:block id='start").append(letter).append("'>");
+            sb.append("<fo:marker marker-class-name='topic'>Topic ").append(letter).append("</fo:marker>");
+            sb.append("Dear customer,</fo:block>");
+            for (int i = 0; i < letter % 4 * 3 + 2; i++) {
+                sb.append("<fo:block text-align='justify' space-before='4pt'>");
+                sb.append("Paragraph ").append(i).append(" of letter ").append(letter);
+                sb.append(" with a few words that have to be broken across some lines.</fo:block>");
+            }
+            sb.append("</fo:flow></fo:page-sequence>");
+        }
+        sb.append("</fo:root>");
+        return sb.toString();
+    }
+
+    private static String render(String fo, int layoutThreads, FormattingResults[] results)
+            throws Exception {
+        return render(FopFactory.newInstance(new File(".").toURI()), fo, layoutThreads, results);
+    }
+
+    private static String render(FopFactory fopFactory, String fo, int layoutThreads,
+            FormattingResults[] results) throws Exception {
+        FOUserAgent userAgent = fopFactory.newFOUserAgent();
+        userAgent.setLayoutThreads(layoutThreads);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Fop fop = fopFactory.newFop(MimeConstants.MIME_FOP_AREA_TREE, userAgent, out);
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        Source src = new StreamSource(new ByteArrayInputStream(fo.getBytes("UTF-8")));
+        Result res = new SAXResult(fop.getDefaultHandler());
+        transformer.transform(src, res);
+        results[0] = fop.getResults();
+        return normalizePageKeys(out.toString("UTF-8"));
+    }
+
+    /** Page keys are only unique; number them in document order. */
+    private static String normalizePageKeys(String areaTree) {
+        Map<String, String> keys = new HashMap<String, String>();
+        Matcher matcher = PAGE_KEY.matcher(areaTree);
+        while (matcher.find()) {
+            keys.put(matcher.group(1), "page" + (keys.size() + 1));
+        }
+        for (Map.Entry<String, String> key : keys.entrySet()) {
+            areaTree = areaTree.replace("\"" + key.getKey() + "\"", "\"" + key.getValue() + "\"")
+                    .replace("(" + key.getKey() + ",", "(" + key.getValue() + ",");
+        }
+        return areaTree;
+    }
+
+    @Test
+    public void testParallelLayoutMatchesSequentialLayout() throws Exception {
+        String fo = createFO(false);
+        FormattingResults[] sequentialResults = new FormattingResults[1];
+        FormattingResults[] parallelResults = new FormattingResults[1];
+        String sequential = render(fo, 0, sequentialResults);
+        String parallel = render(fo, 3, parallelResults);
+        assertEquals(sequential, parallel);
+        assertEquals(sequentialResults[0].getPageCount(), parallelResults[0].getPageCount());
+        assertEquals(sequentialResults[0].getPageSequences().size(),
+                parallelResults[0].getPageSequences().size());
+    }
+
+    @Test
+    public void testBackwardReferencesAcrossPageSequencesAreResolved() throws Exception {
+        String fo = createFO(true);
+        FormattingResults[] results = new FormattingResults[1];
+        String sequential = getText(render(fo, 0, results));
+        String parallel = getText(render(fo, 3, results));
+        assertTrue(parallel.contains(
+                "Letter 2, next one on page 31 , see there , previous one on page 11 ."));
+        assertEquals(sequential, parallel);
+    }
+
+    /**
+     * The glyph substitution and positioning tables of a font are shared by all the
+     * page-sequences laid out in parallel.
+     */
+    @Test
+    public void testParallelLayoutWithComplexScripts() throws Exception {
+        FopFactory fopFactory = createFopFactory(MimeConstants.MIME_FOP_AREA_TREE);
+        StringBuilder sb = new StringBuilder();
+        sb.append("<fo:root xmlns:fo='http://www.w3.org/1999/XSL/Format' font-family='DejaVu'>");
+        sb.append("<fo:layout-master-set><fo:simple-page-master master-name='page'");
+        sb.append(" page-height='8cm' page-width='10cm'><fo:region-body margin='1cm'/>");
+        sb.append("</fo:simple-page-master></fo:layout-master-set>");
+        for (int sequence = 0; sequence < 8; sequence++) {
+            sb.append("<fo:page-sequence master-reference='page' initial-page-number='")
+                    .append(sequence * 10 + 1).append("'><fo:flow flow-name='xsl-region-body'>");
+            for (int i = 0; i < 6; i++) {
+                sb.append("<fo:block text-align='justify'>AVATAR Wave office fluffy difficult ");
+                sb.append("\u039a\u03b1\u03bb\u03b7\u03bc\u03ad\u03c1\u03b1 ");
+                sb.append("\u041f\u0440\u0438\u0432\u0435\u0442 ").append(sequence).append(' ').append(i);
+                sb.append(" To Yves, LYNX affluent waffle.</fo:block>");
+            }
+            sb.append("</fo:flow></fo:page-sequence>");
+        }
+        sb.append("</fo:root>");
+        String fo = sb.toString();
+        FormattingResults[] results = new FormattingResults[1];
+        String sequential = render(fopFactory, fo, 0, results);
+        assertTrue(sequential.contains("font-name=\"DejaVu\""));
+        for (int run = 0; run < 3; run++) {
+            assertEquals(sequential, render(fopFactory, fo, 4, results));
+        }
+    }
+
+    private static FopFactory createFopFactory(String mime) throws Exception {
+        String xconf = "<fop version='1.0'><renderers>"
+                + "<renderer mime='" + mime + "'><fonts>"
+                + "<font embed-url='test/resources/fonts/ttf/DejaVuLGCSerif.ttf'>"
+                + "<font-triplet name='DejaVu' style='normal' weight='normal'/></font>"
+                + "</fonts></renderer></renderers></fop>";
+        return new FopConfParser(new ByteArrayInputStream(xconf.getBytes("UTF-8")),
+                new File(".").toURI()).getFopFactoryBuilder().build();
+    }
+
+    /** Each page-sequence uses letters of its own, some of which are missing from the font. */
+    private static String createSubsetFO() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<fo:root xmlns:fo='http://www.w3.org/1999/XSL/Format' font-family='DejaVu'>");
+        sb.append("<fo:layout-master-set><fo:simple-page-master master-name='page'");
+        sb.append(" page-height='8cm' page-width='10cm'><fo:region-body margin='1cm'/>");
+        sb.append("</fo:simple-page-master></fo:layout-master-set>");
+        for (int sequence = 0; sequence < 6; sequence++) {
+            sb.append("<fo:page-sequence master-reference='page' initial-page-number='")
+                    .append(sequence * 10 + 1).append("'><fo:flow flow-name='xsl-region-body'>");
+            for (int i = 0; i < 12; i++) {
+                sb.append("<fo:block text-align='justify'>");
+                for (int word = 0; word < 8; word++) {
+                    sb.append((char) ('a' + (sequence * 4 + word) % 26));
+                    sb.append((char) ('\u0430' + (sequence * 5 + i) % 32));
+                    sb.append((char) ('\u03b1' + (sequence * 3 + word) % 24)).append(' ');
+                }
+                // not in the font
+                sb.append((char) ('\u4e00' + sequence)).append("</fo:block>");
+            }
+            sb.append("</fo:flow></fo:page-sequence>");
+        }
+        sb.append("</fo:root>");
+        return sb.toString();
+    }
+
+    /** Renders a PDF, without the parts that change from one run to the next. */
+    private static String renderPDF(FopFactory fopFactory, String fo, int layoutThreads,
+            EventListener listener) throws Exception {
+        FOUserAgent userAgent = fopFactory.newFOUserAgent();
+        userAgent.setLayoutThreads(layoutThreads);
+        userAgent.setCreationDate(new Date(0));
+        userAgent.getEventBroadcaster().addEventListener(listener);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Fop fop = fopFactory.newFop(MimeConstants.MIME_PDF, userAgent, out);
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        Source src = new StreamSource(new ByteArrayInputStream(fo.getBytes("UTF-8")));
+        transformer.transform(src, new SAXResult(fop.getDefaultHandler()));
+        return out.toString("ISO-8859-1")
+                .replaceAll("<xmp:MetadataDate>[^<]*</xmp:MetadataDate>", "")
+                .replaceAll("/ID \\[<[0-9A-F]+> <[0-9A-F]+>\\]", "");
+    }
+
+    /**
+     * The glyphs of embedded subsets are numbered in the order the characters are first
+     * used, and missing glyphs are reported in that order, whatever the layout threads.
+     */
+    @Test
+    public void testParallelLayoutProducesSamePDF() throws Exception {
+        FopFactory fopFactory = createFopFactory(MimeConstants.MIME_PDF);
+        String fo = createSubsetFO();
+        final Thread thread = Thread.currentThread();
+        final List<String> events = new ArrayList<String>();
+        EventListener listener = new EventListener() {
+            public void processEvent(Event event) {
+                assertSame(thread, Thread.currentThread());
+                if (event.getEventID().endsWith(".glyphNotAvailable")) {
+                    events.add(String.valueOf(event.getParam("ch")));
+                }
+            }
+        };
+        String sequential = renderPDF(fopFactory, fo, 0, listener);
+        List<String> sequentialEvents = new ArrayList<String>(events);
+        assertEquals(6, sequentialEvents.size());
+        for (int run = 0; run < 3; run++) {
+            events.clear();
+            assertEquals(sequential, renderPDF(fopFactory, fo, 4, listener));
+            assertEquals(sequentialEvents, events);
+        }
+    }
+
+    /**
+     * A page-sequence with a page master for the last page is laid out once the preceding
+     * page-sequences have been finished.
+     */
+    @Test
+    public void testParallelLayoutWithLastPageMaster() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<fo:root xmlns:fo='http://www.w3.org/1999/XSL/Format'>");
+        sb.append("<fo:layout-master-set>");
+        sb.append("<fo:simple-page-master master-name='narrow' page-height='8cm' page-width='10cm'>");
+        sb.append("<fo:region-body margin='1cm 3cm'/></fo:simple-page-master>");
+        sb.append("<fo:simple-page-master master-name='wide' page-height='8cm' page-width='10cm'>");
+        sb.append("<fo:region-body margin='1cm'/></fo:simple-page-master>");
+        sb.append("<fo:page-sequence-master master-name='document'>");
+        sb.append("<fo:repeatable-page-master-alternatives>");
+        sb.append("<fo:conditional-page-master-reference master-reference='narrow' page-position='last'/>");
+        sb.append("<fo:conditional-page-master-reference master-reference='wide' page-position='any'/>");
+        sb.append("</fo:repeatable-page-master-alternatives></fo:page-sequence-master>");
+        sb.append("</fo:layout-master-set>");
+        for (int sequence = 0; sequence < 8; sequence++) {
+            sb.append("<fo:page-sequence master-reference='")
+                    .append(sequence % 3 == 2 ? "document" : "wide")
+                    .append("' initial-page-number='").append(sequence * 10 + 1)
+                    .append("'><fo:flow flow-name='xsl-region-body'>");
+            for (int i = 0; i < sequence % 4 * 4 + 3; i++) {
+                sb.append("<fo:block text-align='justify' space-before='4pt'>Paragraph ").append(i);
+                sb.append(" of page-sequence ").append(sequence);
+                sb.append(" with a few words that have to be broken across some lines.</fo:block>");
+            }
+            sb.append("</fo:flow></fo:page-sequence>");
+        }
+        sb.append("</fo:root>");
+        String fo = sb.toString();
+        FormattingResults[] results = new FormattingResults[1];
+        String sequential = render(fo, 0, results);
+        for (int run = 0; run < 3; run++) {
+            assertEquals(sequential, render(fo, 3, results));
+        }
+    }
+
+    private static String getText(String areaTree) {
+        return areaTree.replaceAll("<[^>]*>", " ").replaceAll("\\s+", " ");
+    }
+}
@@ -33,7 +33,9 @@ import org.apache.fop.complexscripts.fonts.ttx.TTXFileTestCase;
     TTXFileTestCase.class,
     GDEFTestCase.class,
     GSUBTestCase.class,
-    GPOSTestCase.class
+    GPOSTestCase.class,
+    GlyphMappingTableTestCase.class,
+    OTFAdvancedTypographicTableReaderTestCase.class
 })
 public class FontsTestSuite {
 }
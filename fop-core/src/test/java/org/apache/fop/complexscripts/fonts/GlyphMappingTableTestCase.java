@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.complexscripts.fonts;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+import org.apache.fop.complexscripts.fonts.GlyphMappingTable.MappingRange;
+
+/**
+ * Tests glyph coverage and class lookups, both through the glyph bit sets of the tables and
+ * through the binary search used when ranges share a glyph.
+ */
+public class GlyphMappingTableTestCase {
+
+    @Test
+    public void testMappedCoverageDense() {
+        List<Integer> gids = new ArrayList<Integer>();
+        for (int gid = 10; gid < 100; gid += 3) {
+            gids.add(gid);
+        }
+        checkMappedCoverage(gids);
+    }
+
+    @Test
+    public void testMappedCoverageSparse() {
+        List<Integer> gids = new ArrayList<Integer>();
+        for (int gid = 5; gid < 60000; gid += 997) {
+            gids.add(gid);
+        }
+        checkMappedCoverage(gids);
+    }
+
+    private void checkMappedCoverage(List<Integer> gids) {
+        GlyphCoverageTable ct = GlyphCoverageTable.createCoverageTable(gids);
+        assertEquals(gids.size(), ct.getCoverageSize());
+        for (int gid = 0; gid < 65536; gid++) {
+            assertEquals(gids.indexOf(gid), ct.getCoverageIndex(gid));
+        }
+    }
+
+    @Test
+    public void testRangeCoverageDense() {
+        checkRangeCoverage(createRanges(20, 300, 10, 4));
+    }
+
+    @Test
+    public void testRangeCoverageSparse() {
+        checkRangeCoverage(createRanges(3, 60000, 2000, 2));
+    }
+
+    @Test
+    public void testRangeCoverageSharedGlyph() {
+        List<MappingRange> ranges = new ArrayList<MappingRange>();
+        ranges.add(new MappingRange(10, 20, 0));
+        ranges.add(new MappingRange(20, 30, 11));
+        checkRangeCoverage(ranges);
+    }
+
+    private void checkRangeCoverage(List<MappingRange> ranges) {
+        GlyphCoverageTable ct = GlyphCoverageTable.createCoverageTable(ranges);
+        for (int gid = 0; gid < 65536; gid++) {
+            int ci = -1;
+            for (MappingRange r : ranges) {
+                if ((gid >= r.getStart()) && (gid <= r.getEnd())) {
+                    ci = r.getIndex() + gid - r.getStart();
+                }
+            }
+            assertEquals(ci, ct.getCoverageIndex(gid));
+        }
+    }
+
+    @Test
+    public void testRangeClassDense() {
+        checkRangeClass(createRanges(1, 500, 25, 20));
+    }
+
+    @Test
+    public void testRangeClassSparse() {
+        checkRangeClass(createRanges(100, 65000, 5000, 1));
+    }
+
+    private void checkRangeClass(List<MappingRange> ranges) {
+        GlyphClassTable ct = GlyphClassTable.createClassTable(ranges);
+        for (int gid = 0; gid < 65536; gid++) {
+            int ci = -1;
+            for (MappingRange r : ranges) {
+                if ((gid >= r.getStart()) && (gid <= r.getEnd())) {
+                    ci = r.getIndex();
+                }
+            }
+            assertEquals(ci, ct.getClassIndex(gid, 0));
+        }
+    }
+
+    private static List<MappingRange> createRanges(int first, int last, int step, int length) {
+        List<MappingRange> ranges = new ArrayList<MappingRange>();
+        int index = 0;
+        for (int gs = first; gs + length - 1 <= last; gs += step) {
+            ranges.add(new MappingRange(gs, gs + length - 1, index));
+            index += length;
+        }
+        return ranges;
+    }
+}
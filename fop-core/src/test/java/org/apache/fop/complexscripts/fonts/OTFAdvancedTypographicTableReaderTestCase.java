@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.complexscripts.fonts;
+
+import java.io.File;
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.fop.apps.io.ResourceResolverFactory;
+import org.apache.fop.complexscripts.util.CharAssociation;
+import org.apache.fop.fonts.MultiByteFont;
+import org.apache.fop.fonts.truetype.OFFontLoader;
+
+/**
+ * Tests the advanced typographic tables read from a font file, whose lookup subtables
+ * are read when a lookup is first used.
+ */
+public class OTFAdvancedTypographicTableReaderTestCase {
+
+    private MultiByteFont loadFont() throws Exception {
+        File file = new File("test/resources/fonts/ttf/DejaVuLGCSerif.ttf").getAbsoluteFile();
+        OFFontLoader loader = new OFFontLoader(file.toURI(),
+                ResourceResolverFactory.createDefaultInternalResourceResolver(file.getParentFile().toURI()));
+        return (MultiByteFont) loader.getFont();
+    }
+
+    @Test
+    public void testSubstitutionLookupsAreLoaded() throws Exception {
+        GlyphSubstitutionTable gsub = loadFont().getGSUB();
+        assertNotNull(gsub);
+        assertFalse(gsub.getLookupTables().isEmpty());
+        for (GlyphTable.LookupTable lt : gsub.getLookupTables()) {
+            assertTrue(lt.performsSubstitution());
+            assertFalse(lt.performsPositioning());
+            GlyphSubtable[] subtables = lt.getSubtables();
+            assertTrue(subtables.length > 0);
+            for (GlyphSubtable st : subtables) {
+                assertTrue(st instanceof GlyphSubstitutionSubtable);
+                assertSame(gsub, st.getTable());
+            }
+            assertSame(subtables, lt.getSubtables());
+        }
+    }
+
+    @Test
+    public void testPositioningLookupsAreLoaded() throws Exception {
+        GlyphPositioningTable gpos = loadFont().getGPOS();
+        assertNotNull(gpos);
+        assertFalse(gpos.getLookupTables().isEmpty());
+        for (GlyphTable.LookupTable lt : gpos.getLookupTables()) {
+            assertTrue(lt.performsPositioning());
+            GlyphSubtable[] subtables = lt.getSubtables();
+            assertTrue(subtables.length > 0);
+            for (GlyphSubtable st : subtables) {
+                assertTrue(st instanceof GlyphPositioningSubtable);
+                assertSame(gpos, st.getTable());
+            }
+        }
+    }
+
+    @Test
+    public void testShapingLoadsLookupsOnDemand() throws Exception {
+        MultiByteFont font = loadFont();
+        CharSequence office = font.performSubstitution("office", "latn", "dflt",
+                new ArrayList<CharAssociation>(), false);
+        assertEquals("o\ufb03ce", office.toString());
+        int[][] adjustments = font.performPositioning("AVATAR", "latn", "dflt", 1000);
+        assertNotNull(adjustments);
+        assertArrayEquals(new int[] {0, 0, -49, 0}, adjustments[0]);
+        assertArrayEquals(new int[] {0, 0, -67, 0}, adjustments[1]);
+    }
+}
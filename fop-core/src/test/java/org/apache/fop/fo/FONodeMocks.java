@@ -34,6 +34,7 @@ import org.apache.fop.apps.FOUserAgent;
 import org.apache.fop.events.EventBroadcaster;
 import org.apache.fop.fo.flow.table.ColumnNumberManager;
 import org.apache.fop.fo.flow.table.ColumnNumberManagerHolder;
+import org.apache.fop.metrics.ProcessingMetrics;
 
 /**
  * A helper class for creating mocks of {@link FONode} and its descendants.
@@ -66,6 +67,7 @@ public final class FONodeMocks {
 
     public static FOUserAgent mockGetUserAgent(FOEventHandler mockFOEventHandler) {
         FOUserAgent mockFOUserAgent = mock(FOUserAgent.class);
+        when(mockFOUserAgent.getMetrics()).thenReturn(new ProcessingMetrics());
         when(mockFOEventHandler.getUserAgent()).thenReturn(mockFOUserAgent);
         return mockFOUserAgent;
     }
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fo.expr;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.fo.Constants;
+import org.apache.fop.fo.FObj;
+import org.apache.fop.fo.PropertyList;
+import org.apache.fop.fo.properties.FixedLength;
+import org.apache.fop.fo.properties.ListProperty;
+import org.apache.fop.fo.properties.Property;
+import org.apache.fop.fo.properties.PropertyCacheScope;
+
+public class PropertyParserTestCase {
+
+    private PropertyInfo propertyInfo;
+
+    private FOUserAgent userAgent;
+
+    @Before
+    public void setUp() {
+        userAgent = mock(FOUserAgent.class);
+        FObj fobj = mock(FObj.class);
+        when(fobj.getUserAgent()).thenReturn(userAgent);
+        PropertyList propertyList = mock(PropertyList.class);
+        when(propertyList.getFObj()).thenReturn(fobj);
+        propertyInfo = new PropertyInfo(FObj.getPropertyMakerFor(Constants.PR_BORDER), propertyList);
+    }
+
+    @Test
+    public void sharesElementsOfContextFreeLists() throws PropertyException {
+        ListProperty first = (ListProperty) PropertyParser.parse("0.5pt solid black", propertyInfo);
+        ListProperty second = (ListProperty) PropertyParser.parse("0.5pt solid black", propertyInfo);
+        assertNotSame(first, second);
+        assertEquals(first, second);
+        List<Property> elements = second.getList();
+        assertEquals(3, elements.size());
+        assertEquals(FixedLength.getInstance(0.5, "pt"), elements.get(0));
+        assertSame(first.getList().get(1), elements.get(1));
+        assertNull(elements.get(1).getColor(userAgent));
+    }
+
+    @Test
+    public void copiesListsBeforeHandingThemOut() throws PropertyException {
+        ListProperty first = (ListProperty) PropertyParser.parse("1pt dashed", propertyInfo);
+        first.addProperty(new NCnameProperty("red"));
+        ListProperty second = (ListProperty) PropertyParser.parse("1pt dashed", propertyInfo);
+        assertEquals(2, second.getList().size());
+    }
+
+    @Test
+    public void remembersExpressionsInBoundScope() throws PropertyException {
+        PropertyCacheScope scope
+                = new PropertyCacheScope(Integer.MAX_VALUE, PropertyCacheScope.EvictionPolicy.TRIM);
+        PropertyCacheScope previous = scope.bind();
+        try {
+            PropertyParser.parse("0.25pt dotted", propertyInfo);
+        } finally {
+            PropertyCacheScope.restore(previous);
+        }
+        assertNotNull(scope.getParsedExpression("0.25pt dotted"));
+        assertNull(PropertyCacheScope.getGlobal().getParsedExpression("0.25pt dotted"));
+    }
+
+    @Test
+    public void keepsNamesThatAreNotColorsInScope() throws PropertyException {
+        PropertyCacheScope scope
+                = new PropertyCacheScope(Integer.MAX_VALUE, PropertyCacheScope.EvictionPolicy.TRIM);
+        PropertyCacheScope previous = scope.bind();
+        Property groove;
+        try {
+            groove = ((ListProperty) PropertyParser.parse("1pt groove", propertyInfo)).getList().get(1);
+            assertNull(groove.getColor(userAgent));
+        } finally {
+            PropertyCacheScope.restore(previous);
+        }
+        assertTrue(scope.isNotAColor("groove"));
+        assertFalse(PropertyCacheScope.getGlobal().isNotAColor("groove"));
+        assertEquals(new NCnameProperty("groove"), groove);
+    }
+
+    @Test
+    public void evaluatesContextDependentExpressionsEachTime() throws PropertyException {
+        when(userAgent.getSourceResolution()).thenReturn(72f);
+        Property first = PropertyParser.parse("10px", propertyInfo);
+        assertEquals(10000, first.getLength().getValue());
+        when(userAgent.getSourceResolution()).thenReturn(144f);
+        Property second = PropertyParser.parse("10px", propertyInfo);
+        assertEquals(5000, second.getLength().getValue());
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fo.properties;
+
+import java.io.File;
+import java.io.StringReader;
+
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.apache.commons.io.output.NullOutputStream;
+
+import org.apache.fop.apps.Fop;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.apps.FopFactoryBuilder;
+import org.apache.fop.apps.MimeConstants;
+
+public class PropertyCacheScopeTestCase {
+
+    private static String value(int i) {
+        return new String("value-" + i);
+    }
+
+    @Test
+    public void internsEqualValues() {
+        PropertyCache<String> cache = new PropertyCache<String>();
+        String first = cache.fetch(value(1));
+        assertSame(first, cache.fetch(value(1)));
+        assertNotSame(first, cache.fetch(value(2)));
+    }
+
+    @Test
+    public void boundScopeIsSeparateFromGlobalScope() {
+        PropertyCache<String> cache = new PropertyCache<String>();
+        String global = cache.fetch(value(1));
+        PropertyCacheScope scope
+                = new PropertyCacheScope(Integer.MAX_VALUE, PropertyCacheScope.EvictionPolicy.TRIM);
+        PropertyCacheScope previous = scope.bind();
+        try {
+            assertSame(scope, PropertyCacheScope.getCurrent());
+            String scoped = cache.fetch(value(1));
+            assertNotSame(global, scoped);
+            assertSame(scoped, cache.fetch(value(1)));
+        } finally {
+            PropertyCacheScope.restore(previous);
+        }
+        assertNull(PropertyCacheScope.getCurrent());
+        assertSame(global, cache.fetch(value(1)));
+    }
+
+    @Test
+    public void countsMissesAndHits() {
+        PropertyCache<String> cache = new PropertyCache<String>();
+        PropertyCacheScope scope
+                = new PropertyCacheScope(Integer.MAX_VALUE, PropertyCacheScope.EvictionPolicy.TRIM);
+        PropertyCacheScope previous = scope.bind();
+        try {
+            cache.fetch(value(1));
+            cache.fetch(value(1));
+            assertEquals(1, scope.getMissCount());
+            assertEquals(0, scope.getHitCount());
+            scope.setHitCountEnabled(true);
+            cache.fetch(value(1));
+            cache.fetch(value(2));
+            assertEquals(2, scope.getMissCount());
+            assertEquals(1, scope.getHitCount());
+            assertEquals(Long.valueOf(2), scope.getSizes().get(String.class.getName()));
+            scope.resetCounts();
+            assertEquals(0, scope.getMissCount());
+            assertEquals(0, scope.getHitCount());
+        } finally {
+            PropertyCacheScope.restore(previous);
+        }
+    }
+
+    @Test
+    public void evictsEntriesBeyondMaximumSize() {
+        PropertyCache<String> cache = new PropertyCache<String>();
+        PropertyCacheScope scope = new PropertyCacheScope(1000, PropertyCacheScope.EvictionPolicy.TRIM);
+        PropertyCacheScope previous = scope.bind();
+        String[] values = new String[10000];
+        try {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = cache.fetch(value(i));
+            }
+        } finally {
+            PropertyCacheScope.restore(previous);
+        }
+        long size = scope.getSizes().get(String.class.getName());
+        assertTrue("size " + size, size <= 1000);
+        assertTrue(scope.getEvictionCount() >= values.length - 1000);
+    }
+
+    @Test
+    public void forgetsLeastRecentlyUsedExpressions() {
+        PropertyCacheScope scope = new PropertyCacheScope(2, PropertyCacheScope.EvictionPolicy.TRIM);
+        Property first = FixedLength.getInstance(1, "pt");
+        Property second = FixedLength.getInstance(2, "pt");
+        scope.putParsedExpression("1pt", first);
+        scope.putParsedExpression("2pt", second);
+        assertSame(first, scope.getParsedExpression("1pt"));
+        scope.putParsedExpression("3pt", FixedLength.getInstance(3, "pt"));
+        assertSame(first, scope.getParsedExpression("1pt"));
+        assertNull(scope.getParsedExpression("2pt"));
+        assertNull(PropertyCacheScope.getGlobal().getParsedExpression("3pt"));
+    }
+
+    @Test
+    public void scopeIsNotLeftBoundWhenParsingFails() throws Exception {
+        PropertyCacheScope scope
+                = new PropertyCacheScope(Integer.MAX_VALUE, PropertyCacheScope.EvictionPolicy.TRIM);
+        FopFactory fopFactory = new FopFactoryBuilder(new File(".").toURI())
+                .setPropertyCacheScope(scope).build();
+        Fop fop = fopFactory.newFop(MimeConstants.MIME_FOP_AREA_TREE, new NullOutputStream());
+        String fo = "<fo:root xmlns:fo='http://www.w3.org/1999/XSL/Format'>"
+                + "<fo:layout-master-set><fo:simple-page-master master-name='page'>"
+                + "<fo:region-body font-size='11pt'/>"
+                + "</fo:simple-page-master></fo:layout-master-set>"
+                + "<fo:block/></fo:root>";
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        try {
+            transformer.transform(new StreamSource(new StringReader(fo)),
+                    new SAXResult(fop.getDefaultHandler()));
+            fail("The document is invalid");
+        } catch (TransformerException e) {
+            // expected
+        }
+        assertTrue(scope.getMissCount() > 0);
+        assertNull(PropertyCacheScope.getCurrent());
+    }
+
+    @Test
+    public void keepsDefaultBorderPaddingBackgroundInScope() throws Exception {
+        PropertyCacheScope scope
+                = new PropertyCacheScope(Integer.MAX_VALUE, PropertyCacheScope.EvictionPolicy.TRIM);
+        FopFactory fopFactory = new FopFactoryBuilder(new File(".").toURI())
+                .setPropertyCacheScope(scope).build();
+        Fop fop = fopFactory.newFop(MimeConstants.MIME_FOP_AREA_TREE, new NullOutputStream());
+        String fo = "<fo:root xmlns:fo='http://www.w3.org/1999/XSL/Format'>"
+                + "<fo:layout-master-set><fo:simple-page-master master-name='page'>"
+                + "<fo:region-body/>"
+                + "</fo:simple-page-master></fo:layout-master-set>"
+                + "<fo:page-sequence master-reference='page'><fo:flow flow-name='xsl-region-body'>"
+                + "<fo:block>text</fo:block></fo:flow></fo:page-sequence></fo:root>";
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        transformer.transform(new StreamSource(new StringReader(fo)),
+                new SAXResult(fop.getDefaultHandler()));
+        CommonBorderPaddingBackground scoped = scope.getDefaultBorderPaddingBackground();
+        assertNotNull(scoped);
+        assertFalse(scoped.hasBorder());
+        assertNotSame(scoped, PropertyCacheScope.getGlobal().getDefaultBorderPaddingBackground());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveMaximumSize() {
+        new PropertyCacheScope(0, PropertyCacheScope.EvictionPolicy.CLEAR);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fonts;
+
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.apache.fop.apps.io.InternalResourceResolver;
+import org.apache.fop.apps.io.ResourceResolverFactory;
+
+public class FontAdderTestCase {
+
+    private List<EmbedFontInfo> detect(int threads) throws Exception {
+        InternalResourceResolver resolver = ResourceResolverFactory.createDefaultInternalResourceResolver(
+                new File(".").toURI());
+        FontManager manager = new FontManager(resolver, FontDetectorFactory.createDisabled(),
+                FontCacheManagerFactory.createDisabled());
+        manager.setFontDetectionThreads(threads);
+        List<URL> fontURLs = new ArrayList<URL>();
+        for (String dir : new String[] {"test/resources/fonts/ttf", "test/resources/fonts/otf"}) {
+            for (File font : new File(dir).listFiles()) {
+                fontURLs.add(font.toURI().toURL());
+            }
+        }
+        List<EmbedFontInfo> fontInfos = new ArrayList<EmbedFontInfo>();
+        new FontAdder(manager, resolver, null).add(fontURLs, fontInfos);
+        return fontInfos;
+    }
+
+    @Test
+    public void testParallelDetectionMatchesSerialDetection() throws Exception {
+        List<EmbedFontInfo> serial = detect(1);
+        List<EmbedFontInfo> parallel = detect(4);
+        assertFalse(serial.isEmpty());
+        assertEquals(serial.size(), parallel.size());
+        for (int i = 0; i < serial.size(); i++) {
+            assertEquals(serial.get(i).getEmbedURI(), parallel.get(i).getEmbedURI());
+            assertEquals(serial.get(i).getFontTriplets(), parallel.get(i).getFontTriplets());
+            assertEquals(serial.get(i).getPostScriptName(), parallel.get(i).getPostScriptName());
+        }
+    }
+
+    @Test
+    public void testFontsAreDetectedOnCallingThreadByDefault() {
+        FontManager manager = new FontManager(ResourceResolverFactory.createDefaultInternalResourceResolver(
+                new File(".").toURI()), FontDetectorFactory.createDisabled(),
+                FontCacheManagerFactory.createDisabled());
+        assertEquals(1, manager.getFontDetectionThreads());
+    }
+}
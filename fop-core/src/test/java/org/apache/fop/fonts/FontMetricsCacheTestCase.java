@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fonts;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.fop.apps.io.InternalResourceResolver;
+import org.apache.fop.apps.io.ResourceResolverFactory;
+
+public class FontMetricsCacheTestCase {
+
+    private static final URI FONT_URI = URI.create("DejaVuLGCSerif.ttf");
+
+    private final InternalResourceResolver resolver
+            = ResourceResolverFactory.createDefaultInternalResourceResolver(
+                    new File("test/resources/fonts/ttf").getAbsoluteFile().toURI());
+
+    private File directory;
+
+    private FontMetricsCache cache;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("fop", "metrics");
+        directory.delete();
+        cache = new FontMetricsCache(directory);
+    }
+
+    @After
+    public void tearDown() {
+        cache.clear();
+        directory.delete();
+    }
+
+    private LazyFont createFont(boolean useAdvanced) {
+        EmbedFontInfo fontInfo = new EmbedFontInfo(new FontUris(FONT_URI, null), true, useAdvanced,
+                null, null);
+        LazyFont font = new LazyFont(fontInfo, resolver, useAdvanced);
+        font.setMetricsCache(cache);
+        return font;
+    }
+
+    @Test
+    public void testMetricsAreReadFromCache() {
+        MultiByteFont loaded = (MultiByteFont) createFont(false).getRealFont();
+        assertEquals(1, directory.listFiles().length);
+
+        LazyFont font = createFont(false);
+        MultiByteFont cached = (MultiByteFont) cache.getFont(FONT_URI, font.getLoadingOptions(), false,
+                resolver);
+        assertNotNull(cached);
+        assertTrue(cached != loaded);
+        assertEquals(loaded.getFontName(), cached.getFontName());
+        assertEquals(loaded.getFamilyNames(), cached.getFamilyNames());
+        assertEquals(loaded.getEmbedFileURI(), cached.getEmbedFileURI());
+        assertEquals(loaded.getCIDType(), cached.getCIDType());
+        assertEquals(loaded.getAscender(), cached.getAscender());
+        assertEquals(loaded.getUnderlinePosition(12000), cached.getUnderlinePosition(12000));
+        assertTrue(Arrays.equals(loaded.getFontBBox(), cached.getFontBBox()));
+        assertTrue(Arrays.equals(loaded.getWidths(), cached.getWidths()));
+        assertTrue(Arrays.equals(loaded.getCMap(), cached.getCMap()));
+        assertEquals(loaded.getKerningInfo(), cached.getKerningInfo());
+        assertEquals(loaded.mapChar('A'), cached.mapChar('A'));
+        assertEquals(loaded.getBoundingBox(loaded.mapChar('g'), 1),
+                cached.getBoundingBox(cached.mapChar('g'), 1));
+    }
+
+    @Test
+    public void testAdvancedTablesAreReadWithCachedMetrics() {
+        MultiByteFont loaded = (MultiByteFont) createFont(true).getRealFont();
+        assertNotNull(loaded.getGSUB());
+        assertNotNull(loaded.getGPOS());
+
+        LazyFont font = createFont(true);
+        MultiByteFont cached = (MultiByteFont) cache.getFont(FONT_URI, font.getLoadingOptions(), true,
+                resolver);
+        assertNotNull(cached);
+        assertTrue(Arrays.equals(loaded.getWidths(), cached.getWidths()));
+        assertNotNull(cached.getGSUB());
+        assertEquals(loaded.getGSUB().getLookups(), cached.getGSUB().getLookups());
+        assertEquals(loaded.getGSUB().getLookupTables().size(), cached.getGSUB().getLookupTables().size());
+        assertNotNull(cached.getGPOS());
+        assertEquals(loaded.getGPOS().getLookups(), cached.getGPOS().getLookups());
+        assertEquals(loaded.getGDEF() != null, cached.getGDEF() != null);
+    }
+
+    @Test
+    public void testAdvancedTablesAreReadForEntryWrittenWithoutThem() {
+        createFont(false).getRealFont();
+        LazyFont font = createFont(true);
+        MultiByteFont cached = (MultiByteFont) cache.getFont(FONT_URI, font.getLoadingOptions(), true,
+                resolver);
+        assertNotNull(cached);
+        assertNotNull(cached.getGSUB());
+        assertNotNull(cached.getGPOS());
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fonts;
+
+import java.io.File;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+
+import org.apache.fop.apps.io.InternalResourceResolver;
+import org.apache.fop.apps.io.ResourceResolverFactory;
+import org.apache.fop.complexscripts.util.CharAssociation;
+
+public class ShapingCacheTestCase {
+
+    private final InternalResourceResolver resolver
+            = ResourceResolverFactory.createDefaultInternalResourceResolver(
+                    new File("test/resources/fonts/ttf").getAbsoluteFile().toURI());
+
+    private MultiByteFont getFont() {
+        EmbedFontInfo fontInfo = new EmbedFontInfo(new FontUris(URI.create("DejaVuLGCSerif.ttf"), null),
+                true, true, null, null);
+        return (MultiByteFont) new LazyFont(fontInfo, resolver, true).getRealFont();
+    }
+
+    @Test
+    public void testSubstitutionIsReused() {
+        MultiByteFont font = getFont();
+        List first = new ArrayList();
+        String text = font.performSubstitution("office", "latn", "dflt", first, false).toString();
+        List second = new ArrayList();
+        assertEquals(text, font.performSubstitution("office", "latn", "dflt", second, false).toString());
+        assertEquals(first.size(), second.size());
+        for (int i = 0; i < first.size(); i++) {
+            CharAssociation expected = (CharAssociation) first.get(i);
+            CharAssociation actual = (CharAssociation) second.get(i);
+            assertNotSame(expected, actual);
+            assertEquals(expected.getOffset(), actual.getOffset());
+            assertEquals(expected.getCount(), actual.getCount());
+        }
+        assertEquals(text, font.performSubstitution("office", "latn", "dflt", null, false).toString());
+        assertEquals(text, getFont().performSubstitution("office", "latn", "dflt", null, false).toString());
+    }
+
+    @Test
+    public void testAdjustmentsAreReusedAsCopies() {
+        MultiByteFont font = getFont();
+        assertNotNull(font.getGPOS());
+        int[][] first = font.performPositioning("AVAWAT", "latn", "dflt", 12000);
+        assertNotNull(first);
+        int[][] expected = getFont().performPositioning("AVAWAT", "latn", "dflt", 12000);
+        for (int[] adjustment : first) {
+            adjustment[0] += 100;
+        }
+        int[][] second = font.performPositioning("AVAWAT", "latn", "dflt", 12000);
+        assertNotSame(first, second);
+        assertEquals(expected.length, second.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertArrayEquals(expected[i], second[i]);
+        }
+    }
+}
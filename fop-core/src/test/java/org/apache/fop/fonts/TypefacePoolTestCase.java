@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fonts;
+
+import java.io.File;
+import java.net.URI;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.apache.fop.apps.io.InternalResourceResolver;
+import org.apache.fop.apps.io.ResourceResolverFactory;
+
+public class TypefacePoolTestCase {
+
+    private final InternalResourceResolver resolver
+            = ResourceResolverFactory.createDefaultInternalResourceResolver(
+                    new File("test/resources/fonts/ttf").getAbsoluteFile().toURI());
+
+    private final TypefacePool pool = new TypefacePool();
+
+    private MultiByteFont getFont() {
+        return getFont(pool, true);
+    }
+
+    private MultiByteFont getFont(TypefacePool pool, boolean kerning) {
+        EmbedFontInfo fontInfo = new EmbedFontInfo(new FontUris(URI.create("DejaVuLGCSerif.ttf"), null),
+                kerning, true, null, null);
+        LazyFont font = new LazyFont(fontInfo, resolver, true);
+        font.setTypefacePool(pool);
+        return (MultiByteFont) font.getRealFont();
+    }
+
+    @Test
+    public void testFontIsLoadedOnceAndUsedSeparately() {
+        MultiByteFont first = getFont();
+        MultiByteFont second = getFont();
+        assertEquals(1, pool.size());
+        assertNotSame(first, second);
+        assertEquals(first.getFontName(), second.getFontName());
+        assertNotNull(first.getGPOS());
+        assertSame(first.getGPOS(), second.getGPOS());
+
+        char glyph = first.mapChar('A');
+        assertEquals(first.getUsedGlyphs().size(), second.getUsedGlyphs().size() + 1);
+        assertEquals(glyph, second.mapChar('A'));
+        assertEquals(first.getUsedGlyphs(), second.getUsedGlyphs());
+        assertEquals(first.getWidth(glyph, 1), second.getWidth(glyph, 1));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedFontIsDropped() {
+        TypefacePool smallPool = new TypefacePool(1);
+        MultiByteFont first = getFont(smallPool, true);
+        getFont(smallPool, false);
+        assertEquals(1, smallPool.size());
+        assertNotSame(first.getGPOS(), getFont(smallPool, true).getGPOS());
+    }
+
+    @Test
+    public void testPoolIsClearedWhenResolverChanges() {
+        FontManager fontManager = new FontManager(resolver, FontDetectorFactory.createDefault(),
+                FontCacheManagerFactory.createDefault());
+        fontManager.setTypefacePoolEnabled(true);
+        TypefacePool managerPool = fontManager.getTypefacePool();
+        getFont(managerPool, true);
+        assertEquals(1, managerPool.size());
+        fontManager.setResourceResolver(resolver);
+        assertEquals(0, managerPool.size());
+    }
+}
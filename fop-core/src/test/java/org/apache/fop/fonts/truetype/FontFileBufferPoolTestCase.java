@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.fonts.truetype;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import org.apache.commons.io.IOUtils;
+
+import org.apache.xmlgraphics.io.Resource;
+import org.apache.xmlgraphics.io.ResourceResolver;
+
+import org.apache.fop.apps.io.InternalResourceResolver;
+import org.apache.fop.apps.io.ResourceResolverFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class FontFileBufferPoolTestCase {
+
+    private static final File FONT_FILE = new File("test/resources/fonts/ttf/DejaVuLGCSerif.ttf");
+
+    @Test
+    public void testFileIsMappedOnceWhileInUse() throws IOException {
+        ByteBuffer first = FontFileBufferPool.getBuffer(FONT_FILE);
+        ByteBuffer second = FontFileBufferPool.getBuffer(FONT_FILE);
+        assertSame(first, second);
+        assertTrue(first.isReadOnly());
+        assertEquals(FONT_FILE.length(), first.capacity());
+    }
+
+    @Test
+    public void testReaderReadsFileContent() throws IOException {
+        InternalResourceResolver resolver
+                = ResourceResolverFactory.createDefaultInternalResourceResolver(new File(".").toURI());
+        FontFileReader reader = FontFileBufferPool.getReader(URI.create(
+                "test/resources/fonts/ttf/DejaVuLGCSerif.ttf"), resolver);
+        InputStream in = new FileInputStream(FONT_FILE);
+        try {
+            assertTrue(Arrays.equals(IOUtils.toByteArray(in), reader.getAllBytes()));
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    @Test
+    public void testContentIsReadOnceWhileInUse() throws IOException {
+        InternalResourceResolver resolver
+                = ResourceResolverFactory.createDefaultInternalResourceResolver(new File(".").toURI());
+        URI uri = URI.create("test/resources/fonts/ttf/DejaVuLGCSerif.ttf");
+        ByteBuffer first = FontFileBufferPool.getBuffer(uri, resolver);
+        assertSame(first, FontFileBufferPool.getBuffer(uri, resolver));
+
+        InternalResourceResolver other
+                = ResourceResolverFactory.createDefaultInternalResourceResolver(new File(".").toURI());
+        assertNotSame(first, FontFileBufferPool.getBuffer(uri, other));
+    }
+
+    @Test
+    public void testContentIsSharedWhileOnlyReadersHoldIt() throws IOException {
+        InternalResourceResolver resolver
+                = ResourceResolverFactory.createDefaultInternalResourceResolver(new File(".").toURI());
+        URI uri = URI.create("test/resources/fonts/ttf/DejaVuLGCSerif.ttf");
+        FontFileReader reader = FontFileBufferPool.getReader(uri, resolver);
+        Reference<ByteBuffer> pooled
+                = new WeakReference<ByteBuffer>(FontFileBufferPool.getBuffer(uri, resolver));
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        assertNotNull(pooled.get());
+        assertSame(pooled.get(), FontFileBufferPool.getBuffer(uri, resolver));
+        assertEquals(FONT_FILE.length(), reader.getFileSize());
+    }
+
+    @Test
+    public void testAllBytesAreNotShared() throws IOException {
+        InternalResourceResolver resolver
+                = ResourceResolverFactory.createDefaultInternalResourceResolver(new File(".").toURI());
+        URI uri = URI.create("test/resources/fonts/ttf/DejaVuLGCSerif.ttf");
+        FontFileReader first = FontFileBufferPool.getReader(uri, resolver);
+        FontFileReader second = FontFileBufferPool.getReader(uri, resolver);
+        byte[] bytes = first.getAllBytes();
+        assertNotSame(bytes, second.getAllBytes());
+        byte b = bytes[0];
+        bytes[0] = (byte) ~b;
+        assertEquals(b, second.getAllBytes()[0]);
+        assertEquals(b, FontFileBufferPool.getBuffer(uri, resolver).get(0));
+    }
+
+    @Test
+    public void testFontFileIsReadThroughResolver() throws IOException {
+        final File redirected = new File("test/resources/fonts/ttf/glb12.ttf");
+        ResourceResolver redirecting = new ResourceResolver() {
+            public Resource getResource(URI uri) throws IOException {
+                return new Resource(new FileInputStream(redirected));
+            }
+
+            public OutputStream getOutputStream(URI uri) throws IOException {
+                throw new UnsupportedOperationException();
+            }
+        };
+        InternalResourceResolver resolver = ResourceResolverFactory.createInternalResourceResolver(
+                new File(".").toURI(), redirecting);
+        FontFileReader reader = FontFileBufferPool.getReader(URI.create(
+                "test/resources/fonts/ttf/DejaVuLGCSerif.ttf"), resolver);
+        assertEquals(redirected.length(), reader.getFileSize());
+    }
+}
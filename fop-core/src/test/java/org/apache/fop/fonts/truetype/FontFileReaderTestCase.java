@@ -23,12 +23,15 @@ import java.io.ByteArrayInputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import org.junit.Before;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -301,4 +304,67 @@ public class FontFileReaderTestCase {
         byte[] retrievedBytes = fontReader.getBytes(0, 256);
         assertTrue(Arrays.equals(byteArray, retrievedBytes));
     }
+
+    /**
+     * Test that a reader on a shared read-only buffer reads its content and copies it before
+     * writing, leaving the buffer untouched.
+     * @throws IOException exception
+     */
+    @Test
+    public void testSharedReadOnlyBuffer() throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(byteArray).asReadOnlyBuffer();
+        FontFileReader reader = new FontFileReader(buffer);
+        assertEquals(256, reader.getFileSize());
+        assertEquals(0x0001, reader.readTTFUShort(0));
+        assertEquals(0xfeff, reader.readTTFUShort(254));
+        reader.writeTTFUShort(0, 0x1234);
+        assertEquals(0x1234, reader.readTTFUShort(0));
+        assertEquals(0, buffer.get(0));
+        assertEquals(1, buffer.get(1));
+        assertEquals(0x12, reader.getAllBytes()[0]);
+
+        FontFileReader other = new FontFileReader(buffer);
+        assertEquals(0x0001, other.readTTFUShort(0));
+        assertTrue(Arrays.equals(byteArray, other.getAllBytes()));
+    }
+
+    /**
+     * Test that the byte array of a reader on a shared buffer is a copy, so changes to it
+     * aren't seen by other readers of the buffer.
+     * @throws IOException exception
+     */
+    @Test
+    public void testAllBytesOfSharedBufferAreCopied() throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(byteArray);
+        FontFileReader reader = new FontFileReader(buffer);
+        byte[] bytes = reader.getAllBytes();
+        assertNotSame(byteArray, bytes);
+        assertSame(bytes, reader.getAllBytes());
+        bytes[0] = 0x12;
+        assertEquals(0x12, reader.readTTFByte());
+        assertEquals(0, byteArray[0]);
+
+        FontFileReader other = new FontFileReader(buffer);
+        assertEquals(0x0001, other.readTTFUShort(0));
+    }
+
+    /**
+     * Test that the buffer view of a reader on a shared buffer is read-only and not a copy.
+     * @throws IOException exception
+     */
+    @Test
+    public void testByteBufferOfSharedBufferIsAView() throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(byteArray);
+        buffer.position(2);
+        FontFileReader reader = new FontFileReader(buffer);
+        reader.readTTFUShort();
+        ByteBuffer view = reader.getByteBuffer();
+        assertTrue(view.isReadOnly());
+        assertEquals(0, view.position());
+        assertEquals(byteArray.length - 2, view.limit());
+        assertEquals(2, view.get(0));
+        byteArray[2] = 0x12;
+        assertEquals(0x12, view.get(0));
+        assertEquals(2, reader.getCurrentPos());
+    }
 }
@@ -22,6 +22,7 @@ package org.apache.fop.fonts.truetype;
 import java.awt.Rectangle;
 import java.io.FileInputStream;
 import java.io.InputStream;
+import java.util.Arrays;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -88,4 +89,16 @@ public class OTFFileTestCase {
     public void testBoundingBoxes() {
         assertEquals(sourceSansProBold.getBoundingBoxes()[0], new Rectangle(-231, -384, 1454, 1358));
     }
+
+    /**
+     * Tests that the CFF data is the CFF table, read without copying the file
+     */
+    @Test
+    public void testCFFData() throws Exception {
+        byte[] cff = OTFFile.getCFFData(sourceSansReader);
+        OFDirTabEntry entry = sourceSansProBold.getDirectoryEntry(OFTableName.CFF);
+        assertEquals(entry.getLength(), cff.length);
+        assertTrue(Arrays.equals(sourceSansReader.getBytes((int) entry.getOffset(), cff.length), cff));
+        assertEquals(1, cff[0]); //major version
+    }
 }
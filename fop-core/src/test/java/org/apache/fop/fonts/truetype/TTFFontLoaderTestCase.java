@@ -25,11 +25,13 @@ import java.net.URI;
 
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import org.apache.fop.apps.io.InternalResourceResolver;
 import org.apache.fop.apps.io.ResourceResolverFactory;
+import org.apache.fop.fonts.CustomFont;
 import org.apache.fop.fonts.EmbeddingMode;
 import org.apache.fop.fonts.EncodingMode;
 
@@ -59,4 +61,25 @@ public class TTFFontLoaderTestCase {
                 EncodingMode.AUTO, useKerning, useComplexScriptFeatures, resourceResolver, false, false);
         assertFalse(fontLoader.getFont().hasKerningInfo());
     }
+
+    @Test
+    public void testReadFontNamesMatchesFullLoad() throws IOException {
+        InternalResourceResolver resourceResolver
+                = ResourceResolverFactory.createDefaultInternalResourceResolver(new File(".").toURI());
+        String[] fonts = {"test/resources/fonts/ttf/DejaVuLGCSerif.ttf",
+                "test/resources/fonts/ttf/glb12.ttf",
+                "test/resources/fonts/otf/SourceSansProBold.otf",
+                "test/resources/fonts/otf/AlexBrushRegular.otf"};
+        for (String font : fonts) {
+            URI fontURI = new File(font).toURI();
+            CustomFont loaded = new OFFontLoader(fontURI, resourceResolver).getFont();
+            CustomFont named = OFFontLoader.readFontNames(fontURI, null, resourceResolver);
+            assertEquals(font, loaded.getFontName(), named.getFontName());
+            assertEquals(font, loaded.getFullName(), named.getFullName());
+            assertEquals(font, loaded.getFamilyNames(), named.getFamilyNames());
+            assertEquals(font, loaded.getStrippedFontName(), named.getStrippedFontName());
+            assertEquals(font, loaded.getItalicAngle(), named.getItalicAngle());
+            assertEquals(font, loaded.getWeight(), named.getWeight());
+        }
+    }
 }
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.hyphenation;
+
+import java.io.File;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class HyphenationWordCacheTestCase {
+
+    private HyphenationTree hTree;
+
+    @Before
+    public void setUp() throws HyphenationException {
+        hTree = new HyphenationTree();
+        hTree.loadPatterns(new File("test/resources/fop/fr.xml").getAbsolutePath());
+    }
+
+    @Test
+    public void testHitsAndMisses() {
+        HyphenationWordCache cache = new HyphenationWordCache(100);
+        Hyphenation hyph = cache.hyphenate("fr", null, "hello", 0, 0, hTree);
+        assertEquals("-hel-lo", hyph.toString());
+        assertSame(hyph, cache.hyphenate("fr", null, "hello", 0, 0, hTree));
+        assertEquals("hel-lo", cache.hyphenate("fr", null, "hello", 2, 2, hTree).toString());
+        assertEquals("-hel-lo", cache.hyphenate("fr", "FR", "hello", 0, 0, hTree).toString());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+        assertEquals(3, cache.getSize());
+        assertEquals(0.25, cache.getHitRatio(), 0);
+
+        cache.resetCounts();
+        assertEquals(0, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+        cache.clear();
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testWordWithoutHyphenationPoints() {
+        HyphenationWordCache cache = new HyphenationWordCache(100);
+        assertNull(cache.hyphenate("fr", null, "eel", 0, 0, hTree));
+        assertNull(cache.hyphenate("fr", null, "eel", 0, 0, hTree));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getSize());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedWordsAreEvicted() {
+        HyphenationWordCache cache = new HyphenationWordCache(2);
+        for (int i = 0; i < 10; i++) {
+            cache.hyphenate("fr", null, "hello" + i, 0, 0, hTree);
+        }
+        assertEquals(2, cache.getSize());
+        assertEquals(8, cache.getEvictionCount());
+
+        cache = new HyphenationWordCache(1);
+        Hyphenation hyph = cache.hyphenate("fr", null, "hello", 0, 0, hTree);
+        cache.hyphenate("fr", null, "oello", 0, 0, hTree);
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals("oel-lo", cache.hyphenate("fr", null, "oello", 0, 0, hTree).toString());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(hyph.toString(), cache.hyphenate("fr", null, "hello", 0, 0, hTree).toString());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void testDisabled() {
+        HyphenationWordCache cache = new HyphenationWordCache(0);
+        assertEquals("-hel-lo", cache.hyphenate("fr", null, "hello", 0, 0, hTree).toString());
+        assertEquals("-hel-lo", cache.hyphenate("fr", null, "hello", 0, 0, hTree).toString());
+        assertEquals(0, cache.getSize());
+        assertEquals(0, cache.getHitCount());
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.layoutmgr;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.apache.fop.fo.Constants;
+import org.apache.fop.traits.MinOptMax;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PackedKnuthSequenceTestCase {
+
+    private final KnuthBox box = new KnuthBox(1000, null, false);
+    private final KnuthGlue glue = new KnuthGlue(200, 50, 30, null, false);
+    private final KnuthPenalty flagged = new KnuthPenalty(10, 50, true, null, false);
+    private final KnuthPenalty forced = new KnuthPenalty(0, -KnuthElement.INFINITE, false, null, false);
+
+    private List<ListElement> elements(ListElement... elements) {
+        List<ListElement> list = new ArrayList<ListElement>();
+        for (ListElement element : elements) {
+            list.add(element);
+        }
+        return list;
+    }
+
+    @Test
+    public void packsElementValues() {
+        PackedKnuthSequence packed = new PackedKnuthSequence(elements(box, glue, flagged, forced));
+        assertEquals(4, packed.size());
+        assertTrue(packed.isBox(0));
+        assertEquals(1000, packed.getWidth(0));
+        assertTrue(packed.isGlue(1));
+        assertEquals(50, packed.getStretch(1));
+        assertEquals(30, packed.getShrink(1));
+        assertTrue(packed.isFlaggedPenalty(2));
+        assertEquals(50, packed.getPenalty(2));
+        assertFalse(packed.isForcedBreak(2));
+        assertTrue(packed.isForcedBreak(3));
+        assertFalse(packed.isFlaggedPenalty(3));
+        assertSame(glue, packed.getElement(1));
+    }
+
+    @Test
+    public void findsFirstBox() {
+        PackedKnuthSequence packed = new PackedKnuthSequence(elements(glue, flagged, box, glue));
+        assertEquals(2, packed.getFirstBoxIndex(0));
+        assertEquals(4, packed.getFirstBoxIndex(3));
+        assertEquals(7, packed.getFirstBoxIndex(7));
+    }
+
+    @Test
+    public void addsGluesUntilNextBoxOrForcedBreak() {
+        PackedKnuthSequence packed = new PackedKnuthSequence(
+                elements(box, glue, flagged, glue, box, forced, glue, forced, glue));
+        int[] totals = new int[] {1, 2, 3};
+        packed.addGluesAfterBreak(1, totals);
+        assertArrayEquals(new int[] {401, 102, 63}, totals);
+        totals = new int[3];
+        packed.addGluesAfterBreak(5, totals);
+        assertArrayEquals(new int[] {200, 50, 30}, totals);
+    }
+
+    @Test
+    public void insertShiftsElements() {
+        List<ListElement> list = elements(box, glue);
+        PackedKnuthSequence packed = new PackedKnuthSequence(list);
+        for (int i = 0; i < 3; i++) {
+            list.add(0, forced);
+            packed.insert(0, forced);
+        }
+        assertEquals(5, packed.size());
+        assertTrue(packed.isForcedBreak(2));
+        assertTrue(packed.isBox(3));
+        assertEquals(200, packed.getWidth(4));
+        assertEquals(50, packed.getStretch(4));
+        assertSame(glue, packed.getElement(4));
+    }
+
+    @Test
+    public void packsBreakClassesAndAnchors() {
+        KnuthPenalty pageBreak = new KnuthPenalty(0, KnuthElement.INFINITE, false,
+                Constants.EN_PAGE, null, false);
+        KnuthBlockBox anchors = new KnuthBlockBox(500,
+                Collections.singletonList(null), null, false);
+        KnuthBlockBox noAnchors = new KnuthBlockBox(500, MinOptMax.ZERO, 0, null, false);
+        PackedKnuthSequence packed = new PackedKnuthSequence(
+                elements(anchors, pageBreak, noAnchors));
+        assertTrue(packed.hasAnchors(0));
+        assertEquals(KnuthElement.INFINITE, packed.getPenalty(1));
+        assertEquals(Constants.EN_PAGE, packed.getBreakClass(1));
+        assertFalse(packed.hasAnchors(2));
+        assertEquals(500, packed.getWidth(2));
+    }
+
+    @Test
+    public void sequenceIsPackedOnceUntilModified() {
+        KnuthSequence sequence = new BlockKnuthSequence();
+        sequence.add(box);
+        sequence.add(glue);
+        PackedKnuthSequence packed = sequence.getPackedSequence();
+        assertSame(packed, sequence.getPackedSequence());
+        sequence.add(0, forced);
+        assertSame(packed, sequence.getPackedSequence());
+        assertEquals(3, packed.size());
+        assertTrue(packed.isForcedBreak(0));
+        assertTrue(packed.isBox(1));
+        sequence.add(box);
+        PackedKnuthSequence repacked = sequence.getPackedSequence();
+        assertNotSame(packed, repacked);
+        assertEquals(4, repacked.size());
+    }
+
+    @Test
+    public void replacedElementIsSeenWhenPackedAgain() {
+        KnuthSequence sequence = new BlockKnuthSequence();
+        sequence.add(box);
+        sequence.add(new KnuthPenalty(0, 0, false, null, false));
+        assertEquals(0, sequence.getPackedSequence().getPenalty(1));
+        sequence.set(1, flagged);
+        assertEquals(50, sequence.getPackedSequence().getPenalty(1));
+        assertTrue(sequence.getPackedSequence().isFlaggedPenalty(1));
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.layoutmgr;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.apache.fop.apps.FOPException;
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.MimeConstants;
+import org.apache.fop.area.AreaTreeHandler;
+import org.apache.fop.area.AreaTreeModel;
+import org.apache.fop.area.Block;
+import org.apache.fop.area.LineArea;
+import org.apache.fop.area.PageViewport;
+import org.apache.fop.area.RegionReference;
+import org.apache.fop.area.RegionViewport;
+import org.apache.fop.area.Trait;
+import org.apache.fop.area.inline.InlineArea;
+import org.apache.fop.area.inline.TextArea;
+import org.apache.fop.fo.FODocumentParser;
+import org.apache.fop.fo.FODocumentParser.FOEventHandlerFactory;
+import org.apache.fop.fo.FOEventHandler;
+import org.apache.fop.fonts.FontSetup;
+
+import static org.apache.fop.fo.Constants.FO_REGION_AFTER;
+import static org.apache.fop.fo.Constants.FO_REGION_BEFORE;
+
+public class StaticContentLayoutManagerTestCase {
+
+    private static final String FO = "<fo:root xmlns:fo='http://www.w3.org/1999/XSL/Format'>"
+            + "<fo:layout-master-set>"
+            + "<fo:simple-page-master master-name='page' page-height='100pt' page-width='200pt'>"
+            + "<fo:region-body margin='20pt'/>"
+            + "<fo:region-before extent='20pt'/>"
+            + "<fo:region-after extent='20pt'/>"
+            + "</fo:simple-page-master>"
+            + "</fo:layout-master-set>"
+            + "<fo:page-sequence master-reference='page'>"
+            + "<fo:static-content flow-name='xsl-region-before'>"
+            + "<fo:block>Header</fo:block></fo:static-content>"
+            + "<fo:static-content flow-name='xsl-region-after'>"
+            + "<fo:block>Page <fo:page-number/></fo:block></fo:static-content>"
+            + "<fo:flow flow-name='xsl-region-body'>"
+            + "<fo:block>One</fo:block>"
+            + "<fo:block break-before='page'>Two</fo:block>"
+            + "<fo:block break-before='page'>Three</fo:block>"
+            + "</fo:flow>"
+            + "</fo:page-sequence>"
+            + "</fo:root>";
+
+    private AreaTreeModel model;
+
+    @Before
+    public void layOut() throws Exception {
+        model = new AreaTreeModel();
+        FODocumentParser.newInstance(new FOEventHandlerFactory() {
+            public FOEventHandler newFOEventHandler(FOUserAgent foUserAgent) {
+                try {
+                    return new AreaTreeHandler(foUserAgent, MimeConstants.MIME_FOP_AREA_TREE, null) {
+                        protected void setupModel(FOUserAgent userAgent, String outputFormat,
+                                OutputStream stream) throws FOPException {
+                            this.model = StaticContentLayoutManagerTestCase.this.model;
+                            FontSetup.setup(fontInfo, false);
+                        }
+                    };
+                } catch (FOPException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }).parse(new ByteArrayInputStream(FO.getBytes("UTF-8")));
+        assertEquals(3, model.getPageCount(1));
+    }
+
+    @Test
+    public void pageIndependentContentIsCopiedToEveryPage() {
+        Block first = (Block) getRegionReference(0, FO_REGION_BEFORE).getBlocks().get(0);
+        for (int i = 1; i < 3; i++) {
+            RegionReference other = getRegionReference(i, FO_REGION_BEFORE);
+            assertEquals(1, other.getBlocks().size());
+            Block copy = (Block) other.getBlocks().get(0);
+            assertNotSame(first, copy);
+            assertEquals(first.getBPD(), copy.getBPD());
+            assertEquals(getText(first), getText(copy));
+        }
+    }
+
+    @Test
+    public void copiedAreasAreIndependent() {
+        Block first = (Block) getRegionReference(0, FO_REGION_BEFORE).getBlocks().get(0);
+        Block second = (Block) getRegionReference(1, FO_REGION_BEFORE).getBlocks().get(0);
+        LineArea firstLine = (LineArea) first.getChildAreas().get(0);
+        LineArea secondLine = (LineArea) second.getChildAreas().get(0);
+        assertNotSame(firstLine, secondLine);
+        assertNotSame(firstLine.getInlineAreas().get(0), secondLine.getInlineAreas().get(0));
+        assertSame(secondLine, ((InlineArea) secondLine.getInlineAreas().get(0)).getParentArea());
+
+        int bpd = second.getBPD();
+        first.setBPD(bpd + 1000);
+        first.addTrait(Trait.IS_REFERENCE_AREA, Boolean.TRUE);
+        assertEquals(bpd, second.getBPD());
+        assertNull(second.getTrait(Trait.IS_REFERENCE_AREA));
+    }
+
+    private String getText(Block block) {
+        StringBuilder sb = new StringBuilder();
+        for (Object line : block.getChildAreas()) {
+            for (Object inline : ((LineArea) line).getInlineAreas()) {
+                if (inline instanceof TextArea) {
+                    sb.append(((TextArea) inline).getText());
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void pageNumberIsLaidOutOnEveryPage() {
+        assertNotSame(getRegionReference(0, FO_REGION_AFTER).getBlocks().get(0),
+                getRegionReference(1, FO_REGION_AFTER).getBlocks().get(0));
+    }
+
+    @Test
+    public void pagesAreCopiedFromTemplate() {
+        RegionViewport first = model.getPage(1, 0).getPage().getRegionViewport(FO_REGION_BEFORE);
+        RegionViewport second = model.getPage(1, 1).getPage().getRegionViewport(FO_REGION_BEFORE);
+        assertNotSame(first, second);
+        assertEquals(first.getViewArea(), second.getViewArea());
+        assertSame(second, second.getRegionReference().getRegionViewport());
+    }
+
+    private RegionReference getRegionReference(int page, int region) {
+        PageViewport pageViewport = model.getPage(1, page);
+        return pageViewport.getRegionReference(region);
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.metrics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.fop.apps.FOUserAgent;
+import org.apache.fop.apps.Fop;
+import org.apache.fop.apps.FopFactory;
+import org.apache.fop.apps.MimeConstants;
+
+public class ProcessingMetricsTestCase {
+
+    private static final String FO = "<fo:root xmlns:fo='http://www.w3.org/1999/XSL/Format'>"
+            + "<fo:layout-master-set>"
+            + "<fo:simple-page-master master-name='page' page-height='100pt' page-width='200pt'>"
+            + "<fo:region-body/>"
+            + "</fo:simple-page-master>"
+            + "</fo:layout-master-set>"
+            + "<fo:page-sequence master-reference='page'><fo:flow flow-name='xsl-region-body'>"
+            + "<fo:block>One</fo:block><fo:block break-before='page'>Two</fo:block>"
+            + "</fo:flow></fo:page-sequence>"
+            + "<fo:page-sequence master-reference='page'><fo:flow flow-name='xsl-region-body'>"
+            + "<fo:block>Three</fo:block>"
+            + "</fo:flow></fo:page-sequence>"
+            + "</fo:root>";
+
+    private static class RecordingListener implements MetricsListener {
+
+        private final List<Phase> phases = new ArrayList<Phase>();
+        private final List<Long> times = new ArrayList<Long>();
+        private int finished;
+
+        public void phaseFinished(ProcessingMetrics metrics, Phase phase, long nanos, long allocatedBytes) {
+            phases.add(phase);
+            times.add(nanos);
+        }
+
+        public void processingFinished(ProcessingMetrics metrics) {
+            finished++;
+        }
+    }
+
+    @Test
+    public void disabledMetricsRecordNothing() {
+        ProcessingMetrics metrics = new ProcessingMetrics();
+        RecordingListener listener = new RecordingListener();
+        metrics.addListener(listener);
+        metrics.start(Phase.LAYOUT);
+        metrics.increment(Counter.PAGES);
+        metrics.stop(Phase.LAYOUT);
+        metrics.finish();
+        assertEquals(0, metrics.getTime(Phase.LAYOUT));
+        assertEquals(0, metrics.getCount(Counter.PAGES));
+        assertTrue(listener.phases.isEmpty());
+        assertEquals(0, listener.finished);
+    }
+
+    @Test
+    public void nestedPhasesAreChargedExclusively() throws Exception {
+        ProcessingMetrics metrics = new ProcessingMetrics();
+        metrics.setEnabled(true);
+        RecordingListener listener = new RecordingListener();
+        metrics.addListener(listener);
+        metrics.start(Phase.FO_PARSE);
+        metrics.start(Phase.LAYOUT);
+        Thread.sleep(20);
+        metrics.stop(Phase.LAYOUT);
+        metrics.stop(Phase.FO_PARSE);
+        assertTrue(metrics.getTime(Phase.LAYOUT) >= 20000000);
+        assertTrue(metrics.getTime(Phase.FO_PARSE) < metrics.getTime(Phase.LAYOUT));
+        assertEquals(2, listener.phases.size());
+        assertEquals(Phase.LAYOUT, listener.phases.get(0));
+        assertEquals(metrics.getTime(Phase.LAYOUT), listener.times.get(0).longValue());
+        assertEquals(Phase.FO_PARSE, listener.phases.get(1));
+    }
+
+    @Test
+    public void unbalancedPhasesAreStopped() {
+        ProcessingMetrics metrics = new ProcessingMetrics();
+        metrics.setEnabled(true);
+        RecordingListener listener = new RecordingListener();
+        metrics.addListener(listener);
+        metrics.start(Phase.FO_PARSE);
+        metrics.start(Phase.LAYOUT);
+        metrics.start(Phase.AREA_TREE);
+        metrics.stop(Phase.LAYOUT);
+        assertEquals(Phase.AREA_TREE, listener.phases.get(0));
+        assertEquals(Phase.LAYOUT, listener.phases.get(1));
+        metrics.finish();
+        assertEquals(3, listener.phases.size());
+        assertEquals(Phase.FO_PARSE, listener.phases.get(2));
+        assertEquals(1, listener.finished);
+    }
+
+    @Test
+    public void processingRunIsMeasured() throws Exception {
+        FopFactory fopFactory = FopFactory.newInstance(new File(".").toURI());
+        FOUserAgent userAgent = fopFactory.newFOUserAgent();
+        ProcessingMetrics metrics = userAgent.getMetrics();
+        metrics.setEnabled(true);
+        RecordingListener listener = new RecordingListener();
+        metrics.addListener(listener);
+        ProcessingStatistics statistics = new ProcessingStatistics();
+        metrics.addListener(statistics);
+
+        Fop fop = fopFactory.newFop(MimeConstants.MIME_PDF, userAgent, new ByteArrayOutputStream());
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        transformer.transform(new StreamSource(new StringReader(FO)), new SAXResult(fop.getDefaultHandler()));
+
+        assertEquals(1, listener.finished);
+        assertEquals(2, metrics.getCount(Counter.PAGE_SEQUENCES));
+        assertEquals(3, metrics.getCount(Counter.PAGES));
+        assertTrue(metrics.getCount(Counter.KNUTH_NODES) > 0);
+        int layouts = 0;
+        for (Phase phase : listener.phases) {
+            if (phase == Phase.LAYOUT) {
+                layouts++;
+            }
+        }
+        assertEquals(2, layouts);
+        for (Phase phase : new Phase[] {Phase.SETUP, Phase.FO_PARSE, Phase.PROPERTY_RESOLUTION, Phase.LAYOUT,
+                Phase.AREA_TREE, Phase.RENDERING, Phase.FONT_SUBSETTING, Phase.STREAM_COMPRESSION,
+                Phase.OUTPUT_WRITE}) {
+            assertTrue(phase.name(), metrics.getTime(phase) > 0);
+        }
+        assertEquals(1, statistics.getProcessingRunCount());
+        assertEquals(Long.valueOf(3), statistics.getCounts().get("PAGES"));
+        assertFalse(statistics.getPhaseTimes().isEmpty());
+    }
+}
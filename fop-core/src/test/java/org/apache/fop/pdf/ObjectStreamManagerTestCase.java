@@ -19,6 +19,7 @@
 
 package org.apache.fop.pdf;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.List;
@@ -49,6 +50,67 @@ public class ObjectStreamManagerTestCase {
         assertEquals(objectStreamNumber3, pdfDocument.previous.getObjectNumber().getNumber());
     }
 
+    @Test
+    public void capacityIsConfigurable() {
+        pdfDocument = new MockPdfDocument();
+        ObjectStreamManager sut = new ObjectStreamManager(pdfDocument,
+                new ObjectStreamStrategy(10, 0, false));
+        for (int obNum = 1; obNum <= 25; obNum++) {
+            sut.add(createCompressedObject(obNum));
+        }
+        compressedObjectReferences = sut.getCompressedObjectReferences();
+        assertDifferent(assertSameObjectStream(0, 10), assertSameObjectStream(10, 20),
+                assertSameObjectStream(20, 25));
+    }
+
+    @Test
+    public void streamsAreLimitedInSize() throws IOException {
+        pdfDocument = new MockPdfDocument();
+        ObjectStreamManager sut = new ObjectStreamManager(pdfDocument,
+                new ObjectStreamStrategy(100, 25, false));
+        for (int obNum = 1; obNum <= 5; obNum++) {
+            sut.add(createSerializableObject(obNum, "<< /Size 10 >>"));
+        }
+        compressedObjectReferences = sut.getCompressedObjectReferences();
+        assertDifferent(assertSameObjectStream(0, 2), assertSameObjectStream(2, 4),
+                assertSameObjectStream(4, 5));
+    }
+
+    @Test
+    public void objectsAreGroupedByKind() {
+        pdfDocument = new MockPdfDocument();
+        ObjectStreamManager sut = new ObjectStreamManager(pdfDocument,
+                new ObjectStreamStrategy(100, 0, true));
+        PDFStructElem paragraph = new PDFStructElem(null, StandardStructureTypes.Paragraphlike.P);
+        PDFStructElem span = new PDFStructElem(null, StandardStructureTypes.InlineLevelStructure.SPAN);
+        PDFStructElem otherParagraph = new PDFStructElem(null, StandardStructureTypes.Paragraphlike.P);
+        for (PDFStructElem structElem : new PDFStructElem[] {paragraph, span, otherParagraph}) {
+            pdfDocument.assignObjectNumber(structElem);
+            sut.add(structElem);
+        }
+        compressedObjectReferences = sut.getCompressedObjectReferences();
+        assertEquals(getObjectStreamNumber(0), getObjectStreamNumber(2));
+        assertTrue(getObjectStreamNumber(0) != getObjectStreamNumber(1));
+    }
+
+    @Test
+    public void fullStreamsAreWrittenEarly() throws IOException {
+        pdfDocument = new MockPdfDocument();
+        ObjectStreamManager sut = new ObjectStreamManager(pdfDocument, new ObjectStreamStrategy(2, 0, false));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int obNum = 1; obNum <= 3; obNum++) {
+            sut.add(createSerializableObject(obNum, "null"));
+            sut.writeFullStreams(out);
+        }
+        assertEquals(1, countObjectStreams(out));
+        sut.writeStreams(out);
+        assertEquals(2, countObjectStreams(out));
+    }
+
+    private static int countObjectStreams(ByteArrayOutputStream out) throws IOException {
+        return out.toString("US-ASCII").split("/Type /ObjStm").length - 1;
+    }
+
     private void createCompressObjectReferences(int numObjects) {
         pdfDocument = new MockPdfDocument();
         ObjectStreamManager sut = new ObjectStreamManager(pdfDocument);
@@ -92,6 +154,21 @@ public class ObjectStreamManagerTestCase {
         };
     }
 
+    private CompressedObject createSerializableObject(final int objectNumber, final String content) {
+        return new CompressedObject() {
+
+            public PDFObjectNumber getObjectNumber() {
+                return new PDFObjectNumber(objectNumber);
+            }
+
+            public int output(OutputStream outputStream) throws IOException {
+                byte[] bytes = PDFDocument.encode(content);
+                outputStream.write(bytes);
+                return bytes.length;
+            }
+        };
+    }
+
     private int assertSameObjectStream(int from, int to) {
         int objectStreamNumber = getObjectStreamNumber(from);
         for (int i = from + 1; i < to; i++) {
@@ -21,10 +21,17 @@ package org.apache.fop.pdf;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Test case for {@link PDFDocument}
@@ -59,4 +66,215 @@ public class PDFDocumentTestCase {
         PDFDocument.flushTextBuffer(textBuffer, out);
         assertEquals(fullString, out.toString());
     }
+
+    @Test
+    public void testStreamingReleasesWrittenObjects() throws IOException {
+        PDFDocument doc = new PDFDocument("test");
+        doc.setStreamingEnabled(true);
+        assertTrue(doc.isStreamingEnabled());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        doc.outputHeader(out);
+
+        PDFStream contents = new PDFStream();
+        contents.add("0 0 m 10 10 l S\n");
+        doc.registerObject(contents);
+        PDFPage page = doc.getFactory().makePage(doc.getResources(), 100, 100, 0);
+        page.setContents(contents.makeReference());
+        doc.addObject(page);
+        doc.output(out);
+
+        assertTrue(doc.pageObjs.isEmpty());
+        assertEquals(0, contents.getDataLength());
+        assertNotNull(doc.indirectObjectOffsets.get(contents.getObjectNumber().getNumber() - 1));
+        assertNotNull(doc.indirectObjectOffsets.get(page.getObjectNumber().getNumber() - 1));
+
+        doc.outputTrailer(out);
+        String pdf = out.toString(PDFDocument.ENCODING);
+        assertTrue(pdf.contains("/Type /Page\n"));
+        assertTrue(pdf.endsWith("%%EOF\n"));
+    }
+
+    @Test
+    public void testStreamingReleasesWrittenStreamData() throws IOException {
+        PDFDocument doc = new PDFDocument("test");
+        doc.setStreamingEnabled(true);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        doc.outputHeader(out);
+
+        PDFCFFStream fontFile = new PDFCFFStream("Type1C");
+        fontFile.setData(new byte[] {1, 0, 4, 2, 0, 0, 0, 0});
+        doc.registerObject(fontFile);
+        assertEquals(8, fontFile.getSizeHint());
+        doc.output(out);
+
+        assertEquals(0, fontFile.getSizeHint());
+        assertNotNull(doc.indirectObjectOffsets.get(fontFile.getObjectNumber().getNumber() - 1));
+    }
+
+    @Test
+    public void testStreamingDisabledWithLinearization() {
+        PDFDocument doc = new PDFDocument("test");
+        doc.setStreamingEnabled(true);
+        doc.setLinearizationEnabled(true);
+        assertFalse(doc.isStreamingEnabled());
+    }
+
+    @Test
+    public void testParallelCompressionProducesIdenticalOutput() throws IOException {
+        String sequential = createDocumentWithStreams(0);
+        String parallel = createDocumentWithStreams(3);
+        // the file IDs differ as they're based on the current time
+        assertEquals(sequential.substring(0, sequential.indexOf("/ID")),
+                parallel.substring(0, parallel.indexOf("/ID")));
+    }
+
+    @Test
+    public void testParallelCompressionDisabledWithEncryption() {
+        PDFDocument doc = new PDFDocument("test");
+        doc.setCompressionThreads(2);
+        assertTrue(doc.isParallelCompressionEnabled());
+        doc.setEncryption(new PDFEncryptionParams());
+        assertFalse(doc.isParallelCompressionEnabled());
+    }
+
+    @Test
+    public void testParallelCompressionWritesCompleteCMaps() throws IOException {
+        String sequential = createDocumentWithCMaps(0);
+        String parallel = createDocumentWithCMaps(3);
+        assertEquals(sequential.substring(0, sequential.indexOf("/ID")),
+                parallel.substring(0, parallel.indexOf("/ID")));
+    }
+
+    @Test
+    public void testCompressionThreadsEndWhenDocumentIsNotFinished() throws Exception {
+        PDFDocument doc = new PDFDocument("test");
+        doc.setCompressionThreads(2);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        doc.outputHeader(out);
+        PDFStream contents = new PDFStream();
+        contents.setParallelEncodingAllowed(true);
+        contents.add("0 0 m 10 10 l S\n");
+        doc.registerObject(contents);
+        doc.output(out);
+        assertTrue(countCompressionThreads() > 0);
+        // the trailer is never written, as if rendering had failed
+        long deadline = System.currentTimeMillis() + PDFDocument.COMPRESSION_THREAD_KEEP_ALIVE * 10;
+        while (countCompressionThreads() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(0, countCompressionThreads());
+    }
+
+    @Test
+    public void testStreamsAreEncodedConcurrently() throws IOException {
+        PDFDocument doc = new PDFDocument("test");
+        doc.setCompressionThreads(2);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        doc.outputHeader(out);
+        // each encoding waits for the other one, so they only finish if they run together
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        doc.registerObject(new AwaitingStream(barrier));
+        doc.registerObject(new AwaitingStream(barrier));
+        doc.outputTrailer(out);
+        assertEquals(2, out.toString(PDFDocument.ENCODING).split("endstream").length - 1);
+    }
+
+    @Test
+    public void testOutputLeavesStreamsBeingEncodedForLater() throws IOException {
+        PDFDocument doc = new PDFDocument("test");
+        doc.setCompressionThreads(1);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        doc.outputHeader(out);
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        PDFStream first = new AwaitingStream(barrier);
+        doc.registerObject(first);
+        PDFDictionary dictionary = new PDFDictionary();
+        doc.registerObject(dictionary);
+        doc.output(out);
+        assertEquals(-1, out.toString(PDFDocument.ENCODING).indexOf("stream"));
+        try {
+            barrier.await(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+        doc.outputTrailer(out);
+        String pdf = out.toString(PDFDocument.ENCODING);
+        assertTrue(pdf.indexOf(first.getObjectID()) < pdf.indexOf(dictionary.getObjectID()));
+    }
+
+    /** A stream that waits at a barrier while it is being encoded. */
+    private static final class AwaitingStream extends PDFStream {
+
+        private final CyclicBarrier barrier;
+
+        AwaitingStream(CyclicBarrier barrier) {
+            this.barrier = barrier;
+            setParallelEncodingAllowed(true);
+            add("0 0 m 10 10 l S\n");
+        }
+
+        @Override
+        protected void outputRawStreamData(OutputStream out) throws IOException {
+            try {
+                barrier.await(10, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+            super.outputRawStreamData(out);
+        }
+    }
+
+    private int countCompressionThreads() {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.isAlive() && thread.getName().startsWith("FOP PDF compression")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private String createDocumentWithCMaps(int compressionThreads) throws IOException {
+        PDFDocument doc = new PDFDocument("test");
+        doc.setCreationDate(new java.util.Date(0));
+        doc.setCompressionThreads(compressionThreads);
+        doc.getFilterMap().put(PDFFilterList.DEFAULT_FILTER, Collections.singletonList("null"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        doc.outputHeader(out);
+        PDFCIDSystemInfo sysInfo = new PDFCIDSystemInfo("Adobe", "Identity", 0);
+        for (int i = 0; i < 10; i++) {
+            char[] chars = new char[50 + i * 20];
+            for (int j = 0; j < chars.length; j++) {
+                chars[j] = (char) ('A' + (i + j) % 50);
+            }
+            doc.registerObject(new PDFToUnicodeCMap(chars, "fop-ucs-H", sysInfo, false));
+        }
+        doc.output(out);
+        doc.outputTrailer(out);
+        String pdf = out.toString(PDFDocument.ENCODING);
+        assertEquals(10, pdf.split("endcmap").length - 1);
+        return pdf;
+    }
+
+    private String createDocumentWithStreams(int compressionThreads) throws IOException {
+        PDFDocument doc = new PDFDocument("test");
+        doc.setCreationDate(new java.util.Date(0));
+        doc.setCompressionThreads(compressionThreads);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        doc.outputHeader(out);
+        for (int i = 0; i < 10; i++) {
+            PDFStream contents = new PDFStream();
+            contents.setParallelEncodingAllowed(true);
+            for (int j = 0; j <= i * 100; j++) {
+                contents.add(j + " " + i + " m " + (j + i) + " 10 l S\n");
+            }
+            doc.registerObject(contents);
+            PDFPage page = doc.getFactory().makePage(doc.getResources(), 100, 100, i);
+            page.setContents(contents.makeReference());
+            doc.addObject(page);
+            doc.output(out);
+        }
+        doc.outputTrailer(out);
+        return out.toString(PDFDocument.ENCODING);
+    }
 }
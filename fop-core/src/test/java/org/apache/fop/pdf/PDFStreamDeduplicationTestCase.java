@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.pdf;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.color.ColorSpace;
+import java.awt.color.ICC_Profile;
+import java.awt.image.BufferedImage;
+import java.lang.ref.WeakReference;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.apache.xmlgraphics.image.loader.ImageInfo;
+import org.apache.xmlgraphics.image.loader.impl.ImageRendered;
+
+import org.apache.fop.render.pdf.ImageRenderedAdapter;
+
+public class PDFStreamDeduplicationTestCase {
+
+    private static ImageRenderedAdapter createImage(String uri, Color color) {
+        BufferedImage image = new BufferedImage(20, 10, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setColor(color);
+        g2d.fillRect(0, 0, 20, 10);
+        g2d.dispose();
+        ImageRendered rendered = new ImageRendered(new ImageInfo(uri, "image/png"), image, null);
+        return new ImageRenderedAdapter(rendered, uri);
+    }
+
+    private static PDFDocument createDocument(boolean deduplicate) {
+        PDFDocument doc = new PDFDocument("test");
+        doc.setStreamDeduplicationEnabled(deduplicate);
+        return doc;
+    }
+
+    @Test
+    public void identicalImagesAreWrittenOnce() {
+        PDFDocument doc = createDocument(true);
+        PDFImageXObject first = doc.addImage(null, createImage("a.png", Color.RED));
+        PDFImageXObject second = doc.addImage(null, createImage("data:b", Color.RED));
+        PDFImageXObject third = doc.addImage(null, createImage("c.png", Color.BLUE));
+        assertSame(first, second);
+        assertNotSame(first, third);
+        assertSame(first, doc.getXObject("data:b"));
+        assertEquals("/Im2", third.getName().toString());
+    }
+
+    @Test
+    public void imagesAreKeptApartByDefault() {
+        PDFDocument doc = createDocument(false);
+        PDFImageXObject first = doc.addImage(null, createImage("a.png", Color.RED));
+        PDFImageXObject second = doc.addImage(null, createImage("b.png", Color.RED));
+        assertNotSame(first, second);
+    }
+
+    @Test
+    public void streamsNoLongerInUseAreNotKept() throws Exception {
+        PDFDocument doc = createDocument(true);
+        PDFStream stream = new PDFStream();
+        stream.add("q Q");
+        assertNull(doc.findIdenticalStream(stream));
+        PDFStream identical = new PDFStream();
+        identical.add("q Q");
+        assertSame(stream, doc.findIdenticalStream(identical));
+        WeakReference<PDFStream> streamRef = new WeakReference<PDFStream>(stream);
+        stream = null;
+        for (int i = 0; i < 10 && streamRef.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(streamRef.get());
+        assertNull(doc.findIdenticalStream(identical));
+    }
+
+    @Test
+    public void identicalProfilesAreWrittenOnce() {
+        PDFDocument doc = createDocument(true);
+        ICC_Profile profile = ICC_Profile.getInstance(ColorSpace.CS_sRGB);
+        PDFICCStream first = doc.getFactory().makePDFICCStream(profile, null);
+        PDFICCStream second = doc.getFactory().makePDFICCStream(profile, null);
+        PDFICCStream third = doc.getFactory().makePDFICCStream(profile,
+                new PDFDeviceColorSpace(PDFDeviceColorSpace.DEVICE_RGB));
+        assertSame(first, second);
+        assertNotSame(first, third);
+    }
+
+    @Test
+    public void setupOfIdenticalImageLeavesNoObjectsBehind() {
+        PDFDocument doc = createDocument(true);
+        doc.addImage(null, createImage("a.png", Color.RED));
+        int objectCount = doc.objects.size();
+        int colorSpaceCount = doc.getResources().colorSpaces.size();
+        doc.addImage(null, createImage("b.png", Color.RED));
+        assertEquals(objectCount, doc.objects.size());
+        assertEquals(colorSpaceCount, doc.getResources().colorSpaces.size());
+    }
+}
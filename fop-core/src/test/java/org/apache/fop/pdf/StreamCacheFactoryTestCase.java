@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.pdf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class StreamCacheFactoryTestCase {
+
+    private static final int BUDGET = 1 << 20;
+
+    private final StreamCacheFactory factory = StreamCacheFactory.newInstance(BUDGET);
+
+    @After
+    public void close() throws IOException {
+        factory.close();
+    }
+
+    private static byte[] bytes(int size, int seed) {
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            data[i] = (byte) (i * 31 + seed);
+        }
+        return data;
+    }
+
+    private static byte[] contents(StreamCache cache) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(cache.getSize(), cache.outputContents(out));
+        return out.toByteArray();
+    }
+
+    @Test
+    public void smallStreamsStayInMemory() throws IOException {
+        BudgetedStreamCache cache = (BudgetedStreamCache) factory.createStreamCache();
+        byte[] data = bytes(1000, 1);
+        cache.getOutputStream().write(data);
+        assertFalse(cache.isSpilled());
+        assertTrue(factory.getAvailableMemory() < BUDGET);
+        assertArrayEquals(data, contents(cache));
+        cache.clear();
+        assertEquals(BUDGET, factory.getAvailableMemory());
+    }
+
+    @Test
+    public void largeStreamsAreSpilled() throws IOException {
+        BudgetedStreamCache cache = (BudgetedStreamCache) factory.createStreamCache();
+        byte[] data = bytes(300000, 2);
+        OutputStream out = cache.getOutputStream();
+        out.write(data, 0, 10);
+        for (int i = 10; i < data.length; i++) {
+            out.write(data[i]);
+        }
+        assertTrue(cache.isSpilled());
+        assertEquals(data.length, cache.getSize());
+        assertEquals(BUDGET - cache.getBufferCapacity(), factory.getAvailableMemory());
+        assertArrayEquals(data, contents(cache));
+    }
+
+    @Test
+    public void streamsSpillWhenBudgetIsExhausted() throws IOException {
+        StreamCache[] caches = new StreamCache[40];
+        byte[][] data = new byte[caches.length][];
+        for (int i = 0; i < caches.length; i++) {
+            caches[i] = factory.createStreamCache();
+            data[i] = bytes(60000, i);
+            caches[i].write(data[i]);
+        }
+        assertFalse(((BudgetedStreamCache) caches[0]).isSpilled());
+        assertTrue(((BudgetedStreamCache) caches[caches.length - 1]).isSpilled());
+        for (int i = 0; i < caches.length; i++) {
+            assertArrayEquals(data[i], contents(caches[i]));
+        }
+    }
+
+    @Test
+    public void smallStreamsPastTheBudgetStayWithinIt() throws IOException {
+        StreamCache[] full = new StreamCache[20];
+        for (int i = 0; i < full.length; i++) {
+            full[i] = factory.createStreamCache();
+            full[i].write(bytes(60000, i));
+        }
+        StreamCache[] caches = new StreamCache[2000];
+        byte[][] data = new byte[caches.length][];
+        for (int i = 0; i < caches.length; i++) {
+            caches[i] = factory.createStreamCache();
+            data[i] = bytes(200, i);
+            OutputStream out = caches[i].getOutputStream();
+            out.write(data[i], 0, 150);
+            for (int j = 150; j < data[i].length; j++) {
+                out.write(data[i][j]);
+            }
+        }
+        long held = 0;
+        for (StreamCache cache : full) {
+            held += ((BudgetedStreamCache) cache).getBufferCapacity();
+        }
+        assertTrue(((BudgetedStreamCache) caches[caches.length - 1]).isSpilled());
+        for (StreamCache cache : caches) {
+            held += ((BudgetedStreamCache) cache).getBufferCapacity();
+        }
+        assertTrue(held <= BUDGET);
+        assertTrue(factory.getAvailableMemory() >= 0);
+        for (int i = 0; i < caches.length; i++) {
+            assertArrayEquals(data[i], contents(caches[i]));
+            caches[i].clear();
+        }
+        for (StreamCache cache : full) {
+            cache.clear();
+        }
+        assertEquals(BUDGET, factory.getAvailableMemory());
+    }
+
+    @Test
+    public void spilledBlocksAreReused() throws IOException {
+        StreamCache first = factory.createStreamCache();
+        first.write(bytes(500000, 3));
+        int blocks = factory.getSpilledBlockCount();
+        assertTrue(blocks > 0);
+        first.clear();
+        StreamCache second = factory.createStreamCache();
+        byte[] data = bytes(400000, 4);
+        second.write(data);
+        assertEquals(blocks, factory.getSpilledBlockCount());
+        assertArrayEquals(data, contents(second));
+    }
+
+    @Test
+    public void pdfStreamMovesToDocumentCache() throws IOException {
+        PDFDocument doc = new PDFDocument("test");
+        doc.setStreamCacheMemory(BUDGET);
+        PDFStream stream = new PDFStream();
+        stream.add("BT /F1 12 Tf ET");
+        doc.registerObject(stream);
+        stream.add(" q Q");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        stream.outputRawStreamData(out);
+        assertEquals("BT /F1 12 Tf ET q Q", out.toString("US-ASCII"));
+        assertTrue(doc.getStreamCacheFactory().getAvailableMemory() < BUDGET);
+        doc.getStreamCacheFactory().close();
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/* $Id$ */
+
+package org.apache.fop.pdf.xref;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ObjectOffsetListTestCase {
+
+    @Test
+    public void testSetOffsetFillsGaps() {
+        ObjectOffsetList offsets = new ObjectOffsetList(1);
+        offsets.setOffset(3, 150L);
+        assertEquals(3, offsets.size());
+        assertNull(offsets.get(0));
+        assertNull(offsets.get(1));
+        assertEquals(Long.valueOf(150L), offsets.get(2));
+        assertEquals(-1L, offsets.getOffset(0));
+
+        offsets.setOffset(1, 15L);
+        assertEquals(3, offsets.size());
+        assertEquals(15L, offsets.getOffset(0));
+    }
+
+    @Test
+    public void testListOperations() {
+        ObjectOffsetList offsets = new ObjectOffsetList();
+        for (long i = 0; i < 1000; i++) {
+            offsets.add(i * 10);
+        }
+        offsets.add(null);
+        assertEquals(1001, offsets.size());
+        assertEquals(Long.valueOf(9990L), offsets.get(999));
+        assertNull(offsets.get(1000));
+        assertEquals(Long.valueOf(0L), offsets.set(0, 5L));
+        assertEquals(Long.valueOf(5L), offsets.remove(0));
+        assertEquals(Long.valueOf(10L), offsets.get(0));
+        offsets.clear();
+        assertEquals(0, offsets.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeOffset() {
+        new ObjectOffsetList().add(-5L);
+    }
+}
@@ -36,6 +36,7 @@ import org.apache.xmlgraphics.image.loader.ImageInfo;
 import org.apache.xmlgraphics.image.loader.impl.ImageRendered;
 
 import org.apache.fop.pdf.PDFAMode;
+import org.apache.fop.pdf.PDFDeviceColorSpace;
 import org.apache.fop.pdf.PDFDictionary;
 import org.apache.fop.pdf.PDFDocument;
 import org.apache.fop.pdf.PDFFactory;
@@ -184,6 +185,8 @@ public class ImageRenderedAdapterTestCase {
         when(iccProfile.getNumComponents()).thenReturn(4);
         when(iccStream.getICCProfile()).thenReturn(iccProfile);
         when(factory.makePDFICCStream()).thenReturn(iccStream);
+        when(factory.makePDFICCStream(any(ICC_Profile.class), any(PDFDeviceColorSpace.class)))
+                .thenReturn(iccStream);
         PDFICCBasedColorSpace iccbcs = new PDFICCBasedColorSpace(null, iccStream);
         when(factory.makeICCBasedColorSpace(null, null, iccStream)).thenReturn(iccbcs);
         when(doc.getFactory()).thenReturn(factory);
@@ -30,7 +30,9 @@ import org.apache.fop.apps.FOUserAgent;
 import org.apache.fop.apps.FopFactory;
 import org.apache.fop.apps.MimeConstants;
 import org.apache.fop.apps.PDFRendererConfBuilder;
+import org.apache.fop.pdf.ObjectStreamStrategy;
 import org.apache.fop.pdf.PDFDocument;
+import org.apache.fop.pdf.StreamCacheFactory;
 import org.apache.fop.render.intermediate.IFContext;
 import org.apache.fop.render.intermediate.IFException;
 
@@ -73,4 +75,46 @@ public class PDFRendererConfiguratorTestCase extends
         docHandler.startDocument();
         Assert.assertTrue(getDocHandler().getThePDFDocument().isFormXObjectEnabled());
     }
+
+    @Test
+    public void testStreamingEnabled() throws Exception {
+        parseConfig(createBuilder().setStreamingEnabled(true));
+        docHandler.startDocument();
+        Assert.assertTrue(getDocHandler().getThePDFDocument().isStreamingEnabled());
+    }
+
+    @Test
+    public void testCompressionThreads() throws Exception {
+        parseConfig(createBuilder().setCompressionThreads(4));
+        docHandler.startDocument();
+        Assert.assertEquals(4, getDocHandler().getThePDFDocument().getCompressionThreads());
+        Assert.assertTrue(getDocHandler().getThePDFDocument().isParallelCompressionEnabled());
+    }
+
+    @Test
+    public void testStreamCacheMemory() throws Exception {
+        parseConfig(createBuilder().setStreamCacheMemory(1 << 20));
+        docHandler.startDocument();
+        StreamCacheFactory factory = getDocHandler().getThePDFDocument().getStreamCacheFactory();
+        Assert.assertTrue(factory.isBudgeted());
+        Assert.assertEquals(1 << 20, factory.getAvailableMemory());
+    }
+
+    @Test
+    public void testStreamDeduplication() throws Exception {
+        parseConfig(createBuilder().setStreamDeduplicationEnabled(true));
+        docHandler.startDocument();
+        Assert.assertTrue(getDocHandler().getThePDFDocument().isStreamDeduplicationEnabled());
+    }
+
+    @Test
+    public void testObjectStreamStrategy() throws Exception {
+        parseConfig(createBuilder().setObjectStreamCapacity(500).setObjectStreamMaxBytes(65536)
+                .setObjectStreamGrouping(true));
+        docHandler.startDocument();
+        ObjectStreamStrategy strategy = getDocHandler().getThePDFDocument().getObjectStreamStrategy();
+        Assert.assertEquals(500, strategy.getCapacity());
+        Assert.assertEquals(65536, strategy.getMaxBytes());
+        Assert.assertTrue(strategy.isGroupedByKind());
+    }
 }